@@ -0,0 +1,240 @@
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+
+/**
+ * Compiles many inputs in one JVM, running Main on each of them concurrently on a work-stealing pool.
+ *
+ * Usage: java BatchCompiler pass [options] (-manifest file | input...)
+ *
+ * An input is a file name or a glob pattern such as 'tests/gen/*.c', quoted so that the shell leaves it
+ * alone; each compiles to its own name with the extension replaced by .s, or with -unit, that of a
+ * source replaced by .u and .u added to that of a header, so that units never clash. A manifest lists one
+ * "inputfile outputfile" pair per line, skipping blank lines and lines starting with #.
+ * The options are those of Main, applied to every input, and -v to print what each compile printed.
+ *
+ * The exit status of every input is reported in input order, followed by a summary and the throughput.
+ * The batch exits with 0 if every input passed, and 1 otherwise.
+ */
+public class BatchCompiler {
+
+    private static final List<String> MAIN_OPTIONS = Arrays.asList("-reader", "-dfa", "-parallel", "-ll1", "-time", "-unit", "-flat", "-stream", "-pipeline");
+    private static final List<String> MAIN_OPTIONS_WITH_ARGUMENT = Arrays.asList("-cache", "-remote-cache", "-incremental");
+
+    private static int usage() {
+        System.out.println("Usage: java "+BatchCompiler.class.getSimpleName()+" pass [options] (-manifest file | input...)");
+        System.out.println("where pass is either: -lexer, -parser, -ast, -sem or -gen");
+        System.out.println("and options are -v, to print the output of every compile, or any option of Main");
+        return -1;
+    }
+
+    /*
+     * One compile of the batch, with what it printed.
+     */
+    private static final class Job {
+        final String input;
+        final String[] args;
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final ByteArrayOutputStream err = new ByteArrayOutputStream();
+        int status;
+
+        Job(String pass, String input, String output, List<String> options) {
+            this.input = input;
+            List<String> args = new ArrayList<>(Arrays.asList(pass, input, output));
+            args.addAll(options);
+            this.args = args.toArray(new String[0]);
+        }
+
+        void run() {
+            PrintStream out = new PrintStream(this.out, true);
+            PrintStream err = new PrintStream(this.err, true);
+            try {
+                status = Main.run(args, null, out, err);
+            } catch (Throwable t) {
+                // report it as the JVM would have, and carry on with the rest of the batch
+                err.print("Exception in thread \"main\" ");
+                t.printStackTrace(err);
+                status = 1;
+            }
+            out.flush();
+            err.flush();
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        System.exit(run(args));
+    }
+
+    private static int run(String[] args) throws IOException {
+        if (args.length < 2)
+            return usage();
+        String pass = args[0];
+
+        boolean verbose = false;
+        String manifest = null;
+        List<String> options = new ArrayList<>();
+        List<String> inputs = new ArrayList<>();
+        for (int i = 1; i < args.length; i++) {
+            if (args[i].equals("-v"))
+                verbose = true;
+            else if (args[i].equals("-manifest") && i + 1 < args.length)
+                manifest = args[++i];
+            else if (MAIN_OPTIONS.contains(args[i]))
+                options.add(args[i]);
+            else if (MAIN_OPTIONS_WITH_ARGUMENT.contains(args[i]) && i + 1 < args.length)
+                options.addAll(Arrays.asList(args[i], args[++i]));
+            else if (args[i].startsWith("-"))
+                return usage();
+            else
+                inputs.add(args[i]);
+        }
+        if ((manifest == null) == inputs.isEmpty())
+            return usage();
+
+        List<Job> jobs = new ArrayList<>();
+        if (manifest != null) {
+            try (BufferedReader reader = new BufferedReader(new FileReader(manifest))) {
+                for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                    line = line.trim();
+                    if (line.isEmpty() || line.startsWith("#"))
+                        continue;
+                    String[] files = line.split("\\s+");
+                    if (files.length != 2) {
+                        System.out.println(manifest+": expected \"inputfile outputfile\", found \""+line+"\"");
+                        return -1;
+                    }
+                    jobs.add(new Job(pass, files[0], files[1], options));
+                }
+            }
+        } else {
+            for (String input : inputs)
+                for (String file : expand(input))
+                    jobs.add(new Job(pass, file, outputFor(file, options.contains("-unit")), options));
+        }
+
+        long start = System.nanoTime();
+        List<RecursiveAction> tasks = new ArrayList<>();
+        for (Job job : jobs) {
+            tasks.add(new RecursiveAction() {
+                @Override
+                protected void compute() {
+                    job.run();
+                }
+            });
+        }
+        ForkJoinPool pool = new ForkJoinPool();
+        try {
+            pool.invoke(new RecursiveAction() {
+                @Override
+                protected void compute() {
+                    invokeAll(tasks);
+                }
+            });
+        } finally {
+            pool.shutdown();
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        int[] counts = new int[Status.values().length];
+        for (Job job : jobs) {
+            Status status = Status.of(job.status);
+            counts[status.ordinal()]++;
+            System.out.println(job.input+": "+status.describe(job.status));
+            if (verbose) {
+                System.out.write(job.out.toByteArray());
+                System.err.write(job.err.toByteArray());
+                System.err.flush();
+            }
+        }
+
+        StringBuilder summary = new StringBuilder();
+        summary.append(jobs.size()).append(" files");
+        String sep = ": ";
+        for (Status status : Status.values()) {
+            if (counts[status.ordinal()] > 0) {
+                summary.append(sep).append(counts[status.ordinal()]).append(' ').append(status);
+                sep = ", ";
+            }
+        }
+        System.out.println(summary);
+        System.out.printf("%.2f s, %.1f files/s%n", seconds, jobs.size() / seconds);
+        return counts[Status.PASS.ordinal()] == jobs.size() ? 0 : 1;
+    }
+
+    /*
+     * The exit statuses of Main, by name.
+     */
+    private enum Status {
+        PASS(Main.PASS), FILE_NOT_FOUND(Main.FILE_NOT_FOUND), LEXER_FAIL(Main.LEXER_FAIL),
+        PARSER_FAIL(Main.PARSER_FAIL), SEM_FAIL(Main.SEM_FAIL), MODE_FAIL(Main.MODE_FAIL), ERROR(-1);
+
+        final int code;
+
+        Status(int code) {
+            this.code = code;
+        }
+
+        static Status of(int code) {
+            for (Status s : values())
+                if (s.code == code)
+                    return s;
+            return ERROR;
+        }
+
+        String describe(int code) {
+            return this+" ("+code+")";
+        }
+    }
+
+    /*
+     * Returns the files matching a glob pattern in sorted order, or the name itself if it is not a pattern.
+     */
+    private static List<String> expand(String input) throws IOException {
+        if (input.chars().noneMatch(c -> "*?[{".indexOf(c) >= 0))
+            return Arrays.asList(input);
+
+        // walk from the longest leading directory without any wildcard
+        Path pattern = Paths.get(input);
+        Path base = pattern.isAbsolute() ? pattern.getRoot() : Paths.get("");
+        for (Path part : pattern) {
+            if (part.toString().chars().anyMatch(c -> "*?[{".indexOf(c) >= 0))
+                break;
+            base = base.resolve(part);
+        }
+        PathMatcher matcher = FileSystems.getDefault().getPathMatcher("glob:" + input);
+        if (!Files.isDirectory(base))
+            return new ArrayList<>();
+        try (Stream<Path> files = Files.walk(base)) {
+            return files.filter(p -> Files.isRegularFile(p) && matcher.matches(p))
+                    .map(Path::toString)
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+
+    // the input with its extension replaced by .s, or the unit of the input
+    private static String outputFor(String input, boolean unit) {
+        if (unit)
+            return input.endsWith(".c") ? input.substring(0, input.length() - 2) + ".u" : input + ".u";
+        String name = new File(input).getName();
+        int dot = name.lastIndexOf('.');
+        String stem = dot > 0 ? input.substring(0, input.length() - (name.length() - dot)) : input;
+        return stem + ".s";
+    }
+}
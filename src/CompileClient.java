@@ -0,0 +1,73 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.ConnectException;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.util.Arrays;
+
+
+/**
+ * Runs Main on a CompileServer: takes the same arguments as Main, prints what it prints
+ * and exits with its status.
+ *
+ * Usage: java CompileClient [-port n] pass inputfile outputfile [options]
+ *
+ * When no server is listening, the compile simply runs in this JVM.
+ */
+public class CompileClient {
+
+    public static void main(String[] args) throws IOException {
+        int port = CompileServer.DEFAULT_PORT;
+        if (args.length >= 2 && args[0].equals("-port")) {
+            port = Integer.parseInt(args[1]);
+            args = Arrays.copyOfRange(args, 2, args.length);
+        }
+
+        Socket socket;
+        try {
+            socket = new Socket(InetAddress.getLoopbackAddress(), port);
+        } catch (ConnectException e) {
+            Main.main(args);
+            return;
+        }
+
+        int status;
+        try (Socket server = socket) {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(server.getOutputStream()));
+            out.writeUTF(new File("").getAbsolutePath());
+            out.writeInt(args.length);
+            for (String arg : args)
+                out.writeUTF(arg);
+            out.flush();
+
+            DataInputStream in = new DataInputStream(new BufferedInputStream(server.getInputStream()));
+            byte[] buffer = new byte[8192];
+            while (true) {
+                byte kind = in.readByte();
+                if (kind == CompileServer.EXIT) {
+                    status = in.readInt();
+                    break;
+                }
+                PrintStream to = kind == CompileServer.OUT ? System.out : System.err;
+                int length = in.readInt();
+                if (length > buffer.length)
+                    buffer = new byte[length];
+                in.readFully(buffer, 0, length);
+                to.write(buffer, 0, length);
+            }
+        } catch (EOFException e) {
+            System.out.flush();
+            System.err.println("The compile server closed the connection before the compile finished.");
+            status = -1;
+        }
+        System.out.flush();
+        System.err.flush();
+        System.exit(status);
+    }
+}
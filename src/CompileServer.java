@@ -0,0 +1,149 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+
+/**
+ * Keeps a compiler resident on a loopback socket, so that each compile runs on a warmed-up JVM
+ * instead of paying for startup and interpretation again. CompileClient sends it the arguments
+ * of Main and gets back what Main would have printed, and its exit status.
+ *
+ * Usage: java CompileServer [-port n]
+ *
+ * A request is the client's working directory followed by the arguments, as UTF strings.
+ * The reply is a sequence of frames, each a kind byte: OUT or ERR followed by a length and that
+ * many bytes of output, or EXIT followed by the exit status, which ends the reply.
+ *
+ * Clients are served on a fixed pool of a thread per CPU, as BatchCompiler compiles its inputs,
+ * and Main prints straight to each connection, so compiles from several clients run at the same
+ * time without any number of clients starting any number of threads.
+ */
+public class CompileServer {
+    static final int DEFAULT_PORT = 7219;
+
+    static final byte EXIT = 0;
+    static final byte OUT  = 1;
+    static final byte ERR  = 2;
+
+    // connections accepted per compile thread, running or waiting for it
+    private static final int QUEUED_PER_THREAD = 4;
+
+    public static void main(String[] args) throws IOException {
+        int port = DEFAULT_PORT;
+        if (args.length == 2 && args[0].equals("-port")) {
+            port = Integer.parseInt(args[1]);
+        } else if (args.length != 0) {
+            System.out.println("Usage: java "+CompileServer.class.getSimpleName()+" [-port n]");
+            return;
+        }
+
+        // one compile per CPU at a time; the connections accepted beyond that wait for a thread, and
+        // once enough are waiting the accept loop waits too, leaving further clients in the backlog
+        int threads = Runtime.getRuntime().availableProcessors();
+        AtomicInteger started = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(threads,
+                r -> new Thread(r, "compile "+started.incrementAndGet()));
+        Semaphore accepted = new Semaphore(threads * QUEUED_PER_THREAD);
+
+        try (ServerSocket server = new ServerSocket(port, 50, InetAddress.getLoopbackAddress())) {
+            System.out.println("Compile server listening on "+server.getLocalSocketAddress());
+            while (true) {
+                accepted.acquireUninterruptibly();
+                Socket client = server.accept();
+                pool.execute(() -> {
+                    try (Socket connection = client) {
+                        serve(connection);
+                    } catch (IOException e) {
+                        // the client went away, which only concerns that client
+                        e.printStackTrace();
+                    } finally {
+                        accepted.release();
+                    }
+                });
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private static void serve(Socket client) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(client.getInputStream()));
+        File dir = new File(in.readUTF());
+        String[] args = new String[in.readInt()];
+        for (int i = 0; i < args.length; i++)
+            args[i] = in.readUTF();
+
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(client.getOutputStream()));
+        PrintStream clientOut = new PrintStream(new BufferedOutputStream(new Frames(out, OUT)), true);
+        PrintStream clientErr = new PrintStream(new BufferedOutputStream(new Frames(out, ERR)), true);
+        int status;
+        try {
+            status = Main.run(args, dir, clientOut, clientErr);
+        } catch (Throwable t) {
+            // report it as the JVM would have, and carry on serving
+            clientErr.print("Exception in thread \"main\" ");
+            t.printStackTrace(clientErr);
+            status = 1;
+        } finally {
+            clientOut.flush();
+            clientErr.flush();
+        }
+
+        synchronized (out) {
+            out.writeByte(EXIT);
+            out.writeInt(status);
+            out.flush();
+        }
+        if (clientOut.checkError() || clientErr.checkError())
+            throw new IOException("lost the connection to the client");
+    }
+
+    /*
+     * Sends what is written to it as frames of the given kind.
+     * Output and errors share the connection, so frames are written whole.
+     */
+    private static final class Frames extends OutputStream {
+        private final DataOutputStream out;
+        private final byte kind;
+
+        Frames(DataOutputStream out, byte kind) {
+            this.out = out;
+            this.kind = kind;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[] {(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (len == 0)
+                return;
+            synchronized (out) {
+                out.writeByte(kind);
+                out.writeInt(len);
+                out.write(b, off, len);
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            synchronized (out) {
+                out.flush();
+            }
+        }
+    }
+}
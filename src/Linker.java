@@ -0,0 +1,208 @@
+import gen.UnitCodeGenerator;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+
+/**
+ * Links units written by Main -gen -unit into one program.
+ *
+ * Usage: java Linker outputfile unit...
+ *
+ * Every import of a unit must be exported by exactly one of the units, as a symbol of the same kind
+ * and signature, and exactly one unit must export main. The globals of the units are then written
+ * one after the other, followed by their strings and their text sections, so that every label of a
+ * function, func_<name>_start, and of a global is defined once. Strings spelt the same are kept
+ * once: all but the first are dropped, and what refers to them refers to the first instead.
+ *
+ * The linker exits with 0 if the program was written, 1 if the units do not link, and 2 if a unit
+ * cannot be read.
+ */
+public class Linker {
+
+    private static final Pattern SYMBOL = Pattern.compile("# (import|export) (function|global) (\\S+) (.*)");
+    private static final Pattern STRING = Pattern.compile("(func_\\w+_str\\d+): \\.asciiz (\".*\")");
+    private static final Pattern LABEL = Pattern.compile("[A-Za-z_][A-Za-z0-9_]*");
+
+    /*
+     * A symbol a unit exports or imports.
+     */
+    private static final class Symbol {
+        final String unit;
+        final String kind;
+        final String name;
+        final String signature;
+
+        Symbol(String unit, String kind, String name, String signature) {
+            this.unit = unit;
+            this.kind = kind;
+            this.name = name;
+            this.signature = signature;
+        }
+
+        String describe() {
+            return kind + " " + name + " " + signature;
+        }
+    }
+
+    /*
+     * A unit as read: its symbols, and the lines of its sections.
+     */
+    private static final class Unit {
+        final String name;
+        final List<Symbol> exports = new ArrayList<>();
+        final List<Symbol> imports = new ArrayList<>();
+        final List<String> data = new ArrayList<>();
+        final List<String> text = new ArrayList<>();
+
+        Unit(String name) {
+            this.name = name;
+        }
+    }
+
+    private static int usage() {
+        System.out.println("Usage: java "+Linker.class.getSimpleName()+" outputfile unit...");
+        System.out.println("where each unit was written by: java Main -gen inputfile unitfile -unit");
+        return -1;
+    }
+
+    public static void main(String[] args) {
+        System.exit(link(args));
+    }
+
+    static int link(String[] args) {
+        if (args.length < 2)
+            return usage();
+
+        List<Unit> units = new ArrayList<>();
+        for (int i = 1; i < args.length; i++) {
+            try {
+                units.add(read(args[i]));
+            } catch (NoSuchFileException e) {
+                System.out.println("File "+args[i]+" does not exist.");
+                return Main.FILE_NOT_FOUND;
+            } catch (IOException e) {
+                System.out.println("Link error: "+e.getMessage());
+                return Main.FILE_NOT_FOUND;
+            }
+        }
+
+        List<String> errors = new ArrayList<>();
+        Map<String, Symbol> exported = new HashMap<>();
+        for (Unit unit : units) {
+            for (Symbol s : unit.exports) {
+                Symbol other = exported.putIfAbsent(s.name, s);
+                if (other != null)
+                    errors.add(s.name+" is defined by both "+other.unit+" and "+s.unit);
+            }
+        }
+        for (Unit unit : units) {
+            for (Symbol s : unit.imports) {
+                Symbol definition = exported.get(s.name);
+                if (definition == null)
+                    errors.add(s.unit+" uses "+s.name+", which no unit defines");
+                else if (!definition.kind.equals(s.kind) || !definition.signature.equals(s.signature))
+                    errors.add(s.unit+" uses "+s.describe()+", but "+definition.unit+" defines "+definition.describe()
+                            +" (compile it again)");
+            }
+        }
+        Symbol main = exported.get("main");
+        if (main == null || !main.kind.equals("function"))
+            errors.add("no unit defines the function main");
+        if (!errors.isEmpty()) {
+            for (String error : errors)
+                System.out.println("Link error: "+error);
+            return 1;
+        }
+
+        // the globals go first, as in a program compiled whole, so that they stay aligned; then the
+        // strings, those spelt the same kept once, under the first label they had
+        Map<String, String> labels = new LinkedHashMap<>();     // contents -> label
+        Map<String, String> renamed = new HashMap<>();          // dropped label -> label kept
+        List<String> data = new ArrayList<>();
+        List<String> strings = new ArrayList<>();
+        for (Unit unit : units) {
+            for (String line : unit.data) {
+                Matcher m = STRING.matcher(line);
+                if (!m.matches()) {
+                    data.add(line);
+                    continue;
+                }
+                String kept = labels.putIfAbsent(m.group(2), m.group(1));
+                if (kept != null)
+                    renamed.put(m.group(1), kept);
+                else
+                    strings.add(line);
+            }
+        }
+        data.addAll(strings);
+
+        try (PrintWriter out = new PrintWriter(args[0], StandardCharsets.UTF_8.name())) {
+            out.println(".data");
+            out.println();
+            for (String line : data)
+                out.println(line);
+            out.println();
+            out.println(".text");
+            out.println();
+            for (Unit unit : units)
+                for (String line : unit.text)
+                    out.println(renamed.isEmpty() ? line : relabel(line, renamed));
+        } catch (IOException e) {
+            System.out.println("File "+args[0]+" does not exist.");
+            return Main.FILE_NOT_FOUND;
+        }
+        return 0;
+    }
+
+    private static Unit read(String name) throws IOException {
+        List<String> lines = Files.readAllLines(new File(name).toPath(), StandardCharsets.UTF_8);
+        if (lines.isEmpty() || !lines.get(0).equals(UnitCodeGenerator.MAGIC))
+            throw new IOException(name+" is not a unit");
+        Unit unit = new Unit(name);
+        List<String> section = null;
+        for (String line : lines.subList(1, lines.size())) {
+            Matcher m = SYMBOL.matcher(line);
+            if (section == null && m.matches()) {
+                Symbol s = new Symbol(name, m.group(2), m.group(3), m.group(4));
+                (m.group(1).equals("export") ? unit.exports : unit.imports).add(s);
+            } else if (line.equals(".data")) {
+                section = unit.data;
+            } else if (line.equals(".text")) {
+                section = unit.text;
+            } else if (section != null && (section == unit.text || !line.isEmpty())) {
+                section.add(line);
+            }
+        }
+        return unit;
+    }
+
+    // labels are whole words: a label that merely starts like a dropped one is left alone
+    private static String relabel(String line, Map<String, String> renamed) {
+        Matcher m = LABEL.matcher(line);
+        StringBuffer sb = null;
+        while (m.find()) {
+            String label = renamed.get(m.group());
+            if (label != null) {
+                if (sb == null)
+                    sb = new StringBuffer();
+                m.appendReplacement(sb, Matcher.quoteReplacement(label));
+            }
+        }
+        if (sb == null)
+            return line;
+        m.appendTail(sb);
+        return sb.toString();
+    }
+}
@@ -1,16 +1,55 @@
 import ast.ASTPrinter;
+import ast.FlatPrinter;
+import ast.FlatProgram;
+import ast.FunDecl;
 import ast.Program;
+import ast.StructTypeDecl;
+import ast.VarDecl;
+import cache.CompileCache;
+import cache.FunctionCache;
+import cache.HeaderCache;
+import cache.RemoteCache;
+import cache.ResultCache;
+import cache.TieredCache;
 import gen.CodeGenerator;
+import gen.IncrementalCodeGenerator;
+import gen.IncrementalCodeGenerator.Fragment;
+import gen.ParallelCodeGenerator;
+import gen.StreamingCodeGenerator;
+import gen.UnitCodeGenerator;
+import lexer.DfaTokeniser;
+import lexer.ParallelTokeniser;
 import lexer.Scanner;
 import lexer.Token;
 import lexer.Tokeniser;
+import parser.Declarations;
+import parser.LL1Parser;
+import parser.ParallelParser;
+import parser.PipelinedParser;
 import parser.Parser;
+import parser.ProgramParser;
+import sem.FunctionAnalyzer;
+import sem.IncrementalSemanticAnalyzer;
+import sem.ParallelSemanticAnalyzer;
 import sem.SemanticAnalyzer;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
 import java.io.PrintWriter;
 import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.net.MalformedURLException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
 
 
 /**
@@ -20,27 +59,108 @@ import java.io.StringWriter;
  *     which returns the total number of lexing errors.
  */
 public class Main {
-	private static final int FILE_NOT_FOUND = 2;
-    private static final int MODE_FAIL      = 254;
-    private static final int LEXER_FAIL     = 250;
-    private static final int PARSER_FAIL    = 245;
-    private static final int SEM_FAIL       = 240;
-    private static final int PASS           = 0;
+	static final int FILE_NOT_FOUND = 2;
+    static final int MODE_FAIL      = 254;
+    static final int LEXER_FAIL     = 250;
+    static final int PARSER_FAIL    = 245;
+    static final int SEM_FAIL       = 240;
+    static final int PASS           = 0;
     
     private enum Mode {
         LEXER, PARSER, AST, SEMANTICANALYSIS, GEN
     }
 
-    private static void usage() {
-        System.out.println("Usage: java "+Main.class.getSimpleName()+" pass inputfile outputfile");
-        System.out.println("where pass is either: -lexer, -parser, -ast, -sem or -gen");
-        System.exit(-1);
+    private static int usage(PrintStream out) {
+        out.println("Usage: java "+Main.class.getSimpleName()+" pass inputfile outputfile [options]");
+        out.println("where pass is either: -lexer, -parser, -ast, -sem or -gen");
+        out.println("and options are any of:");
+        out.println("  -reader    read the input through the character-at-a-time reader instead of mapping it");
+        out.println("  -dfa       lex with the generated automaton instead of the hand-written tokeniser");
+        out.println("  -parallel  lex chunks of the input, then parse, check and generate functions in parallel");
+        out.println("  -ll1       parse with the generated LL(1) tables instead of the hand-written parser");
+        out.println("  -cache dir reuse the results of earlier -sem and -gen compiles of the same input, kept in dir");
+        out.println("  -remote-cache url  reuse and share such results through the cache server at url");
+        out.println("  -incremental dir  only check and generate the functions that changed since the last compile");
+        out.println("  -time      print how long each phase took to standard error");
+        out.println("  -unit      with -gen, write a unit of this file alone, to be linked by "+Linker.class.getSimpleName()
+                +" with the units of the files it includes");
+        out.println("  -flat      with -ast, print the tree by walking its flat form (see "+FlatProgram.class.getSimpleName()+")");
+        out.println("  -stream    with -sem or -gen, check and generate each declaration as soon as it is parsed,"
+                +" holding one function at a time");
+        out.println("  -pipeline  as -stream, but lex, parse, and check and generate, on threads of their own;"
+                +" with -time, print how busy each was");
+        out.println("or: java "+Main.class.getSimpleName()+" -watch dir [pass] [options]");
+        out.println("to compile the sources in dir again whenever they change");
+        return -1;
+    }
+
+    // the headers compiled so far, kept for every compile of the process
+    private static final HeaderCache HEADERS = new HeaderCache();
+
+    // included may be null; if not, the program is parsed with the struct types of its headers
+    private static ProgramParser parser(Tokeniser tokeniser, boolean ll1, boolean parallel,
+                                        HeaderCache.Included included, PrintStream out) {
+        ProgramParser parser;
+        if (ll1)
+            parser = new LL1Parser(tokeniser);
+        else
+            parser = parallel ? new ParallelParser(tokeniser) : new Parser(tokeniser);
+        parser.setDiagnostics(out);
+        if (included != null)
+            parser.setTypes(included.types);
+        return parser;
     }
 
     public static void main(String[] args) {
+        if (args.length > 0 && args[0].equals("-watch"))
+            System.exit(Watcher.watch(args));
+        System.exit(run(args, null, System.out, System.err));
+    }
+
+    /*
+     * How long the phases of a compile took, for -time.
+     */
+    private static final class Timing {
+        private final long start = System.nanoTime();
+        private long last = start;
+        private final StringBuilder phases = new StringBuilder();
+        private final StringBuilder details = new StringBuilder();
+
+        // the phase called name ends now; nothing is timed without -time
+        static void phase(Timing timing, String name) {
+            if (timing == null)
+                return;
+            long now = System.nanoTime();
+            timing.phases.append(name).append(' ').append(millis(now - timing.last)).append(", ");
+            timing.last = now;
+        }
 
-        if (args.length != 3)
-            usage();
+        // a line to print after the phases, about what went on inside them
+        static void detail(Timing timing, String line) {
+            if (timing != null)
+                timing.details.append(line).append(System.lineSeparator());
+        }
+
+        void print(PrintStream out) {
+            out.println("Timing: " + phases + "total " + millis(System.nanoTime() - start));
+            out.print(details);
+        }
+
+        private static String millis(long nanos) {
+            return String.format("%.1f ms", nanos / 1e6);
+        }
+    }
+
+    /*
+     * Does what main does, relative file names being resolved against dir (the working directory if null),
+     * but prints to out and err instead of System.out and System.err, and returns the exit status
+     * instead of exiting. Compile servers and batches can therefore run any number of compiles at once.
+     */
+    public static int run(String[] args, File dir, PrintStream out, PrintStream err) {
+
+        if (args.length < 3)
+            return usage(out);
+        Timing timing = Arrays.asList(args).contains("-time") ? new Timing() : null;
 
         Mode mode = null;
         switch (args[0]) {
@@ -48,90 +168,497 @@ public class Main {
             case "-ast":   mode = Mode.AST; break;		case "-sem":    mode = Mode.SEMANTICANALYSIS; break;
             case "-gen":   mode = Mode.GEN; break;
             default:
-                usage();
-                break;
+                return usage(out);
+        }
+
+        boolean reader = false;
+        boolean dfa = false;
+        boolean parallel = false;
+        boolean ll1 = false;
+        boolean unit = false;
+        boolean flat = false;
+        boolean stream = false;
+        boolean pipeline = false;
+        File cacheDir = null;
+        RemoteCache remote = null;
+        File incrementalDir = null;
+        List<String> options = new ArrayList<>();
+        for (int i = 3; i < args.length; i++) {
+            switch (args[i]) {
+                case "-reader": reader = true; break;
+                case "-dfa":    dfa = true; break;
+                case "-parallel": parallel = true; break;
+                case "-ll1":    ll1 = true; break;
+                case "-unit":   unit = true; break;
+                case "-flat":   flat = true; break;
+                case "-stream": stream = true; break;
+                case "-pipeline": stream = pipeline = true; break;
+                case "-time":   continue;  // does not change the result, so is no part of its key
+                case "-cache":
+                    if (i + 1 == args.length)
+                        return usage(out);
+                    cacheDir = new File(args[++i]);
+                    continue;
+                case "-incremental":
+                    if (i + 1 == args.length)
+                        return usage(out);
+                    incrementalDir = new File(args[++i]);
+                    continue;
+                case "-remote-cache":
+                    if (i + 1 == args.length)
+                        return usage(out);
+                    try {
+                        remote = new RemoteCache(args[++i]);
+                    } catch (MalformedURLException e) {
+                        return usage(out);
+                    }
+                    continue;
+                default:
+                    return usage(out);
+            }
+            options.add(args[i]);
         }
+        // the automaton and the parallel lexer need the whole input in memory
+        if (reader && (dfa || parallel))
+            return usage(out);
+        if (unit && mode != Mode.GEN)
+            return usage(out);
+        if (flat && mode != Mode.AST)
+            return usage(out);
+        // streaming never holds the program, which the other parsers, units and incremental compiles need
+        if (stream && ((mode != Mode.SEMANTICANALYSIS && mode != Mode.GEN) || parallel || ll1 || unit
+                || incrementalDir != null))
+            return usage(out);
 
         File inputFile = new File(args[1]);
         File outputFile = new File(args[2]);
+        File source = resolve(dir, inputFile);
+
+        // the results of checking and generating code are worth keeping
+        ResultCache cache = null;
+        String key = null;
+        if ((cacheDir != null || remote != null) && (mode == Mode.SEMANTICANALYSIS || mode == Mode.GEN) && source.isFile()) {
+            try {
+                key = CompileCache.key(args[0], options, source);
+                cache = remote;
+                if (cacheDir != null) {
+                    CompileCache local = new CompileCache(resolve(dir, cacheDir), CompileCache.DEFAULT_MAX_SIZE);
+                    cache = remote == null ? local : new TieredCache(local, remote);
+                }
+                CompileCache.Result hit = cache.get(key);
+                if (hit != null) {
+                    int status = replay(hit, resolve(dir, outputFile), outputFile, out, err);
+                    Timing.phase(timing, "cache hit");
+                    if (timing != null)
+                        timing.print(err);
+                    return status;
+                }
+            } catch (IOException e) {
+                // the cache only saves time, so compile as if there were none
+                cache = null;
+            }
+        }
+
+        // what is left of the last compile of this source
+        FunctionCache functions = null;
+        if (incrementalDir != null && (mode == Mode.SEMANTICANALYSIS || mode == Mode.GEN) && source.isFile()) {
+            try {
+                functions = FunctionCache.load(resolve(dir, incrementalDir), source);
+            } catch (IOException e) {
+                // compile it all again
+            }
+            Timing.phase(timing, "load");
+        }
 
         Scanner scanner;
         try {
-            scanner = new Scanner(inputFile);
+            scanner = reader ? new Scanner(source) : Scanner.map(source);
+        } catch (FileNotFoundException e) {
+            out.println("File "+inputFile.toString()+" does not exist.");
+            return FILE_NOT_FOUND;
+        } catch (IOException e) {
+            e.printStackTrace(err);
+            return -1;
+        }
+
+        Timing.phase(timing, "read");
+        PrintStream timingOut = err;    // timings are not kept in the cache: a hit takes its own time
+
+        CompileCache.Transcript printed = null;
+        if (cache != null) {
+            printed = new CompileCache.Transcript();
+            out = printed.out(out);
+            err = printed.err(err);
+        }
+
+        try {
+            // the headers go first, as their declarations do
+            HeaderCache.Included included = null;
+            if (mode == Mode.SEMANTICANALYSIS || mode == Mode.GEN) {
+                included = HEADERS.include(source, incrementalDir == null ? null : resolve(dir, incrementalDir),
+                        out, err);
+                Timing.phase(timing, "headers");
+            }
+            int status = compile(mode, scanner, resolve(dir, outputFile), outputFile, dfa, parallel, ll1, unit,
+                    flat, stream, pipeline, included, functions, timing, out, err);
+            if (cache != null && (status == PASS || status == LEXER_FAIL || status == PARSER_FAIL || status == SEM_FAIL)) {
+                out.flush();
+                err.flush();
+                try {
+                    byte[] assembly = mode == Mode.GEN && status == PASS
+                            ? Files.readAllBytes(resolve(dir, outputFile).toPath()) : null;
+                    cache.put(key, new CompileCache.Result(status, printed.toByteArray(), assembly));
+                } catch (IOException e) {
+                    // not kept this time
+                }
+            }
+            if (timing != null)
+                timing.print(timingOut);
+            return status;
+        } catch (UncheckedIOException e) {
+            // reading the input failed half way through
+            e.getCause().printStackTrace(err);
+            return -1;
+        } catch (IOException e) {
+            // as did reading a header
+            e.printStackTrace(err);
+            return -1;
+        } finally {
+            try {
+                scanner.close();
+            } catch (IOException e) {
+                // nothing left to read from it anyway
+            }
+        }
+    }
+
+    /*
+     * Does what the compile that left the cached result did: prints the same and writes the same assembly.
+     */
+    private static int replay(CompileCache.Result result, File outputFile, File outputName, PrintStream out, PrintStream err) {
+        if (result.output != null) {
+            try (FileOutputStream assembly = new FileOutputStream(outputFile)) {
+                assembly.write(result.output);
+            } catch (FileNotFoundException e) {
+                out.println("File "+outputName.toString()+" does not exist.");
+                return FILE_NOT_FOUND;
+            } catch (IOException e) {
+                e.printStackTrace(err);
+                return -1;
+            }
+        }
+        try {
+            result.replay(out, err);
+        } catch (IOException e) {
+            e.printStackTrace(err);
+            return -1;
+        }
+        return result.status;
+    }
+
+    // only the functions that changed are analysed incrementally, and so on a single thread
+    private static SemanticAnalyzer analyzer(boolean parallel, Map<FunDecl, Fragment> unchanged) {
+        if (unchanged != null)
+            return new IncrementalSemanticAnalyzer(unchanged.keySet());
+        return parallel ? new ParallelSemanticAnalyzer() : new SemanticAnalyzer();
+    }
+
+    // what need not be analysed nor lowered again: the functions of the headers, and those left by the last compile
+    private static Map<FunDecl, Fragment> unchanged(HeaderCache.Included included, FunctionCache functions,
+                                                    Program program, boolean code) {
+        if (included.isEmpty() && functions == null)
+            return null;
+        Map<FunDecl, Fragment> unchanged = new IdentityHashMap<>();
+        if (functions != null)
+            unchanged.putAll(functions.unchanged(program, code));
+        unchanged.putAll(included.fragments);
+        return unchanged;
+    }
+
+    private static void remember(FunctionCache functions, Map<FunDecl, Fragment> generated, Timing timing) {
+        try {
+            functions.update(generated);
+        } catch (IOException e) {
+            // the next compile will just do more work
+        }
+        Timing.phase(timing, "remember");
+    }
+
+    /*
+     * Checks, and for -gen lowers, each top-level declaration as soon as the parser completes it, so that
+     * no more than one function is held at a time: the structs, the globals and the headers of the
+     * functions are all that is kept. The headers' declarations go in front of the source's own, as
+     * their functions' fragments do.
+     *
+     * Semantic errors are held until the parser is done, as they are only printed for a program that
+     * parses. They are printed declaration by declaration, where a whole compile prints all the errors
+     * of name analysis before those of type checking.
+     */
+    private static final class Stream implements Declarations {
+        private static final int STRUCTS = 0, GLOBALS = 1, FUNCTIONS = 2;
+
+        private final ProgramParser parser;
+        private final HeaderCache.Included included;
+        private final StreamingCodeGenerator codegen;   // null for -sem
+        private final PrintStream err;
+        private final ByteArrayOutputStream messages = new ByteArrayOutputStream();
+        private final PrintStream diagnostics = new PrintStream(messages, true);
+        private final FunctionAnalyzer sem = new FunctionAnalyzer();
+        private int stage = STRUCTS;
+        private int functions = 0;
+        private int errors;
+
+        Stream(ProgramParser parser, HeaderCache.Included included, StreamingCodeGenerator codegen, PrintStream err) {
+            this.parser = parser;
+            this.included = included;
+            this.codegen = codegen;
+            this.err = err;
+            this.errors = included.errors;
+            if (analysing())
+                for (StructTypeDecl std : included.structTypeDecls)
+                    declare(std);
+        }
+
+        private boolean analysing() {
+            return included.status != PARSER_FAIL && parser.getErrorCount() == 0;
+        }
+
+        public void struct(StructTypeDecl std) {
+            if (analysing())
+                declare(std);
+        }
+
+        public void global(VarDecl vd) {
+            if (!analysing())
+                return;
+            reach(GLOBALS);
+            declare(vd);
+        }
+
+        public void function(FunDecl fd) {
+            if (!analysing())
+                return;
+            reach(FUNCTIONS);
+            // what later functions see is the header, so the body can go once it has been lowered
+            errors += sem.declare(new FunDecl(fd.type, fd.name, fd.params, null), diagnostics);
+            errors += sem.analyze(fd, functions++, diagnostics);
+            if (generating())
+                codegen.emit(fd);
+        }
+
+        /*
+         * Ends the compile once the parser is done, returning its status.
+         */
+        int finish() throws IOException {
+            if (analysing())
+                reach(FUNCTIONS);
+            int status = !analysing() ? PARSER_FAIL : errors > 0 ? SEM_FAIL : PASS;
+            if (status == SEM_FAIL)
+                messages.writeTo(err);
+            if (codegen != null) {
+                if (status == PASS)
+                    codegen.finish();
+                else
+                    codegen.abandon();
+            }
+            return status;
+        }
+
+        // the headers' globals go before the source's own globals, and their functions before its functions
+        private void reach(int next) {
+            while (stage < next) {
+                stage++;
+                if (stage == GLOBALS) {
+                    for (VarDecl vd : included.varDecls)
+                        declare(vd);
+                } else {
+                    for (FunDecl fd : included.funDecls) {
+                        errors += sem.declareUnchanged(fd, diagnostics);
+                        functions++;
+                        if (generating())
+                            codegen.emit(included.fragments.get(fd));
+                    }
+                }
+            }
+        }
+
+        // once an error is found, nothing more is lowered
+        private boolean generating() {
+            return codegen != null && errors == 0;
+        }
+
+        private void declare(StructTypeDecl std) {
+            errors += sem.declare(std, diagnostics);
+            if (generating())
+                codegen.emit(std);
+        }
+
+        private void declare(VarDecl vd) {
+            errors += sem.declare(vd, diagnostics);
+            if (generating())
+                codegen.emit(vd);
+        }
+    }
+
+    private static int stream(Mode mode, Tokeniser tokeniser, boolean pipeline, HeaderCache.Included included,
+                              File outputFile, File outputName, Timing timing, PrintStream out, PrintStream err) {
+        StreamingCodeGenerator codegen = null;
+        try {
+            if (mode == Mode.GEN)
+                codegen = new StreamingCodeGenerator(outputFile);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        ProgramParser parser = pipeline ? new PipelinedParser(tokeniser) : new Parser(tokeniser);
+        parser.setDiagnostics(out);
+        parser.setTypes(included.types);
+        Stream stream = new Stream(parser, included, codegen, err);
+        int status;
+        try {
+            parser.parse(stream);
+            status = stream.finish();
         } catch (FileNotFoundException e) {
-            System.out.println("File "+inputFile.toString()+" does not exist.");
-            System.exit(FILE_NOT_FOUND);
-            return;
+            out.println("File "+outputName.toString()+" does not exist.");
+            return FILE_NOT_FOUND;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            if (codegen != null) {
+                try {
+                    codegen.abandon();
+                } catch (IOException e) {
+                    // only temporary files are left behind
+                }
+            }
         }
+        Timing.phase(timing, "stream");
+        if (pipeline)
+            Timing.detail(timing, "Pipeline: " + ((PipelinedParser) parser).getUtilisation());
+        if (mode == Mode.SEMANTICANALYSIS && status != PARSER_FAIL) {
+            if (status == PASS)
+                out.println("Semantic analysis: Pass");
+            else
+                out.println("Semantic analysis: Failed (" + stream.errors + ")");
+        }
+        return status;
+    }
+
+    private static File resolve(File dir, File file) {
+        return dir == null || file.isAbsolute() ? file : new File(dir, file.getPath());
+    }
+
+    private static int compile(Mode mode, Scanner scanner, File outputFile, File outputName,
+                               boolean dfa, boolean parallel, boolean ll1, boolean unit, boolean flat,
+                               boolean stream, boolean pipeline, HeaderCache.Included included, FunctionCache functions,
+                               Timing timing, PrintStream out, PrintStream err) {
 
-        Tokeniser tokeniser = new Tokeniser(scanner);
+        Tokeniser tokeniser;
+        if (parallel)
+            tokeniser = new ParallelTokeniser(scanner, dfa ? DfaTokeniser::new : Tokeniser::new);
+        else
+            tokeniser = dfa ? new DfaTokeniser(scanner) : new Tokeniser(scanner);
+        tokeniser.setDiagnostics(out);
+        if (stream)
+            return stream(mode, tokeniser, pipeline, included, outputFile, outputName, timing, out, err);
         if (mode == Mode.LEXER) {
             for (Token t = tokeniser.nextToken(); t.tokenClass != Token.TokenClass.EOF; t = tokeniser.nextToken()) 
-            	System.out.println(t);
+            	out.println(t);
+            Timing.phase(timing, "lex");
             if (tokeniser.getErrorCount() == 0)
-        		System.out.println("Lexing: pass");
+        		out.println("Lexing: pass");
     	    else
-        		System.out.println("Lexing: failed ("+tokeniser.getErrorCount()+" errors)");	
-            System.exit(tokeniser.getErrorCount() == 0 ? PASS : LEXER_FAIL);
+        		out.println("Lexing: failed ("+tokeniser.getErrorCount()+" errors)");	
+            return tokeniser.getErrorCount() == 0 ? PASS : LEXER_FAIL;
         } else if (mode == Mode.PARSER) {
-		    Parser parser = new Parser(tokeniser);
+		    ProgramParser parser = parser(tokeniser, ll1, parallel, included, out);
 		    parser.parse();
+		    Timing.phase(timing, "parse");
 		    if (parser.getErrorCount() == 0)
-		    	System.out.println("Parsing: pass");
+		    	out.println("Parsing: pass");
 		    else
-		    	System.out.println("Parsing: failed ("+parser.getErrorCount()+" errors)");
-		    System.exit(parser.getErrorCount() == 0 ? PASS : PARSER_FAIL);
+		    	out.println("Parsing: failed ("+parser.getErrorCount()+" errors)");
+		    return parser.getErrorCount() == 0 ? PASS : PARSER_FAIL;
         }  else if (mode == Mode.AST) {
-            Parser parser = new Parser(tokeniser);
+            ProgramParser parser = parser(tokeniser, ll1, parallel, included, out);
             Program programAst = parser.parse();
+            Timing.phase(timing, "parse");
             if (parser.getErrorCount() == 0) {
-                System.out.println("Parsing: pass");
-                System.out.println("Printing out AST:");
+                out.println("Parsing: pass");
+                out.println("Printing out AST:");
                 PrintWriter writer;
                 StringWriter sw = new StringWriter();
                 try {
                     writer = new PrintWriter(sw);
-                    programAst.accept(new ASTPrinter(writer));
+                    if (flat) {
+                        FlatProgram flatAst = FlatProgram.of(programAst);
+                        Timing.phase(timing, "flatten");
+                        new FlatPrinter(writer).print(flatAst);
+                    } else
+                        programAst.accept(new ASTPrinter(writer));
                     writer.flush();
-                    System.out.print(sw.toString());
+                    out.print(sw.toString());
                     writer.close();
+                    Timing.phase(timing, "print");
                 } catch (Exception e) {
-                    e.printStackTrace();
+                    e.printStackTrace(err);
                 }
             } else
-                System.out.println("Parsing: failed ("+parser.getErrorCount()+" errors)");
-            System.exit(parser.getErrorCount() == 0 ? PASS : PARSER_FAIL);
+                out.println("Parsing: failed ("+parser.getErrorCount()+" errors)");
+            return parser.getErrorCount() == 0 ? PASS : PARSER_FAIL;
         } else if (mode == Mode.SEMANTICANALYSIS) {
-            Parser parser = new Parser(tokeniser);
+            ProgramParser parser = parser(tokeniser, ll1, parallel, included, out);
             Program programAst = parser.parse();
-            if (parser.getErrorCount() == 0) {
-                SemanticAnalyzer sem = new SemanticAnalyzer();
-                int errors = sem.analyze(programAst);
+            Timing.phase(timing, "parse");
+            if (parser.getErrorCount() == 0 && included.status != PARSER_FAIL) {
+                programAst = included.into(programAst);
+                Map<FunDecl, Fragment> unchanged = unchanged(included, functions, programAst, false);
+                SemanticAnalyzer sem = analyzer(parallel, unchanged);
+                sem.setDiagnostics(err);
+                int errors = included.errors + sem.analyze(programAst);
+                Timing.phase(timing, "sem");
                 if (errors == 0)
-                    System.out.println("Semantic analysis: Pass");
+                    out.println("Semantic analysis: Pass");
                 else
-                    System.out.println("Semantic analysis: Failed (" + errors + ")");
-                System.exit(errors == 0 ? PASS : SEM_FAIL);
+                    out.println("Semantic analysis: Failed (" + errors + ")");
+                if (errors == 0 && functions != null)
+                    remember(functions, Collections.emptyMap(), timing);
+                return errors == 0 ? PASS : SEM_FAIL;
             } else
-                System.exit(PARSER_FAIL);
+                return PARSER_FAIL;
         } else if (mode == Mode.GEN) {
-            Parser parser = new Parser(tokeniser);
+            ProgramParser parser = parser(tokeniser, ll1, parallel, included, out);
             Program programAst = parser.parse();
-            if (parser.getErrorCount() > 0)
-                System.exit(PARSER_FAIL);
-            SemanticAnalyzer sem = new SemanticAnalyzer();
-            int errors = sem.analyze(programAst);
+            Timing.phase(timing, "parse");
+            if (parser.getErrorCount() > 0 || included.status == PARSER_FAIL)
+                return PARSER_FAIL;
+            programAst = included.into(programAst);
+            Map<FunDecl, Fragment> unchanged = unchanged(included, functions, programAst, true);
+            SemanticAnalyzer sem = analyzer(parallel, unchanged);
+            sem.setDiagnostics(err);
+            int errors = included.errors + sem.analyze(programAst);
+            Timing.phase(timing, "sem");
             if (errors > 0)
-                System.exit(SEM_FAIL);
-            CodeGenerator codegen = new CodeGenerator();
+                return SEM_FAIL;
+            CodeGenerator codegen;
+            if (unit)
+                codegen = new UnitCodeGenerator(unchanged == null ? Collections.emptyMap() : unchanged,
+                        included.funDecls, included.varDecls);
+            else if (unchanged != null)
+                codegen = new IncrementalCodeGenerator(unchanged);
+            else
+                codegen = parallel ? new ParallelCodeGenerator() : new CodeGenerator();
             try {
                 codegen.emitProgram(programAst, outputFile);
             } catch (FileNotFoundException e) {
-                System.out.println("File "+outputFile.toString()+" does not exist.");
-                System.exit(FILE_NOT_FOUND);
+                out.println("File "+outputName.toString()+" does not exist.");
+                return FILE_NOT_FOUND;
             }
+            Timing.phase(timing, "gen");
+            if (functions != null)
+                remember(functions, ((IncrementalCodeGenerator) codegen).getGenerated(), timing);
+            return PASS;
         } else {
-        	System.exit(MODE_FAIL);
+        	return MODE_FAIL;
         }
     }
 }
\ No newline at end of file
@@ -0,0 +1,259 @@
+import cache.CompileCache;
+import cache.HeaderCache;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+
+/**
+ * Compiles the sources in a directory again whenever they change, for as long as it runs, so that the
+ * compiler is started and warmed up once rather than at every save, and the headers that did not
+ * change are not compiled again (see HeaderCache).
+ *
+ * Usage: java Main -watch dir [pass] [options]
+ *
+ * Every source in dir and its subdirectories, a file ending in .c, is compiled once at start and then
+ * again after every save that changed it, to the same name ending in .s. When a header changes, the
+ * sources that include it, themselves or through other headers, are compiled again. The pass is one of Main's, -gen by default, and the
+ * options are Main's, applied to every compile, with -time always on. Unless -incremental is given,
+ * the sources are compiled incrementally with a cache directory under the temporary directory, so that
+ * only the functions that changed are analysed and generated again.
+ *
+ * Saves are debounced: compiles wait until nothing has changed for DEBOUNCE_MILLIS, so that an editor
+ * writing a file in several steps, or a checkout touching many, causes a single compile of each.
+ */
+public class Watcher {
+
+    static final long DEBOUNCE_MILLIS = 100;
+
+    private static final List<String> PASSES = Arrays.asList("-lexer", "-parser", "-ast", "-sem", "-gen");
+
+    private final Path dir;
+    private final String pass;
+    private final List<String> options;
+    private final WatchService service;
+    private final Map<Path, String> compiled = new HashMap<>();     // source -> digest of what was compiled
+    private final Map<Path, Map<Path, String>> headers = new HashMap<>();   // source -> digests of its headers
+
+    private Watcher(Path dir, String pass, List<String> options) throws IOException {
+        this.dir = dir;
+        this.pass = pass;
+        this.options = options;
+        this.service = FileSystems.getDefault().newWatchService();
+    }
+
+    private static int usage() {
+        System.out.println("Usage: java "+Main.class.getSimpleName()+" -watch dir [pass] [options]");
+        System.out.println("where pass is either: -lexer, -parser, -ast, -sem or -gen (the default)");
+        System.out.println("and options are any option of Main");
+        return -1;
+    }
+
+    /*
+     * Watches the directory named by args[1] until killed. args[0] is -watch.
+     */
+    static int watch(String[] args) {
+        if (args.length < 2)
+            return usage();
+        File dir = new File(args[1]);
+        if (!dir.isDirectory()) {
+            System.out.println("Directory "+dir+" does not exist.");
+            return Main.FILE_NOT_FOUND;
+        }
+
+        int i = 2;
+        String pass = "-gen";
+        if (i < args.length && PASSES.contains(args[i]))
+            pass = args[i++];
+        List<String> options = new ArrayList<>(Arrays.asList(args).subList(i, args.length));
+        if (!options.contains("-time"))
+            options.add("-time");
+        if (!options.contains("-incremental") && (pass.equals("-sem") || pass.equals("-gen"))) {
+            options.add("-incremental");
+            options.add(new File(System.getProperty("java.io.tmpdir"), "minic-watch").getPath());
+        }
+
+        try {
+            Watcher watcher = new Watcher(dir.toPath().toAbsolutePath().normalize(), pass, options);
+            watcher.run();
+            return 0;
+        } catch (IOException e) {
+            System.out.println("Cannot watch "+dir+": "+e.getMessage());
+            return 1;
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            return 0;
+        }
+    }
+
+    private void run() throws IOException, InterruptedException {
+        compile(register(dir));
+        System.out.println("Watching "+dir+" for changes.");
+        while (true) {
+            Set<Path> changed = new TreeSet<>();
+            boolean lost = take(service.take(), changed);
+            WatchKey key;
+            while ((key = service.poll(DEBOUNCE_MILLIS, TimeUnit.MILLISECONDS)) != null)
+                lost |= take(key, changed);
+            if (lost) {
+                // too much changed for the events to say what: look at everything
+                changed.addAll(register(dir));
+            }
+
+            Set<Path> sources = new TreeSet<>();
+            for (Path p : changed) {
+                if (isSource(p))
+                    sources.add(p);
+                else if (isHeader(p))
+                    sources.addAll(includers(p));
+            }
+            compile(sources);
+        }
+    }
+
+    /*
+     * Watches dir and its subdirectories, returning the sources found in them.
+     */
+    private Set<Path> register(Path dir) throws IOException {
+        Set<Path> sources = new TreeSet<>();
+        try (Stream<Path> paths = Files.walk(dir)) {
+            for (Path p : paths.collect(Collectors.toList())) {
+                if (Files.isDirectory(p))
+                    p.register(service, StandardWatchEventKinds.ENTRY_CREATE,
+                            StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+                else if (isSource(p))
+                    sources.add(p);
+            }
+        } catch (NoSuchFileException e) {
+            // gone again before it could be watched
+        }
+        return sources;
+    }
+
+    /*
+     * Adds the files that key's events are about to changed, watching new directories as well.
+     * Returns whether events were lost.
+     */
+    private boolean take(WatchKey key, Set<Path> changed) throws IOException {
+        boolean lost = false;
+        Path parent = (Path) key.watchable();
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                lost = true;
+                continue;
+            }
+            Path p = parent.resolve((Path) event.context());
+            if (event.kind() == StandardWatchEventKinds.ENTRY_DELETE) {
+                compiled.remove(p);
+                headers.remove(p);
+                if (isHeader(p))
+                    changed.add(p);
+            } else if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE && Files.isDirectory(p))
+                changed.addAll(register(p));
+            else
+                changed.add(p);
+        }
+        key.reset();
+        return lost;
+    }
+
+    /*
+     * Returns the sources that include header, themselves or through other headers, as they did when
+     * last compiled: a source that came to include it since was compiled then, for changing itself.
+     */
+    private Set<Path> includers(Path header) {
+        Set<Path> includers = new TreeSet<>();
+        for (Map.Entry<Path, Map<Path, String>> e : headers.entrySet())
+            if (e.getValue().containsKey(header))
+                includers.add(e.getKey());
+        return includers;
+    }
+
+    /*
+     * Compiles each of sources whose text differs from when it was last compiled, or whose headers changed.
+     */
+    private void compile(Set<Path> sources) throws IOException {
+        for (Path source : sources) {
+            byte[] text;
+            try {
+                text = Files.readAllBytes(source);
+            } catch (NoSuchFileException e) {
+                continue;
+            }
+            String digest = digest(text);
+            boolean headerChanged = headerChanged(source, text);
+            if (digest.equals(compiled.get(source)) && !headerChanged)
+                continue;
+            compiled.put(source, digest);
+
+            String input = dir.relativize(source).toString();
+            String output = input.substring(0, input.length() - ".c".length()) + ".s";
+            List<String> args = new ArrayList<>(Arrays.asList(pass, input, output));
+            args.addAll(options);
+            System.out.println("Compiling "+input);
+            int status = Main.run(args.toArray(new String[0]), dir.toFile(), System.out, System.err);
+            System.out.println(input+": exit status "+status);
+            System.out.flush();
+        }
+    }
+
+    /*
+     * Returns whether the headers source includes differ from when it was last compiled.
+     */
+    private boolean headerChanged(Path source, byte[] text) throws IOException {
+        Map<Path, String> now = new HashMap<>();
+        headers(source, text, now);
+        return !now.equals(headers.put(source, now));
+    }
+
+    /*
+     * Adds the headers that file, whose contents are text, includes to included, by digest, with
+     * the headers they include in turn. A header that does not exist has an empty digest.
+     */
+    private static void headers(Path file, byte[] text, Map<Path, String> included) throws IOException {
+        for (String name : HeaderCache.includes(text)) {
+            Path header = file.resolveSibling(name).normalize();
+            if (included.containsKey(header))
+                continue;
+            byte[] contents;
+            try {
+                contents = Files.readAllBytes(header);
+            } catch (NoSuchFileException e) {
+                included.put(header, "");
+                continue;
+            }
+            included.put(header, digest(contents));
+            headers(header, contents, included);
+        }
+    }
+
+    private static boolean isSource(Path p) {
+        return p.getFileName().toString().endsWith(".c") && !Files.isDirectory(p);
+    }
+
+    private static boolean isHeader(Path p) {
+        return p.getFileName().toString().endsWith(".h");
+    }
+
+    private static String digest(byte[] bytes) {
+        return CompileCache.hex(CompileCache.sha256().digest(bytes));
+    }
+}
@@ -0,0 +1,66 @@
+package api;
+
+import ast.Program;
+import lexer.Token;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * What a compile by a CompilerSession found and produced. Nothing in it is shared with another compile.
+ */
+public final class Compilation {
+
+    // the exit statuses of Main
+    public static final int PASS = 0;
+    public static final int LEXER_FAIL = 250;
+    public static final int PARSER_FAIL = 245;
+    public static final int SEM_FAIL = 240;
+    public static final int INTERNAL_ERROR = -1;
+
+    /*
+     * A problem found in the source or in one of its headers.
+     */
+    public static final class Diagnostic {
+        public final String file;       // the name of the source, or of the header as it was included
+        public final String phase;      // lexer, parser, sem, gen or include
+        public final String message;    // as Main prints it
+        public final int line;          // from 1, or 0 if the message has no position
+        public final int column;        // from 0
+
+        Diagnostic(String file, String phase, String message, int line, int column) {
+            this.file = file;
+            this.phase = phase;
+            this.message = message;
+            this.line = line;
+            this.column = column;
+        }
+
+        @Override
+        public String toString() {
+            return line > 0 ? file + ":" + line + ":" + column + ": " + message : file + ": " + message;
+        }
+    }
+
+    public final int status;
+    public final List<Token> tokens;            // for the lexer pass only, without EOF
+    public final Program program;               // parsed, and annotated by the passes run; null if not parsed
+    public final List<Diagnostic> diagnostics;
+    public final byte[] assembly;               // for the gen pass, if it passed
+    public final Map<String, Long> timings;     // nanoseconds by phase, in the order they ran
+
+    Compilation(int status, List<Token> tokens, Program program, List<Diagnostic> diagnostics, byte[] assembly,
+                Map<String, Long> timings) {
+        this.status = status;
+        this.tokens = Collections.unmodifiableList(tokens);
+        this.program = program;
+        this.diagnostics = Collections.unmodifiableList(diagnostics);
+        this.assembly = assembly;
+        this.timings = Collections.unmodifiableMap(timings);
+    }
+
+    public boolean passed() {
+        return status == PASS;
+    }
+}
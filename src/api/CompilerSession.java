@@ -0,0 +1,238 @@
+package api;
+
+import api.Compilation.Diagnostic;
+import ast.Program;
+import cache.HeaderCache;
+import gen.CodeGenerator;
+import gen.IncrementalCodeGenerator;
+import gen.ParallelCodeGenerator;
+import lexer.DfaTokeniser;
+import lexer.ParallelTokeniser;
+import lexer.Scanner;
+import lexer.Token;
+import lexer.Tokeniser;
+import parser.LL1Parser;
+import parser.ParallelParser;
+import parser.Parser;
+import parser.ProgramParser;
+import sem.IncrementalSemanticAnalyzer;
+import sem.ParallelSemanticAnalyzer;
+import sem.SemanticAnalyzer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Compiles MiniC in process, for programs that embed the compiler, such as a build service.
+ *
+ * A session holds its options and the headers it compiled, which it keeps as Main does for a
+ * process (see HeaderCache). Every compile works on objects of its own, so a session can be
+ * shared by any number of threads, each compile reusing the tables of the passes and the headers
+ * the others left warm. Nothing is printed and nothing stops the JVM: what a compile found and
+ * produced is returned in a Compilation, which an error inside the compiler fails as well.
+ */
+public class CompilerSession {
+
+    public enum Pass { LEXER, PARSER, SEM, GEN }
+
+    // the options of Main that change how a compile runs; none changes what a correct program produces,
+    // but LL1 reports syntax errors its own way, naming the tokens it expected, and stops at the first
+    public enum Option { DFA, PARALLEL, LL1 }
+
+    private static final Pattern POSITION = Pattern.compile(" at (\\d+):(\\d+)$");
+    private static final String IN_HEADER = "In header \"";
+
+    private final Set<Option> options;
+    private final HeaderCache headers = new HeaderCache();
+
+    public CompilerSession(Option... options) {
+        this.options = options.length == 0 ? EnumSet.noneOf(Option.class) : EnumSet.copyOf(Arrays.asList(options));
+    }
+
+    /*
+     * Compiles the file at path, whose headers are looked up next to it.
+     */
+    public Compilation compile(Pass pass, Path path) throws IOException {
+        byte[] bytes = Files.readAllBytes(path);
+        return compile(pass, path, new String(bytes, Charset.defaultCharset()));
+    }
+
+    /*
+     * Compiles text as if it were the contents of the file at path, which need not exist: headers are
+     * looked up next to it, and diagnostics name it.
+     */
+    public Compilation compile(Pass pass, Path path, String text) {
+        Run run = new Run(path.toString());
+        try {
+            return run.compile(pass, path, text);
+        } catch (VirtualMachineError e) {
+            if (!(e instanceof StackOverflowError))
+                throw e;
+            return run.failed(e);
+        } catch (RuntimeException | Error e) {
+            return run.failed(e);
+        }
+    }
+
+    /*
+     * One compile, with what it has found so far.
+     */
+    private final class Run {
+        final String file;
+        final List<Token> tokens = new ArrayList<>();
+        final List<Diagnostic> diagnostics = new ArrayList<>();
+        final Map<String, Long> timings = new LinkedHashMap<>();
+        Program program;
+        long last = System.nanoTime();
+
+        Run(String file) {
+            this.file = file;
+        }
+
+        Compilation compile(Pass pass, Path path, String text) {
+            char[] chars = text.toCharArray();
+            Scanner scanner = new Scanner(chars, chars.length);
+            Tokeniser tokeniser;
+            if (options.contains(Option.PARALLEL))
+                tokeniser = new ParallelTokeniser(scanner,
+                        options.contains(Option.DFA) ? DfaTokeniser::new : Tokeniser::new);
+            else
+                tokeniser = options.contains(Option.DFA) ? new DfaTokeniser(scanner) : new Tokeniser(scanner);
+            Output lexer = new Output();
+            tokeniser.setDiagnostics(lexer.stream);
+
+            if (pass == Pass.LEXER) {
+                for (Token t = tokeniser.nextToken(); t.tokenClass != Token.TokenClass.EOF; t = tokeniser.nextToken())
+                    tokens.add(t);
+                phase("lex");
+                report(lexer, "lexer");
+                return done(tokeniser.getErrorCount() == 0 ? Compilation.PASS : Compilation.LEXER_FAIL, null);
+            }
+
+            // the headers go first, as their declarations do
+            HeaderCache.Included included = null;
+            if (pass != Pass.PARSER) {
+                Output printed = new Output();
+                Output analysed = new Output();
+                try {
+                    included = headers.include(path, text.getBytes(Charset.defaultCharset()), null,
+                            printed.stream, analysed.stream);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                phase("headers");
+                report(printed, "include");
+                report(analysed, "sem");
+            }
+
+            ProgramParser parser;
+            if (options.contains(Option.LL1))
+                parser = new LL1Parser(tokeniser);
+            else
+                parser = options.contains(Option.PARALLEL) ? new ParallelParser(tokeniser) : new Parser(tokeniser);
+            Output syntax = new Output();
+            parser.setDiagnostics(syntax.stream);
+            if (included != null)
+                parser.setTypes(included.types);
+            program = parser.parse();
+            phase("parse");
+            report(lexer, "lexer");
+            report(syntax, "parser");
+            if (parser.getErrorCount() > 0 || (included != null && included.status == Compilation.PARSER_FAIL))
+                return done(Compilation.PARSER_FAIL, null);
+            if (pass == Pass.PARSER)
+                return done(Compilation.PASS, null);
+
+            program = included.into(program);
+            SemanticAnalyzer sem;
+            if (!included.isEmpty())
+                sem = new IncrementalSemanticAnalyzer(included.fragments.keySet());
+            else
+                sem = options.contains(Option.PARALLEL) ? new ParallelSemanticAnalyzer() : new SemanticAnalyzer();
+            Output semantic = new Output();
+            sem.setDiagnostics(semantic.stream);
+            int errors = included.errors + sem.analyze(program);
+            phase("sem");
+            report(semantic, "sem");
+            if (errors > 0)
+                return done(Compilation.SEM_FAIL, null);
+            if (pass == Pass.SEM)
+                return done(Compilation.PASS, null);
+
+            CodeGenerator codegen;
+            if (!included.isEmpty())
+                codegen = new IncrementalCodeGenerator(included.fragments);
+            else
+                codegen = options.contains(Option.PARALLEL) ? new ParallelCodeGenerator() : new CodeGenerator();
+            StringWriter assembly = new StringWriter();
+            codegen.emitProgram(program, assembly);
+            phase("gen");
+            return done(Compilation.PASS, assembly.toString().getBytes(StandardCharsets.UTF_8));
+        }
+
+        Compilation failed(Throwable e) {
+            diagnostics.add(new Diagnostic(file, "internal", "internal error: " + e, 0, 0));
+            return done(Compilation.INTERNAL_ERROR, null);
+        }
+
+        Compilation done(int status, byte[] assembly) {
+            return new Compilation(status, tokens, program, diagnostics, assembly, timings);
+        }
+
+        void phase(String name) {
+            long now = System.nanoTime();
+            timings.put(name, now - last);
+            last = now;
+        }
+
+        // one diagnostic per line printed, those after an "In header" line being about that header
+        void report(Output output, String phase) {
+            String in = file;
+            for (String line : output.lines()) {
+                if (line.startsWith(IN_HEADER) && line.endsWith("\":")) {
+                    in = line.substring(IN_HEADER.length(), line.length() - 2);
+                    continue;
+                }
+                Matcher m = POSITION.matcher(line);
+                if (m.find())
+                    diagnostics.add(new Diagnostic(in, phase, line, Integer.parseInt(m.group(1)),
+                            Integer.parseInt(m.group(2))));
+                else
+                    diagnostics.add(new Diagnostic(in, phase, line, 0, 0));
+            }
+        }
+    }
+
+    /*
+     * What a pass printed.
+     */
+    private static final class Output {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final PrintStream stream = new PrintStream(bytes, true);
+
+        List<String> lines() {
+            List<String> lines = new ArrayList<>();
+            for (String line : bytes.toString().split("\n"))
+                if (!line.isEmpty())
+                    lines.add(line);
+            bytes.reset();
+            return lines;
+        }
+    }
+}
@@ -1,5 +1,7 @@
 package ast;
 
+import util.StackGuard;
+
 public class ArrayAccessExpr extends Expr {
 
     public final Expr arr;
@@ -8,9 +10,11 @@ public class ArrayAccessExpr extends Expr {
     public ArrayAccessExpr(Expr arr, Expr idx) {
         this.arr = arr;
         this.idx = idx;
+        height = 1 + Math.max(Expr.height(arr), Expr.height(idx));
     }
 
     public <T> T accept(ASTVisitor<T> v) {
+        if (StackGuard.startsSegment(height)) return StackGuard.segment(height, () -> v.visitArrayAccessExpr(this));
         return v.visitArrayAccessExpr(this);
     }
 
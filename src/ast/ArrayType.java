@@ -4,12 +4,17 @@ public class ArrayType implements Type {
 
     public final Type baseType;
     public final int size;
+    public int typeSize = -1;       // bytes it takes, worked out once by data allocation
+    final Types.Derived derived = new Types.Derived(this);
 
-    public ArrayType(Type baseType, int size) {
+    ArrayType(Type baseType, int size) {
         this.baseType = baseType;
         this.size = size;
     }
 
+    // the one array type of size elements of baseType
+    public static ArrayType of(Type baseType, int size) { return Types.derived(baseType).array(size); }
+
     public <T> T accept(ASTVisitor<T> v) { return v.visitArrayType(this); }
 
 }
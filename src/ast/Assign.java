@@ -1,5 +1,7 @@
 package ast;
 
+import util.StackGuard;
+
 public class Assign extends Stmt {
 
     public final Expr lhs;
@@ -8,9 +10,11 @@ public class Assign extends Stmt {
     public Assign(Expr lhs, Expr rhs) {
         this.lhs = lhs;
         this.rhs = rhs;
+        height = 1 + Math.max(Expr.height(lhs), Expr.height(rhs));
     }
 
     public <T> T accept(ASTVisitor<T> v) {
+        if (StackGuard.startsSegment(height)) return StackGuard.segment(height, () -> v.visitAssign(this));
         return v.visitAssign(this);
     }
 
@@ -3,6 +3,8 @@ package ast;
 public enum BaseType implements Type {
     INT, CHAR, VOID;
 
+    final Types.Derived derived = new Types.Derived(this);
+
     public <T> T accept(ASTVisitor<T> v) {
         return v.visitBaseType(this);
     }
@@ -1,5 +1,7 @@
 package ast;
 
+import util.StackGuard;
+
 public class BinOp extends Expr {
 
     public final Op op;
@@ -10,8 +12,12 @@ public class BinOp extends Expr {
         this.op = op;
         this.lhs = lhs;
         this.rhs = rhs;
+        height = 1 + Math.max(Expr.height(lhs), Expr.height(rhs));
     }
 
-    public <T> T accept(ASTVisitor<T> v) { return v.visitBinOp(this); }
+    public <T> T accept(ASTVisitor<T> v) {
+        if (StackGuard.startsSegment(height)) return StackGuard.segment(height, () -> v.visitBinOp(this));
+        return v.visitBinOp(this);
+    }
 
 }
@@ -1,5 +1,7 @@
 package ast;
 
+import util.StackGuard;
+
 import java.util.List;
 
 public class Block extends Stmt {
@@ -10,9 +12,11 @@ public class Block extends Stmt {
     public Block(List<VarDecl> varDecls, List<Stmt> stmts) {
         this.varDecls = varDecls;
         this.stmts = stmts;
+        height = 1 + Stmt.height(stmts);
     }
 
     public <T> T accept(ASTVisitor<T> v) {
-	    return v.visitBlock(this);
+        if (StackGuard.startsSegment(height)) return StackGuard.segment(height, () -> v.visitBlock(this));
+        return v.visitBlock(this);
     }
 }
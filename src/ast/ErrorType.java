@@ -1,5 +1,8 @@
 package ast;
 
+// not canonical: an error type is made for each error, and is equal to no type, itself aside
 public class ErrorType implements Type {
+    final Types.Derived derived = new Types.Derived(this);
+
     public <T> T accept(ASTVisitor<T> v) { return v.visitErrorType(this); }
 }
@@ -1,8 +1,24 @@
 package ast;
 
+import java.util.List;
+
 public abstract class Expr implements ASTNode {
 
     public Type type; // to be filled in by the type analyser
+    // levels of nodes from this one down, set by the constructor; nodes with children visit them
+    // on a new util.StackGuard segment when this is a multiple of its SEGMENT, so deep nesting
+    // cannot overflow the stack
+    int height = 1;
     public abstract <T> T accept(ASTVisitor<T> v);
 
+    static int height(Expr e) {
+        return e == null ? 0 : e.height;
+    }
+
+    static int height(List<Expr> es) {
+        int h = 0;
+        for (Expr e : es) h = Math.max(h, height(e));
+        return h;
+    }
+
 }
@@ -1,12 +1,18 @@
 package ast;
 
+import util.StackGuard;
+
 public class ExprStmt extends Stmt {
 
     public final Expr expr;
 
-    public ExprStmt(Expr expr) { this.expr = expr; }
+    public ExprStmt(Expr expr) {
+        this.expr = expr;
+        height = 1 + Expr.height(expr);
+    }
 
     public <T> T accept(ASTVisitor<T> v) {
+        if (StackGuard.startsSegment(height)) return StackGuard.segment(height, () -> v.visitExprStmt(this));
         return v.visitExprStmt(this);
     }
 
@@ -1,5 +1,7 @@
 package ast;
 
+import util.StackGuard;
+
 public class FieldAccessExpr extends Expr {
 
     public final Expr struct;
@@ -8,9 +10,11 @@ public class FieldAccessExpr extends Expr {
     public FieldAccessExpr(Expr struct, String fieldName) {
         this.struct = struct;
         this.fieldName = fieldName;
+        height = 1 + Expr.height(struct);
     }
 
     public <T> T accept(ASTVisitor<T> v) {
+        if (StackGuard.startsSegment(height)) return StackGuard.segment(height, () -> v.visitFieldAccessExpr(this));
         return v.visitFieldAccessExpr(this);
     }
 
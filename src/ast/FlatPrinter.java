@@ -0,0 +1,93 @@
+package ast;
+
+import java.io.PrintWriter;
+import java.util.Arrays;
+
+/**
+ * Prints a program as ASTPrinter does, character for character, by walking its flat form instead
+ * of visiting the objects: a loop over the arrays, which neither recurses nor dispatches per node.
+ */
+public class FlatPrinter implements FlatProgram.Walker {
+
+    private final PrintWriter writer;
+    private final ASTPrinter types;     // types are objects still, held once each in the table
+    private FlatProgram flat;
+    private int[] open = new int[16];   // the nodes entered and not yet left
+    private int depth = 0;
+
+    public FlatPrinter(PrintWriter writer) {
+        this.writer = writer;
+        this.types = new ASTPrinter(writer);
+    }
+
+    public void print(FlatProgram flat) {
+        this.flat = flat;
+        depth = 0;
+        flat.walk(0, this);
+        writer.flush();
+    }
+
+    @Override
+    public void enter(int node) {
+        if (depth > 0)
+            writer.print(separator(open[depth - 1], node));
+        if (depth == open.length)
+            open = Arrays.copyOf(open, depth * 2);
+        open[depth++] = node;
+
+        switch (flat.kind(node)) {
+            case PROGRAM:           writer.print("Program("); break;
+            case STRUCT_TYPE_DECL:  writer.print("StructTypeDecl("); flat.type(node).accept(types); break;
+            case VAR_DECL:
+                writer.print("VarDecl(");
+                flat.type(node).accept(types);
+                writer.print(","+flat.string(node));
+                break;
+            case FUN_DECL:
+                writer.print("FunDecl(");
+                flat.type(node).accept(types);
+                writer.print(","+flat.string(node)+",");
+                break;
+            case BLOCK:             writer.print("Block("); break;
+            case WHILE:             writer.print("While("); break;
+            case IF:                writer.print("If("); break;
+            case ASSIGN:            writer.print("Assign("); break;
+            case RETURN:            writer.print("Return("); break;
+            case EXPR_STMT:         writer.print("ExprStmt("); break;
+            case INT_LITERAL:       writer.print("IntLiteral("); writer.print(flat.intValue(node)); break;
+            case STR_LITERAL:       writer.print("StrLiteral("); writer.print(flat.string(node)); break;
+            case CHR_LITERAL:       writer.print("ChrLiteral("); writer.print(flat.charValue(node)); break;
+            case VAR_EXPR:          writer.print("VarExpr("); writer.print(flat.string(node)); break;
+            case FUN_CALL_EXPR:     writer.print("FunCallExpr("); writer.print(flat.string(node)); break;
+            case BIN_OP:            writer.print("BinOp("); break;
+            case ARRAY_ACCESS_EXPR: writer.print("ArrayAccessExpr("); break;
+            case FIELD_ACCESS_EXPR: writer.print("FieldAccessExpr("); break;
+            case VALUE_AT_EXPR:     writer.print("ValueAtExpr("); break;
+            case SIZE_OF_EXPR:      writer.print("SizeOfExpr("); flat.type(node).accept(types); break;
+            case TYPECAST_EXPR:     writer.print("TypecastExpr("); flat.type(node).accept(types); break;
+        }
+    }
+
+    @Override
+    public void exit(int node) {
+        depth--;
+        if (flat.kind(node) == FlatProgram.Kind.FIELD_ACCESS_EXPR)
+            writer.print(","+flat.string(node));
+        writer.print(")");
+    }
+
+    // what ASTPrinter prints in front of child, a child of parent
+    private String separator(int parent, int child) {
+        boolean first = child == flat.firstChild(parent);
+        switch (flat.kind(parent)) {
+            case STRUCT_TYPE_DECL:
+            case FUN_CALL_EXPR:
+            case TYPECAST_EXPR:
+                return ",";
+            case BIN_OP:
+                return first ? "" : ","+flat.op(parent).name()+",";
+            default:
+                return first ? "" : ",";
+        }
+    }
+}
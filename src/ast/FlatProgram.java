@@ -0,0 +1,406 @@
+package ast;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A program held in a few flat arrays instead of one object per node, for passes that walk the
+ * whole tree: the nodes lie in pre-order, one slot per node in every column, so a walk reads memory
+ * front to back instead of chasing pointers through lists and visitors, and a node costs 13 bytes.
+ *
+ * The subtree of the node at index i is the range i to end(i), exclusive: its first child, if any,
+ * is at i + 1, and each child's next sibling starts where the child's subtree ends. The children of
+ * each kind of node are those of its class, in the order of its fields:
+ *
+ *   PROGRAM            STRUCT_TYPE_DECL* VAR_DECL* FUN_DECL*
+ *   STRUCT_TYPE_DECL   VAR_DECL*                       its struct type and name
+ *   VAR_DECL                                           its type and name
+ *   FUN_DECL           VAR_DECL* BLOCK                 its return type and name, the parameters first
+ *   BLOCK              VAR_DECL* statement*
+ *   WHILE              expression statement
+ *   IF                 expression statement statement?
+ *   ASSIGN             expression expression
+ *   RETURN             expression?
+ *   EXPR_STMT          expression
+ *   FUN_CALL_EXPR      expression*                     the name called
+ *   BIN_OP             expression expression           the operator
+ *   ARRAY_ACCESS_EXPR  expression expression
+ *   FIELD_ACCESS_EXPR  expression                      the field name
+ *   VALUE_AT_EXPR      expression
+ *   SIZE_OF_EXPR                                       the type
+ *   TYPECAST_EXPR      expression                      the type cast to
+ *   INT_LITERAL, CHR_LITERAL, STR_LITERAL, VAR_EXPR    the value, or the name
+ *
+ * What a node holds besides its children is an int: the value of a literal, an Op's ordinal, or the
+ * index of a name or a string in the table of strings; and, for declarations, sizeof and casts, the
+ * index of its type in the table of types, where each type spelt the same is held once. The flat
+ * form is syntax only: the annotations of the later passes stay on the objects.
+ */
+public final class FlatProgram {
+
+    public enum Kind {
+        PROGRAM, STRUCT_TYPE_DECL, VAR_DECL, FUN_DECL,
+        BLOCK, WHILE, IF, ASSIGN, RETURN, EXPR_STMT,
+        INT_LITERAL, STR_LITERAL, CHR_LITERAL, VAR_EXPR, FUN_CALL_EXPR, BIN_OP,
+        ARRAY_ACCESS_EXPR, FIELD_ACCESS_EXPR, VALUE_AT_EXPR, SIZE_OF_EXPR, TYPECAST_EXPR
+    }
+
+    private static final Kind[] KINDS = Kind.values();
+    private static final int ESCAPE = 1 << 16;      // marks a character literal written as an escape
+
+    /*
+     * Told about every node of a subtree, as it is entered in pre-order and left in post-order.
+     */
+    public interface Walker {
+        default void enter(int node) {
+        }
+
+        default void exit(int node) {
+        }
+    }
+
+    private byte[] kinds = new byte[256];
+    private int[] ends = new int[256];
+    private int[] values = new int[256];
+    private int[] types = new int[256];
+    private int size = 0;
+
+    private final List<String> strings = new ArrayList<>();
+    private final Map<String, Integer> stringIndex = new HashMap<>();
+    private final List<Type> typeTable = new ArrayList<>();
+    private final Map<String, Integer> typeIndex = new HashMap<>();
+
+    private FlatProgram() {
+    }
+
+    /*
+     * Lays out program flat. The program is left as it was.
+     */
+    public static FlatProgram of(Program program) {
+        FlatProgram flat = new FlatProgram();
+        program.accept(flat.new Builder());
+        flat.trim();
+        return flat;
+    }
+
+    // the number of nodes, the root, a PROGRAM, being node 0
+    public int size() {
+        return size;
+    }
+
+    public Kind kind(int node) {
+        return KINDS[kinds[node]];
+    }
+
+    // one past the last node of the subtree of node
+    public int end(int node) {
+        return ends[node];
+    }
+
+    // the first child of node, or end(node) if it has none
+    public int firstChild(int node) {
+        return node + 1;
+    }
+
+    // the sibling after child, or end(parent) if child is the last
+    public int nextSibling(int child) {
+        return ends[child];
+    }
+
+    public int childCount(int node) {
+        int n = 0;
+        for (int c = firstChild(node); c < ends[node]; c = nextSibling(c))
+            n++;
+        return n;
+    }
+
+    public int intValue(int node) {
+        return values[node];
+    }
+
+    public char charValue(int node) {
+        return (char) values[node];
+    }
+
+    public boolean isEscape(int node) {
+        return (values[node] & ESCAPE) != 0;
+    }
+
+    public Op op(int node) {
+        return Op.values()[values[node]];
+    }
+
+    // the name of a declaration, variable, call or field, or the contents of a string literal
+    public String string(int node) {
+        return strings.get(values[node]);
+    }
+
+    public int stringIndex(int node) {
+        return values[node];
+    }
+
+    public int stringCount() {
+        return strings.size();
+    }
+
+    // the type of a declaration, the type of sizeof, or the type cast to; null for other nodes
+    public Type type(int node) {
+        return types[node] < 0 ? null : typeTable.get(types[node]);
+    }
+
+    public int typeIndex(int node) {
+        return types[node];
+    }
+
+    public int typeCount() {
+        return typeTable.size();
+    }
+
+    /*
+     * Walks the subtree of root without recursing, however deep it is.
+     */
+    public void walk(int root, Walker walker) {
+        int[] open = new int[16];
+        int depth = 0;
+        for (int node = root; node < ends[root]; node++) {
+            while (depth > 0 && ends[open[depth - 1]] <= node)
+                walker.exit(open[--depth]);
+            walker.enter(node);
+            if (depth == open.length)
+                open = Arrays.copyOf(open, depth * 2);
+            open[depth++] = node;
+        }
+        while (depth > 0)
+            walker.exit(open[--depth]);
+    }
+
+    /*
+     * Returns about how many bytes the arrays of this program take, its tables aside.
+     */
+    public long footprint() {
+        return (long) kinds.length * (1 + 4 + 4 + 4);
+    }
+
+    private int add(Kind kind, int value, int type) {
+        if (size == kinds.length) {
+            int capacity = size * 2;
+            kinds = Arrays.copyOf(kinds, capacity);
+            ends = Arrays.copyOf(ends, capacity);
+            values = Arrays.copyOf(values, capacity);
+            types = Arrays.copyOf(types, capacity);
+        }
+        int node = size++;
+        kinds[node] = (byte) kind.ordinal();
+        values[node] = value;
+        types[node] = type;
+        ends[node] = node + 1;
+        return node;
+    }
+
+    private void close(int node) {
+        ends[node] = size;
+    }
+
+    private void trim() {
+        kinds = Arrays.copyOf(kinds, size);
+        ends = Arrays.copyOf(ends, size);
+        values = Arrays.copyOf(values, size);
+        types = Arrays.copyOf(types, size);
+    }
+
+    private int intern(String s) {
+        Integer i = stringIndex.get(s);
+        if (i == null) {
+            i = strings.size();
+            strings.add(s);
+            stringIndex.put(s, i);
+        }
+        return i;
+    }
+
+    private int intern(Type type) {
+        if (type == null)
+            return -1;
+        String spelling = spell(type);
+        Integer i = typeIndex.get(spelling);
+        if (i == null) {
+            i = typeTable.size();
+            typeTable.add(type);
+            typeIndex.put(spelling, i);
+        }
+        return i;
+    }
+
+    private static String spell(Type type) {
+        if (type instanceof PointerType)
+            return spell(((PointerType) type).baseType) + "*";
+        if (type instanceof ArrayType)
+            return spell(((ArrayType) type).baseType) + "[" + ((ArrayType) type).size + "]";
+        if (type instanceof StructType)
+            return "struct " + ((StructType) type).name;
+        return type.toString();
+    }
+
+    /*
+     * Appends the nodes of a tree in pre-order, closing each once its children are in.
+     */
+    private final class Builder implements ASTVisitor<Void> {
+
+        public Void visitProgram(Program p) {
+            int node = add(Kind.PROGRAM, 0, -1);
+            for (StructTypeDecl std : p.structTypeDecls) std.accept(this);
+            for (VarDecl vd : p.varDecls) vd.accept(this);
+            for (FunDecl fd : p.funDecls) fd.accept(this);
+            close(node);
+            return null;
+        }
+
+        public Void visitStructTypeDecl(StructTypeDecl st) {
+            int node = add(Kind.STRUCT_TYPE_DECL, intern(st.structType.name), intern(st.structType));
+            for (VarDecl vd : st.varDecls) vd.accept(this);
+            close(node);
+            return null;
+        }
+
+        public Void visitVarDecl(VarDecl vd) {
+            add(Kind.VAR_DECL, intern(vd.varName), intern(vd.type));
+            return null;
+        }
+
+        public Void visitFunDecl(FunDecl p) {
+            int node = add(Kind.FUN_DECL, intern(p.name), intern(p.type));
+            for (VarDecl vd : p.params) vd.accept(this);
+            p.block.accept(this);
+            close(node);
+            return null;
+        }
+
+        // types are held in the table, not as nodes
+        public Void visitBaseType(BaseType bt) { return null; }
+        public Void visitPointerType(PointerType pt) { return null; }
+        public Void visitStructType(StructType st) { return null; }
+        public Void visitArrayType(ArrayType at) { return null; }
+        public Void visitErrorType(ErrorType et) { return null; }
+
+        public Void visitIntLiteral(IntLiteral il) {
+            add(Kind.INT_LITERAL, il.i, -1);
+            return null;
+        }
+
+        public Void visitStrLiteral(StrLiteral sl) {
+            add(Kind.STR_LITERAL, intern(sl.s), -1);
+            return null;
+        }
+
+        public Void visitChrLiteral(ChrLiteral cl) {
+            add(Kind.CHR_LITERAL, cl.c | (cl.isEscape ? ESCAPE : 0), -1);
+            return null;
+        }
+
+        public Void visitVarExpr(VarExpr v) {
+            add(Kind.VAR_EXPR, intern(v.name), -1);
+            return null;
+        }
+
+        public Void visitFunCallExpr(FunCallExpr fce) {
+            int node = add(Kind.FUN_CALL_EXPR, intern(fce.name), -1);
+            for (Expr arg : fce.args) arg.accept(this);
+            close(node);
+            return null;
+        }
+
+        public Void visitBinOp(BinOp bo) {
+            int node = add(Kind.BIN_OP, bo.op.ordinal(), -1);
+            bo.lhs.accept(this);
+            bo.rhs.accept(this);
+            close(node);
+            return null;
+        }
+
+        public Void visitArrayAccessExpr(ArrayAccessExpr aae) {
+            int node = add(Kind.ARRAY_ACCESS_EXPR, 0, -1);
+            aae.arr.accept(this);
+            aae.idx.accept(this);
+            close(node);
+            return null;
+        }
+
+        public Void visitFieldAccessExpr(FieldAccessExpr fae) {
+            int node = add(Kind.FIELD_ACCESS_EXPR, intern(fae.fieldName), -1);
+            fae.struct.accept(this);
+            close(node);
+            return null;
+        }
+
+        public Void visitValueAtExpr(ValueAtExpr vae) {
+            int node = add(Kind.VALUE_AT_EXPR, 0, -1);
+            vae.expr.accept(this);
+            close(node);
+            return null;
+        }
+
+        public Void visitSizeOfExpr(SizeOfExpr soe) {
+            add(Kind.SIZE_OF_EXPR, 0, intern(soe.sizeofType));
+            return null;
+        }
+
+        public Void visitTypecastExpr(TypecastExpr tce) {
+            int node = add(Kind.TYPECAST_EXPR, 0, intern(tce.castType));
+            tce.expr.accept(this);
+            close(node);
+            return null;
+        }
+
+        public Void visitBlock(Block b) {
+            int node = add(Kind.BLOCK, 0, -1);
+            for (VarDecl vd : b.varDecls) vd.accept(this);
+            for (Stmt stmt : b.stmts) stmt.accept(this);
+            close(node);
+            return null;
+        }
+
+        public Void visitWhile(While w) {
+            int node = add(Kind.WHILE, 0, -1);
+            w.expr.accept(this);
+            w.stmt.accept(this);
+            close(node);
+            return null;
+        }
+
+        public Void visitIf(If i) {
+            int node = add(Kind.IF, 0, -1);
+            i.expr.accept(this);
+            i.stmt1.accept(this);
+            if (i.stmt2 != null)
+                i.stmt2.accept(this);
+            close(node);
+            return null;
+        }
+
+        public Void visitAssign(Assign a) {
+            int node = add(Kind.ASSIGN, 0, -1);
+            a.lhs.accept(this);
+            a.rhs.accept(this);
+            close(node);
+            return null;
+        }
+
+        public Void visitReturn(Return r) {
+            int node = add(Kind.RETURN, 0, -1);
+            if (r.expr != null)
+                r.expr.accept(this);
+            close(node);
+            return null;
+        }
+
+        public Void visitExprStmt(ExprStmt es) {
+            int node = add(Kind.EXPR_STMT, 0, -1);
+            es.expr.accept(this);
+            close(node);
+            return null;
+        }
+    }
+}
@@ -1,5 +1,7 @@
 package ast;
 
+import util.StackGuard;
+
 import java.util.List;
 
 public class FunCallExpr extends Expr {
@@ -11,8 +13,12 @@ public class FunCallExpr extends Expr {
     public FunCallExpr(String name, List<Expr> args) {
         this.name = name;
         this.args = args;
+        height = 1 + Expr.height(args);
     }
 
-    public <T> T accept(ASTVisitor<T> v) { return v.visitFunCallExpr(this); }
+    public <T> T accept(ASTVisitor<T> v) {
+        if (StackGuard.startsSegment(height)) return StackGuard.segment(height, () -> v.visitFunCallExpr(this));
+        return v.visitFunCallExpr(this);
+    }
 
 }
@@ -1,5 +1,7 @@
 package ast;
 
+import util.StackGuard;
+
 public class If extends Stmt {
 
     public final Expr expr;
@@ -12,8 +14,12 @@ public class If extends Stmt {
 
         // stmt2 is optional, so may be null
         this.stmt2 = stmt2;
+        height = 1 + Math.max(Expr.height(expr), Math.max(Stmt.height(stmt1), Stmt.height(stmt2)));
     }
 
-    public <T> T accept(ASTVisitor<T> v) { return v.visitIf(this); }
+    public <T> T accept(ASTVisitor<T> v) {
+        if (StackGuard.startsSegment(height)) return StackGuard.segment(height, () -> v.visitIf(this));
+        return v.visitIf(this);
+    }
 
 }
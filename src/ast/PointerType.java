@@ -2,9 +2,13 @@ package ast;
 
 public class PointerType implements Type {
 
-    public Type baseType;
+    public final Type baseType;
+    final Types.Derived derived = new Types.Derived(this);
 
-    public PointerType(Type baseType) { this.baseType = baseType; }
+    PointerType(Type baseType) { this.baseType = baseType; }
+
+    // the one pointer type to baseType
+    public static PointerType to(Type baseType) { return Types.derived(baseType).pointer(); }
 
     public <T> T accept(ASTVisitor<T> v) {
         return v.visitPointerType(this);
@@ -1,5 +1,7 @@
 package ast;
 
+import util.StackGuard;
+
 public class Return extends Stmt {
 
     public final Expr expr;
@@ -8,8 +10,12 @@ public class Return extends Stmt {
 
         // expr is optional so may be null
         this.expr = expr;
+        height = 1 + Expr.height(expr);
     }
 
-    public <T> T accept(ASTVisitor<T> v) { return v.visitReturn(this); }
+    public <T> T accept(ASTVisitor<T> v) {
+        if (StackGuard.startsSegment(height)) return StackGuard.segment(height, () -> v.visitReturn(this));
+        return v.visitReturn(this);
+    }
 
 }
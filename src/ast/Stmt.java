@@ -1,7 +1,22 @@
 package ast;
 
+import java.util.List;
+
 public abstract class Stmt implements ASTNode {
 
+    // levels of nodes from this one down, set by the constructor; as for Expr, nodes with children
+    // visit them on a new util.StackGuard segment when this is a multiple of its SEGMENT
+    int height = 1;
     public abstract <T> T accept(ASTVisitor<T> v);
 
+    static int height(Stmt s) {
+        return s == null ? 0 : s.height;
+    }
+
+    static int height(List<Stmt> ss) {
+        int h = 0;
+        for (Stmt s : ss) h = Math.max(h, height(s));
+        return h;
+    }
+
 }
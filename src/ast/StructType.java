@@ -4,8 +4,10 @@ public class StructType implements Type {
 
     public final String name;
     public StructTypeDecl std; // to be filled in by the name analyser
+    final Types.Derived derived = new Types.Derived(this);
 
-    public StructType(String name) { this.name = name; }
+    // made by Types, one per name
+    StructType(String name) { this.name = name; }
 
     public <T> T accept(ASTVisitor<T> v) {
         return v.visitStructType(this);
@@ -1,5 +1,7 @@
 package ast;
 
+import util.StackGuard;
+
 public class TypecastExpr extends Expr {
 
     public final Type castType;
@@ -8,9 +10,11 @@ public class TypecastExpr extends Expr {
     public TypecastExpr(Type castType, Expr expr) {
         this.castType = castType;
         this.expr = expr;
+        height = 1 + Expr.height(expr);
     }
 
     public <T> T accept(ASTVisitor<T> v) {
+        if (StackGuard.startsSegment(height)) return StackGuard.segment(height, () -> v.visitTypecastExpr(this));
         return v.visitTypecastExpr(this);
     }
 
@@ -0,0 +1,71 @@
+package ast;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The struct types of a compile, one StructType per name, so that types compare by reference.
+ *
+ * Every type is canonical: there is one BaseType of each kind, a pointer or an array type is made
+ * once per base type (and size) by PointerType.to and ArrayType.of, and a struct type once per name
+ * by the Types of the compile. The parsers of one compile, and the copies of the headers it includes,
+ * must share a Types: a struct type carries the declaration name analysis resolves it to, which is
+ * only right for the compile it was made for. Types may be shared by parsers on several threads.
+ */
+public final class Types {
+
+    private final Map<String, StructType> structs = new ConcurrentHashMap<>();
+
+    public StructType struct(String name) {
+        // a name that failed to parse is told apart from every other
+        if (name == null)
+            return new StructType(null);
+        return structs.computeIfAbsent(name, StructType::new);
+    }
+
+    /*
+     * The pointer and array types made from a type. Held by the type, so that they last as long as it
+     * does: those of a struct type go with its compile, and those of a BaseType are shared by all.
+     */
+    static final class Derived {
+        private final Type base;
+        private volatile PointerType pointer;
+        private volatile Map<Integer, ArrayType> arrays;
+
+        Derived(Type base) {
+            this.base = base;
+        }
+
+        PointerType pointer() {
+            PointerType p = pointer;
+            if (p == null) {
+                synchronized (this) {
+                    if (pointer == null)
+                        pointer = new PointerType(base);
+                    p = pointer;
+                }
+            }
+            return p;
+        }
+
+        ArrayType array(int size) {
+            Map<Integer, ArrayType> a = arrays;
+            if (a == null) {
+                synchronized (this) {
+                    if (arrays == null)
+                        arrays = new ConcurrentHashMap<>();
+                    a = arrays;
+                }
+            }
+            return a.computeIfAbsent(size, n -> new ArrayType(base, n));
+        }
+    }
+
+    static Derived derived(Type type) {
+        if (type instanceof BaseType) return ((BaseType) type).derived;
+        if (type instanceof PointerType) return ((PointerType) type).derived;
+        if (type instanceof ArrayType) return ((ArrayType) type).derived;
+        if (type instanceof StructType) return ((StructType) type).derived;
+        return ((ErrorType) type).derived;
+    }
+}
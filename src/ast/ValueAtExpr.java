@@ -1,14 +1,18 @@
 package ast;
 
+import util.StackGuard;
+
 public class ValueAtExpr extends Expr {
 
     public final Expr expr;
 
     public ValueAtExpr(Expr expr) {
         this.expr = expr;
+        height = 1 + Expr.height(expr);
     }
 
     public <T> T accept(ASTVisitor<T> v) {
+        if (StackGuard.startsSegment(height)) return StackGuard.segment(height, () -> v.visitValueAtExpr(this));
         return v.visitValueAtExpr(this);
     }
 
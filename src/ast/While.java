@@ -1,5 +1,7 @@
 package ast;
 
+import util.StackGuard;
+
 public class While extends Stmt {
 
     public final Expr expr;
@@ -8,9 +10,11 @@ public class While extends Stmt {
     public While(Expr expr, Stmt stmt) {
         this.expr = expr;
         this.stmt = stmt;
+        height = 1 + Math.max(Expr.height(expr), Stmt.height(stmt));
     }
 
     public <T> T accept(ASTVisitor<T> v) {
+        if (StackGuard.startsSegment(height)) return StackGuard.segment(height, () -> v.visitWhile(this));
         return v.visitWhile(this);
     }
 
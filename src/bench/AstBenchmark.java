@@ -0,0 +1,334 @@
+package bench;
+
+import ast.*;
+import lexer.Scanner;
+import lexer.TokenStream;
+import lexer.Tokeniser;
+import parser.Parser;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Compares the object AST with FlatProgram: the heap each takes per source line, and the time of two
+ * passes over each: one that counts the nodes, the uses of variables and the deepest nesting, and
+ * the printing of -ast, by ASTPrinter and by FlatPrinter.
+ *
+ * Usage: java -cp bin bench.AstBenchmark [-repeat n] [-runs n] file...
+ * Each file is parsed once; a run then walks every tree n times.
+ */
+public class AstBenchmark {
+
+    private interface Pass<T> {
+        long run(T tree);
+    }
+
+    public static void main(String[] args) throws IOException {
+        int repeat = 100;
+        int runs = 10;
+        List<File> inputs = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("-repeat")) repeat = Integer.parseInt(args[++i]);
+            else if (args[i].equals("-runs")) runs = Integer.parseInt(args[++i]);
+            else inputs.add(new File(args[i]));
+        }
+        if (inputs.isEmpty()) {
+            System.out.println("Usage: java "+AstBenchmark.class.getName()+" [-repeat n] [-runs n] file...");
+            System.exit(-1);
+        }
+
+        long lines = 0;
+        for (File f : inputs)
+            try (Stream<String> in = Files.lines(f.toPath())) {
+                lines += in.count();
+            }
+
+        long base = usedHeap();
+        List<Program> programs = parseAll(inputs);
+        long objects = usedHeap() - base;
+
+        List<FlatProgram> flats = flatten(programs);
+        programs = null;
+        long flat = usedHeap() - base;
+        programs = parseAll(inputs);
+        long nodes = 0;
+        for (FlatProgram f : flats)
+            nodes += f.size();
+
+        System.out.printf("input: %d files, %d lines, %d nodes%n", inputs.size(), lines, nodes);
+        System.out.printf("%-8s %10d bytes  %7.1f bytes/line  %5.1f bytes/node%n",
+                "objects", objects, (double) objects / lines, (double) objects / nodes);
+        System.out.printf("%-8s %10d bytes  %7.1f bytes/line  %5.1f bytes/node%n",
+                "flat", flat, (double) flat / lines, (double) flat / nodes);
+
+        measure("objects", programs, repeat, runs, nodes, AstBenchmark::census);
+        measure("flat", flats, repeat, runs, nodes, AstBenchmark::census);
+        measure("objects print", programs, repeat, runs, nodes, AstBenchmark::print);
+        measure("flat print", flats, repeat, runs, nodes, AstBenchmark::print);
+    }
+
+    private static <T> void measure(String name, List<T> trees, int repeat, int runs, long nodes, Pass<T> pass) {
+        // the first runs only warm up the JIT
+        for (int i = 0; i < 3; i++)
+            walk(trees, repeat, pass);
+
+        long best = Long.MAX_VALUE;
+        long result = 0;
+        for (int i = 0; i < runs; i++) {
+            long start = System.nanoTime();
+            result = walk(trees, repeat, pass);
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        System.out.printf("%-13s %8.1f ms  %7.1f Mnodes/s  (%d)%n",
+                name, best / 1e6, nodes * (long) repeat / 1e6 / (best / 1e9), result);
+    }
+
+    private static <T> long walk(List<T> trees, int repeat, Pass<T> pass) {
+        long result = 0;
+        for (int r = 0; r < repeat; r++)
+            for (T tree : trees)
+                result += pass.run(tree);
+        return result;
+    }
+
+    private static List<Program> parseAll(List<File> inputs) throws IOException {
+        List<Program> programs = new ArrayList<>();
+        for (File f : inputs)
+            programs.add(new Parser(TokenStream.readAll(new Tokeniser(Scanner.map(f)))).parse());
+        return programs;
+    }
+
+    // in a method of its own, so that no local of main keeps a program from the collector
+    private static List<FlatProgram> flatten(List<Program> programs) {
+        List<FlatProgram> flats = new ArrayList<>();
+        for (Program p : programs)
+            flats.add(FlatProgram.of(p));
+        return flats;
+    }
+
+    private static long usedHeap() {
+        Runtime rt = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++)
+            System.gc();
+        return rt.totalMemory() - rt.freeMemory();
+    }
+
+    private static long print(Program program) {
+        Counter counter = new Counter();
+        program.accept(new ASTPrinter(new PrintWriter(counter)));
+        return counter.chars;
+    }
+
+    private static long print(FlatProgram flat) {
+        Counter counter = new Counter();
+        new FlatPrinter(new PrintWriter(counter)).print(flat);
+        return counter.chars;
+    }
+
+    // counts what is printed, so that the time is that of the printer, not of the output
+    private static final class Counter extends Writer {
+        long chars;
+
+        public void write(char[] buffer, int offset, int length) {
+            chars += length;
+        }
+
+        public void write(String s, int offset, int length) {
+            chars += length;
+        }
+
+        public void flush() {
+        }
+
+        public void close() {
+        }
+    }
+
+    private static long census(FlatProgram flat) {
+        long[] counts = new long[3];        // nodes, uses, deepest
+        flat.walk(0, new FlatProgram.Walker() {
+            int depth = 0;
+
+            public void enter(int node) {
+                counts[0]++;
+                if (flat.kind(node) == FlatProgram.Kind.VAR_EXPR)
+                    counts[1]++;
+                counts[2] = Math.max(counts[2], ++depth);
+            }
+
+            public void exit(int node) {
+                depth--;
+            }
+        });
+        return counts[0] + counts[1] * 1000 + counts[2] * 1000000;
+    }
+
+    private static long census(Program program) {
+        Census census = new Census();
+        program.accept(census);
+        return census.nodes + census.uses * 1000 + census.deepest * 1000000;
+    }
+
+    /*
+     * The same pass over the objects, as the passes of the compiler walk them.
+     */
+    private static final class Census implements ASTVisitor<Void> {
+        long nodes, uses, deepest;
+        int depth;
+
+        private void enter() {
+            nodes++;
+            deepest = Math.max(deepest, ++depth);
+        }
+
+        private Void exit() {
+            depth--;
+            return null;
+        }
+
+        public Void visitProgram(Program p) {
+            enter();
+            for (StructTypeDecl std : p.structTypeDecls) std.accept(this);
+            for (VarDecl vd : p.varDecls) vd.accept(this);
+            for (FunDecl fd : p.funDecls) fd.accept(this);
+            return exit();
+        }
+
+        public Void visitStructTypeDecl(StructTypeDecl st) {
+            enter();
+            for (VarDecl vd : st.varDecls) vd.accept(this);
+            return exit();
+        }
+
+        public Void visitVarDecl(VarDecl vd) {
+            enter();
+            return exit();
+        }
+
+        public Void visitFunDecl(FunDecl p) {
+            enter();
+            for (VarDecl vd : p.params) vd.accept(this);
+            p.block.accept(this);
+            return exit();
+        }
+
+        public Void visitBaseType(BaseType bt) { return null; }
+        public Void visitPointerType(PointerType pt) { return null; }
+        public Void visitStructType(StructType st) { return null; }
+        public Void visitArrayType(ArrayType at) { return null; }
+        public Void visitErrorType(ErrorType et) { return null; }
+
+        public Void visitIntLiteral(IntLiteral il) {
+            enter();
+            return exit();
+        }
+
+        public Void visitStrLiteral(StrLiteral sl) {
+            enter();
+            return exit();
+        }
+
+        public Void visitChrLiteral(ChrLiteral cl) {
+            enter();
+            return exit();
+        }
+
+        public Void visitVarExpr(VarExpr v) {
+            enter();
+            uses++;
+            return exit();
+        }
+
+        public Void visitFunCallExpr(FunCallExpr fce) {
+            enter();
+            for (Expr arg : fce.args) arg.accept(this);
+            return exit();
+        }
+
+        public Void visitBinOp(BinOp bo) {
+            enter();
+            bo.lhs.accept(this);
+            bo.rhs.accept(this);
+            return exit();
+        }
+
+        public Void visitArrayAccessExpr(ArrayAccessExpr aae) {
+            enter();
+            aae.arr.accept(this);
+            aae.idx.accept(this);
+            return exit();
+        }
+
+        public Void visitFieldAccessExpr(FieldAccessExpr fae) {
+            enter();
+            fae.struct.accept(this);
+            return exit();
+        }
+
+        public Void visitValueAtExpr(ValueAtExpr vae) {
+            enter();
+            vae.expr.accept(this);
+            return exit();
+        }
+
+        public Void visitSizeOfExpr(SizeOfExpr soe) {
+            enter();
+            return exit();
+        }
+
+        public Void visitTypecastExpr(TypecastExpr tce) {
+            enter();
+            tce.expr.accept(this);
+            return exit();
+        }
+
+        public Void visitBlock(Block b) {
+            enter();
+            for (VarDecl vd : b.varDecls) vd.accept(this);
+            for (Stmt stmt : b.stmts) stmt.accept(this);
+            return exit();
+        }
+
+        public Void visitWhile(While w) {
+            enter();
+            w.expr.accept(this);
+            w.stmt.accept(this);
+            return exit();
+        }
+
+        public Void visitIf(If i) {
+            enter();
+            i.expr.accept(this);
+            i.stmt1.accept(this);
+            if (i.stmt2 != null)
+                i.stmt2.accept(this);
+            return exit();
+        }
+
+        public Void visitAssign(Assign a) {
+            enter();
+            a.lhs.accept(this);
+            a.rhs.accept(this);
+            return exit();
+        }
+
+        public Void visitReturn(Return r) {
+            enter();
+            if (r.expr != null)
+                r.expr.accept(this);
+            return exit();
+        }
+
+        public Void visitExprStmt(ExprStmt es) {
+            enter();
+            es.expr.accept(this);
+            return exit();
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package bench;
+
+import lsp.Document;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Measures how long the language server takes to bring a document's diagnostics up to date after
+ * a keystroke.
+ *
+ * Usage: java -cp bin bench.EditBenchmark [-edits n] file
+ * The file is opened once; each edit then types a space at the start of a random line and deletes
+ * it again, and the time of both, with the diagnostics fetched after each, is reported.
+ */
+public class EditBenchmark {
+
+    public static void main(String[] args) throws IOException {
+        int edits = 1000;
+        File input = null;
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("-edits")) edits = Integer.parseInt(args[++i]);
+            else input = new File(args[i]);
+        }
+        if (input == null) {
+            System.out.println("Usage: java "+EditBenchmark.class.getName()+" [-edits n] file");
+            System.exit(-1);
+        }
+
+        String text = new String(Files.readAllBytes(input.toPath()));
+        int lines = 1;
+        for (int i = 0; i < text.length(); i++)
+            if (text.charAt(i) == '\n')
+                lines++;
+
+        long start = System.nanoTime();
+        Document document = new Document(text);
+        int problems = document.getDiagnostics().size();
+        System.out.printf("open: %d lines, %d problems, %.1f ms%n", lines, problems, (System.nanoTime() - start) / 1e6);
+
+        Random random = new Random(42);
+        long[] times = new long[edits];
+        for (int i = 0; i < edits; i++) {
+            int line = random.nextInt(lines);
+            long t = System.nanoTime();
+            document.edit(line, 0, line, 0, " ");
+            document.getDiagnostics();
+            document.edit(line, 0, line, 1, "");
+            document.getDiagnostics();
+            times[i] = (System.nanoTime() - t) / 2;
+        }
+        Arrays.sort(times);
+        System.out.printf("edit: median %.3f ms, 99th percentile %.3f ms, max %.3f ms%n",
+                times[edits / 2] / 1e6, times[edits * 99 / 100] / 1e6, times[edits - 1] / 1e6);
+    }
+}
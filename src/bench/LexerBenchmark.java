@@ -0,0 +1,91 @@
+package bench;
+
+import lexer.DfaTokeniser;
+import lexer.Scanner;
+import lexer.Token;
+import lexer.TokenStream;
+import lexer.Tokeniser;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compares lexing throughput of the reader-based and the mapped Scanner,
+ * and of the hand-written and the automaton-driven tokenisers.
+ *
+ * Usage: java -cp bin bench.LexerBenchmark [-copies n] [-runs n] file...
+ * The input files are concatenated n times into one temporary file, which is then lexed
+ * repeatedly with each configuration.
+ */
+public class LexerBenchmark {
+
+    private interface TokeniserFactory {
+        Tokeniser open(File f) throws IOException;
+    }
+
+    public static void main(String[] args) throws IOException {
+        int copies = 1000;
+        int runs = 10;
+        List<File> inputs = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("-copies")) copies = Integer.parseInt(args[++i]);
+            else if (args[i].equals("-runs")) runs = Integer.parseInt(args[++i]);
+            else inputs.add(new File(args[i]));
+        }
+        if (inputs.isEmpty()) {
+            System.out.println("Usage: java "+LexerBenchmark.class.getName()+" [-copies n] [-runs n] file...");
+            System.exit(-1);
+        }
+
+        File big = concat(inputs, copies);
+        try {
+            System.out.printf("input: %d copies, %.1f MB%n", copies, big.length() / 1e6);
+            measure("reader", big, runs, f -> new Tokeniser(new Scanner(f)));
+            measure("mapped", big, runs, f -> new Tokeniser(Scanner.map(f)));
+            measure("dfa", big, runs, f -> new DfaTokeniser(Scanner.map(f)));
+        } finally {
+            big.delete();
+        }
+    }
+
+    private static void measure(String name, File f, int runs, TokeniserFactory factory) throws IOException {
+        // the first runs only warm up the JIT
+        for (int i = 0; i < 3; i++)
+            lex(factory.open(f));
+
+        long best = Long.MAX_VALUE;
+        int tokens = 0;
+        for (int i = 0; i < runs; i++) {
+            long start = System.nanoTime();
+            tokens = lex(factory.open(f));
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        System.out.printf("%-8s %8d tokens  %8.1f ms  %7.1f MB/s%n",
+                name, tokens, best / 1e6, f.length() / 1e6 / (best / 1e9));
+    }
+
+    // reads the tokens through a token stream, as the parser does
+    private static int lex(Tokeniser tokeniser) {
+        TokenStream tokens = new TokenStream(tokeniser);
+        int n = 0;
+        while (tokens.tokenClass(n) != Token.TokenClass.EOF)
+            tokens.release(++n);
+        return n;
+    }
+
+    private static File concat(List<File> inputs, int copies) throws IOException {
+        File big = File.createTempFile("lexbench", ".c");
+        try (OutputStream out = Files.newOutputStream(big.toPath())) {
+            for (int i = 0; i < copies; i++)
+                for (File f : inputs) {
+                    out.write(Files.readAllBytes(f.toPath()));
+                    out.write('\n');
+                }
+        }
+        return big;
+    }
+}
@@ -0,0 +1,84 @@
+package bench;
+
+import lexer.Scanner;
+import lexer.TokenStream;
+import lexer.Tokeniser;
+import parser.LL1Parser;
+import parser.Parser;
+import parser.ProgramParser;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compares the parsing speed of the hand-written parser and the table-driven LL(1) parser.
+ *
+ * Usage: java -cp bin bench.ParserBenchmark [-repeat n] [-runs n] file...
+ * Each file is lexed once; a run then parses every file n times with each parser.
+ */
+public class ParserBenchmark {
+
+    private interface ParserFactory {
+        ProgramParser open(TokenStream tokens);
+    }
+
+    public static void main(String[] args) throws IOException {
+        int repeat = 1000;
+        int runs = 10;
+        List<File> inputs = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("-repeat")) repeat = Integer.parseInt(args[++i]);
+            else if (args[i].equals("-runs")) runs = Integer.parseInt(args[++i]);
+            else inputs.add(new File(args[i]));
+        }
+        if (inputs.isEmpty()) {
+            System.out.println("Usage: java "+ParserBenchmark.class.getName()+" [-repeat n] [-runs n] file...");
+            System.exit(-1);
+        }
+
+        // complete streams can be parsed any number of times
+        List<TokenStream> streams = new ArrayList<>();
+        long tokens = 0;
+        for (File f : inputs) {
+            TokenStream stream = TokenStream.readAll(new Tokeniser(Scanner.map(f)));
+            streams.add(stream);
+            tokens += stream.size();
+        }
+        tokens *= repeat;
+
+        System.out.printf("input: %d files, %d tokens per run%n", inputs.size(), tokens);
+        measure("parser", streams, repeat, runs, tokens, Parser::new);
+        measure("ll1", streams, repeat, runs, tokens, LL1Parser::new);
+    }
+
+    private static void measure(String name, List<TokenStream> streams, int repeat, int runs, long tokens,
+                                ParserFactory factory) {
+        // the first runs only warm up the JIT
+        for (int i = 0; i < 3; i++)
+            parse(streams, repeat, factory);
+
+        long best = Long.MAX_VALUE;
+        int errors = 0;
+        for (int i = 0; i < runs; i++) {
+            long start = System.nanoTime();
+            errors = parse(streams, repeat, factory);
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        System.out.printf("%-8s %8.1f ms  %7.1f Mtokens/s  %d errors%n",
+                name, best / 1e6, tokens / 1e6 / (best / 1e9), errors);
+    }
+
+    private static int parse(List<TokenStream> streams, int repeat, ParserFactory factory) {
+        int errors = 0;
+        for (int r = 0; r < repeat; r++) {
+            for (TokenStream stream : streams) {
+                ProgramParser parser = factory.open(stream);
+                parser.parse();
+                errors += parser.getErrorCount();
+            }
+        }
+        return errors;
+    }
+}
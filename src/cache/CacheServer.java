@@ -0,0 +1,134 @@
+package cache;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.concurrent.Executors;
+
+/**
+ * A reference server of the shared cache protocol described in RemoteCache, keeping its entries
+ * in a CompileCache. It listens on the loopback interface, which is all that testing needs.
+ *
+ * Usage: java cache.CacheServer [-port n] [-max bytes] dir
+ *
+ * The compiler is then pointed at it with -remote-cache http://localhost:n/cache/.
+ * A test can also run it inside its own JVM with start, and stop it when done.
+ */
+public class CacheServer {
+    static final int DEFAULT_PORT = 7220;
+    static final String PATH = "/cache/";
+
+    public static void main(String[] args) throws IOException {
+        int port = DEFAULT_PORT;
+        long maxSize = CompileCache.DEFAULT_MAX_SIZE;
+        String dir = null;
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("-port") && i + 1 < args.length)
+                port = Integer.parseInt(args[++i]);
+            else if (args[i].equals("-max") && i + 1 < args.length)
+                maxSize = Long.parseLong(args[++i]);
+            else if (dir == null && !args[i].startsWith("-"))
+                dir = args[i];
+            else {
+                usage();
+                return;
+            }
+        }
+        if (dir == null) {
+            usage();
+            return;
+        }
+
+        HttpServer server = start(port, new CompileCache(new File(dir), maxSize));
+        System.out.println("Cache server listening on http://localhost:"+server.getAddress().getPort()+PATH);
+    }
+
+    private static void usage() {
+        System.out.println("Usage: java "+CacheServer.class.getName()+" [-port n] [-max bytes] dir");
+    }
+
+    /*
+     * Serves cache on the given port, or on any free port if it is 0, until the server is stopped.
+     */
+    public static HttpServer start(int port, CompileCache cache) throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 50);
+        server.createContext(PATH, exchange -> {
+            try {
+                serve(exchange, cache);
+            } finally {
+                exchange.close();
+            }
+        });
+        server.setExecutor(Executors.newCachedThreadPool(r -> {
+            Thread t = new Thread(r, "cache server");
+            t.setDaemon(true);
+            return t;
+        }));
+        server.start();
+        return server;
+    }
+
+    private static void serve(HttpExchange exchange, CompileCache cache) throws IOException {
+        String key = exchange.getRequestURI().getPath().substring(PATH.length());
+        if (!CompileCache.isKey(key)) {
+            fail(exchange, 400);
+            return;
+        }
+
+        switch (exchange.getRequestMethod()) {
+            case "GET": {
+                CompileCache.Result result = cache.get(key);
+                if (result == null) {
+                    fail(exchange, 404);
+                    return;
+                }
+                byte[] entry = CompileCache.encode(result);
+                exchange.getResponseHeaders().set("Content-Type", "application/octet-stream");
+                exchange.sendResponseHeaders(200, entry.length);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(entry);
+                }
+                return;
+            }
+            case "PUT": {
+                CompileCache.Result result;
+                try (InputStream in = exchange.getRequestBody()) {
+                    result = CompileCache.decode(readAll(in));
+                } catch (IOException e) {
+                    fail(exchange, 400);
+                    return;
+                }
+                cache.put(key, result);
+                exchange.sendResponseHeaders(204, -1);
+                return;
+            }
+            default:
+                exchange.getResponseHeaders().set("Allow", "GET, PUT");
+                fail(exchange, 405);
+        }
+    }
+
+    /*
+     * Answers with an error. The server closes the connection after one, so the client is told
+     * not to send its next request on it.
+     */
+    private static void fail(HttpExchange exchange, int code) throws IOException {
+        exchange.getResponseHeaders().set("Connection", "close");
+        exchange.sendResponseHeaders(code, -1);
+    }
+
+    private static byte[] readAll(InputStream in) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        for (int n = in.read(buffer); n >= 0; n = in.read(buffer))
+            bytes.write(buffer, 0, n);
+        return bytes.toByteArray();
+    }
+}
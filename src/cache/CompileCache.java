@@ -0,0 +1,380 @@
+package cache;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * A content-addressed cache of compile results on disk.
+ *
+ * A result is keyed by a hash of everything that can change it: the compiler itself, the pass and
+ * options, the bytes of the source and of the headers it includes. Since file names play no part,
+ * copies of a source share one entry. Each entry is a single file in the cache directory, named by
+ * its key, holding the exit status, what the compile printed, in the order it printed it to
+ * either stream, and the assembly it wrote, if any.
+ *
+ * Entries are written to a temporary file and renamed into place, so that compiles sharing the
+ * directory, even from other processes, only ever see whole entries. A hit refreshes the entry's
+ * modification time, and once the entries take more than the size limit the least recently used
+ * ones are deleted.
+ */
+public class CompileCache implements ResultCache {
+
+    public static final long DEFAULT_MAX_SIZE = 256L << 20;
+
+    private static final String SUFFIX = ".entry";
+    private static final String STAMP = "compiler.stamp";
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    private static String compilerDigest;
+
+    private final Path dir;
+    private final long maxSize;
+
+    public CompileCache(File dir, long maxSize) throws IOException {
+        this.dir = dir.toPath();
+        this.maxSize = maxSize;
+        Files.createDirectories(this.dir);
+    }
+
+    /*
+     * What a compile printed and produced.
+     */
+    public static final class Result {
+        public final int status;
+        public final byte[] printed;    // a Transcript
+        public final byte[] output;     // the assembly written, or null if there is none
+
+        public Result(int status, byte[] printed, byte[] output) {
+            this.status = status;
+            this.printed = printed;
+            this.output = output;
+        }
+
+        /*
+         * Prints again what the compile printed, each part to the stream it went to.
+         */
+        public void replay(PrintStream out, PrintStream err) throws IOException {
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(printed));
+            while (in.available() > 0) {
+                PrintStream to = in.readByte() == Transcript.OUT ? out : err;
+                byte[] bytes = read(in);
+                to.write(bytes, 0, bytes.length);
+            }
+            out.flush();
+            err.flush();
+        }
+    }
+
+    /*
+     * Records what is printed to a compile's output and error streams, keeping the order between the two.
+     * Each write becomes a kind byte, OUT or ERR, and the length and bytes written.
+     */
+    public static final class Transcript {
+        static final byte OUT = 1;
+        static final byte ERR = 2;
+
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        private final DataOutputStream frames = new DataOutputStream(bytes);
+
+        /*
+         * Returns a stream printing to out and recording what it prints.
+         */
+        public PrintStream out(PrintStream out) {
+            return new PrintStream(new Recorder(out, OUT), true);
+        }
+
+        /*
+         * Returns a stream printing to err and recording what it prints.
+         */
+        public PrintStream err(PrintStream err) {
+            return new PrintStream(new Recorder(err, ERR), true);
+        }
+
+        public synchronized byte[] toByteArray() {
+            return bytes.toByteArray();
+        }
+
+        private final class Recorder extends OutputStream {
+            private final OutputStream to;
+            private final byte kind;
+
+            Recorder(OutputStream to, byte kind) {
+                this.to = to;
+                this.kind = kind;
+            }
+
+            @Override
+            public void write(int b) throws IOException {
+                write(new byte[] {(byte) b}, 0, 1);
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                if (len == 0)
+                    return;
+                to.write(b, off, len);
+                synchronized (Transcript.this) {
+                    frames.writeByte(kind);
+                    frames.writeInt(len);
+                    frames.write(b, off, len);
+                }
+            }
+
+            @Override
+            public void flush() throws IOException {
+                to.flush();
+            }
+        }
+    }
+
+    /*
+     * Returns the key of compiling source with the given pass and options.
+     */
+    public static String key(String pass, List<String> options, File source) throws IOException {
+        MessageDigest digest = sha256();
+        update(digest, compilerDigest());
+        update(digest, pass);
+        for (String option : options)
+            update(digest, option);
+        byte[] bytes = Files.readAllBytes(source.toPath());
+        update(digest, bytes);
+
+        // headers are found as the parser finds them, looked up next to the file including them, and
+        // hashed by name and contents, with the headers they include in turn, each once
+        Set<File> seen = new HashSet<>();
+        Deque<File> including = new ArrayDeque<>();
+        Deque<byte[]> contents = new ArrayDeque<>();
+        including.push(source.getAbsoluteFile());
+        contents.push(bytes);
+        while (!including.isEmpty()) {
+            File base = including.pop().getParentFile();
+            for (String name : HeaderCache.includes(contents.pop())) {
+                update(digest, name);
+                File header = new File(base, name);
+                byte[] headerBytes = header.isFile() ? Files.readAllBytes(header.toPath()) : new byte[0];
+                update(digest, headerBytes);
+                if (header.isFile() && seen.add(header.getCanonicalFile())) {
+                    including.push(header);
+                    contents.push(headerBytes);
+                }
+            }
+        }
+        return hex(digest.digest());
+    }
+
+    @Override
+    public Result get(String key) throws IOException {
+        Path entry = dir.resolve(key + SUFFIX);
+        byte[] bytes;
+        try {
+            bytes = Files.readAllBytes(entry);
+            Files.setLastModifiedTime(entry, FileTime.fromMillis(System.currentTimeMillis()));
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+        return decode(bytes);
+    }
+
+    /*
+     * Stores result under key, then evicts entries until the cache fits its size limit again.
+     */
+    @Override
+    public void put(String key, Result result) throws IOException {
+        Path temp = Files.createTempFile(dir, key, ".tmp");
+        try {
+            Files.write(temp, encode(result));
+            try {
+                Files.move(temp, dir.resolve(key + SUFFIX), StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, dir.resolve(key + SUFFIX), StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+        evict();
+    }
+
+    /*
+     * A result as it is kept on disk and sent to a shared cache.
+     */
+    static byte[] encode(Result result) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(result.status);
+            write(out, result.printed);
+            out.writeBoolean(result.output != null);
+            if (result.output != null)
+                write(out, result.output);
+        }
+        return bytes.toByteArray();
+    }
+
+    /*
+     * Reads back what encode wrote, failing with an IOException if the bytes are not such a result.
+     */
+    static Result decode(byte[] bytes) throws IOException {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes))) {
+            int status = in.readInt();
+            byte[] printed = read(in);
+            byte[] output = in.readBoolean() ? read(in) : null;
+            if (in.available() > 0)
+                throw new IOException("trailing bytes after a cache entry");
+            return new Result(status, printed, output);
+        }
+    }
+
+    /*
+     * Whether s can name an entry: keys are SHA-256 digests in hex.
+     */
+    static boolean isKey(String s) {
+        return s.matches("[0-9a-f]{64}");
+    }
+
+    private void evict() throws IOException {
+        List<Path> entries = new ArrayList<>();
+        List<BasicFileAttributes> attributes = new ArrayList<>();
+        long size = 0;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, "*" + SUFFIX)) {
+            for (Path entry : files) {
+                try {
+                    BasicFileAttributes a = Files.readAttributes(entry, BasicFileAttributes.class);
+                    entries.add(entry);
+                    attributes.add(a);
+                    size += a.size();
+                } catch (NoSuchFileException e) {
+                    // evicted by someone else meanwhile
+                }
+            }
+        }
+        if (size <= maxSize)
+            return;
+
+        // oldest first
+        Integer[] order = new Integer[entries.size()];
+        for (int i = 0; i < order.length; i++)
+            order[i] = i;
+        Arrays.sort(order, (a, b) -> attributes.get(a).lastModifiedTime().compareTo(attributes.get(b).lastModifiedTime()));
+        for (int i = 0; i < order.length && size > maxSize; i++) {
+            Files.deleteIfExists(entries.get(order[i]));
+            size -= attributes.get(order[i]).size();
+        }
+    }
+
+    /*
+     * A stamp of the compiler's own build, so that entries made by another build are never used. The
+     * build writes compiler.stamp next to the classes; without it, the path, size and modification
+     * time of each class file, or of the jar, stand in. The classes themselves are not read, as that
+     * would cost more than most compiles.
+     */
+    static synchronized String compilerDigest() throws IOException {
+        if (compilerDigest != null)
+            return compilerDigest;
+        MessageDigest digest = sha256();
+        try (InputStream in = CompileCache.class.getResourceAsStream("/" + STAMP)) {
+            if (in != null) {
+                ByteArrayOutputStream stamp = new ByteArrayOutputStream();
+                byte[] buffer = new byte[256];
+                for (int n = in.read(buffer); n >= 0; n = in.read(buffer))
+                    stamp.write(buffer, 0, n);
+                update(digest, STAMP);
+                update(digest, stamp.toByteArray());
+                compilerDigest = hex(digest.digest());
+                return compilerDigest;
+            }
+        }
+        Path location;
+        try {
+            location = Paths.get(CompileCache.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+        } catch (URISyntaxException e) {
+            throw new IOException(e);
+        }
+        if (Files.isDirectory(location)) {
+            List<Path> classes;
+            try (Stream<Path> files = Files.walk(location)) {
+                classes = files.filter(p -> p.toString().endsWith(".class")).sorted().collect(Collectors.toList());
+            }
+            for (Path c : classes)
+                stamp(digest, location.relativize(c).toString(), Files.readAttributes(c, BasicFileAttributes.class));
+        } else {
+            stamp(digest, location.toString(), Files.readAttributes(location, BasicFileAttributes.class));
+        }
+        compilerDigest = hex(digest.digest());
+        return compilerDigest;
+    }
+
+    private static void stamp(MessageDigest digest, String name, BasicFileAttributes attributes) {
+        update(digest, name);
+        update(digest, attributes.size() + " " + attributes.lastModifiedTime().toMillis());
+    }
+
+    public static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new AssertionError("every Java platform supports SHA-256", e);
+        }
+    }
+
+    // each part is preceded by its length, so that parts cannot run into each other
+    static void update(MessageDigest digest, byte[] bytes) {
+        int n = bytes.length;
+        digest.update(new byte[] {(byte) (n >>> 24), (byte) (n >>> 16), (byte) (n >>> 8), (byte) n});
+        digest.update(bytes);
+    }
+
+    static void update(MessageDigest digest, String s) {
+        update(digest, s.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static String hex(byte[] bytes) {
+        char[] digits = new char[2 * bytes.length];
+        for (int i = 0; i < bytes.length; i++) {
+            digits[2 * i] = HEX_DIGITS[(bytes[i] >> 4) & 0xf];
+            digits[2 * i + 1] = HEX_DIGITS[bytes[i] & 0xf];
+        }
+        return new String(digits);
+    }
+
+    static byte[] read(DataInputStream in) throws IOException {
+        int n = in.readInt();
+        if (n < 0 || n > in.available())
+            throw new IOException("malformed cache entry");
+        byte[] bytes = new byte[n];
+        in.readFully(bytes);
+        return bytes;
+    }
+
+    static void write(DataOutputStream out, byte[] bytes) throws IOException {
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+}
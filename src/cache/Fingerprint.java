@@ -0,0 +1,239 @@
+package cache;
+
+import ast.*;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Spells out syntax trees as they came out of the parser, to be hashed: every node is written as
+ * its kind followed by its fields, each part preceded by its length, so that different trees never
+ * come out the same. The annotations of the later passes play no part.
+ */
+class Fingerprint implements ASTVisitor<Void> {
+
+    private final StringBuilder text = new StringBuilder();
+
+    private void part(String s) {
+        text.append(s.length()).append(':').append(s);
+    }
+
+    /*
+     * Returns what was written since the last call, and starts over.
+     */
+    byte[] take() {
+        byte[] bytes = text.toString().getBytes(StandardCharsets.UTF_8);
+        text.setLength(0);
+        return bytes;
+    }
+
+    /*
+     * Feeds in the header of a function: its return type, name and parameters.
+     */
+    void header(FunDecl fd) {
+        part("FunDecl");
+        fd.type.accept(this);
+        part(fd.name);
+        part(Integer.toString(fd.params.size()));
+        for (VarDecl vd : fd.params) vd.accept(this);
+    }
+
+    @Override
+    public Void visitProgram(Program p) {
+        part("Program");
+        for (StructTypeDecl std : p.structTypeDecls) std.accept(this);
+        for (VarDecl vd : p.varDecls) vd.accept(this);
+        for (FunDecl fd : p.funDecls) fd.accept(this);
+        return null;
+    }
+
+    @Override
+    public Void visitStructTypeDecl(StructTypeDecl st) {
+        part("StructTypeDecl");
+        st.structType.accept(this);
+        part(Integer.toString(st.varDecls.size()));
+        for (VarDecl vd : st.varDecls) vd.accept(this);
+        return null;
+    }
+
+    @Override
+    public Void visitVarDecl(VarDecl vd) {
+        part("VarDecl");
+        vd.type.accept(this);
+        part(vd.varName);
+        return null;
+    }
+
+    @Override
+    public Void visitFunDecl(FunDecl p) {
+        header(p);
+        p.block.accept(this);
+        return null;
+    }
+
+    @Override
+    public Void visitBaseType(BaseType bt) {
+        part(bt.name());
+        return null;
+    }
+
+    @Override
+    public Void visitPointerType(PointerType pt) {
+        part("PointerType");
+        pt.baseType.accept(this);
+        return null;
+    }
+
+    @Override
+    public Void visitStructType(StructType st) {
+        part("StructType");
+        part(st.name);
+        return null;
+    }
+
+    @Override
+    public Void visitArrayType(ArrayType at) {
+        part("ArrayType");
+        at.baseType.accept(this);
+        part(Integer.toString(at.size));
+        return null;
+    }
+
+    @Override
+    public Void visitIntLiteral(IntLiteral il) {
+        part("IntLiteral");
+        part(Integer.toString(il.i));
+        return null;
+    }
+
+    @Override
+    public Void visitStrLiteral(StrLiteral sl) {
+        part("StrLiteral");
+        part(sl.s);
+        return null;
+    }
+
+    @Override
+    public Void visitChrLiteral(ChrLiteral cl) {
+        part(cl.isEscape ? "EscapedChrLiteral" : "ChrLiteral");
+        part(String.valueOf(cl.c));
+        return null;
+    }
+
+    @Override
+    public Void visitVarExpr(VarExpr v) {
+        part("VarExpr");
+        part(v.name);
+        return null;
+    }
+
+    @Override
+    public Void visitFunCallExpr(FunCallExpr fce) {
+        part("FunCallExpr");
+        part(fce.name);
+        part(Integer.toString(fce.args.size()));
+        for (Expr arg : fce.args) arg.accept(this);
+        return null;
+    }
+
+    @Override
+    public Void visitBinOp(BinOp bo) {
+        part("BinOp");
+        part(bo.op.name());
+        bo.lhs.accept(this);
+        bo.rhs.accept(this);
+        return null;
+    }
+
+    @Override
+    public Void visitArrayAccessExpr(ArrayAccessExpr aae) {
+        part("ArrayAccessExpr");
+        aae.arr.accept(this);
+        aae.idx.accept(this);
+        return null;
+    }
+
+    @Override
+    public Void visitFieldAccessExpr(FieldAccessExpr fae) {
+        part("FieldAccessExpr");
+        fae.struct.accept(this);
+        part(fae.fieldName);
+        return null;
+    }
+
+    @Override
+    public Void visitValueAtExpr(ValueAtExpr vae) {
+        part("ValueAtExpr");
+        vae.expr.accept(this);
+        return null;
+    }
+
+    @Override
+    public Void visitSizeOfExpr(SizeOfExpr soe) {
+        part("SizeOfExpr");
+        soe.sizeofType.accept(this);
+        return null;
+    }
+
+    @Override
+    public Void visitTypecastExpr(TypecastExpr tce) {
+        part("TypecastExpr");
+        tce.castType.accept(this);
+        tce.expr.accept(this);
+        return null;
+    }
+
+    @Override
+    public Void visitBlock(Block b) {
+        part("Block");
+        part(Integer.toString(b.varDecls.size()));
+        for (VarDecl vd : b.varDecls) vd.accept(this);
+        part(Integer.toString(b.stmts.size()));
+        for (Stmt stmt : b.stmts) stmt.accept(this);
+        return null;
+    }
+
+    @Override
+    public Void visitWhile(While w) {
+        part("While");
+        w.expr.accept(this);
+        w.stmt.accept(this);
+        return null;
+    }
+
+    @Override
+    public Void visitIf(If i) {
+        part(i.stmt2 == null ? "If" : "IfElse");
+        i.expr.accept(this);
+        i.stmt1.accept(this);
+        if (i.stmt2 != null) i.stmt2.accept(this);
+        return null;
+    }
+
+    @Override
+    public Void visitAssign(Assign a) {
+        part("Assign");
+        a.lhs.accept(this);
+        a.rhs.accept(this);
+        return null;
+    }
+
+    @Override
+    public Void visitReturn(Return r) {
+        part(r.expr == null ? "Return" : "ReturnValue");
+        if (r.expr != null) r.expr.accept(this);
+        return null;
+    }
+
+    @Override
+    public Void visitExprStmt(ExprStmt es) {
+        part("ExprStmt");
+        es.expr.accept(this);
+        return null;
+    }
+
+    @Override
+    public Void visitErrorType(ErrorType et) {
+        part("ErrorType");
+        return null;
+    }
+}
@@ -0,0 +1,207 @@
+package cache;
+
+import ast.FunDecl;
+import ast.Program;
+import ast.StructTypeDecl;
+import ast.VarDecl;
+import gen.IncrementalCodeGenerator.Fragment;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * What the incremental mode remembers of the last successful compile of a source, function by function.
+ *
+ * Each function is known by a fingerprint of itself and of everything its analysis and its code depend
+ * on: the structs and the global variables, and the headers of the functions up to its own, which are
+ * all it can see. A function whose fingerprint is found passed the semantic analysis then, and would
+ * again; if the compile generated code, its fragments of the data and text sections are kept too.
+ *
+ * The functions of a source are kept in a single file in the cache directory, named by a hash of
+ * the source's path, and replaced after every successful compile, so that only the functions of the
+ * latest version are kept. Files written by another build of the compiler are ignored.
+ *
+ * A compiler that stays up, as in the watch mode, keeps what it last read or wrote of each file, and
+ * reads the file again only when someone else has replaced it since. Even an outdated copy would do no
+ * harm: a fingerprint stands for the same function, and its fragments, for as long as the compiler
+ * is the same.
+ */
+public class FunctionCache {
+
+    private static final String SUFFIX = ".functions";
+    private static final Fragment CHECKED = new Fragment(null, null);    // analysed, but no code kept
+
+    // what this process last read or wrote of each file, with the file's attributes at the time
+    private static final Map<Path, Resident> RESIDENT = new ConcurrentHashMap<>();
+
+    private static final class Resident {
+        final FileTime modified;
+        final long size;
+        final Map<String, Fragment> functions;
+
+        Resident(BasicFileAttributes attributes, Map<String, Fragment> functions) {
+            this.modified = attributes.lastModifiedTime();
+            this.size = attributes.size();
+            this.functions = functions;
+        }
+
+        boolean current(BasicFileAttributes attributes) {
+            return modified.equals(attributes.lastModifiedTime()) && size == attributes.size();
+        }
+    }
+
+    private final Path file;
+    private final Map<String, Fragment> functions = new HashMap<>();
+    private final Map<FunDecl, String> fingerprints = new IdentityHashMap<>();
+
+    private FunctionCache(Path file) {
+        this.file = file;
+    }
+
+    /*
+     * Returns what is remembered of source in dir, which is nothing if it cannot be read.
+     */
+    public static FunctionCache load(File dir, File source) throws IOException {
+        Files.createDirectories(dir.toPath());
+        MessageDigest name = CompileCache.sha256();
+        CompileCache.update(name, source.getCanonicalPath());
+        FunctionCache cache = new FunctionCache(dir.toPath().resolve(CompileCache.hex(name.digest()) + SUFFIX));
+
+        BasicFileAttributes attributes;
+        byte[] bytes;
+        try {
+            attributes = Files.readAttributes(cache.file, BasicFileAttributes.class);
+            Resident resident = RESIDENT.get(cache.file);
+            if (resident != null && resident.current(attributes)) {
+                cache.functions.putAll(resident.functions);
+                return cache;
+            }
+            bytes = Files.readAllBytes(cache.file);
+        } catch (NoSuchFileException e) {
+            return cache;
+        }
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes))) {
+            if (!in.readUTF().equals(CompileCache.compilerDigest()))
+                return cache;
+            for (int n = in.readInt(); n > 0; n--) {
+                String fingerprint = in.readUTF();
+                Fragment fragment = CHECKED;
+                if (in.readBoolean())
+                    fragment = new Fragment(string(CompileCache.read(in)), string(CompileCache.read(in)));
+                cache.functions.put(fingerprint, fragment);
+            }
+        } catch (IOException e) {
+            // a damaged file is as good as none
+            cache.functions.clear();
+        }
+        RESIDENT.put(cache.file, new Resident(attributes, new HashMap<>(cache.functions)));
+        return cache;
+    }
+
+    /*
+     * Returns the functions of program that are unchanged since the last successful compile, with
+     * their fragments. If code is needed, only the functions whose fragments were kept are returned.
+     */
+    public Map<FunDecl, Fragment> unchanged(Program program, boolean code) {
+        fingerprint(program);
+        Map<FunDecl, Fragment> unchanged = new IdentityHashMap<>();
+        for (Map.Entry<FunDecl, String> e : fingerprints.entrySet()) {
+            Fragment fragment = functions.get(e.getValue());
+            if (fragment != null && (!code || fragment != CHECKED))
+                unchanged.put(e.getKey(), fragment);
+        }
+        return unchanged;
+    }
+
+    /*
+     * Records that the program last passed to unchanged compiled successfully, with the fragments
+     * generated for its functions, if any. The fragments kept for its other functions are kept on.
+     */
+    public void update(Map<FunDecl, Fragment> generated) throws IOException {
+        Map<String, Fragment> latest = new HashMap<>();
+        for (Map.Entry<FunDecl, String> e : fingerprints.entrySet()) {
+            Fragment fragment = generated.get(e.getKey());
+            if (fragment == null)
+                fragment = functions.getOrDefault(e.getValue(), CHECKED);
+            latest.put(e.getValue(), fragment);
+        }
+        functions.clear();
+        functions.putAll(latest);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeUTF(CompileCache.compilerDigest());
+            out.writeInt(functions.size());
+            for (Map.Entry<String, Fragment> e : functions.entrySet()) {
+                out.writeUTF(e.getKey());
+                Fragment fragment = e.getValue();
+                out.writeBoolean(fragment != CHECKED);
+                if (fragment != CHECKED) {
+                    CompileCache.write(out, fragment.data.getBytes(StandardCharsets.UTF_8));
+                    CompileCache.write(out, fragment.code.getBytes(StandardCharsets.UTF_8));
+                }
+            }
+        }
+
+        Path temp = Files.createTempFile(file.getParent(), file.getFileName().toString(), ".tmp");
+        try {
+            Files.write(temp, bytes.toByteArray());
+            try {
+                Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+            RESIDENT.put(file, new Resident(Files.readAttributes(file, BasicFileAttributes.class),
+                    new HashMap<>(functions)));
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private void fingerprint(Program program) {
+        fingerprints.clear();
+
+        // what every function sees: the structs and the globals, then the headers so far
+        Fingerprint declarations = new Fingerprint();
+        for (StructTypeDecl std : program.structTypeDecls) std.accept(declarations);
+        for (VarDecl vd : program.varDecls) vd.accept(declarations);
+        MessageDigest seen = CompileCache.sha256();
+        seen.update(declarations.take());
+
+        Fingerprint body = new Fingerprint();
+        for (FunDecl fd : program.funDecls) {
+            declarations.header(fd);
+            seen.update(declarations.take());
+            MessageDigest function;
+            try {
+                function = (MessageDigest) seen.clone();
+            } catch (CloneNotSupportedException e) {
+                throw new AssertionError("SHA-256 digests can be cloned", e);
+            }
+            fd.block.accept(body);
+            function.update(body.take());
+            fingerprints.put(fd, CompileCache.hex(function.digest()));
+        }
+    }
+
+    private static String string(byte[] bytes) {
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
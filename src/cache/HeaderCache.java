@@ -0,0 +1,407 @@
+package cache;
+
+import ast.*;
+import gen.IncrementalCodeGenerator;
+import gen.IncrementalCodeGenerator.Fragment;
+import lexer.Scanner;
+import lexer.Token;
+import lexer.Token.TokenClass;
+import lexer.Tokeniser;
+import parser.Parser;
+import sem.IncrementalSemanticAnalyzer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Resolves the #include "..." lines at the start of a source, and keeps every header it compiled,
+ * for as long as the cache is kept, so that a header is lexed, parsed, analysed and lowered once
+ * however many sources include it. Main keeps one for the whole process; the sources that include
+ * a header may be compiled on any number of threads at once.
+ *
+ * A header is a MiniC program of its own: it may include other headers, and can only use what it
+ * declares or includes. Compiling it keeps its syntax tree, analysed, and the fragments of assembly
+ * of its functions, as the incremental mode would. A source including it gets fresh copies of its
+ * declarations, in front of its own, and the header's fragments in place of the bodies, which are
+ * shared between sources and never touched again. Headers go before the headers and sources that
+ * include them, and each goes in once, however often it is included: MiniC has no macros to write
+ * include guards with, so every header is guarded.
+ *
+ * A header is looked up next to the file that includes it. The library header, minic-stdlib.h,
+ * is what the built-in functions were declared by, and any header that does not exist is skipped,
+ * as all headers were before. A kept header is compiled again when it, or a header it includes,
+ * changes. With an incremental directory, what is lowered of the functions of a header is kept
+ * there as well, as for a source, so that another process need only parse and declare it.
+ */
+public class HeaderCache {
+
+    public static final String LIBRARY = "minic-stdlib.h";
+
+    private static final int PASS = 0;
+    private static final int PARSER_FAIL = 245;
+    private static final int SEM_FAIL = 240;
+
+    private static final int SWEEP_AT = 256;
+
+    private final Map<Path, Header> headers = new ConcurrentHashMap<>();
+    private final Map<Path, CompletableFuture<Header>> compiling = new ConcurrentHashMap<>();
+    private volatile int sweepAt = SWEEP_AT;
+
+    /*
+     * A header as it was compiled: its own declarations, and the fragments of its functions.
+     */
+    private static final class Header {
+        final Path path;
+        final byte[] digest;
+        final List<Header> closure;     // the headers it includes, each once, in order
+        final Program program;          // its own declarations only
+        final Map<FunDecl, Fragment> fragments;
+        final int status;
+        final int errors;               // semantic errors
+        final String out;               // what compiling it printed, as Main prints it
+        final String err;
+
+        Header(Path path, byte[] digest, List<Header> closure, Program program, Map<FunDecl, Fragment> fragments,
+               int status, int errors, String out, String err) {
+            this.path = path;
+            this.digest = digest;
+            this.closure = closure;
+            this.program = program;
+            this.fragments = fragments;
+            this.status = status;
+            this.errors = errors;
+            this.out = out;
+            this.err = err;
+        }
+    }
+
+    /*
+     * What including the headers of a source gave it.
+     */
+    public static final class Included {
+        public final int status;        // Main's status of the first header that failed, PASS if none did
+        public final int errors;        // the semantic errors found in the headers
+        public final List<StructTypeDecl> structTypeDecls = new ArrayList<>();
+        public final List<VarDecl> varDecls = new ArrayList<>();
+        public final List<FunDecl> funDecls = new ArrayList<>();
+        public final Map<FunDecl, Fragment> fragments = new IdentityHashMap<>();
+        public final Types types = new Types();     // of the copies, for the includer to parse with
+
+        private Included(List<Header> headers) {
+            int status = PASS;
+            int errors = 0;
+            for (Header h : headers) {
+                if (status == PASS)
+                    status = h.status;
+                errors += h.errors;
+                if (h.status == PASS || h.status == SEM_FAIL)
+                    copy(h);
+            }
+            this.status = status;
+            this.errors = errors;
+        }
+
+        public boolean isEmpty() {
+            return structTypeDecls.isEmpty() && varDecls.isEmpty() && funDecls.isEmpty();
+        }
+
+        /*
+         * Returns program with the declarations of the headers in front of its own.
+         */
+        public Program into(Program program) {
+            if (isEmpty())
+                return program;
+            List<StructTypeDecl> stds = new ArrayList<>(structTypeDecls);
+            stds.addAll(program.structTypeDecls);
+            List<VarDecl> vds = new ArrayList<>(varDecls);
+            vds.addAll(program.varDecls);
+            List<FunDecl> fds = new ArrayList<>(funDecls);
+            fds.addAll(program.funDecls);
+            return new Program(stds, vds, fds);
+        }
+
+        // the annotations of the later passes are made on the copies, and the bodies are left alone
+        private void copy(Header h) {
+            for (StructTypeDecl std : h.program.structTypeDecls) {
+                List<VarDecl> fields = new ArrayList<>();
+                for (VarDecl vd : std.varDecls) fields.add(copy(vd));
+                structTypeDecls.add(new StructTypeDecl(types.struct(std.structType.name), fields));
+            }
+            for (VarDecl vd : h.program.varDecls) varDecls.add(copy(vd));
+            for (FunDecl fd : h.program.funDecls) {
+                List<VarDecl> params = new ArrayList<>();
+                for (VarDecl vd : fd.params) params.add(copy(vd));
+                FunDecl copy = new FunDecl(copy(fd.type), fd.name, params, fd.block);
+                funDecls.add(copy);
+                fragments.put(copy, h.fragments.get(fd));
+            }
+        }
+
+        private VarDecl copy(VarDecl vd) {
+            return new VarDecl(copy(vd.type), vd.varName);
+        }
+
+        private Type copy(Type type) {
+            if (type instanceof PointerType)
+                return PointerType.to(copy(((PointerType) type).baseType));
+            if (type instanceof ArrayType)
+                return ArrayType.of(copy(((ArrayType) type).baseType), ((ArrayType) type).size);
+            if (type instanceof StructType)
+                return types.struct(((StructType) type).name);
+            return type;
+        }
+    }
+
+    /*
+     * Includes the headers of source, compiling those that are not kept yet. What compiling a header
+     * printed is printed again to out and err whenever it is included. incrementalDir may be null.
+     */
+    public Included include(File source, File incrementalDir, PrintStream out, PrintStream err) throws IOException {
+        // only the lines at the start are read, however long the source
+        Scanner scanner = new Scanner(source);
+        try {
+            return include(source.toPath(), includes(scanner), incrementalDir, out, err);
+        } finally {
+            scanner.close();
+        }
+    }
+
+    /*
+     * Includes the headers of a source that is not, or not yet, saved to the file at path.
+     */
+    public Included include(Path source, byte[] text, File incrementalDir, PrintStream out, PrintStream err)
+            throws IOException {
+        return include(source, includes(text), incrementalDir, out, err);
+    }
+
+    private Included include(Path source, List<String> includes, File incrementalDir, PrintStream out, PrintStream err)
+            throws IOException {
+        sweep();
+        Path path = source.toAbsolutePath().normalize();
+        List<Header> included = closure(path, includes, incrementalDir, new ArrayList<>());
+        for (Header h : included) {
+            out.print(h.out);
+            err.print(h.err);
+        }
+        return new Included(included);
+    }
+
+    /*
+     * Returns the headers spelt by includes, as included by the file at path, with the headers they
+     * include in front of them, each once.
+     */
+    private List<Header> closure(Path path, List<String> includes, File incrementalDir, List<Path> including)
+            throws IOException {
+        Set<Header> closure = new LinkedHashSet<>();
+        for (String name : includes) {
+            if (name.equals(LIBRARY))
+                continue;
+            Path header = path.resolveSibling(name).normalize();
+            if (!Files.isRegularFile(header))
+                continue;
+            Header h = including.contains(header) ? cycle(header, name) : get(header, name, incrementalDir, including);
+            closure.addAll(h.closure);
+            closure.add(h);
+        }
+        return new ArrayList<>(closure);
+    }
+
+    private static Header cycle(Path header, String name) {
+        String message = "Include error: \"" + name + "\" includes itself\n";
+        return new Header(header, new byte[0], Collections.emptyList(),
+                new Program(new ArrayList<>(), new ArrayList<>(), new ArrayList<>()),
+                Collections.emptyMap(), PARSER_FAIL, 0, message, "");
+    }
+
+    /*
+     * Returns the header at path, compiling it unless it is kept and up to date. A header is compiled
+     * on one thread at a time, and the others including it wait for that compile, unless they are
+     * compiling a header themselves: they compile it again instead, since the header they wait for
+     * could be waiting for theirs, through a cycle of includes.
+     */
+    private Header get(Path path, String name, File incrementalDir, List<Path> including) throws IOException {
+        Header h = headers.get(path);
+        if (h != null && current(h))
+            return h;
+        if (!including.isEmpty())
+            return keep(path, name, incrementalDir, including);
+
+        CompletableFuture<Header> mine = new CompletableFuture<>();
+        CompletableFuture<Header> other;
+        while ((other = compiling.putIfAbsent(path, mine)) != null) {
+            try {
+                h = other.get();
+                if (current(h))
+                    return h;
+            } catch (ExecutionException e) {
+                // compile it here, and fail here if it fails again
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("interrupted while " + name + " was compiled");
+            }
+            compiling.remove(path, other);
+        }
+        try {
+            h = headers.get(path);
+            if (h == null || !current(h))
+                h = keep(path, name, incrementalDir, including);
+            mine.complete(h);
+            return h;
+        } catch (Throwable t) {
+            mine.completeExceptionally(t);
+            throw t;
+        } finally {
+            compiling.remove(path, mine);
+        }
+    }
+
+    private Header keep(Path path, String name, File incrementalDir, List<Path> including) throws IOException {
+        Header h;
+        including.add(path);
+        try {
+            h = compile(path, name, incrementalDir, including);
+        } finally {
+            including.remove(including.size() - 1);
+        }
+        // one that met a cycle is never current, as the cycle is not kept
+        headers.put(path, h);
+        return h;
+    }
+
+    /*
+     * Drops the kept headers whose files are gone, once there are twice as many as after the last
+     * sweep, so that a process that runs for long keeps no more headers than there are.
+     */
+    private void sweep() {
+        if (headers.size() < sweepAt)
+            return;
+        headers.values().removeIf(h -> !Files.isRegularFile(h.path));
+        sweepAt = Math.max(SWEEP_AT, 2 * headers.size());
+    }
+
+    private boolean current(Header h) throws IOException {
+        try {
+            if (!Arrays.equals(h.digest, digest(Files.readAllBytes(h.path))))
+                return false;
+        } catch (NoSuchFileException e) {
+            return false;
+        }
+        for (Header c : h.closure)
+            if (headers.get(c.path) != c || !current(c))
+                return false;
+        return true;
+    }
+
+    private Header compile(Path path, String name, File incrementalDir, List<Path> including) throws IOException {
+        byte[] bytes = Files.readAllBytes(path);
+        List<Header> closure = closure(path, includes(bytes), incrementalDir, including);
+
+        ByteArrayOutputStream outBytes = new ByteArrayOutputStream();
+        ByteArrayOutputStream errBytes = new ByteArrayOutputStream();
+        PrintStream out = new PrintStream(outBytes, true);
+        PrintStream err = new PrintStream(errBytes, true);
+
+        Tokeniser tokeniser = new Tokeniser(scanner(bytes));
+        tokeniser.setDiagnostics(out);
+        Included included = new Included(closure);
+        Parser parser = new Parser(tokeniser);
+        parser.setDiagnostics(out);
+        parser.setTypes(included.types);
+        Program own = parser.parse();
+
+        Map<FunDecl, Fragment> fragments = new IdentityHashMap<>();
+        int status = included.status != PASS ? included.status : parser.getErrorCount() > 0 ? PARSER_FAIL : PASS;
+        int errors = 0;
+        if (status == PASS) {
+            Program program = included.into(own);
+            FunctionCache functions = null;
+            Map<FunDecl, Fragment> unchanged = new IdentityHashMap<>(included.fragments);
+            if (incrementalDir != null) {
+                functions = FunctionCache.load(incrementalDir, path.toFile());
+                unchanged.putAll(functions.unchanged(program, true));
+            }
+            IncrementalSemanticAnalyzer sem = new IncrementalSemanticAnalyzer(unchanged.keySet());
+            sem.setDiagnostics(err);
+            errors = sem.analyze(program);
+            if (errors > 0) {
+                status = SEM_FAIL;
+            } else {
+                IncrementalCodeGenerator codegen = new IncrementalCodeGenerator(unchanged);
+                codegen.emitProgram(program, new StringWriter());
+                for (FunDecl fd : own.funDecls) {
+                    Fragment fragment = codegen.getGenerated().get(fd);
+                    fragments.put(fd, fragment != null ? fragment : unchanged.get(fd));
+                }
+                if (functions != null)
+                    functions.update(codegen.getGenerated());
+            }
+        }
+
+        String printed = outBytes.toString();
+        String analysed = errBytes.toString();
+        if (!printed.isEmpty())
+            printed = "In header \"" + name + "\":\n" + printed;
+        if (!analysed.isEmpty())
+            analysed = "In header \"" + name + "\":\n" + analysed;
+        return new Header(path, digest(bytes), closure, own, fragments, status, errors, printed, analysed);
+    }
+
+    /*
+     * Returns the file names of the #include lines at the start of text, read as the parser reads them.
+     */
+    public static List<String> includes(byte[] text) {
+        return includes(scanner(text));
+    }
+
+    private static List<String> includes(Scanner scanner) {
+        Tokeniser tokeniser = new Tokeniser(scanner);
+        tokeniser.setDiagnostics(new PrintStream(new OutputStream() {
+            @Override
+            public void write(int b) {
+            }
+        }));
+        List<String> includes = new ArrayList<>();
+        while (tokeniser.nextToken().tokenClass == TokenClass.INCLUDE) {
+            Token name = tokeniser.nextToken();
+            if (name.tokenClass != TokenClass.STRING_LITERAL)
+                break;
+            includes.add(name.data);
+        }
+        return includes;
+    }
+
+    // decoded as Scanner.map decodes a source
+    private static Scanner scanner(byte[] bytes) {
+        CharBuffer chars = Charset.defaultCharset().decode(ByteBuffer.wrap(bytes));
+        return new Scanner(chars.array(), chars.limit());
+    }
+
+    private static byte[] digest(byte[] bytes) {
+        MessageDigest digest = CompileCache.sha256();
+        digest.update(bytes);
+        return digest.digest();
+    }
+}
@@ -0,0 +1,115 @@
+package cache;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A client of a cache shared over HTTP, such as CacheServer.
+ *
+ * The protocol has two requests on the path of an entry, the server's URL followed by the key:
+ *   GET  answers 200 with the entry, or 404 if there is none.
+ *   PUT  sends an entry and is answered with 204, or 400 if the key or entry is malformed.
+ * Entries are sent as application/octet-stream, in the form CompileCache keeps them on disk.
+ *
+ * The shared cache is never worth waiting for. Requests time out quickly, any failure reads as a
+ * miss, and a server that fails to answer is left alone for a while, so that a compile never
+ * takes longer than it would without the cache.
+ */
+public class RemoteCache implements ResultCache {
+    static final int CONNECT_TIMEOUT = 250;     // ms
+    static final int READ_TIMEOUT    = 2000;    // ms
+    static final long RETRY_AFTER    = 30_000;  // ms
+
+    // when each unreachable server may be tried again, shared by all the compiles in this JVM
+    private static final Map<String, Long> unreachable = new ConcurrentHashMap<>();
+
+    private final String base;
+
+    public RemoteCache(String url) throws MalformedURLException {
+        this.base = url.endsWith("/") ? url : url + "/";
+        new URL(this.base);
+    }
+
+    @Override
+    public CompileCache.Result get(String key) {
+        if (!reachable())
+            return null;
+        try {
+            HttpURLConnection c = open(key, "GET");
+            try {
+                int code = c.getResponseCode();
+                if (code != HttpURLConnection.HTTP_OK)
+                    return null;
+                try (InputStream in = c.getInputStream()) {
+                    return CompileCache.decode(readAll(in));
+                }
+            } finally {
+                c.disconnect();
+            }
+        } catch (IOException e) {
+            failed();
+            return null;
+        }
+    }
+
+    @Override
+    public void put(String key, CompileCache.Result result) {
+        if (!reachable())
+            return;
+        try {
+            byte[] entry = CompileCache.encode(result);
+            HttpURLConnection c = open(key, "PUT");
+            try {
+                c.setDoOutput(true);
+                c.setFixedLengthStreamingMode(entry.length);
+                c.setRequestProperty("Content-Type", "application/octet-stream");
+                try (OutputStream out = c.getOutputStream()) {
+                    out.write(entry);
+                }
+                c.getResponseCode();
+            } finally {
+                c.disconnect();
+            }
+        } catch (IOException e) {
+            failed();
+        }
+    }
+
+    private HttpURLConnection open(String key, String method) throws IOException {
+        HttpURLConnection c = (HttpURLConnection) new URL(base + key).openConnection();
+        c.setRequestMethod(method);
+        c.setConnectTimeout(CONNECT_TIMEOUT);
+        c.setReadTimeout(READ_TIMEOUT);
+        c.setUseCaches(false);
+        return c;
+    }
+
+    private boolean reachable() {
+        Long until = unreachable.get(base);
+        if (until == null)
+            return true;
+        if (System.currentTimeMillis() < until)
+            return false;
+        unreachable.remove(base, until);
+        return true;
+    }
+
+    private void failed() {
+        unreachable.put(base, System.currentTimeMillis() + RETRY_AFTER);
+    }
+
+    private static byte[] readAll(InputStream in) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        for (int n = in.read(buffer); n >= 0; n = in.read(buffer))
+            bytes.write(buffer, 0, n);
+        return bytes.toByteArray();
+    }
+}
@@ -0,0 +1,16 @@
+package cache;
+
+import java.io.IOException;
+
+/**
+ * A store of compile results, keyed by CompileCache.key.
+ */
+public interface ResultCache {
+
+    /*
+     * Returns the result stored under key, or null if there is none.
+     */
+    CompileCache.Result get(String key) throws IOException;
+
+    void put(String key, CompileCache.Result result) throws IOException;
+}
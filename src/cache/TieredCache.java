@@ -0,0 +1,34 @@
+package cache;
+
+import java.io.IOException;
+
+/**
+ * A local cache in front of a shared one: looks in the local cache first, keeps a copy of what is
+ * found in the shared cache, and stores new results in both.
+ */
+public class TieredCache implements ResultCache {
+    private final ResultCache local;
+    private final ResultCache shared;
+
+    public TieredCache(ResultCache local, ResultCache shared) {
+        this.local = local;
+        this.shared = shared;
+    }
+
+    @Override
+    public CompileCache.Result get(String key) throws IOException {
+        CompileCache.Result result = local.get(key);
+        if (result == null) {
+            result = shared.get(key);
+            if (result != null)
+                local.put(key, result);
+        }
+        return result;
+    }
+
+    @Override
+    public void put(String key, CompileCache.Result result) throws IOException {
+        local.put(key, result);
+        shared.put(key, result);
+    }
+}
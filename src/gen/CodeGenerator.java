@@ -5,8 +5,10 @@ import ast.*;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.PrintWriter;
+import java.io.Writer;
 import java.lang.reflect.Field;
 import java.util.EmptyStackException;
+import java.util.List;
 import java.util.Stack;
 
 public class CodeGenerator implements ASTVisitor<Register> {
@@ -20,7 +22,7 @@ public class CodeGenerator implements ASTVisitor<Register> {
     private int totalSize;              // tracks the offset from the frame pointer for the current function
     private int frameOffset;            // tracks the offset at which the next variable can be stored
     private int returnOffset;           // tracks where on the stack the return should go
-    private int numWhiles = 0;          // number of while loops or if statements encountered so far
+    private int numWhiles = 0;          // number of while loops or if statements encountered so far in the current function
     private int numIfs = 0;
     private int numAnds = 0;
     private int numOrs = 0;
@@ -46,14 +48,21 @@ public class CodeGenerator implements ASTVisitor<Register> {
     }
 
 
-    private PrintWriter writer;         // use this writer to output the assembly instructions
-    private DataAllocation dataAlloc;   // use this pass to allocate global and local variables
+    protected PrintWriter writer;       // use this writer to output the assembly instructions
+    protected DataAllocation dataAlloc; // use this pass to allocate global and local variables
 
     public void emitProgram(Program program, File outputFile) throws FileNotFoundException {
-        writer = new PrintWriter(outputFile);
+        emitProgram(program, new PrintWriter(outputFile));
+    }
+
+    /*
+     * Emits the assembly of program to out, then closes it.
+     */
+    public void emitProgram(Program program, Writer out) {
+        writer = out instanceof PrintWriter ? (PrintWriter) out : new PrintWriter(out);
         dataAlloc = new DataAllocation();
 
-        dataAlloc.emitProgram(program, writer);
+        emitData(program);
 
         writer.println(".text");
         writer.println();
@@ -64,15 +73,46 @@ public class CodeGenerator implements ASTVisitor<Register> {
         writer.close();
     }
 
+    /*
+     * Emits the data section: the global variables, then the strings of each function in source order.
+     */
+    protected void emitData(Program program) {
+        dataAlloc.emitProgram(program, writer);
+    }
+
     @Override
     // Program ::= StructTypeDecl* VarDecl* FunDecl*
     public Register visitProgram(Program p) {
         for (StructTypeDecl std : p.structTypeDecls) std.accept(this);
         // vardecls allocated in the data allocation pass
-        for (FunDecl fd : p.funDecls) fd.accept(this);
+        emitFunDecls(p.funDecls);
         return null;
     }
 
+    /*
+     * Emits the functions in source order. Nothing carries over from one function to the next,
+     * so each one could equally be emitted by a generator of its own.
+     */
+    protected void emitFunDecls(List<FunDecl> funDecls) {
+        for (FunDecl fd : funDecls) fd.accept(this);
+    }
+
+    /*
+     * Returns a fresh generator that emits a function to out, using the data allocation of this one.
+     */
+    protected CodeGenerator forFunction(PrintWriter out) {
+        CodeGenerator gen = new CodeGenerator();
+        gen.writer = out;
+        gen.dataAlloc = dataAlloc;
+        return gen;
+    }
+
+    // labels are scoped by function, so their numbers only depend on the function itself; the dot,
+    // which no identifier has, keeps them apart from the labels of functions named like them
+    private String label(String format, int n) {
+        return "func_" + currentFuncName + "." + String.format(format, n);
+    }
+
     @Override
     // StructTypeDecl ::= StructType VarDecl*
     public Register visitStructTypeDecl(StructTypeDecl st) {
@@ -96,6 +136,9 @@ public class CodeGenerator implements ASTVisitor<Register> {
         writer.println();
         writer.printf("### entering visit fundecl %s\n", p.name);
         currentFuncName = p.name;
+        numWhiles = numIfs = numAnds = numOrs = 0;
+        freeRegs.clear();
+        freeRegs.addAll(Register.tmpRegs);
 
         if (p.name.equals("main")) {
             writer.println(".globl main");
@@ -373,24 +416,24 @@ public class CodeGenerator implements ASTVisitor<Register> {
 
                 // short circuit evaluation
                 // if lhs is true, whole expr is true
-                writer.printf("bnez %s,or_%s_true\n", lhsReg, n);
+                writer.printf("bnez %s,%s\n", lhsReg, label("or_%s_true", n));
                 // if rhs is true, whole expr is true
-                writer.printf("bnez %s,or_%s_true\n", rhsReg, n);
+                writer.printf("bnez %s,%s\n", rhsReg, label("or_%s_true", n));
                 // if neither true, the statement is false
-                writer.printf("b or_%s_false\n", n);
+                writer.printf("b %s\n", label("or_%s_false", n));
 
                 // code for what to in the case of true and false
-                writer.printf("or_%s_true:\n", n);
+                writer.printf("%s:\n", label("or_%s_true", n));
                 // set result to 1 and finish
                 writer.printf("li %s,1\n", resultReg);
-                writer.printf("b or_%s_end\n", n);
+                writer.printf("b %s\n", label("or_%s_end", n));
 
-                writer.printf("or_%s_false:\n", n);
+                writer.printf("%s:\n", label("or_%s_false", n));
                 // set result to 0 and finish
                 writer.printf("li %s,0\n", resultReg);
 
                 writer.println();
-                writer.printf("or_%s_end:\n", n);
+                writer.printf("%s:\n", label("or_%s_end", n));
                 break;
             case AND:
                 n = numAnds;
@@ -398,24 +441,24 @@ public class CodeGenerator implements ASTVisitor<Register> {
 
                 // short circuit evaluation
                 // if lhs is false, whole expr is false
-                writer.printf("beqz %s,and_%s_false\n", lhsReg, n);
+                writer.printf("beqz %s,%s\n", lhsReg, label("and_%s_false", n));
                 // if rhs is false, jump to false
-                writer.printf("beqz %s,and_%s_false\n", rhsReg, n);
+                writer.printf("beqz %s,%s\n", rhsReg, label("and_%s_false", n));
                 // if neither false, the statement is true
-                writer.printf("b and_%s_true\n", n);
+                writer.printf("b %s\n", label("and_%s_true", n));
 
                 // code for what to in the case of true and false
-                writer.printf("and_%s_true:\n", n);
+                writer.printf("%s:\n", label("and_%s_true", n));
                 // set result to 1 and finish
                 writer.printf("li %s,1\n", resultReg);
-                writer.printf("b and_%s_end\n", n);
+                writer.printf("b %s\n", label("and_%s_end", n));
 
-                writer.printf("and_%s_false:\n", n);
+                writer.printf("%s:\n", label("and_%s_false", n));
                 // set result to 0 and finish
                 writer.printf("li %s,0\n", resultReg);
 
                 writer.println();
-                writer.printf("and_%s_end:\n", n);
+                writer.printf("%s:\n", label("and_%s_end", n));
         }
 
         freeRegister(lhsReg);
@@ -554,23 +597,23 @@ public class CodeGenerator implements ASTVisitor<Register> {
         // 1. evaluate condition
         Register expReg = w.expr.accept(this);
         // 2. skip loop if not true
-        writer.printf("beqz %s,while_end%s\n", expReg, n);
+        writer.printf("beqz %s,%s\n", expReg, label("while_end%s", n));
         // no longer needed, condition has been evaluated
         freeRegister(expReg);
 
         // 3. execute body of loop
-        writer.printf("while_body%s:\n", n);
+        writer.printf("%s:\n", label("while_body%s", n));
         w.stmt.accept(this);
         // 4. reevaluate condition
         expReg = w.expr.accept(this);
 
         // 5. end if not true
-        writer.printf("beqz %s,while_end%s\n", expReg, n);
+        writer.printf("beqz %s,%s\n", expReg, label("while_end%s", n));
         freeRegister(expReg);
         // 6. or jump back to body
-        writer.printf("j while_body%s\n", n);
+        writer.printf("j %s\n", label("while_body%s", n));
 
-        writer.printf("while_end%s:\n", n);
+        writer.printf("%s:\n", label("while_end%s", n));
         // increment number of while loops encountered so far
         writer.println();
         return null;
@@ -594,13 +637,13 @@ public class CodeGenerator implements ASTVisitor<Register> {
         // 1. evaluate condition
         Register expReg = i.expr.accept(this);
         // 2. go to else if not true
-        writer.printf("beqz %s,if_else%s\n", expReg, n);
+        writer.printf("beqz %s,%s\n", expReg, label("if_else%s", n));
         freeRegister(expReg);
 
         // 3. execute stmt if true and end
         i.stmt1.accept(this);
-        writer.printf("j if_end%s\n", n);
-        writer.printf("if_else%s:\n", n);
+        writer.printf("j %s\n", label("if_end%s", n));
+        writer.printf("%s:\n", label("if_else%s", n));
 
         // 4. execute else
         if (i.stmt2 != null) {
@@ -608,7 +651,7 @@ public class CodeGenerator implements ASTVisitor<Register> {
         }
 
         // 5. end
-        writer.printf("if_end%s:\n", n);
+        writer.printf("%s:\n", label("if_end%s", n));
         return null;
     }
 
@@ -7,7 +7,8 @@ import java.io.PrintWriter;
 public class DataAllocation implements ASTVisitor<Void> {
 
     private PrintWriter writer; // use this writer to output the assembly instructions
-    private int numStrings = 0;
+    private int numStrings = 0; // number of strings encountered so far in the current function
+    private String currentFuncName;
     private int structOffset = 0; // tracks how much offset from the struct address each struct field needs
 
     public void emitProgram(Program program, PrintWriter writer) {
@@ -18,6 +19,38 @@ public class DataAllocation implements ASTVisitor<Void> {
         writer.println();
     }
 
+    /*
+     * Lays out the structs and emits the global variables of program.
+     */
+    public void emitGlobals(Program program, PrintWriter writer) {
+        this.writer = writer;
+        for (StructTypeDecl std : program.structTypeDecls) std.accept(this);
+        for (VarDecl vd : program.varDecls) vd.accept(this);
+    }
+
+    /*
+     * Lays out a single struct, as emitGlobals does.
+     */
+    public void emitStructTypeDecl(StructTypeDecl std) {
+        std.accept(this);
+    }
+
+    /*
+     * Emits a single global variable, as emitGlobals does.
+     */
+    public void emitGlobal(VarDecl vd, PrintWriter writer) {
+        this.writer = writer;
+        vd.accept(this);
+    }
+
+    /*
+     * Emits the strings of a single function.
+     */
+    public void emitFunDecl(FunDecl fd, PrintWriter writer) {
+        this.writer = writer;
+        fd.accept(this);
+    }
+
     // Program ::= StructTypeDecl* VarDecl* FunDecl*
     public Void visitProgram(Program p) {
         for (StructTypeDecl std : p.structTypeDecls) std.accept(this);
@@ -29,7 +62,9 @@ public class DataAllocation implements ASTVisitor<Void> {
     @Override
     // StructTypeDecl ::= StructType VarDecl*
     public Void visitStructTypeDecl(StructTypeDecl st) {
-        // all structure fields are aligned at a 4 byte boundary
+        // all structure fields are aligned at a 4 byte boundary, from the start of their own struct,
+        // so that a struct is laid out the same whatever is declared before it
+        structOffset = 0;
         for (VarDecl vd : st.varDecls) {
             vd.offset = structOffset;
             structOffset += getAlignedTypeSize(vd.type);
@@ -54,6 +89,8 @@ public class DataAllocation implements ASTVisitor<Void> {
     // FunDecl ::= Type String VarDecl* Block
     public Void visitFunDecl(FunDecl p) {
         // fundecl vardecls are handled in the code generation pass as they are not statically allocated
+        currentFuncName = p.name;
+        numStrings = 0;
         p.block.accept(this);
         return null;
     }
@@ -91,7 +128,8 @@ public class DataAllocation implements ASTVisitor<Void> {
     @Override
     // StrLiteral ::= String
     public Void visitStrLiteral(StrLiteral sl) {
-        sl.label = String.format("str%s", numStrings);
+        // labels are scoped by function, so editing one function leaves the labels of the others alone
+        sl.label = String.format("func_%s_str%s", currentFuncName, numStrings);
         numStrings++;
         writer.printf("%s: .asciiz \"%s\"\n", sl.label, sl.s);
         return null;
@@ -220,9 +258,14 @@ public class DataAllocation implements ASTVisitor<Void> {
             // struct size was determined at declaration and stored in the std ast node
             return ((StructType) type).std.structSize;
         } else if (type instanceof ArrayType) {
+            // an array type is canonical, so its size is worked out once, as soon as that of its elements
+            // is known: a struct that is not laid out yet takes 0 bytes
             ArrayType arrayType = (ArrayType) type;
-            int size = (arrayType.size * getTypeSize(arrayType.baseType));
-            return makeMultipleFour(size);
+            if (arrayType.typeSize >= 0) return arrayType.typeSize;
+            int elementSize = getTypeSize(arrayType.baseType);
+            int size = makeMultipleFour(arrayType.size * elementSize);
+            if (elementSize > 0) arrayType.typeSize = size;
+            return size;
         } else if (type == BaseType.CHAR) {
             // chars need 1 byte
             return 1;
@@ -0,0 +1,100 @@
+package gen;
+
+import ast.FunDecl;
+import ast.Program;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Emits the same assembly as CodeGenerator, but only lowers the functions that changed since an
+ * earlier compile, and copies in what was emitted then for the others.
+ *
+ * What a function contributes to the assembly is a fragment of the data section, its strings, and
+ * a fragment of the text section, its code. Neither depends on the other functions: labels, string
+ * labels included, are scoped by function. So given the fragments of the unchanged functions, the
+ * structs and globals are laid out again, which the changed functions need, and the fragments are
+ * written in source order, between those generated afresh.
+ */
+public class IncrementalCodeGenerator extends CodeGenerator {
+
+    /*
+     * What one function contributes to the data and the text sections.
+     */
+    public static final class Fragment {
+        public final String data;
+        public final String code;
+
+        public Fragment(String data, String code) {
+            this.data = data;
+            this.code = code;
+        }
+    }
+
+    private final Map<FunDecl, Fragment> unchanged;
+    private final Map<FunDecl, Fragment> generated = new IdentityHashMap<>();
+    private final Map<FunDecl, String> data = new IdentityHashMap<>();
+
+    /*
+     * Reuses the given fragments instead of lowering their functions, which need not have been
+     * analysed at all.
+     */
+    public IncrementalCodeGenerator(Map<FunDecl, Fragment> unchanged) {
+        this.unchanged = unchanged;
+    }
+
+    /*
+     * Returns the fragments generated afresh by the last emitProgram.
+     */
+    public Map<FunDecl, Fragment> getGenerated() {
+        return generated;
+    }
+
+    @Override
+    protected void emitData(Program program) {
+        generated.clear();
+        writer.println(".data");
+        writer.println();
+        emitGlobals(program);
+        for (FunDecl fd : program.funDecls) {
+            Fragment fragment = unchanged.get(fd);
+            if (fragment == null) {
+                StringWriter buffer = new StringWriter();
+                PrintWriter out = new PrintWriter(buffer);
+                dataAlloc.emitFunDecl(fd, out);
+                out.flush();
+                data.put(fd, buffer.toString());
+                writer.write(buffer.toString());
+            } else {
+                writer.write(fragment.data);
+            }
+        }
+        writer.println();
+    }
+
+    /*
+     * Lays out the structs and emits the global variables.
+     */
+    protected void emitGlobals(Program program) {
+        dataAlloc.emitGlobals(program, writer);
+    }
+
+    @Override
+    protected void emitFunDecls(List<FunDecl> funDecls) {
+        for (FunDecl fd : funDecls) {
+            Fragment fragment = unchanged.get(fd);
+            if (fragment == null) {
+                StringWriter buffer = new StringWriter();
+                PrintWriter out = new PrintWriter(buffer);
+                fd.accept(forFunction(out));
+                out.flush();
+                fragment = new Fragment(data.remove(fd), buffer.toString());
+                generated.put(fd, fragment);
+            }
+            writer.write(fragment.code);
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package gen;
+
+import ast.FunDecl;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Emits the same assembly as CodeGenerator, but lowers the functions in parallel.
+ *
+ * The data section is still allocated first, on the calling thread. Every function is then emitted
+ * on the common fork-join pool by a generator of its own, into a private buffer. Since registers,
+ * frame offsets and labels are all scoped by function, a function's code does not depend on the
+ * others, and the buffers are simply written out in source order.
+ */
+public class ParallelCodeGenerator extends CodeGenerator {
+
+    @Override
+    protected void emitFunDecls(List<FunDecl> funDecls) {
+        StringWriter[] code = new StringWriter[funDecls.size()];
+        List<RecursiveAction> tasks = new ArrayList<>();
+        for (int i = 0; i < code.length; i++) {
+            int function = i;
+            tasks.add(new RecursiveAction() {
+                @Override
+                protected void compute() {
+                    StringWriter buffer = new StringWriter();
+                    PrintWriter out = new PrintWriter(buffer);
+                    funDecls.get(function).accept(forFunction(out));
+                    out.flush();
+                    code[function] = buffer;
+                }
+            });
+        }
+        ForkJoinPool.commonPool().invoke(new RecursiveAction() {
+            @Override
+            protected void compute() {
+                invokeAll(tasks);
+            }
+        });
+
+        for (StringWriter buffer : code)
+            writer.write(buffer.toString());
+    }
+}
@@ -0,0 +1,106 @@
+package gen;
+
+import ast.FunDecl;
+import ast.StructTypeDecl;
+import ast.VarDecl;
+import gen.IncrementalCodeGenerator.Fragment;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Emits the same assembly as CodeGenerator, but one top-level declaration at a time, as they are
+ * parsed and analysed, so that the program is never held whole: a function can be dropped as soon
+ * as it has been emitted.
+ *
+ * The declarations must come in the order of a program: the structs, the globals, then the
+ * functions. The data section goes first in the assembly, but every function adds its strings to
+ * it, so the data and the code are spooled to temporary files of their own, and copied to the output
+ * file one after the other by finish. The output file is only written once the whole program has
+ * been emitted: as with CodeGenerator, a program that fails to compile half way through leaves it
+ * alone.
+ */
+public class StreamingCodeGenerator {
+
+    private final File output;
+    private final Path data;
+    private final Path text;
+    private final PrintWriter dataOut;
+    private final PrintWriter textOut;
+
+    private final DataAllocation dataAlloc = new DataAllocation();
+    private final CodeGenerator functions = new CodeGenerator();
+
+    public StreamingCodeGenerator(File outputFile) throws IOException {
+        output = outputFile;
+        data = Files.createTempFile("minic", ".data");
+        text = Files.createTempFile("minic", ".text");
+        dataOut = new PrintWriter(Files.newBufferedWriter(data, Charset.defaultCharset()));
+        textOut = new PrintWriter(Files.newBufferedWriter(text, Charset.defaultCharset()));
+        functions.dataAlloc = dataAlloc;
+
+        dataOut.println(".data");
+        dataOut.println();
+    }
+
+    public void emit(StructTypeDecl std) {
+        dataAlloc.emitStructTypeDecl(std);
+    }
+
+    public void emit(VarDecl vd) {
+        dataAlloc.emitGlobal(vd, dataOut);
+    }
+
+    /*
+     * Emits the strings and the code of an analysed function.
+     */
+    public void emit(FunDecl fd) {
+        dataAlloc.emitFunDecl(fd, dataOut);
+        fd.accept(functions.forFunction(textOut));
+    }
+
+    /*
+     * Emits a function lowered before, such as one of a header.
+     */
+    public void emit(Fragment fragment) {
+        dataOut.write(fragment.data);
+        textOut.write(fragment.code);
+    }
+
+    /*
+     * Writes the data, then the code, to the output file.
+     */
+    public void finish() throws IOException {
+        try {
+            dataOut.println();
+            dataOut.println(".text");
+            dataOut.println();
+            dataOut.close();
+            textOut.println();
+            textOut.close();
+            if (dataOut.checkError() || textOut.checkError())
+                throw new IOException("could not spool the assembly to " + data.getParent());
+            try (FileOutputStream out = new FileOutputStream(output)) {
+                Files.copy(data, out);
+                Files.copy(text, out);
+            }
+        } finally {
+            abandon();
+        }
+    }
+
+    /*
+     * Drops what was emitted, leaving the output file as it was.
+     */
+    public void abandon() throws IOException {
+        textOut.close();
+        dataOut.close();
+        Files.deleteIfExists(text);
+        Files.deleteIfExists(data);
+    }
+}
@@ -0,0 +1,134 @@
+package gen;
+
+import ast.*;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Emits a unit: the assembly of the functions and the globals of one file, to be linked with the
+ * units of the files it uses, instead of a whole program.
+ *
+ * The functions and globals declared elsewhere, those of the headers included, are imported: calls
+ * and accesses go to their labels, which the linker finds in the units defining them. A unit starts
+ * with its symbols, one per line, as comments:
+ *
+ *   # MiniC unit
+ *   # export function name signature
+ *   # import global name signature
+ *
+ * and goes on with its data and text sections as CodeGenerator emits them. A signature spells the
+ * type of the symbol, with the fields of the structs passed by value, so that the linker can tell
+ * when a unit was compiled against another version of a header than the unit it is linked with.
+ */
+public class UnitCodeGenerator extends IncrementalCodeGenerator {
+
+    public static final String MAGIC = "# MiniC unit";
+    private static final Fragment NONE = new Fragment("", "");
+
+    private final Set<FunDecl> importedFunctions;
+    private final Set<VarDecl> importedGlobals;
+
+    /*
+     * Emits the unit of a program whose functions and globals among those given are defined elsewhere.
+     * The fragments of unchanged functions are reused as by IncrementalCodeGenerator.
+     */
+    public UnitCodeGenerator(Map<FunDecl, Fragment> unchanged, Collection<FunDecl> importedFunctions,
+                             Collection<VarDecl> importedGlobals) {
+        super(withNothingFor(unchanged, importedFunctions));
+        this.importedFunctions = Collections.newSetFromMap(new IdentityHashMap<>());
+        this.importedFunctions.addAll(importedFunctions);
+        this.importedGlobals = Collections.newSetFromMap(new IdentityHashMap<>());
+        this.importedGlobals.addAll(importedGlobals);
+    }
+
+    private static Map<FunDecl, Fragment> withNothingFor(Map<FunDecl, Fragment> unchanged,
+                                                         Collection<FunDecl> imported) {
+        Map<FunDecl, Fragment> fragments = new IdentityHashMap<>(unchanged);
+        for (FunDecl fd : imported)
+            fragments.put(fd, NONE);
+        return fragments;
+    }
+
+    @Override
+    protected void emitData(Program program) {
+        writer.println(MAGIC);
+        for (FunDecl fd : program.funDecls)
+            symbol(importedFunctions.contains(fd) ? "import" : "export", "function", fd.name, signature(fd));
+        for (VarDecl vd : program.varDecls)
+            symbol(importedGlobals.contains(vd) ? "import" : "export", "global", vd.varName, signature(vd.type));
+        super.emitData(program);
+    }
+
+    private void symbol(String direction, String kind, String name, String signature) {
+        writer.printf("# %s %s %s %s\n", direction, kind, name, signature);
+    }
+
+    @Override
+    protected void emitGlobals(Program program) {
+        List<VarDecl> own = new ArrayList<>();
+        for (VarDecl vd : program.varDecls) {
+            if (importedGlobals.contains(vd))
+                vd.isGlobal = true;     // accessed by label all the same
+            else
+                own.add(vd);
+        }
+        dataAlloc.emitGlobals(new Program(program.structTypeDecls, own, new ArrayList<>()), writer);
+    }
+
+    /*
+     * Spells the return and parameter types of fd, as in int(char*,struct s{int,int}).
+     */
+    static String signature(FunDecl fd) {
+        StringBuilder sb = new StringBuilder(signature(fd.type)).append('(');
+        String sep = "";
+        for (VarDecl vd : fd.params) {
+            sb.append(sep).append(signature(vd.type));
+            sep = ",";
+        }
+        return sb.append(')').toString();
+    }
+
+    static String signature(Type type) {
+        StringBuilder sb = new StringBuilder();
+        spell(type, sb, new HashSet<>());
+        return sb.toString();
+    }
+
+    // a struct is only spelt out where its layout matters, not behind a pointer
+    private static void spell(Type type, StringBuilder sb, Set<StructTypeDecl> expanding) {
+        if (type instanceof PointerType) {
+            Type base = ((PointerType) type).baseType;
+            if (base instanceof StructType)
+                sb.append("struct ").append(((StructType) base).name);
+            else
+                spell(base, sb, expanding);
+            sb.append('*');
+        } else if (type instanceof ArrayType) {
+            spell(((ArrayType) type).baseType, sb, expanding);
+            sb.append('[').append(((ArrayType) type).size).append(']');
+        } else if (type instanceof StructType) {
+            StructType st = (StructType) type;
+            sb.append("struct ").append(st.name);
+            if (st.std != null && expanding.add(st.std)) {
+                sb.append('{');
+                String sep = "";
+                for (VarDecl vd : st.std.varDecls) {
+                    sb.append(sep);
+                    spell(vd.type, sb, expanding);
+                    sep = ",";
+                }
+                sb.append('}');
+                expanding.remove(st.std);
+            }
+        } else {
+            sb.append(type.toString().toLowerCase());
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package lexer;
+
+import lexer.Token.TokenClass;
+
+import java.io.PrintStream;
+
+/**
+ * Reads every token of another tokeniser up front, then hands them out again one at a time.
+ *
+ * The error messages printed while lexing are kept with the token that caused them, and printed
+ * when that token is handed out. A consumer pulling tokens from this tokeniser therefore sees the
+ * same output as it would from the original one, while others can work on the complete stream.
+ */
+public class BufferedTokeniser extends Tokeniser {
+
+    private final Tokeniser source;
+    private PrintStream diagnostics = System.out;
+
+    private Recording recording;
+    private int next = 0;
+
+    public BufferedTokeniser(Tokeniser source) {
+        super(source.getScanner());
+        this.source = source;
+        // messages go where the source would have sent them
+        this.diagnostics = source.getDiagnostics();
+    }
+
+    protected BufferedTokeniser(Scanner scanner) {
+        super(scanner);
+        this.source = null;
+    }
+
+    /*
+     * Reads the whole input. Subclasses may find the tokens some other way.
+     */
+    Recording read() {
+        Recording recording = new Recording(source);
+        recording.lexAll();
+        return recording;
+    }
+
+    private Recording recording() {
+        if (recording == null)
+            recording = read();
+        return recording;
+    }
+
+    /*
+     * Returns every token of the input, up to and including EOF, without printing any message.
+     */
+    public TokenStream getTokens() {
+        return recording().tokens;
+    }
+
+    /*
+     * Tells whether lexing printed any message, which would be printed as the tokens are handed out.
+     */
+    public boolean hasMessages() {
+        return recording().messages().length > 0;
+    }
+
+    @Override
+    public void setDiagnostics(PrintStream out) {
+        this.diagnostics = out;
+    }
+
+    @Override
+    PrintStream getDiagnostics() {
+        return diagnostics;
+    }
+
+    @Override
+    public int getErrorCount() {
+        return next == 0 ? 0 : recording.errorEnds[next - 1];
+    }
+
+    @Override
+    protected TokenClass lex() {
+        Recording r = recording();
+        int t = next;
+        if (t < r.size) {
+            int from = t == 0 ? 0 : r.messageEnds[t - 1];
+            if (r.messageEnds[t] > from)
+                diagnostics.write(r.messages(), from, r.messageEnds[t] - from);
+            next++;
+        } else {
+            // EOF again
+            t = r.size - 1;
+        }
+        TokenStream tokens = r.tokens;
+        tokenData = tokens.data(t);
+        tokenLine = tokens.line(t);
+        tokenColumn = tokens.column(t);
+        tokenOffset = tokens.offset(t);
+        tokenEnd = tokens.end(t);
+        return tokens.tokenClass(t);
+    }
+}
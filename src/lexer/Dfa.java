@@ -0,0 +1,339 @@
+package lexer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A minimised deterministic automaton over character classes, generated from a list of rules.
+ *
+ * Each rule is a regular expression; earlier rules win when two accept the same input.
+ * The automaton comes from Thompson construction, subset construction and Moore minimisation.
+ * Input symbols 0..127 are the ASCII characters; four more symbols stand for the other
+ * characters that java.lang.Character considers whitespace, letters, digits, or none of these.
+ */
+class Dfa {
+
+    static final int NON_ASCII_SPACE  = 128;
+    static final int NON_ASCII_LETTER = 129;
+    static final int NON_ASCII_DIGIT  = 130;
+    static final int NON_ASCII_OTHER  = 131;
+    static final int SYMBOLS          = 132;
+
+    static int symbol(char c) {
+        if (c < 128) return c;
+        if (Character.isWhitespace(c)) return NON_ASCII_SPACE;
+        if (Character.isLetter(c)) return NON_ASCII_LETTER;
+        if (Character.isDigit(c)) return NON_ASCII_DIGIT;
+        return NON_ASCII_OTHER;
+    }
+
+    // sets of input symbols
+
+    static BitSet chars(String s) {
+        BitSet set = new BitSet(SYMBOLS);
+        for (char c : s.toCharArray()) set.set(symbol(c));
+        return set;
+    }
+
+    static BitSet anyChar() {
+        BitSet set = new BitSet(SYMBOLS);
+        set.set(0, SYMBOLS);
+        return set;
+    }
+
+    static BitSet anyCharBut(String s) {
+        BitSet set = anyChar();
+        set.andNot(chars(s));
+        return set;
+    }
+
+    static BitSet letters() {
+        BitSet set = new BitSet(SYMBOLS);
+        for (char c = 0; c < 128; c++) if (Character.isLetter(c)) set.set(c);
+        set.set(NON_ASCII_LETTER);
+        return set;
+    }
+
+    static BitSet digits() {
+        BitSet set = new BitSet(SYMBOLS);
+        for (char c = 0; c < 128; c++) if (Character.isDigit(c)) set.set(c);
+        set.set(NON_ASCII_DIGIT);
+        return set;
+    }
+
+    static BitSet whitespace() {
+        BitSet set = new BitSet(SYMBOLS);
+        for (char c = 0; c < 128; c++) if (Character.isWhitespace(c)) set.set(c);
+        set.set(NON_ASCII_SPACE);
+        return set;
+    }
+
+    static BitSet union(BitSet a, BitSet b) {
+        BitSet set = (BitSet) a.clone();
+        set.or(b);
+        return set;
+    }
+
+    // regular expressions
+
+    static abstract class Pattern {
+        // adds the states for this pattern to the nfa, returning its entry and exit
+        abstract Node[] build(List<Node> nfa);
+    }
+
+    static Pattern in(final BitSet set) {
+        return new Pattern() {
+            Node[] build(List<Node> nfa) {
+                Node in = node(nfa), out = node(nfa);
+                in.on = set;
+                in.to = out;
+                return new Node[] {in, out};
+            }
+        };
+    }
+
+    static Pattern literal(String s) {
+        Pattern[] ps = new Pattern[s.length()];
+        for (int i = 0; i < ps.length; i++) ps[i] = in(chars(s.substring(i, i + 1)));
+        return seq(ps);
+    }
+
+    static Pattern seq(final Pattern... ps) {
+        return new Pattern() {
+            Node[] build(List<Node> nfa) {
+                Node[] first = ps[0].build(nfa);
+                Node out = first[1];
+                for (int i = 1; i < ps.length; i++) {
+                    Node[] f = ps[i].build(nfa);
+                    out.eps.add(f[0]);
+                    out = f[1];
+                }
+                return new Node[] {first[0], out};
+            }
+        };
+    }
+
+    static Pattern alt(final Pattern... ps) {
+        return new Pattern() {
+            Node[] build(List<Node> nfa) {
+                Node in = node(nfa), out = node(nfa);
+                for (Pattern p : ps) {
+                    Node[] f = p.build(nfa);
+                    in.eps.add(f[0]);
+                    f[1].eps.add(out);
+                }
+                return new Node[] {in, out};
+            }
+        };
+    }
+
+    static Pattern star(final Pattern p) {
+        return new Pattern() {
+            Node[] build(List<Node> nfa) {
+                Node in = node(nfa), out = node(nfa);
+                Node[] f = p.build(nfa);
+                in.eps.add(f[0]);
+                in.eps.add(out);
+                f[1].eps.add(f[0]);
+                f[1].eps.add(out);
+                return new Node[] {in, out};
+            }
+        };
+    }
+
+    static Pattern plus(Pattern p) {
+        return seq(p, star(p));
+    }
+
+    static class Node {
+        final int id;
+        final List<Node> eps = new ArrayList<>();
+        BitSet on;      // symbols on the single non-epsilon edge, if any
+        Node to;
+        int accept = -1;
+
+        Node(int id) { this.id = id; }
+    }
+
+    private static Node node(List<Node> nfa) {
+        Node n = new Node(nfa.size());
+        nfa.add(n);
+        return n;
+    }
+
+    // the generated tables
+
+    final int start;
+    final int classes;
+    final int[] symbolClass;    // input symbol -> character class
+    final int[] asciiClass;     // ASCII character -> character class
+    final int[] next;           // state * classes + class -> state, or -1 when stuck
+    final int[] accept;         // state -> rule accepted there, or -1
+    final int[] rule;           // state -> most important rule still being matched, or -1
+
+    private Dfa(int start, int classes, int[] symbolClass, int[] next, int[] accept, int[] rule) {
+        this.start = start;
+        this.classes = classes;
+        this.symbolClass = symbolClass;
+        this.asciiClass = Arrays.copyOf(symbolClass, 128);
+        this.next = next;
+        this.accept = accept;
+        this.rule = rule;
+    }
+
+    int states() {
+        return accept.length;
+    }
+
+    int step(int state, char c) {
+        return next[state * classes + (c < 128 ? asciiClass[c] : symbolClass[symbol(c)])];
+    }
+
+    static Dfa build(List<Pattern> rules) {
+        // Thompson construction, remembering which rule each nfa node belongs to
+        List<Node> nfa = new ArrayList<>();
+        Node entry = node(nfa);
+        List<Integer> owner = new ArrayList<>();
+        owner.add(-1);
+        for (int r = 0; r < rules.size(); r++) {
+            Node[] f = rules.get(r).build(nfa);
+            entry.eps.add(f[0]);
+            f[1].accept = r;
+            while (owner.size() < nfa.size()) owner.add(r);
+        }
+
+        // symbols that no edge tells apart share a character class
+        Map<BitSet, Integer> signatures = new HashMap<>();
+        int[] symbolClass = new int[SYMBOLS];
+        for (int s = 0; s < SYMBOLS; s++) {
+            BitSet sig = new BitSet();
+            for (Node n : nfa) if (n.on != null && n.on.get(s)) sig.set(n.id);
+            Integer c = signatures.get(sig);
+            if (c == null) signatures.put(sig, c = signatures.size());
+            symbolClass[s] = c;
+        }
+        int classes = signatures.size();
+        int[] representative = new int[classes];
+        for (int s = SYMBOLS - 1; s >= 0; s--) representative[symbolClass[s]] = s;
+
+        // subset construction
+        List<BitSet> subsets = new ArrayList<>();
+        Map<BitSet, Integer> index = new HashMap<>();
+        BitSet first = closure(nfa, single(entry.id));
+        subsets.add(first);
+        index.put(first, 0);
+        List<int[]> moves = new ArrayList<>();
+        for (int d = 0; d < subsets.size(); d++) {
+            int[] row = new int[classes];
+            for (int c = 0; c < classes; c++) {
+                BitSet target = new BitSet();
+                BitSet from = subsets.get(d);
+                for (int i = from.nextSetBit(0); i >= 0; i = from.nextSetBit(i + 1)) {
+                    Node n = nfa.get(i);
+                    if (n.on != null && n.on.get(representative[c])) target.set(n.to.id);
+                }
+                if (target.isEmpty()) {
+                    row[c] = -1;
+                    continue;
+                }
+                target = closure(nfa, target);
+                Integer t = index.get(target);
+                if (t == null) {
+                    t = subsets.size();
+                    subsets.add(target);
+                    index.put(target, t);
+                }
+                row[c] = t;
+            }
+            moves.add(row);
+        }
+
+        int n = subsets.size();
+        int[] accept = new int[n];
+        int[] rule = new int[n];
+        for (int d = 0; d < n; d++) {
+            accept[d] = -1;
+            rule[d] = -1;
+            BitSet set = subsets.get(d);
+            for (int i = set.nextSetBit(0); i >= 0; i = set.nextSetBit(i + 1)) {
+                int a = nfa.get(i).accept;
+                if (a >= 0 && (accept[d] < 0 || a < accept[d])) accept[d] = a;
+                int o = owner.get(i);
+                if (o >= 0 && (rule[d] < 0 || o < rule[d])) rule[d] = o;
+            }
+        }
+
+        // Moore minimisation: start from states that accept (or are stuck in) the same rule
+        // and split blocks until all states of a block move to the same blocks
+        int[] block = new int[n];
+        int blocks = partition(n, block, d -> accept[d] >= 0 ? Arrays.asList(accept[d], -1) : Arrays.asList(-1, rule[d]));
+        while (true) {
+            final int[] current = block.clone();
+            int[] refined = new int[n];
+            int count = partition(n, refined, d -> {
+                List<Integer> sig = new ArrayList<>(classes + 1);
+                sig.add(current[d]);
+                for (int t : moves.get(d)) sig.add(t < 0 ? -1 : current[t]);
+                return sig;
+            });
+            block = refined;
+            if (count == blocks) break;
+            blocks = count;
+        }
+
+        int[] next = new int[blocks * classes];
+        int[] minAccept = new int[blocks];
+        int[] minRule = new int[blocks];
+        for (int d = 0; d < n; d++) {
+            int b = block[d];
+            minAccept[b] = accept[d];
+            minRule[b] = rule[d];
+            int[] row = moves.get(d);
+            for (int c = 0; c < classes; c++)
+                next[b * classes + c] = row[c] < 0 ? -1 : block[row[c]];
+        }
+        return new Dfa(block[0], classes, symbolClass, next, minAccept, minRule);
+    }
+
+    private interface Signature {
+        List<Integer> of(int state);
+    }
+
+    // numbers the states by their signature, returning how many distinct signatures there are
+    private static int partition(int n, int[] out, Signature signature) {
+        Map<List<Integer>, Integer> seen = new HashMap<>();
+        for (int d = 0; d < n; d++) {
+            List<Integer> sig = signature.of(d);
+            Integer b = seen.get(sig);
+            if (b == null) seen.put(sig, b = seen.size());
+            out[d] = b;
+        }
+        return seen.size();
+    }
+
+    private static BitSet single(int i) {
+        BitSet set = new BitSet();
+        set.set(i);
+        return set;
+    }
+
+    private static BitSet closure(List<Node> nfa, BitSet set) {
+        BitSet result = (BitSet) set.clone();
+        int[] work = new int[nfa.size()];
+        int top = 0;
+        for (int i = set.nextSetBit(0); i >= 0; i = set.nextSetBit(i + 1)) work[top++] = i;
+        while (top > 0) {
+            for (Node e : nfa.get(work[--top]).eps) {
+                if (!result.get(e.id)) {
+                    result.set(e.id);
+                    work[top++] = e.id;
+                }
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,223 @@
+package lexer;
+
+import lexer.Token.TokenClass;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+import static lexer.Dfa.*;
+
+/**
+ * A Tokeniser driven by a table-driven automaton instead of hand-written tests.
+ * The automaton is generated from the spellings in Token.TokenClass and the
+ * regular definitions of grammar/ebnf.txt, and reads the scanner's buffer in a single loop.
+ * It produces exactly the same tokens and errors as the hand-written Tokeniser.
+ */
+public class DfaTokeniser extends Tokeniser {
+
+    // what to do with the characters matched by a rule
+    private enum Action {
+        TOKEN,          // a token with no data
+        INCLUDE,        // as TOKEN, but a mismatch is blamed on the character that does not fit
+        IDENTIFIER,
+        INT_LITERAL,
+        STRING_LITERAL,
+        CHAR_LITERAL,
+        WHITESPACE,
+        LINE_COMMENT,
+        BLOCK_COMMENT
+    }
+
+    private static final List<TokenClass> ruleClasses = new ArrayList<>();
+    private static final List<Action> ruleActions = new ArrayList<>();
+    private static final Dfa DFA;
+    static {
+        List<Pattern> rules = new ArrayList<>();
+
+        // fixed tokens come first so that keywords win over identifiers
+        for (TokenClass tc : TokenClass.values()) {
+            if (tc.spelling != null)
+                rule(rules, literal(tc.spelling), tc, tc == TokenClass.INCLUDE ? Action.INCLUDE : Action.TOKEN);
+        }
+
+        BitSet identStart = union(letters(), chars("_"));
+        rule(rules, seq(in(identStart), star(in(union(identStart, digits())))), TokenClass.IDENTIFIER, Action.IDENTIFIER);
+        rule(rules, plus(in(digits())), TokenClass.INT_LITERAL, Action.INT_LITERAL);
+        rule(rules, seq(literal("\""),
+                        star(alt(in(anyCharBut("\"\\")), seq(literal("\\"), in(chars("tbnrf'\"\\0"))))),
+                        literal("\"")),
+                TokenClass.STRING_LITERAL, Action.STRING_LITERAL);
+        // any escape is matched here, the CHAR_LITERAL action then rejects the wrong ones
+        rule(rules, seq(literal("'"),
+                        star(alt(in(anyCharBut("'\\")), seq(literal("\\"), in(anyChar())))),
+                        literal("'")),
+                TokenClass.CHAR_LITERAL, Action.CHAR_LITERAL);
+
+        rule(rules, plus(in(whitespace())), null, Action.WHITESPACE);
+        rule(rules, seq(literal("//"), star(in(anyCharBut("\n"))), literal("\n")), null, Action.LINE_COMMENT);
+        rule(rules, seq(literal("/*"),
+                        star(alt(in(anyCharBut("*")), seq(plus(literal("*")), in(anyCharBut("*/"))))),
+                        plus(literal("*")), literal("/")),
+                null, Action.BLOCK_COMMENT);
+
+        DFA = Dfa.build(rules);
+    }
+
+    private static void rule(List<Pattern> rules, Pattern p, TokenClass tc, Action action) {
+        rules.add(p);
+        ruleClasses.add(tc);
+        ruleActions.add(action);
+    }
+
+    private static final List<String> specialChars = Arrays.asList("\\t", "\\b", "\\n", "\\r", "\\f",
+            "\\'", "\\\"", "\\\\", "\\0");
+
+    private final char[] buffer;
+    private final int limit;
+    private final LineMap lines;
+    private final NameTable names;
+    private int pos;
+
+    public DfaTokeniser(Scanner scanner) {
+        this(scanner, new NameTable());
+    }
+
+    public DfaTokeniser(Scanner scanner, NameTable names) {
+        super(scanner, names);
+        if (!scanner.isBuffered())
+            throw new IllegalArgumentException("the automaton reads a buffered scanner");
+        this.buffer = scanner.getBuffer();
+        this.limit = scanner.getLimit();
+        this.lines = scanner.getLineMap();
+        this.names = names;
+        this.pos = scanner.getOffset();
+    }
+
+    // number of states and character classes in the generated automaton
+    public static String describe() {
+        return DFA.states() + " states, " + DFA.classes + " character classes";
+    }
+
+    @Override
+    protected int offset() {
+        return pos;
+    }
+
+    @Override
+    protected TokenClass lex() {
+        final Dfa dfa = DFA;
+        final char[] buffer = this.buffer;
+
+        while (true) {
+            int start = pos;
+            int line = lines.getLine(start);
+            int column = lines.getColumn(start);
+            tokenOffset = start;
+            if (start >= limit)
+                return token(TokenClass.EOF, line, column);
+
+            // run the automaton as far as it goes, remembering the last place a rule matched
+            int state = dfa.start;
+            int p = start;
+            int matched = -1, matchEnd = start;
+            while (p < limit) {
+                int next = dfa.step(state, buffer[p]);
+                if (next < 0)
+                    break;
+                state = next;
+                p++;
+                if (dfa.accept[state] >= 0) {
+                    matched = dfa.accept[state];
+                    matchEnd = p;
+                }
+            }
+
+            if (state == dfa.start) {
+                // no rule starts with this character
+                error(buffer[start], line, column);
+                pos = start + 1;
+                return token(TokenClass.INVALID, line, column);
+            }
+
+            if (dfa.accept[state] < 0) {
+                Action stuckIn = ruleActions.get(dfa.rule[state]);
+                // comments are committed to once opened; otherwise fall back to the longest match
+                if (matched < 0 || stuckIn == Action.LINE_COMMENT || stuckIn == Action.BLOCK_COMMENT) {
+                    TokenClass t = mismatch(stuckIn, start, p, line, column);
+                    if (t != null)
+                        return t;
+                    continue;
+                }
+                p = matchEnd;
+            }
+
+            pos = p;
+            TokenClass tc = ruleClasses.get(matched);
+            switch (ruleActions.get(matched)) {
+                case TOKEN:
+                case INCLUDE:
+                    return token(tc, line, column);
+                case IDENTIFIER:
+                    return token(tc, names.intern(buffer, start, p - start), line, column);
+                case INT_LITERAL:
+                    return token(tc, new String(buffer, start, p - start), line, column);
+                case STRING_LITERAL:
+                    return token(tc, new String(buffer, start + 1, p - start - 2), line, column);
+                case CHAR_LITERAL:
+                    String s = new String(buffer, start + 1, p - start - 2);
+                    if (specialChars.contains(s) || s.length() == 1)
+                        return token(tc, s, line, column);
+                    error('\'', line, column);
+                    return token(TokenClass.INVALID, s, line, column);
+                default:
+                    // whitespace and comments
+                    break;
+            }
+        }
+    }
+
+    /*
+     * Handles input that stops matching in the middle of a rule, at p.
+     * Returns the token to produce, or null if the characters are skipped.
+     */
+    private TokenClass mismatch(Action action, int start, int p, int line, int column) {
+        boolean eof = p >= limit;
+        switch (action) {
+            case INCLUDE:
+                error(eof ? '\0' : buffer[p], line, column);
+                pos = p;
+                return token(TokenClass.INVALID, line, column);
+            case STRING_LITERAL:
+                // only an illegal escape character or the end of the input stop a string
+                if (eof) {
+                    error(buffer[p - 1], line, column);
+                    pos = p;
+                } else {
+                    error(buffer[p], line, column);
+                    pos = p + 1;
+                }
+                return token(TokenClass.INVALID, new String(buffer, start + 1, p - start - 1), line, column);
+            case CHAR_LITERAL:
+                error(buffer[p - 1], line, column);
+                pos = p;
+                return token(TokenClass.INVALID, new String(buffer, start + 1, p - start - 1), line, column);
+            case LINE_COMMENT:
+                pos = p;
+                return null;
+            case BLOCK_COMMENT:
+                pos = p;
+                // a comment opened right at the end of the input is not reported
+                if (p - start == 2)
+                    return null;
+                error(buffer[p - 1], line, column);
+                return token(TokenClass.INVALID, line, column);
+            default:
+                // a two-character operator whose second character is missing
+                error(buffer[start], line, column);
+                pos = start + 1;
+                return token(TokenClass.INVALID, line, column);
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package lexer;
+
+import java.util.Arrays;
+
+/**
+ * Maps offsets in a source buffer to line and column numbers.
+ * Both '\n' and '\r' start a new line, exactly as the reader-based Scanner counts them.
+ * The line-start index is only built the first time a position is asked for.
+ */
+public class LineMap {
+
+    private final char[] buffer;
+    private final int length;
+
+    private int[] starts;   // offset of the first character of each line
+    private int lineCount;
+    private int last;       // index of the line returned by the previous lookup
+
+    public LineMap(char[] buffer, int length) {
+        this.buffer = buffer;
+        this.length = length;
+    }
+
+    private LineMap(LineMap shared) {
+        this.buffer = shared.buffer;
+        this.length = shared.length;
+        this.starts = shared.starts;
+        this.lineCount = shared.lineCount;
+    }
+
+    /*
+     * Returns a map sharing this one's index but with its own lookup position,
+     * so that several threads can look up positions in the same buffer.
+     */
+    public LineMap view() {
+        if (starts == null)
+            index();
+        return new LineMap(this);
+    }
+
+    public int getLine(int offset) {
+        return find(offset) + 1;
+    }
+
+    public int getColumn(int offset) {
+        return offset - starts[find(offset)];
+    }
+
+    private int find(int offset) {
+        if (starts == null)
+            index();
+
+        // lookups mostly move forward a little at a time, so try the last line and its successor first
+        if (starts[last] <= offset) {
+            if (last + 1 == lineCount || offset < starts[last + 1])
+                return last;
+            if (last + 2 == lineCount || offset < starts[last + 2])
+                return ++last;
+        }
+
+        int i = Arrays.binarySearch(starts, 0, lineCount, offset);
+        last = i >= 0 ? i : -i - 2;
+        return last;
+    }
+
+    private void index() {
+        int[] s = new int[64];
+        int n = 1;
+        for (int i = 0; i < length; i++) {
+            char c = buffer[i];
+            if (c == '\n' || c == '\r') {
+                if (n == s.length)
+                    s = Arrays.copyOf(s, n * 2);
+                s[n++] = i + 1;
+            }
+        }
+        starts = s;
+        lineCount = n;
+    }
+}
@@ -0,0 +1,117 @@
+package lexer;
+
+import lexer.Token.TokenClass;
+
+/**
+ * Recognises keywords and interns identifiers straight from a range of characters,
+ * without building a String unless the name has never been seen before.
+ *
+ * Every name handed out is the JVM-interned String for that name, so identifiers coming
+ * from any table (and string constants in the compiler itself) can be compared by identity.
+ */
+public class NameTable {
+
+    // keywords, placed by the perfect hash below
+    private static final char[][] KEYWORDS = new char[16][];
+    private static final TokenClass[] KEYWORD_CLASSES = new TokenClass[16];
+    static {
+        keyword("int", TokenClass.INT);
+        keyword("void", TokenClass.VOID);
+        keyword("char", TokenClass.CHAR);
+        keyword("if", TokenClass.IF);
+        keyword("else", TokenClass.ELSE);
+        keyword("while", TokenClass.WHILE);
+        keyword("return", TokenClass.RETURN);
+        keyword("struct", TokenClass.STRUCT);
+        keyword("sizeof", TokenClass.SIZEOF);
+    }
+
+    private static void keyword(String s, TokenClass tokenClass) {
+        int h = keywordHash(s.toCharArray(), 0, s.length());
+        assert KEYWORDS[h] == null : "keyword hash is not perfect";
+        KEYWORDS[h] = s.toCharArray();
+        KEYWORD_CLASSES[h] = tokenClass;
+    }
+
+    // distinct for every keyword: last character and length decide the slot
+    private static int keywordHash(char[] chars, int offset, int length) {
+        return (chars[offset + length - 1] * 13 + length) & 15;
+    }
+
+    private String[] names = new String[256];
+    private int[] hashes = new int[256];
+    private int size = 0;
+
+    /*
+     * Returns the keyword token class spelt by chars[offset..offset+length), or null for an identifier.
+     */
+    public static TokenClass keyword(char[] chars, int offset, int length) {
+        if (length < 2 || length > 6)
+            return null;
+        int h = keywordHash(chars, offset, length);
+        char[] k = KEYWORDS[h];
+        if (k == null || k.length != length)
+            return null;
+        for (int i = 0; i < length; i++)
+            if (k[i] != chars[offset + i])
+                return null;
+        return KEYWORD_CLASSES[h];
+    }
+
+    /*
+     * Returns the unique String for the name spelt by chars[offset..offset+length).
+     */
+    public String intern(char[] chars, int offset, int length) {
+        // same hash as String.hashCode, so the String's own cached hash agrees with ours
+        int h = 0;
+        for (int i = 0; i < length; i++)
+            h = 31 * h + chars[offset + i];
+
+        int mask = names.length - 1;
+        int i = (h ^ (h >>> 16)) & mask;
+        while (names[i] != null) {
+            if (hashes[i] == h && matches(names[i], chars, offset, length))
+                return names[i];
+            i = (i + 1) & mask;
+        }
+
+        String name = new String(chars, offset, length).intern();
+        name.hashCode();
+        names[i] = name;
+        hashes[i] = h;
+        if (++size * 2 > names.length)
+            grow();
+        return name;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private static boolean matches(String name, char[] chars, int offset, int length) {
+        if (name.length() != length)
+            return false;
+        for (int i = 0; i < length; i++)
+            if (name.charAt(i) != chars[offset + i])
+                return false;
+        return true;
+    }
+
+    private void grow() {
+        String[] oldNames = names;
+        int[] oldHashes = hashes;
+        names = new String[oldNames.length * 2];
+        hashes = new int[oldNames.length * 2];
+        int mask = names.length - 1;
+        for (int j = 0; j < oldNames.length; j++) {
+            if (oldNames[j] == null)
+                continue;
+            int h = oldHashes[j];
+            int i = (h ^ (h >>> 16)) & mask;
+            while (names[i] != null)
+                i = (i + 1) & mask;
+            names[i] = oldNames[j];
+            hashes[i] = h;
+        }
+    }
+}
@@ -0,0 +1,205 @@
+package lexer;
+
+import lexer.Token.TokenClass;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Function;
+
+/**
+ * Lexes a buffered source in chunks on a fork-join pool, then hands out the tokens one at a time
+ * like any other tokeniser, so the output is the same as lexing the whole file sequentially.
+ *
+ * Each chunk is lexed speculatively, not knowing what the previous chunk leaves it in. The main
+ * guess starts in normal state at the beginning of the chunk. Two more guesses start just after the
+ * first "*" "/" and just after the first double quote of the chunk, which are right when the chunk
+ * starts inside a comment or a string; they only run until they meet a token of the main guess,
+ * since from then on both find the same tokens.
+ *
+ * The chunks are then stitched together in order. Lexing from a given offset always finds the same
+ * token, so once the true token sequence reaches the start of a token of a guess, the rest of that
+ * guess is right too. At each chunk boundary the true sequence is lexed sequentially until it meets
+ * a token of one of the guesses of the chunk; if none of the guesses was right, that is the whole
+ * chunk.
+ *
+ * Error messages are buffered with the token whose lexing printed them, and printed when that token
+ * is handed out, which is when the sequential tokeniser would have printed them.
+ */
+public class ParallelTokeniser extends BufferedTokeniser {
+
+    // chunks are at least this long, so that the fixup at each boundary stays negligible
+    private static final int MIN_CHUNK = 64 * 1024;
+
+    private final Scanner scanner;
+    private final Function<Scanner, Tokeniser> engine;
+    private final int chunkSize;
+
+    /*
+     * Lexes the scanner's buffer with tokenisers made by engine, such as Tokeniser::new or DfaTokeniser::new.
+     */
+    public ParallelTokeniser(Scanner scanner, Function<Scanner, Tokeniser> engine) {
+        this(scanner, engine, chunkSize(scanner.getLimit(), ForkJoinPool.getCommonPoolParallelism()));
+    }
+
+    // a few chunks per worker, to even out their load; a single chunk when there is only one worker
+    private static int chunkSize(int length, int parallelism) {
+        if (parallelism == 1)
+            return Math.max(1, length);
+        return Math.max(MIN_CHUNK, length / (4 * parallelism) + 1);
+    }
+
+    public ParallelTokeniser(Scanner scanner, Function<Scanner, Tokeniser> engine, int chunkSize) {
+        super(scanner);
+        if (!scanner.isBuffered())
+            throw new IllegalArgumentException("parallel lexing needs a buffered scanner");
+        this.scanner = scanner;
+        this.engine = engine;
+        this.chunkSize = chunkSize;
+    }
+
+    private Recording lexer(int offset) {
+        return new Recording(engine.apply(new Scanner(scanner.getBuffer(), scanner.getLimit(), scanner.getLineMap().view(), offset)));
+    }
+
+    /*
+     * Keeps the tokens starting before end, and EOF.
+     */
+    private static void lexUntil(Recording run, int end) {
+        while (true) {
+            int start = run.lex();
+            if (start >= end && run.tokens.tokenClass(run.tokens.size() - 1) != TokenClass.EOF)
+                return;
+            run.keep();
+            if (run.atEOF())
+                return;
+        }
+    }
+
+    /*
+     * Keeps the tokens up to and including the first one that starts at a token of main,
+     * and returns the index in main of the token after that one, or -1 if they never meet.
+     */
+    private static int lexUntilJoin(Recording run, Recording main, int end) {
+        while (true) {
+            int start = run.lex();
+            int join = main.find(start);
+            if (join >= 0) {
+                // keep this run's copy of the token, lexed from where the true sequence was
+                run.keep();
+                return join + 1;
+            }
+            if (start >= end)
+                return -1;
+            run.keep();
+            if (run.atEOF())
+                return -1;
+        }
+    }
+
+    private final class Chunk extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        final int start, end;
+        Recording main;
+        Recording[] guesses;
+        int[] joins;
+
+        Chunk(int start, int end) {
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        protected void compute() {
+            main = lexer(start);
+            lexUntil(main, end);
+            // the first chunk starts where the file does, so it needs no other guess
+            if (start == scanner.getOffset()) {
+                guesses = new Recording[0];
+                return;
+            }
+            int comment = indexOf("*/", start, end);
+            int string = indexOf("\"", start, end);
+            guesses = new Recording[] {
+                comment < 0 ? null : lexer(comment + 2),
+                string < 0 ? null : lexer(string + 1)
+            };
+            joins = new int[guesses.length];
+            for (int i = 0; i < guesses.length; i++)
+                if (guesses[i] != null)
+                    joins[i] = lexUntilJoin(guesses[i], main, end);
+        }
+    }
+
+    private int indexOf(String s, int from, int to) {
+        char[] buffer = scanner.getBuffer();
+        for (int i = from; i + s.length() <= to; i++)
+            if (buffer[i] == s.charAt(0) && (s.length() == 1 || buffer[i + 1] == s.charAt(1)))
+                return i;
+        return -1;
+    }
+
+    @Override
+    Recording read() {
+        int base = scanner.getOffset(), limit = scanner.getLimit();
+        int count = Math.max(1, (limit - base + chunkSize - 1) / chunkSize);
+        Chunk[] chunks = new Chunk[count];
+        for (int i = 0; i < count; i++)
+            chunks[i] = new Chunk(base + i * chunkSize, i == count - 1 ? limit : base + (i + 1) * chunkSize);
+        ForkJoinPool.commonPool().invoke(new RecursiveAction() {
+            @Override
+            protected void compute() {
+                invokeAll(chunks);
+            }
+        });
+        if (count == 1)
+            return chunks[0].main;
+        return stitch(chunks);
+    }
+
+    private Recording stitch(Chunk[] chunks) {
+        Recording result = new Recording();
+        int offset = chunks[0].start;
+        Recording sequential = null;
+        while (true) {
+            if (sequential == null)
+                sequential = lexer(offset);
+            int start = sequential.lex();
+            sequential.keep();
+
+            Chunk chunk = chunks[Math.min(chunks.length - 1, (start - chunks[0].start) / chunkSize)];
+            Recording found = null;
+            int join = -1;
+            int i = chunk.main.find(start);
+            if (i >= 0) {
+                found = chunk.main;
+            } else {
+                for (int g = 0; g < chunk.guesses.length; g++) {
+                    Recording guess = chunk.guesses[g];
+                    if (guess != null && (i = guess.find(start)) >= 0) {
+                        found = guess;
+                        join = chunk.joins[g];
+                        break;
+                    }
+                }
+            }
+
+            // the token itself comes from the sequential run, which also printed what came before it
+            result.append(sequential, sequential.size - 1);
+            if (sequential.atEOF())
+                break;
+            if (found == null)
+                continue;
+            for (i++; i < found.size; i++)
+                result.append(found, i);
+            if (join >= 0)
+                for (i = join; i < chunk.main.size; i++)
+                    result.append(chunk.main, i);
+            if (result.atEOF())
+                break;
+            offset = result.tokens.end(result.size - 1);
+            sequential = null;
+        }
+        return result;
+    }
+}
@@ -0,0 +1,164 @@
+package lexer;
+
+import lexer.Token.TokenClass;
+import util.Channel;
+
+import java.io.PrintStream;
+
+/**
+ * Lexes another tokeniser's input on a thread of its own, ahead of whoever pulls the tokens, so
+ * that lexing overlaps with parsing.
+ *
+ * The lexer thread hands the tokens over in batches, each recorded with the error messages printed
+ * while lexing it, through a channel holding a few batches at most: a lexer that gets that far ahead
+ * waits, and the tokens in flight never grow with the input. As with BufferedTokeniser, a message
+ * is printed when the token that caused it is handed out, so the consumer sees the same output as
+ * it would from the original tokeniser.
+ */
+public class PipelinedTokeniser extends Tokeniser {
+
+    private static final int BATCH = 1024;      // tokens handed over at a time
+    private static final int BATCHES = 8;       // batches lexed ahead at most
+    private static final Recording FAILED = new Recording();
+
+    private final Tokeniser source;
+    private final Channel<Recording> batches = new Channel<>(BATCHES);
+    private PrintStream diagnostics;
+
+    private Thread lexer;
+    private volatile Throwable failure;
+    private volatile long lexing = 0;           // nanoseconds the lexer thread ran, once it is done
+
+    private Recording batch;
+    private int next = 0;
+    private int errors = 0;
+
+    public PipelinedTokeniser(Tokeniser source) {
+        super(source.getScanner());
+        this.source = source;
+        // messages go where the source would have sent them
+        this.diagnostics = source.getDiagnostics();
+    }
+
+    /*
+     * Starts lexing ahead, if the first token asked for has not already.
+     */
+    public void start() {
+        if (lexer != null)
+            return;
+        lexer = new Thread(this::lexAll, "lexer");
+        lexer.setDaemon(true);
+        lexer.start();
+    }
+
+    /*
+     * Stops lexing ahead, should the consumer stop before EOF, and waits for the lexer thread to end.
+     */
+    public void stop() {
+        if (lexer == null)
+            return;
+        lexer.interrupt();
+        boolean interrupted = false;
+        while (true) {
+            try {
+                lexer.join();
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted)
+            Thread.currentThread().interrupt();
+    }
+
+    // runs on the lexer thread
+    private void lexAll() {
+        long start = System.nanoTime();
+        try {
+            Recording r;
+            do {
+                r = new Recording(source);
+                for (int i = 0; i < BATCH && !r.atEOF(); i++) {
+                    r.lex();
+                    r.keep();
+                }
+                batches.put(r);
+            } while (!r.atEOF());
+        } catch (InterruptedException e) {
+            // the consumer stopped early
+        } catch (RuntimeException | Error e) {
+            failure = e;
+            try {
+                batches.put(FAILED);
+            } catch (InterruptedException stopped) {
+                // nobody is left to tell
+            }
+        } finally {
+            lexing = System.nanoTime() - start;
+        }
+    }
+
+    /*
+     * Returns the nanoseconds the lexer thread ran, and those it spent waiting for the consumer to
+     * make room, once stop has returned.
+     */
+    public long getLexingTime() {
+        return lexing;
+    }
+
+    public long getWaitingTime() {
+        return batches.producerWaiting();
+    }
+
+    // nanoseconds the consumer spent waiting for tokens
+    public long getStarvedTime() {
+        return batches.consumerWaiting();
+    }
+
+    @Override
+    public void setDiagnostics(PrintStream out) {
+        this.diagnostics = out;
+    }
+
+    @Override
+    PrintStream getDiagnostics() {
+        return diagnostics;
+    }
+
+    @Override
+    public int getErrorCount() {
+        return errors;
+    }
+
+    @Override
+    protected TokenClass lex() {
+        if (batch == null || (next == batch.size && !batch.atEOF())) {
+            start();
+            batch = batches.takeUninterruptibly();
+            next = 0;
+            if (batch == FAILED) {
+                if (failure instanceof Error)
+                    throw (Error) failure;
+                throw (RuntimeException) failure;
+            }
+        }
+        int t = next;
+        if (t < batch.size) {
+            int from = t == 0 ? 0 : batch.messageEnds[t - 1];
+            if (batch.messageEnds[t] > from)
+                diagnostics.write(batch.messages(), from, batch.messageEnds[t] - from);
+            errors = batch.errorEnds[t];
+            next++;
+        } else {
+            // EOF again
+            t = batch.size - 1;
+        }
+        TokenStream tokens = batch.tokens;
+        tokenData = tokens.data(t);
+        tokenLine = tokens.line(t);
+        tokenColumn = tokens.column(t);
+        tokenOffset = tokens.offset(t);
+        tokenEnd = tokens.end(t);
+        return tokens.tokenClass(t);
+    }
+}
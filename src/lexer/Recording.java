@@ -0,0 +1,104 @@
+package lexer;
+
+import lexer.Token.TokenClass;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.Arrays;
+
+/*
+ * Tokens found by a tokeniser, each with the error messages printed while finding it,
+ * so that the messages can be printed again when the token is used.
+ */
+final class Recording {
+
+    final TokenStream tokens = new TokenStream();
+    private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    private final Tokeniser tokeniser;     // null for a recording filled by append
+
+    int[] starts = new int[64];            // offset of each token
+    int[] messageEnds = new int[64];       // end of each token's messages in messages()
+    int[] errorEnds = new int[64];         // errors counted up to and including each token
+    int size = 0;                          // tokens kept; the last one lexed may not be
+
+    private byte[] messages;               // what out holds, once asked for
+    private int errors = 0;
+
+    Recording(Tokeniser tokeniser) {
+        this.tokeniser = tokeniser;
+        tokeniser.setDiagnostics(new PrintStream(out, true));
+    }
+
+    Recording() {
+        this.tokeniser = null;
+    }
+
+    /*
+     * Lexes one more token and returns its offset.
+     */
+    int lex() {
+        tokeniser.nextToken(tokens);
+        int t = tokens.size() - 1;
+        ensureCapacity(t);
+        starts[t] = tokens.offset(t);
+        messageEnds[t] = out.size();
+        errorEnds[t] = tokeniser.getErrorCount();
+        return starts[t];
+    }
+
+    // keeps the last token lexed
+    void keep() {
+        size++;
+    }
+
+    /*
+     * Lexes and keeps every token up to and including EOF.
+     */
+    void lexAll() {
+        while (!atEOF()) {
+            lex();
+            keep();
+        }
+    }
+
+    boolean atEOF() {
+        return size > 0 && tokens.tokenClass(size - 1) == TokenClass.EOF;
+    }
+
+    // index of the kept token at offset, or -1
+    int find(int offset) {
+        int i = Arrays.binarySearch(starts, 0, size, offset);
+        return i < 0 ? -1 : i;
+    }
+
+    byte[] messages() {
+        if (messages == null || messages.length != out.size())
+            messages = out.toByteArray();
+        return messages;
+    }
+
+    /*
+     * Appends and keeps the t^th token of another recording, with its messages.
+     */
+    void append(Recording from, int t) {
+        int n = tokens.size();
+        ensureCapacity(n);
+        tokens.append(from.tokens, t);
+        int start = t == 0 ? 0 : from.messageEnds[t - 1];
+        if (from.messageEnds[t] > start)
+            out.write(from.messages(), start, from.messageEnds[t] - start);
+        errors += from.errorEnds[t] - (t == 0 ? 0 : from.errorEnds[t - 1]);
+        starts[n] = from.starts[t];
+        messageEnds[n] = out.size();
+        errorEnds[n] = errors;
+        size++;
+    }
+
+    private void ensureCapacity(int t) {
+        if (t == starts.length) {
+            starts = Arrays.copyOf(starts, t * 2);
+            messageEnds = Arrays.copyOf(messageEnds, t * 2);
+            errorEnds = Arrays.copyOf(errorEnds, t * 2);
+        }
+    }
+}
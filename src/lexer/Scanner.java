@@ -1,6 +1,10 @@
 package lexer;
 
 import java.io.*;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
 
 /**
  * @author cdubach
@@ -13,20 +17,89 @@ public class Scanner {
     private int line = 1;
     private int column = 0;
 
+    private int pos;            // characters consumed so far
+
+    // buffered mode: the whole source is held in memory and read by index
+    private char[] buffer;
+    private int limit;
+    private LineMap lines;
+
     public Scanner(File source) throws FileNotFoundException {
         input = new BufferedReader(new FileReader(source));
     }
 
+    public Scanner(char[] buffer, int length) {
+        this(buffer, length, new LineMap(buffer, length));
+    }
+
+    /*
+     * Scans buffer[0..length) using an existing line map over the same buffer.
+     */
+    public Scanner(char[] buffer, int length, LineMap lines) {
+        this.buffer = buffer;
+        this.limit = length;
+        this.lines = lines;
+    }
+
+    /*
+     * Scans buffer[offset..length), as if the characters before offset had already been read.
+     */
+    public Scanner(char[] buffer, int length, LineMap lines, int offset) {
+        this(buffer, length, lines);
+        this.pos = offset;
+    }
+
+    /*
+     * Maps the whole file into memory and decodes it in one go,
+     * instead of pulling it through a reader a character at a time.
+     */
+    public static Scanner map(File source) throws IOException {
+        try (FileInputStream in = new FileInputStream(source); FileChannel channel = in.getChannel()) {
+            MappedByteBuffer bytes = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            CharBuffer chars = Charset.defaultCharset().decode(bytes);
+            return new Scanner(chars.array(), chars.limit());
+        }
+    }
+
 
     public int getColumn() {
+        if (buffer != null)
+            return lines.getColumn(pos);
         return column;
     }
 
     public int getLine() {
+        if (buffer != null)
+            return lines.getLine(pos);
         return line;
     }
 
+    public boolean isBuffered() {
+        return buffer != null;
+    }
+
+    public char[] getBuffer() {
+        return buffer;
+    }
+
+    public LineMap getLineMap() {
+        return lines;
+    }
+
+    // offset of the next character, counted from the start of the input
+    public int getOffset() {
+        return pos;
+    }
+
+    // number of characters in the buffer
+    public int getLimit() {
+        return limit;
+    }
+
     public char peek() throws IOException {
+        if (buffer != null)
+            return pos < limit ? buffer[pos] : '\0';
+
         if (peeked != -1)
             return (char)peeked;
 
@@ -38,7 +111,29 @@ public class Scanner {
         return (char) r;
     }
 
+    /*
+     * Returns the k^th character after the next one without consuming anything, or '\0' past the end.
+     * Only available in buffered mode.
+     */
+    public char peek(int k) {
+        int i = pos + k;
+        return i < limit ? buffer[i] : '\0';
+    }
+
+    /*
+     * Skips the next character. Only available in buffered mode.
+     */
+    public void advance() {
+        pos++;
+    }
+
     public char next() throws IOException {
+        if (buffer != null) {
+            if (pos >= limit)
+                throw new EOFException();
+            return buffer[pos++];
+        }
+
         char r;
         if (peeked != -1) {
             r = (char) peeked;
@@ -49,6 +144,7 @@ public class Scanner {
                 throw new EOFException();
             r = (char) i;
         }
+        pos++;
 
         if (r == '\n' || r == '\r') {
             line++;
@@ -60,7 +156,8 @@ public class Scanner {
     }
 
     public void close() throws IOException {
-        input.close();
+        if (input != null)
+            input.close();
     }
 
 
@@ -14,33 +14,33 @@ public class Token {
 
         IDENTIFIER, // ('a'|...|'z'|'A'|...|'Z'|'_')('0'|...|'9'|'a'|...|'z'|'A'|...|'Z'|'_')*
 
-        ASSIGN, // '='
+        ASSIGN("="),
 
         // delimiters
-        LBRA,  // '{' // left brace
-        RBRA,  // '}' // right brace
-        LPAR,  // '(' // left parenthesis
-        RPAR,  // ')' // right parenthesis
-        LSBR,  // '[' // left square brace
-        RSBR,  // ']' // left square brace
-        SC,    // ';' // semicolon
-        COMMA, // ','
+        LBRA("{"), // left brace
+        RBRA("}"), // right brace
+        LPAR("("), // left parenthesis
+        RPAR(")"), // right parenthesis
+        LSBR("["), // left square brace
+        RSBR("]"), // left square brace
+        SC(";"), // semicolon
+        COMMA(","),
 
         // types
-        INT,  // "int"
-        VOID, // "void"
-        CHAR, // "char"
+        INT("int"),
+        VOID("void"),
+        CHAR("char"),
 
         // keywords
-        IF,     // "if"
-        ELSE,   // "else"
-        WHILE,  // "while"
-        RETURN, // "return"
-        STRUCT, // "struct"
-        SIZEOF, // "sizeof"
+        IF("if"),
+        ELSE("else"),
+        WHILE("while"),
+        RETURN("return"),
+        STRUCT("struct"),
+        SIZEOF("sizeof"),
 
         // include
-        INCLUDE, // "#include"
+        INCLUDE("#include"),
 
         // literals
         STRING_LITERAL, // \".*\"  any sequence of characters enclosed within two double quote " (please be aware of the escape character backslash \)
@@ -48,30 +48,41 @@ public class Token {
         CHAR_LITERAL,   // \'('a'|...|'z'|'A'|...|'Z'|'\t'|'\b'|'\n'|'\r'|'\f'|'\''|'\"'|'\\'|'\0'|'.'|','|'_'|...)\'  a character starts and end with a single quote '
 
         // logical operators
-        AND, // "&&"
-        OR,  // "||"
+        AND("&&"),
+        OR("||"),
 
         // comparisons
-        EQ, // "=="
-        NE, // "!="
-        LT, // '<'
-        GT, // '>'
-        LE, // "<="
-        GE, // ">="
+        EQ("=="),
+        NE("!="),
+        LT("<"),
+        GT(">"),
+        LE("<="),
+        GE(">="),
 
         // operators
-        PLUS,  // '+'
-        MINUS, // '-'
-        ASTERIX, // '*'  // can be used for multiplication or pointers
-        DIV,   // '/'
-        REM,   // '%'
+        PLUS("+"),
+        MINUS("-"),
+        ASTERIX("*"), // can be used for multiplication or pointers
+        DIV("/"),
+        REM("%"),
 
         // struct member access
-        DOT, // '.'
+        DOT("."),
 
         // special tokens
         EOF,    // signal end of file
-        INVALID // in case we cannot recognise a character as part of a valid token
+        INVALID; // in case we cannot recognise a character as part of a valid token
+
+        // the exact characters of a token that is always spelt the same way, null otherwise
+        public final String spelling;
+
+        TokenClass() {
+            this(null);
+        }
+
+        TokenClass(String spelling) {
+            this.spelling = spelling;
+        }
     }
 
 
@@ -0,0 +1,183 @@
+package lexer;
+
+import lexer.Token.TokenClass;
+
+/**
+ * The tokens of a source file, held in parallel primitive arrays instead of one Token object each:
+ * the token class ordinal, the line and column packed into a long, and the offsets of the lexeme
+ * in the source. Only identifiers and literals carry data; punctuation costs no allocation at all.
+ *
+ * Tokens are addressed by their absolute index in the file, and are read from the tokeniser on demand.
+ * A streaming stream only keeps a small ring buffer of the tokens from the last released one onwards,
+ * which is enough for the parser's lookahead. A complete stream (see readAll) keeps every token,
+ * so any of them can be visited again in any order.
+ */
+public class TokenStream {
+
+    private static final TokenClass[] CLASSES = TokenClass.values();
+
+    private Tokeniser source;   // null once EOF has been read
+    private final boolean keepAll;
+
+    private byte[] kinds;
+    private long[] positions;   // line << 32 | column
+    private int[] offsets;      // start of the lexeme in the source
+    private int[] ends;         // end of the lexeme in the source
+    private String[] data;      // identifiers and literals only
+    private int mask;
+
+    private int size = 0;       // number of tokens read so far
+    private int first = 0;      // tokens before this one may have been overwritten
+
+    /*
+     * Streams the tokens of the tokeniser through a ring buffer.
+     */
+    public TokenStream(Tokeniser source) {
+        this(source, false, 16);
+    }
+
+    // a complete stream, filled by whoever creates it
+    TokenStream() {
+        this(null, true, 1024);
+    }
+
+    private TokenStream(Tokeniser source, boolean keepAll, int capacity) {
+        this.source = source;
+        this.keepAll = keepAll;
+        this.kinds = new byte[capacity];
+        this.positions = new long[capacity];
+        this.offsets = new int[capacity];
+        this.ends = new int[capacity];
+        this.data = new String[capacity];
+        this.mask = capacity - 1;
+    }
+
+    /*
+     * Reads every token of the tokeniser, up to and including EOF.
+     */
+    public static TokenStream readAll(Tokeniser source) {
+        TokenStream stream = new TokenStream(source, true, 1024);
+        while (stream.source != null)
+            stream.source.nextToken(stream);
+        return stream;
+    }
+
+    /*
+     * Appends a token. Called by the tokeniser.
+     */
+    void add(TokenClass tokenClass, String data, int line, int column, int offset, int end) {
+        if (size - first == kinds.length)
+            grow();
+        int i = size & mask;
+        kinds[i] = (byte) tokenClass.ordinal();
+        positions[i] = (long) line << 32 | column;
+        offsets[i] = offset;
+        ends[i] = end;
+        this.data[i] = data.isEmpty() ? null : data;
+        size++;
+        if (tokenClass == TokenClass.EOF)
+            source = null;
+    }
+
+    /*
+     * Appends a copy of the t^th token of another stream.
+     */
+    void append(TokenStream from, int t) {
+        int j = from.slot(t);
+        if (size - first == kinds.length)
+            grow();
+        int i = size & mask;
+        kinds[i] = from.kinds[j];
+        positions[i] = from.positions[j];
+        offsets[i] = from.offsets[j];
+        ends[i] = from.ends[j];
+        data[i] = from.data[j];
+        size++;
+    }
+
+    private void grow() {
+        int capacity = kinds.length * 2;
+        byte[] kinds = new byte[capacity];
+        long[] positions = new long[capacity];
+        int[] offsets = new int[capacity];
+        int[] ends = new int[capacity];
+        String[] data = new String[capacity];
+        int newMask = capacity - 1;
+        for (int t = first; t < size; t++) {
+            int from = t & mask, to = t & newMask;
+            kinds[to] = this.kinds[from];
+            positions[to] = this.positions[from];
+            offsets[to] = this.offsets[from];
+            ends[to] = this.ends[from];
+            data[to] = this.data[from];
+        }
+        this.kinds = kinds;
+        this.positions = positions;
+        this.offsets = offsets;
+        this.ends = ends;
+        this.data = data;
+        this.mask = newMask;
+    }
+
+    /*
+     * Returns the slot of the t^th token, reading up to it if needed.
+     * Past the end of the file, every token is the EOF token.
+     */
+    private int slot(int t) {
+        assert t >= first : "token " + t + " has been released";
+        while (t >= size) {
+            if (source == null)
+                return (size - 1) & mask;
+            source.nextToken(this);
+        }
+        return t & mask;
+    }
+
+    /*
+     * Tells the stream that tokens before the t^th will not be asked for again.
+     * Has no effect on a complete stream.
+     */
+    public void release(int t) {
+        if (!keepAll && t > first)
+            first = Math.min(t, size);
+    }
+
+    public TokenClass tokenClass(int t) {
+        return CLASSES[kinds[slot(t)]];
+    }
+
+    // the data of an identifier or literal, the empty string for other tokens
+    public String data(int t) {
+        String d = data[slot(t)];
+        return d == null ? "" : d;
+    }
+
+    public int line(int t) {
+        return (int) (positions[slot(t)] >>> 32);
+    }
+
+    public int column(int t) {
+        return (int) positions[slot(t)];
+    }
+
+    public int offset(int t) {
+        return offsets[slot(t)];
+    }
+
+    public int end(int t) {
+        return ends[slot(t)];
+    }
+
+    // the number of tokens read so far, including EOF once it has been read
+    public int size() {
+        return size;
+    }
+
+    /*
+     * Builds a Token object for the t^th token, for error messages and printing.
+     */
+    public Token token(int t) {
+        int i = slot(t);
+        return new Token(CLASSES[kinds[i]], data(t), (int) (positions[i] >>> 32), (int) positions[i]);
+    }
+}
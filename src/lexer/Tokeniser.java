@@ -4,6 +4,8 @@ import lexer.Token.TokenClass;
 
 import java.io.EOFException;
 import java.io.IOException;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
 import java.util.Arrays;
 import java.util.List;
 
@@ -13,297 +15,376 @@ import java.util.List;
 public class Tokeniser {
 
     private Scanner scanner;
+    private final NameTable names;
+    private char[] nameChars = new char[64];   // collects names when the scanner is not buffered
 
     private int error = 0;
+    private PrintStream diagnostics = System.out;
 
     public int getErrorCount() {
         return this.error;
     }
 
     public Tokeniser(Scanner scanner) {
+        this(scanner, new NameTable());
+    }
+
+    public Tokeniser(Scanner scanner, NameTable names) {
         this.scanner = scanner;
+        this.names = names;
+    }
+
+    Scanner getScanner() {
+        return scanner;
     }
 
-    private void error(char c, int line, int col) {
-        System.out.println("Lexing error: unrecognised character (" + c + ") at " + line + ":" + col);
+    public NameTable getNameTable() {
+        return names;
+    }
+
+    /*
+     * Sends error messages to out instead of System.out.
+     */
+    public void setDiagnostics(PrintStream out) {
+        this.diagnostics = out;
+    }
+
+    PrintStream getDiagnostics() {
+        return diagnostics;
+    }
+
+    protected void error(char c, int line, int col) {
+        diagnostics.println("Lexing error: unrecognised character (" + c + ") at " + line + ":" + col);
         error++;
     }
 
 
+    // the token found by the last call to lex()
+    protected String tokenData;
+    protected int tokenLine;
+    protected int tokenColumn;
+    protected int tokenOffset;
+    protected int tokenEnd;
+
     public Token nextToken() {
-        Token result;
+        TokenClass tokenClass = lex();
+        return new Token(tokenClass, tokenData, tokenLine, tokenColumn);
+    }
+
+    /*
+     * Appends the next token to the stream, without building a Token object.
+     */
+    public TokenClass nextToken(TokenStream stream) {
+        TokenClass tokenClass = lex();
+        stream.add(tokenClass, tokenData, tokenLine, tokenColumn, tokenOffset, tokenEnd);
+        return tokenClass;
+    }
+
+    /*
+     * Finds the next token, leaving its data and position in the token fields.
+     */
+    protected TokenClass lex() {
         try {
-            result = next();
+            return next();
         } catch (EOFException eof) {
             // end of file, nothing to worry about, just return EOF token
-            return new Token(TokenClass.EOF, scanner.getLine(), scanner.getColumn());
+            tokenOffset = scanner.getOffset();
+            return token(TokenClass.EOF, scanner.getLine(), scanner.getColumn());
         } catch (IOException ioe) {
-            ioe.printStackTrace();
-            // something went horribly wrong, abort
-            System.exit(-1);
-            return null;
+            // something went horribly wrong, abort and let the caller report it
+            throw new UncheckedIOException(ioe);
         }
-        return result;
     }
 
-    /*
-     * To be completed
-     */
-    private Token next() throws IOException {
-
-        int line = scanner.getLine();
-        int column = scanner.getColumn();
-
-        // get the next character
-        char c = scanner.next();
+    // offset just after the characters consumed so far
+    protected int offset() {
+        return scanner.getOffset();
+    }
 
-        // skip white spaces
-        if (Character.isWhitespace(c))
-            return next();
+    protected TokenClass token(TokenClass tokenClass, int line, int column) {
+        return token(tokenClass, "", line, column);
+    }
 
-        // skip comments
-        // single line
-        if (c == '/' && scanner.peek() == '/') {
-            scanner.next();
-            c = scanner.next();
+    protected TokenClass token(TokenClass tokenClass, String data, int line, int column) {
+        tokenData = data;
+        tokenLine = line;
+        tokenColumn = column;
+        tokenEnd = offset();
+        return tokenClass;
+    }
 
-            while (c != '\n') {
+    /*
+     * To be completed
+     */
+    private TokenClass next() throws IOException {
+        // whitespace and comments are skipped by looping rather than recursing,
+        // so that long runs of them cannot overflow the stack
+        while (true) {
+            int line = scanner.getLine();
+            int column = scanner.getColumn();
+            tokenOffset = scanner.getOffset();
+
+            // get the next character
+            char c = scanner.next();
+
+            // skip white spaces
+            if (Character.isWhitespace(c))
+                continue;
+
+            // skip comments
+            // single line
+            if (c == '/' && scanner.peek() == '/') {
+                scanner.next();
                 c = scanner.next();
-            }
 
-            return next();
-        }
-
-        // multiline
-        if (c == '/' && scanner.peek() == '*') {
-            scanner.next();
-            c = scanner.next();
-
-            while (!(c == '*' && scanner.peek() == '/')) {
-                try { c = scanner.next(); }
-                catch (EOFException e) {
-                    // unterminated comment
-                    error(c, line, column);
-                    return new Token(TokenClass.INVALID, line, column);
+                while (c != '\n') {
+                    c = scanner.next();
                 }
+
+                continue;
             }
 
-            scanner.next();
-            return next();
-        }
+            // multiline
+            if (c == '/' && scanner.peek() == '*') {
+                scanner.next();
+                c = scanner.next();
 
-        // identifier, types and keywords
-        if (Character.isLetter(c) || c == '_') {
-            StringBuilder sb = new StringBuilder();
-            sb.append(c);
-            c = scanner.peek();
+                while (!(c == '*' && scanner.peek() == '/')) {
+                    try { c = scanner.next(); }
+                    catch (EOFException e) {
+                        // unterminated comment
+                        error(c, line, column);
+                        return token(TokenClass.INVALID, line, column);
+                    }
+                }
 
-            while (Character.isLetterOrDigit(c) || c == '_') {
-                sb.append(c);
                 scanner.next();
-                c = scanner.peek();
+                continue;
             }
 
-            switch (sb.toString()) {
-                case "int": return new Token(TokenClass.INT, line, column);
-                case "void": return new Token(TokenClass.VOID, line, column);
-                case "char": return new Token(TokenClass.CHAR, line, column);
-                case "if": return new Token(TokenClass.IF, line, column);
-                case "else": return new Token(TokenClass.ELSE, line, column);
-                case "while": return new Token(TokenClass.WHILE, line, column);
-                case "return": return new Token(TokenClass.RETURN, line, column);
-                case "struct": return new Token(TokenClass.STRUCT, line, column);
-                case "sizeof": return new Token(TokenClass.SIZEOF, line, column);
-                default: return new Token(TokenClass.IDENTIFIER, sb.toString(), line, column);
-            }
-        }
-
-        // delimiters
-        if (c == '{') return new Token(TokenClass.LBRA, line, column);
-        if (c == '}') return new Token(TokenClass.RBRA, line, column);
-        if (c == '(') return new Token(TokenClass.LPAR, line, column);
-        if (c == ')') return new Token(TokenClass.RPAR, line, column);
-        if (c == '[') return new Token(TokenClass.LSBR, line, column);
-        if (c == ']') return new Token(TokenClass.RSBR, line, column);
-        if (c == ';') return new Token(TokenClass.SC, line, column);
-        if (c == ',') return new Token(TokenClass.COMMA, line, column);
-
-        // include
-        if (c == '#') {
-            char[] include = {'#', 'i', 'n', 'c', 'l', 'u', 'd', 'e'};
-
-            for (int i = 1; i < include.length; i++) {
-                c = scanner.peek();
-                if (c == include[i]) {
-                    scanner.next();
+            // identifier, types and keywords
+            if (Character.isLetter(c) || c == '_') {
+                char[] chars;
+                int start, length;
+
+                if (scanner.isBuffered()) {
+                    // the name can be read straight out of the source buffer
+                    chars = scanner.getBuffer();
+                    start = scanner.getOffset() - 1;
+                    c = scanner.peek();
+                    while (Character.isLetterOrDigit(c) || c == '_') {
+                        scanner.advance();
+                        c = scanner.peek();
+                    }
+                    length = scanner.getOffset() - start;
                 } else {
-                    error(c, line, column);
-                    return new Token(TokenClass.INVALID, line, column);
+                    chars = nameChars;
+                    start = 0;
+                    length = 0;
+                    chars[length++] = c;
+                    c = scanner.peek();
+                    while (Character.isLetterOrDigit(c) || c == '_') {
+                        if (length == chars.length)
+                            chars = nameChars = Arrays.copyOf(chars, length * 2);
+                        chars[length++] = c;
+                        scanner.next();
+                        c = scanner.peek();
+                    }
                 }
+
+                TokenClass keyword = NameTable.keyword(chars, start, length);
+                if (keyword != null)
+                    return token(keyword, line, column);
+                return token(TokenClass.IDENTIFIER, names.intern(chars, start, length), line, column);
             }
 
-            return new Token(TokenClass.INCLUDE, line, column);
-        }
+            // delimiters
+            if (c == '{') return token(TokenClass.LBRA, line, column);
+            if (c == '}') return token(TokenClass.RBRA, line, column);
+            if (c == '(') return token(TokenClass.LPAR, line, column);
+            if (c == ')') return token(TokenClass.RPAR, line, column);
+            if (c == '[') return token(TokenClass.LSBR, line, column);
+            if (c == ']') return token(TokenClass.RSBR, line, column);
+            if (c == ';') return token(TokenClass.SC, line, column);
+            if (c == ',') return token(TokenClass.COMMA, line, column);
+
+            // include
+            if (c == '#') {
+                char[] include = {'#', 'i', 'n', 'c', 'l', 'u', 'd', 'e'};
+
+                for (int i = 1; i < include.length; i++) {
+                    c = scanner.peek();
+                    if (c == include[i]) {
+                        scanner.next();
+                    } else {
+                        error(c, line, column);
+                        return token(TokenClass.INVALID, line, column);
+                    }
+                }
 
-        // literals
-        // string literal
-        if (c == '\"') {
-            StringBuilder sb = new StringBuilder();
-
-            // if there is no next character,
-            // throw unterminated string error
-            try { c = scanner.next(); }
-            catch (EOFException e) {
-                error(c, line, column);
-                return new Token(TokenClass.INVALID, sb.toString(), line, column);
+                return token(TokenClass.INCLUDE, line, column);
             }
 
-            while (c != '\"') {
-                // escape character is paired with the character to escape, so
-                // deal with them both at the same time to avoid complications
-                if (c == '\\') {
-                    List<Character> specialChars = Arrays.asList('t', 'b', 'n', 'r', 'f', '\'', '\"', '\\', '0');
+            // literals
+            // string literal
+            if (c == '\"') {
+                StringBuilder sb = new StringBuilder();
 
-                    try {
-                        sb.append(c);
-                        c = scanner.next();
-                        if (!specialChars.contains(c)) {
-                            // illegal escape character
+                // if there is no next character,
+                // throw unterminated string error
+                try { c = scanner.next(); }
+                catch (EOFException e) {
+                    error(c, line, column);
+                    return token(TokenClass.INVALID, sb.toString(), line, column);
+                }
+
+                while (c != '\"') {
+                    // escape character is paired with the character to escape, so
+                    // deal with them both at the same time to avoid complications
+                    if (c == '\\') {
+                        List<Character> specialChars = Arrays.asList('t', 'b', 'n', 'r', 'f', '\'', '\"', '\\', '0');
+
+                        try {
+                            sb.append(c);
+                            c = scanner.next();
+                            if (!specialChars.contains(c)) {
+                                // illegal escape character
+                                error(c, line, column);
+                                return token(TokenClass.INVALID, sb.toString(), line, column);
+                            }
+                        } catch (EOFException e) {
+                            // unterminated string, return immediately
                             error(c, line, column);
-                            return new Token(TokenClass.INVALID, sb.toString(), line, column);
+                            return token(TokenClass.INVALID, sb.toString(), line, column);
                         }
-                    } catch (EOFException e) {
+                    }
+
+                    sb.append(c);
+                    try { c = scanner.next(); }
+                    catch (EOFException e) {
                         // unterminated string, return immediately
                         error(c, line, column);
-                        return new Token(TokenClass.INVALID, sb.toString(), line, column);
+                        return token(TokenClass.INVALID, sb.toString(), line, column);
                     }
                 }
 
-                sb.append(c);
-                try { c = scanner.next(); }
-                catch (EOFException e) {
-                    // unterminated string, return immediately
-                    error(c, line, column);
-                    return new Token(TokenClass.INVALID, sb.toString(), line, column);
-                }
+                return token(TokenClass.STRING_LITERAL, sb.toString(), line, column);
             }
 
-            return new Token(TokenClass.STRING_LITERAL, sb.toString(), line, column);
-        }
-
-        // int literal
-        if (Character.isDigit(c)) {
-            StringBuilder sb = new StringBuilder();
-            sb.append(c);
-            c = scanner.peek();
-
-            while (Character.isDigit(c)) {
+            // int literal
+            if (Character.isDigit(c)) {
+                StringBuilder sb = new StringBuilder();
                 sb.append(c);
-                scanner.next();
                 c = scanner.peek();
-            }
 
-            return new Token(TokenClass.INT_LITERAL, sb.toString(), line, column);
-        }
+                while (Character.isDigit(c)) {
+                    sb.append(c);
+                    scanner.next();
+                    c = scanner.peek();
+                }
 
-        // char literal
-        if (c == '\'') {
-            StringBuilder sb = new StringBuilder();
-            try { c = scanner.next(); }
-            catch (EOFException e) {
-                error(c, line, column);
-                return new Token(TokenClass.INVALID, sb.toString(), line, column);
+                return token(TokenClass.INT_LITERAL, sb.toString(), line, column);
             }
 
-            while (c != '\'') {
-                // escape character is always paired with the
-                // character to escape - deal with them both
-                // at the same time to avoid complications
-                if (c == '\\') {
-                    // skip escape character
+            // char literal
+            if (c == '\'') {
+                StringBuilder sb = new StringBuilder();
+                try { c = scanner.next(); }
+                catch (EOFException e) {
+                    error(c, line, column);
+                    return token(TokenClass.INVALID, sb.toString(), line, column);
+                }
+
+                while (c != '\'') {
+                    // escape character is always paired with the
+                    // character to escape - deal with them both
+                    // at the same time to avoid complications
+                    if (c == '\\') {
+                        // skip escape character
+                        sb.append(c);
+                        try { c = scanner.next(); }
+                        catch (EOFException e) {
+                            error(c, line, column);
+                            return token(TokenClass.INVALID, sb.toString(), line, column);
+                        }
+                    }
+
                     sb.append(c);
                     try { c = scanner.next(); }
                     catch (EOFException e) {
                         error(c, line, column);
-                        return new Token(TokenClass.INVALID, sb.toString(), line, column);
+                        return token(TokenClass.INVALID, sb.toString(), line, column);
                     }
                 }
 
-                sb.append(c);
-                try { c = scanner.next(); }
-                catch (EOFException e) {
+                // handle special characters first
+                List<String> specialChars = Arrays.asList("\\t", "\\b", "\\n", "\\r", "\\f",
+                        "\\'", "\\\"", "\\\\", "\\0");
+                if (specialChars.contains(sb.toString())) { return token(TokenClass.CHAR_LITERAL, sb.toString(), line, column); }
+                // then regular characters
+                else if (sb.toString().length() == 1) { return token(TokenClass.CHAR_LITERAL, sb.toString(), line, column); }
+                // then errors
+                else {
                     error(c, line, column);
-                    return new Token(TokenClass.INVALID, sb.toString(), line, column);
+                    return token(TokenClass.INVALID, sb.toString(), line, column);
                 }
             }
 
-            // handle special characters first
-            List<String> specialChars = Arrays.asList("\\t", "\\b", "\\n", "\\r", "\\f",
-                    "\\'", "\\\"", "\\\\", "\\0");
-            if (specialChars.contains(sb.toString())) { return new Token(TokenClass.CHAR_LITERAL, sb.toString(), line, column); }
-            // then regular characters
-            else if (sb.toString().length() == 1) { return new Token(TokenClass.CHAR_LITERAL, sb.toString(), line, column); }
-            // then errors
-            else {
-                error(c, line, column);
-                return new Token(TokenClass.INVALID, sb.toString(), line, column);
+            // logical operators
+            if (c == '&' && scanner.peek() == '&') {
+                scanner.next();
+                return token(TokenClass.AND, line, column);
+            }
+            if (c == '|' && scanner.peek() == '|') {
+                scanner.next();
+                return token(TokenClass.OR, line, column);
             }
-        }
 
-        // logical operators
-        if (c == '&' && scanner.peek() == '&') {
-            scanner.next();
-            return new Token(TokenClass.AND, line, column);
-        }
-        if (c == '|' && scanner.peek() == '|') {
-            scanner.next();
-            return new Token(TokenClass.OR, line, column);
-        }
+            // comparisons
+            // = and ==
+            if (c == '=')
+                if (scanner.peek() == '=') {
+                    scanner.next();
+                    return token(TokenClass.EQ, line, column);
+                } else
+                    return token(TokenClass.ASSIGN, line, column);
 
-        // comparisons
-        // = and ==
-        if (c == '=')
-            if (scanner.peek() == '=') {
+            // !=
+            if (c == '!' && scanner.peek() == '=') {
                 scanner.next();
-                return new Token(TokenClass.EQ, line, column);
-            } else
-                return new Token(TokenClass.ASSIGN, line, column);
-
-        // !=
-        if (c == '!' && scanner.peek() == '=') {
-            scanner.next();
-            return new Token(TokenClass.NE, line, column);
-        }
+                return token(TokenClass.NE, line, column);
+            }
 
-        // < and <=
-        if (c == '<')
-            if (scanner.peek() == '=') {
-                scanner.next();
-                return new Token(TokenClass.LE, line, column);
-            } else
-                return new Token(TokenClass.LT, line, column);
+            // < and <=
+            if (c == '<')
+                if (scanner.peek() == '=') {
+                    scanner.next();
+                    return token(TokenClass.LE, line, column);
+                } else
+                    return token(TokenClass.LT, line, column);
 
-        // > and >=
-        if (c == '>')
-            if (scanner.peek() == '=') {
-                scanner.next();
-                return new Token(TokenClass.GE, line, column);
-            } else
-                return new Token(TokenClass.GT, line, column);
+            // > and >=
+            if (c == '>')
+                if (scanner.peek() == '=') {
+                    scanner.next();
+                    return token(TokenClass.GE, line, column);
+                } else
+                    return token(TokenClass.GT, line, column);
 
 
-        // operators
-        if (c == '+') return new Token(TokenClass.PLUS, line, column);
-        if (c == '-') return new Token(TokenClass.MINUS, line, column);
-        if (c == '*') return new Token(TokenClass.ASTERIX, line, column);
-        if (c == '/') return new Token(TokenClass.DIV, line, column);
-        if (c == '%') return new Token(TokenClass.REM, line, column);
+            // operators
+            if (c == '+') return token(TokenClass.PLUS, line, column);
+            if (c == '-') return token(TokenClass.MINUS, line, column);
+            if (c == '*') return token(TokenClass.ASTERIX, line, column);
+            if (c == '/') return token(TokenClass.DIV, line, column);
+            if (c == '%') return token(TokenClass.REM, line, column);
 
-        // struct member access
-        if (c == '.') return new Token(TokenClass.DOT, line, column);
+            // struct member access
+            if (c == '.') return token(TokenClass.DOT, line, column);
 
-        // if we reach this point, it means we did not recognise a valid token
-        error(c, line, column);
-        return new Token(TokenClass.INVALID, line, column);
+            // if we reach this point, it means we did not recognise a valid token
+            error(c, line, column);
+            return token(TokenClass.INVALID, line, column);
+        }
     }
 }
\ No newline at end of file
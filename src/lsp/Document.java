@@ -0,0 +1,643 @@
+package lsp;
+
+import ast.Program;
+import ast.Types;
+import lexer.NameTable;
+import lexer.Scanner;
+import lexer.Token.TokenClass;
+import lexer.TokenStream;
+import lexer.Tokeniser;
+import parser.Parser;
+import sem.FunctionAnalyzer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A source open in an editor, kept lexed, parsed and analysed as it is edited.
+ *
+ * The text is held as a sequence of segments, one per top-level declaration, each holding the
+ * declaration and the whitespace and comments before it, with its syntax tree and the problems
+ * found in it, placed relative to its own start. The last segment holds whatever follows the last
+ * declaration. An edit is spliced into the segments it touches, which are lexed again, together
+ * with as many of the following segments as it takes for a declaration of the new text to end where
+ * one of the old ones did: from there on, lexing from the same offset gives the same tokens. The
+ * new text is cut into declarations again, and each is parsed on its own. The segments around are
+ * kept as they are: being relative, they need no shifting.
+ *
+ * Each segment declares what its declaration declares to the semantic analysis, in the order of
+ * the grammar. When an edit leaves the declarations spelt as they were, only the bodies of the
+ * functions that were parsed again are analysed again; otherwise the whole document is.
+ *
+ * Positions are as the editor counts them: lines from 0, broken by "\n", "\r\n" or "\r", and
+ * characters from 0 along the line.
+ */
+public class Document {
+
+    /*
+     * A problem found in the document, with the range of text it is about.
+     */
+    public static final class Diagnostic {
+        public final int line;
+        public final int character;
+        public final int endLine;
+        public final int endCharacter;
+        public final String message;
+
+        Diagnostic(int line, int character, int endLine, int endCharacter, String message) {
+            this.line = line;
+            this.character = character;
+            this.endLine = endLine;
+            this.endCharacter = endCharacter;
+            this.message = message;
+        }
+    }
+
+    // what a segment declares, in the order the grammar allows them
+    private enum Kind { INCLUDE, STRUCT, VAR, FUN, NONE }
+
+    private static final Pattern AT = Pattern.compile(" at (\\d+):(\\d+)$");
+
+    private static final PrintStream NOWHERE = new PrintStream(new OutputStream() {
+        @Override
+        public void write(int b) {
+        }
+    });
+
+    // where each thread analysing bodies prints
+    private static final ThreadLocal<Output> OUTPUT = ThreadLocal.withInitial(Output::new);
+
+    private final NameTable names = new NameTable();
+    private final Types types = new Types();        // shared by the segments, which are parsed apart
+    private final List<Segment> segments = new ArrayList<>();
+    private FunctionAnalyzer analyzer;
+
+    private final ByteArrayOutputStream printed = new ByteArrayOutputStream();
+    private final PrintStream diagnostics = new PrintStream(printed, true);
+
+    public Document(String text) {
+        replace(text);
+    }
+
+    /*
+     * Replaces the whole text.
+     */
+    public void replace(String text) {
+        char[] chars = text.toCharArray();
+        segments.clear();
+        for (char[] segment : split(chars, chars.length, declarationEnds(chars, chars.length), true))
+            segments.add(parse(segment));
+        analyze();
+    }
+
+    /*
+     * Replaces the text between two positions.
+     */
+    public void edit(int fromLine, int fromCharacter, int toLine, int toCharacter, String text) {
+        int[] from = locate(fromLine, fromCharacter, false);
+        int[] to = fromLine == toLine && fromCharacter == toCharacter ? from : locate(toLine, toCharacter, true);
+        if (to[0] < from[0] || (to[0] == from[0] && to[1] < from[1]))
+            to = from;
+
+        // whether a function's closing brace ends its declaration depends on the token after it
+        int first = from[0];
+        if (first > 0 && segments.get(first - 1).closedByBrace && from[1] <= segments.get(first).firstEnd)
+            first--;
+
+        StringBuilder region = new StringBuilder();
+        for (int i = first; i < from[0]; i++)
+            region.append(segments.get(i).text);
+        region.append(segments.get(from[0]).text, 0, from[1]);
+        region.append(text);
+        char[] rest = segments.get(to[0]).text;
+        region.append(rest, to[1], rest.length - to[1]);
+
+        // the ends of the old segments in the region; the end of the last segment is not a declaration's
+        int last = to[0];
+        List<Integer> boundaries = new ArrayList<>();
+        if (last < segments.size() - 1)
+            boundaries.add(region.length());
+
+        for (int more = 1; ; more *= 2) {
+            char[] chars = new char[region.length()];
+            region.getChars(0, chars.length, chars, 0);
+            int[] ends = declarationEnds(chars, chars.length);
+
+            int b = 0, e = 0;
+            while (b < boundaries.size()) {
+                int boundary = boundaries.get(b);
+                while (e < ends.length && ends[e] < boundary)
+                    e++;
+                // a closing brace only ends a declaration if no semicolon follows
+                if (boundary == 0 || (e < ends.length && ends[e] == boundary
+                        && !(chars[boundary - 1] == '}' && segments.get(to[0] + b + 1).firstClass == TokenClass.SC)))
+                    break;
+                b++;
+            }
+            if (b < boundaries.size()) {
+                int[] kept = Arrays.copyOf(ends, boundaries.get(b) == 0 ? 0 : e + 1);
+                splice(first, to[0] + b, split(chars, boundaries.get(b), kept, false));
+                return;
+            }
+            if (last == segments.size() - 1) {
+                splice(first, last, split(chars, chars.length, ends, true));
+                return;
+            }
+
+            // the new text has not fallen in step yet: take in more of the old
+            for (int i = 0; i < more && last < segments.size() - 1; i++) {
+                region.append(segments.get(++last).text);
+                if (last < segments.size() - 1)
+                    boundaries.add(region.length());
+            }
+        }
+    }
+
+    public String getText() {
+        StringBuilder text = new StringBuilder();
+        for (Segment s : segments)
+            text.append(s.text);
+        return text.toString();
+    }
+
+    /*
+     * Returns the problems found in the document, in order.
+     */
+    public List<Diagnostic> getDiagnostics() {
+        List<Diagnostic> diagnostics = new ArrayList<>();
+        int line = 0, character = 0;
+        for (Segment s : segments) {
+            List<Problem> problems = s.problems();
+            if (!problems.isEmpty()) {
+                Collections.sort(problems, (a, b) -> Integer.compare(a.offset, b.offset));
+                // problems are in order, so the text is only walked through once
+                long at = (long) line << 32 | character;
+                int offset = 0;
+                for (Problem p : problems) {
+                    long start = s.position(at, offset, p.offset);
+                    long end = s.position(start, p.offset, p.end);
+                    at = start;
+                    offset = p.offset;
+                    diagnostics.add(new Diagnostic((int) (start >>> 32), (int) start,
+                            (int) (end >>> 32), (int) end, p.message));
+                }
+            }
+            if (s.breaks > 0) {
+                line += s.breaks;
+                character = s.tail;
+            } else {
+                character += s.tail;
+            }
+        }
+        return diagnostics;
+    }
+
+    /*
+     * Returns the segment holding a position and the offset of the position in it. A position between
+     * two segments is taken to be at the start of the second one, or at the end of the first if through.
+     */
+    private int[] locate(int line, int character, boolean through) {
+        int l = 0, c = 0;
+        for (int i = 0; ; i++) {
+            Segment s = segments.get(i);
+            int endLine = l + s.breaks;
+            int endCharacter = s.breaks == 0 ? c + s.tail : s.tail;
+            boolean inside = line < endLine
+                    || (line == endLine && (through ? character <= endCharacter : character < endCharacter));
+            if (inside || i == segments.size() - 1)
+                return new int[] {i, s.offset(line - l, line == l ? character - c : character)};
+            l = endLine;
+            c = endCharacter;
+        }
+    }
+
+    /*
+     * Returns the offsets at which the top-level declarations in chars[0..length) end: after the
+     * semicolon of a struct or a variable, the closing brace of a function or the file of an include.
+     */
+    private int[] declarationEnds(char[] chars, int length) {
+        TokenStream tokens = lex(chars, length, NOWHERE);
+        int[] ends = new int[16];
+        int n = 0;
+        int depth = 0;
+        for (int t = 0; tokens.tokenClass(t) != TokenClass.EOF; t++) {
+            boolean end = false;
+            switch (tokens.tokenClass(t)) {
+                case LBRA:
+                    depth++;
+                    break;
+                case RBRA:
+                    if (depth > 0)
+                        depth--;
+                    end = depth == 0 && tokens.tokenClass(t + 1) != TokenClass.SC;
+                    break;
+                case SC:
+                    end = depth == 0;
+                    break;
+                case STRING_LITERAL:
+                    end = depth == 0 && t > 0 && tokens.tokenClass(t - 1) == TokenClass.INCLUDE;
+                    break;
+                default:
+                    break;
+            }
+            if (end) {
+                if (n == ends.length)
+                    ends = Arrays.copyOf(ends, n * 2);
+                ends[n++] = tokens.end(t);
+            }
+        }
+        return Arrays.copyOf(ends, n);
+    }
+
+    /*
+     * Cuts chars[0..length) into segments at ends, and what follows the last end into a last
+     * segment of its own if tail.
+     */
+    private List<char[]> split(char[] chars, int length, int[] ends, boolean tail) {
+        List<char[]> texts = new ArrayList<>();
+        int start = 0;
+        for (int end : ends) {
+            texts.add(Arrays.copyOfRange(chars, start, end));
+            start = end;
+        }
+        if (tail)
+            texts.add(Arrays.copyOfRange(chars, start, length));
+        return texts;
+    }
+
+    /*
+     * Replaces the segments first..last with segments of the given texts, keeping those that are
+     * spelt as before, then brings the semantic analysis up to date.
+     */
+    private void splice(int first, int last, List<char[]> texts) {
+        int from = 0, to = texts.size();
+        while (first <= last && from < to && Arrays.equals(segments.get(first).text, texts.get(from))) {
+            first++;
+            from++;
+        }
+        while (first <= last && from < to && Arrays.equals(segments.get(last).text, texts.get(to - 1))) {
+            last--;
+            to--;
+        }
+
+        List<Segment> removed = new ArrayList<>(segments.subList(first, last + 1));
+        List<Segment> added = new ArrayList<>();
+        for (char[] text : texts.subList(from, to))
+            added.add(parse(text));
+        segments.subList(first, last + 1).clear();
+        segments.addAll(first, added);
+
+        if (!declarations(removed).equals(declarations(added))) {
+            analyze();
+            return;
+        }
+
+        // the same declarations, so all the analysis is still valid but that of the bodies parsed again
+        int r = 0;
+        for (Segment a : added) {
+            if (a.signature == null)
+                continue;
+            while (removed.get(r).signature == null)
+                r++;
+            Segment old = removed.get(r++);
+            a.order = old.order;
+            a.declared = old.declared;
+            a.position = old.position;
+            if (a.kind == Kind.FUN && a.position >= 0 && a.checkBody)
+                a.body = analyzeBody(a);
+        }
+    }
+
+    private static List<String> declarations(List<Segment> segments) {
+        List<String> signatures = new ArrayList<>();
+        for (Segment s : segments)
+            if (s.signature != null)
+                signatures.add(s.signature);
+        return signatures;
+    }
+
+    /*
+     * Analyses the whole document again: declares what each segment declares, then analyses the
+     * bodies of the functions.
+     */
+    private void analyze() {
+        analyzer = new FunctionAnalyzer();
+        Kind reached = Kind.INCLUDE;
+        int functions = 0;
+        for (Segment s : segments) {
+            s.order = null;
+            s.declared = Collections.emptyList();
+            s.body = Collections.emptyList();
+            s.position = -1;
+            if (s.signature == null)
+                continue;
+
+            // out of the grammar's order, a declaration is reported as the parser would report it
+            if (s.kind.compareTo(reached) < 0) {
+                s.order = "Parsing error: expected (" + TokenClass.EOF + ") found (" + s.first + ")";
+                continue;
+            }
+            reached = s.kind;
+
+            Program p = s.program;
+            switch (s.kind) {
+                case STRUCT: analyzer.declare(p.structTypeDecls.get(0), diagnostics); break;
+                case VAR: analyzer.declare(p.varDecls.get(0), diagnostics); break;
+                case FUN:
+                    analyzer.declare(p.funDecls.get(0), diagnostics);
+                    s.position = functions++;
+                    break;
+                default: break;
+            }
+            s.declared = messages();
+        }
+
+        // the bodies only read the declarations, so they are analysed in parallel
+        List<RecursiveAction> tasks = new ArrayList<>();
+        for (Segment s : segments) {
+            if (s.kind == Kind.FUN && s.position >= 0 && s.checkBody) {
+                tasks.add(new RecursiveAction() {
+                    @Override
+                    protected void compute() {
+                        s.body = analyzeBody(s);
+                    }
+                });
+            }
+        }
+        ForkJoinPool.commonPool().invoke(new RecursiveAction() {
+            @Override
+            protected void compute() {
+                invokeAll(tasks);
+            }
+        });
+    }
+
+    /*
+     * Analyses the body of the function in s, and returns what that printed. The type checker takes
+     * the names it meets to have been resolved, which while a source is being edited they need not
+     * be, so should it fail, that is reported as a problem of the function rather than taking the
+     * server down.
+     */
+    private List<String> analyzeBody(Segment s) {
+        Output output = OUTPUT.get();
+        try {
+            analyzer.analyze(s.program.funDecls.get(0), s.position, output.stream);
+        } catch (RuntimeException e) {
+            output.stream.println("semantic error: analysis stopped at " + e);
+        }
+        return messages(output.buffer);
+    }
+
+    /*
+     * Where a thread analysing bodies prints, kept from one body to the next.
+     */
+    private static final class Output {
+        final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        final PrintStream stream = new PrintStream(buffer, true);
+    }
+
+    /*
+     * Returns the lines printed to diagnostics since the last call.
+     */
+    private List<String> messages() {
+        return messages(printed);
+    }
+
+    private static List<String> messages(ByteArrayOutputStream printed) {
+        if (printed.size() == 0)
+            return Collections.emptyList();
+        List<String> messages = new ArrayList<>();
+        for (String line : printed.toString().split("\n"))
+            if (!line.isEmpty())
+                messages.add(line);
+        printed.reset();
+        return messages;
+    }
+
+    private TokenStream lex(char[] chars, int length, PrintStream out) {
+        Tokeniser tokeniser = new Tokeniser(new Scanner(chars, length), names);
+        tokeniser.setDiagnostics(out);
+        return TokenStream.readAll(tokeniser);
+    }
+
+    /*
+     * Lexes and parses the text of a segment on its own.
+     */
+    private Segment parse(char[] text) {
+        TokenStream tokens = lex(text, text.length, diagnostics);
+        Parser parser = new Parser(tokens);
+        parser.setDiagnostics(diagnostics);
+        parser.setTypes(types);
+        Program program = parser.parse();
+        return new Segment(text, tokens, program, messages());
+    }
+
+    /*
+     * Part of a message about a segment, between two offsets in it.
+     */
+    private static final class Problem {
+        final int offset;
+        final int end;
+        final String message;
+
+        Problem(int offset, int end, String message) {
+            this.offset = offset;
+            this.end = end;
+            this.message = message;
+        }
+    }
+
+    private static final class Segment {
+        final char[] text;
+        final int breaks;           // line breaks in the text
+        final int tail;             // characters after the last of them
+        final Program program;
+        final Kind kind;
+        final String signature;     // what the segment declares, spelt out, or null if it declares nothing
+        final boolean checkBody;    // whether it is a function whose body parsed, so can be analysed
+        final boolean closedByBrace;
+        final int firstEnd;         // where the first token ends
+        final String first;         // the first token, as the parser prints it
+        final TokenClass firstClass;
+        final int anchor, anchorEnd;    // the name declared, where semantic errors are reported
+        final List<Problem> syntax = new ArrayList<>();
+
+        String order;               // the message if it is declared out of order
+        List<String> declared = Collections.emptyList();    // what declaring it printed
+        List<String> body = Collections.emptyList();        // what analysing its body printed
+        int position = -1;          // the position of the function among those declared
+
+        Segment(char[] text, TokenStream tokens, Program program, List<String> messages) {
+            this.text = text;
+            this.program = program;
+
+            int breaks = 0, tail = 0;
+            for (int i = 0; i < text.length; i++) {
+                char c = text[i];
+                if (c == '\n' || c == '\r') {
+                    if (c == '\r' && i + 1 < text.length && text[i + 1] == '\n')
+                        i++;
+                    breaks++;
+                    tail = 0;
+                } else {
+                    tail++;
+                }
+            }
+            this.breaks = breaks;
+            this.tail = tail;
+
+            for (String message : messages) {
+                Matcher m = AT.matcher(message);
+                int offset = text.length;
+                if (m.find())
+                    offset = compilerOffset(Integer.parseInt(m.group(1)), Integer.parseInt(m.group(2)));
+                syntax.add(new Problem(offset, tokenEnd(tokens, offset), m.replaceFirst("")));
+            }
+
+            int size = tokens.size() - 1;   // not counting EOF
+            int open = -1, name = -1;
+            for (int t = 0; t < size && open < 0; t++) {
+                TokenClass tc = tokens.tokenClass(t);
+                if (tc == TokenClass.LPAR && name < 0 && t > 0)
+                    name = t - 1;
+                else if (tc == TokenClass.LBRA && t > 0 && tokens.tokenClass(t - 1) == TokenClass.RPAR)
+                    open = t;
+            }
+            if (name < 0)
+                for (int t = 0; t < size && name < 0; t++)
+                    if (tokens.tokenClass(t) == TokenClass.IDENTIFIER)
+                        name = t;
+            if (name < 0)
+                name = 0;
+            anchor = tokens.offset(name);
+            anchorEnd = Math.max(tokens.end(name), anchor);
+            firstEnd = size > 0 ? tokens.end(0) : text.length;
+            first = tokens.token(0).toString();
+            firstClass = tokens.tokenClass(0);
+            closedByBrace = size > 0 && tokens.tokenClass(size - 1) == TokenClass.RBRA;
+
+            // what it declares: only a declaration that parsed counts, or a function whose header did
+            int decls = program.structTypeDecls.size() + program.varDecls.size() + program.funDecls.size();
+            Kind kind = Kind.NONE;
+            int spelt = size;
+            boolean clean = syntax.isEmpty();
+            if (decls == 0 && size > 0 && tokens.tokenClass(0) == TokenClass.INCLUDE && clean) {
+                kind = Kind.INCLUDE;
+            } else if (decls == 1 && program.structTypeDecls.size() == 1 && clean) {
+                kind = Kind.STRUCT;
+            } else if (decls == 1 && program.varDecls.size() == 1 && clean) {
+                kind = Kind.VAR;
+            } else if (decls == 1 && program.funDecls.size() == 1 && open >= 0) {
+                int header = tokens.offset(open);
+                boolean headerParsed = true;
+                for (Problem p : syntax)
+                    headerParsed &= p.offset >= header;
+                if (headerParsed) {
+                    kind = Kind.FUN;
+                    spelt = open;
+                }
+            }
+            this.kind = kind;
+            this.checkBody = kind == Kind.FUN && clean;
+
+            if (kind == Kind.NONE) {
+                signature = null;
+            } else {
+                StringBuilder sb = new StringBuilder(kind.name());
+                for (int t = 0; t < spelt; t++) {
+                    String data = tokens.data(t);
+                    sb.append(' ').append(tokens.tokenClass(t).ordinal()).append(':')
+                            .append(data.length()).append(':').append(data);
+                }
+                signature = sb.toString();
+            }
+        }
+
+        List<Problem> problems() {
+            List<Problem> problems = new ArrayList<>(syntax);
+            if (order != null)
+                problems.add(new Problem(anchor, anchorEnd, order));
+            for (String message : declared)
+                problems.add(new Problem(anchor, anchorEnd, message));
+            for (String message : body)
+                problems.add(new Problem(anchor, anchorEnd, message));
+            return problems;
+        }
+
+        /*
+         * Returns the offset of a position the editor's way, relative to the segment's start.
+         */
+        int offset(int line, int character) {
+            int i = 0;
+            while (line > 0 && i < text.length) {
+                char c = text[i++];
+                if (c == '\r' && i < text.length && text[i] == '\n')
+                    i++;
+                if (c == '\n' || c == '\r')
+                    line--;
+            }
+            while (character > 0 && i < text.length && text[i] != '\n' && text[i] != '\r') {
+                i++;
+                character--;
+            }
+            return i;
+        }
+
+        /*
+         * Returns the position of offset the editor's way, as line << 32 | character,
+         * given the position at an offset before it.
+         */
+        long position(long at, int from, int offset) {
+            int line = (int) (at >>> 32);
+            int character = (int) at;
+            for (int i = from; i < offset; i++) {
+                char c = text[i];
+                if (c == '\r' && i + 1 < offset && text[i + 1] == '\n')
+                    i++;
+                if (c == '\n' || c == '\r') {
+                    line++;
+                    character = 0;
+                } else {
+                    character++;
+                }
+            }
+            return (long) line << 32 | character;
+        }
+
+        /*
+         * Returns the offset of a position the compiler's way, lines from 1 each broken
+         * by a '\n' or a '\r', and columns from 0.
+         */
+        private int compilerOffset(int line, int column) {
+            int i = 0;
+            for (int l = 1; l < line && i < text.length; i++)
+                if (text[i] == '\n' || text[i] == '\r')
+                    l++;
+            return Math.min(i + column, text.length);
+        }
+
+        /*
+         * Returns the end of the token starting at offset, or offset if none does.
+         */
+        private static int tokenEnd(TokenStream tokens, int offset) {
+            int lo = 0, hi = tokens.size() - 1;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (tokens.offset(mid) < offset)
+                    lo = mid + 1;
+                else
+                    hi = mid;
+            }
+            return tokens.offset(lo) == offset ? Math.max(tokens.end(lo), offset) : offset;
+        }
+    }
+}
@@ -0,0 +1,247 @@
+package lsp;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Just enough JSON for the language server protocol. Objects are read into maps, arrays into lists,
+ * numbers into Longs when they are whole and Doubles otherwise, and null into null; the same kinds
+ * of values, and Integers, can be written.
+ */
+final class Json {
+
+    private final String text;
+    private int pos;
+
+    private Json(String text) {
+        this.text = text;
+    }
+
+    /*
+     * Reads the value in text, failing with an IllegalArgumentException if it is not well formed.
+     */
+    static Object parse(String text) {
+        Json json = new Json(text);
+        Object value = json.value();
+        json.space();
+        if (json.pos != text.length())
+            throw json.error("trailing characters");
+        return value;
+    }
+
+    static String write(Object value) {
+        StringBuilder sb = new StringBuilder();
+        write(value, sb);
+        return sb.toString();
+    }
+
+    /*
+     * Builds an object from alternating keys and values.
+     */
+    static Map<String, Object> object(Object... keysAndValues) {
+        Map<String, Object> object = new LinkedHashMap<>();
+        for (int i = 0; i < keysAndValues.length; i += 2)
+            object.put((String) keysAndValues[i], keysAndValues[i + 1]);
+        return object;
+    }
+
+    private static void write(Object value, StringBuilder sb) {
+        if (value == null || value instanceof Boolean || value instanceof Number) {
+            sb.append(value);
+        } else if (value instanceof String) {
+            String s = (String) value;
+            sb.append('"');
+            for (int i = 0; i < s.length(); i++) {
+                char c = s.charAt(i);
+                switch (c) {
+                    case '"': sb.append("\\\""); break;
+                    case '\\': sb.append("\\\\"); break;
+                    case '\n': sb.append("\\n"); break;
+                    case '\r': sb.append("\\r"); break;
+                    case '\t': sb.append("\\t"); break;
+                    default:
+                        if (c < 0x20)
+                            sb.append(String.format("\\u%04x", (int) c));
+                        else
+                            sb.append(c);
+                }
+            }
+            sb.append('"');
+        } else if (value instanceof Map) {
+            sb.append('{');
+            Iterator<? extends Map.Entry<?, ?>> entries = ((Map<?, ?>) value).entrySet().iterator();
+            while (entries.hasNext()) {
+                Map.Entry<?, ?> e = entries.next();
+                write(e.getKey().toString(), sb);
+                sb.append(':');
+                write(e.getValue(), sb);
+                if (entries.hasNext())
+                    sb.append(',');
+            }
+            sb.append('}');
+        } else if (value instanceof List) {
+            sb.append('[');
+            Iterator<?> elements = ((List<?>) value).iterator();
+            while (elements.hasNext()) {
+                write(elements.next(), sb);
+                if (elements.hasNext())
+                    sb.append(',');
+            }
+            sb.append(']');
+        } else {
+            throw new IllegalArgumentException("cannot write a " + value.getClass().getName() + " as JSON");
+        }
+    }
+
+    private Object value() {
+        space();
+        if (pos == text.length())
+            throw error("value expected");
+        char c = text.charAt(pos);
+        switch (c) {
+            case '{': return object();
+            case '[': return array();
+            case '"': return string();
+            case 't': return literal("true", Boolean.TRUE);
+            case 'f': return literal("false", Boolean.FALSE);
+            case 'n': return literal("null", null);
+            default:
+                if (c == '-' || (c >= '0' && c <= '9'))
+                    return number();
+                throw error("unexpected character");
+        }
+    }
+
+    private Map<String, Object> object() {
+        Map<String, Object> object = new LinkedHashMap<>();
+        pos++;
+        space();
+        if (peek() == '}') {
+            pos++;
+            return object;
+        }
+        while (true) {
+            space();
+            if (peek() != '"')
+                throw error("name expected");
+            String name = string();
+            space();
+            expect(':');
+            object.put(name, value());
+            space();
+            if (peek() == '}') {
+                pos++;
+                return object;
+            }
+            expect(',');
+        }
+    }
+
+    private List<Object> array() {
+        List<Object> array = new ArrayList<>();
+        pos++;
+        space();
+        if (peek() == ']') {
+            pos++;
+            return array;
+        }
+        while (true) {
+            array.add(value());
+            space();
+            if (peek() == ']') {
+                pos++;
+                return array;
+            }
+            expect(',');
+        }
+    }
+
+    private String string() {
+        StringBuilder sb = new StringBuilder();
+        pos++;
+        while (true) {
+            if (pos >= text.length())
+                throw error("unterminated string");
+            char c = text.charAt(pos++);
+            if (c == '"')
+                return sb.toString();
+            if (c != '\\') {
+                sb.append(c);
+                continue;
+            }
+            if (pos >= text.length())
+                throw error("unterminated string");
+            c = text.charAt(pos++);
+            switch (c) {
+                case '"': case '\\': case '/': sb.append(c); break;
+                case 'b': sb.append('\b'); break;
+                case 'f': sb.append('\f'); break;
+                case 'n': sb.append('\n'); break;
+                case 'r': sb.append('\r'); break;
+                case 't': sb.append('\t'); break;
+                case 'u':
+                    if (pos + 4 > text.length())
+                        throw error("bad escape");
+                    try {
+                        sb.append((char) Integer.parseInt(text.substring(pos, pos + 4), 16));
+                    } catch (NumberFormatException e) {
+                        throw error("bad escape");
+                    }
+                    pos += 4;
+                    break;
+                default:
+                    throw error("bad escape");
+            }
+        }
+    }
+
+    private Object number() {
+        int start = pos;
+        boolean whole = true;
+        if (peek() == '-')
+            pos++;
+        while (pos < text.length()) {
+            char c = text.charAt(pos);
+            if (c == '.' || c == 'e' || c == 'E' || c == '+' || c == '-')
+                whole = false;
+            else if (c < '0' || c > '9')
+                break;
+            pos++;
+        }
+        String number = text.substring(start, pos);
+        try {
+            return whole ? (Object) Long.valueOf(number) : (Object) Double.valueOf(number);
+        } catch (NumberFormatException e) {
+            throw error("bad number");
+        }
+    }
+
+    private Object literal(String spelling, Object value) {
+        if (!text.startsWith(spelling, pos))
+            throw error("unexpected character");
+        pos += spelling.length();
+        return value;
+    }
+
+    private void space() {
+        while (pos < text.length() && Character.isWhitespace(text.charAt(pos)))
+            pos++;
+    }
+
+    private char peek() {
+        return pos < text.length() ? text.charAt(pos) : '\0';
+    }
+
+    private void expect(char c) {
+        if (peek() != c)
+            throw error("'" + c + "' expected");
+        pos++;
+    }
+
+    private IllegalArgumentException error(String message) {
+        return new IllegalArgumentException("malformed JSON at " + pos + ": " + message);
+    }
+}
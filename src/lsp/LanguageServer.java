@@ -0,0 +1,238 @@
+package lsp;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Serves diagnostics to an editor over the language server protocol, on standard input and output.
+ *
+ * Usage: java lsp.LanguageServer
+ *
+ * Open sources are kept as Documents, which apply the editor's changes incrementally, so that
+ * after a keystroke only the declaration typed in is lexed, parsed and analysed again. After every
+ * change the problems in the whole source are published. Only what diagnostics need is supported:
+ * opening, changing, either a range or the whole text at a time, and closing documents.
+ *
+ * Messages are read and written one at a time, each preceded by a Content-Length header.
+ */
+public class LanguageServer {
+
+    // JSON-RPC error codes
+    private static final int PARSE_ERROR = -32700;
+    private static final int INVALID_REQUEST = -32600;
+    private static final int METHOD_NOT_FOUND = -32601;
+    private static final int INTERNAL_ERROR = -32603;
+
+    private static final int INCREMENTAL_SYNC = 2;
+    private static final int SEVERITY_ERROR = 1;
+
+    private final InputStream in;
+    private final OutputStream out;
+    private final Map<String, Document> documents = new HashMap<>();
+    private boolean shutdown = false;
+
+    LanguageServer(InputStream in, OutputStream out) {
+        this.in = in;
+        this.out = out;
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 0) {
+            System.err.println("Usage: java "+LanguageServer.class.getName());
+            System.exit(-1);
+        }
+        LanguageServer server = new LanguageServer(new BufferedInputStream(System.in),
+                new BufferedOutputStream(System.out));
+        System.exit(server.serve());
+    }
+
+    /*
+     * Serves messages until told to exit or until the input ends. Returns the exit status the protocol
+     * asks for: 0 if the editor shut the server down first, 1 otherwise.
+     */
+    int serve() throws IOException {
+        while (true) {
+            String message;
+            try {
+                message = read();
+            } catch (EOFException e) {
+                return 1;
+            }
+
+            Object parsed;
+            try {
+                parsed = Json.parse(message);
+            } catch (IllegalArgumentException e) {
+                error(null, PARSE_ERROR, e.getMessage());
+                continue;
+            }
+            if (!(parsed instanceof Map)) {
+                error(null, INVALID_REQUEST, "a message must be an object");
+                continue;
+            }
+            @SuppressWarnings("unchecked")
+            Map<String, Object> request = (Map<String, Object>) parsed;
+            Object id = request.get("id");
+            Object method = request.get("method");
+            if (!(method instanceof String)) {
+                // a response to a request of ours; we make none
+                continue;
+            }
+            if (method.equals("exit"))
+                return shutdown ? 0 : 1;
+
+            try {
+                handle((String) method, id, request.get("params"));
+            } catch (RuntimeException e) {
+                // a malformed request, or a bug: either way it only concerns that request
+                if (id != null)
+                    error(id, INTERNAL_ERROR, String.valueOf(e));
+                else
+                    e.printStackTrace();
+            }
+        }
+    }
+
+    private void handle(String method, Object id, Object params) throws IOException {
+        switch (method) {
+            case "initialize":
+                respond(id, Json.object("capabilities", Json.object(
+                        "textDocumentSync", Json.object("openClose", true, "change", INCREMENTAL_SYNC))));
+                return;
+            case "shutdown":
+                shutdown = true;
+                respond(id, null);
+                return;
+            case "textDocument/didOpen": {
+                Map<?, ?> document = (Map<?, ?>) ((Map<?, ?>) params).get("textDocument");
+                String uri = (String) document.get("uri");
+                Document d = new Document((String) document.get("text"));
+                documents.put(uri, d);
+                publish(uri, d);
+                return;
+            }
+            case "textDocument/didChange": {
+                String uri = uri(params);
+                Document d = documents.get(uri);
+                if (d == null)
+                    return;
+                for (Object change : (List<?>) ((Map<?, ?>) params).get("contentChanges")) {
+                    Map<?, ?> c = (Map<?, ?>) change;
+                    Map<?, ?> range = (Map<?, ?>) c.get("range");
+                    String text = (String) c.get("text");
+                    if (range == null) {
+                        d.replace(text);
+                    } else {
+                        Map<?, ?> start = (Map<?, ?>) range.get("start");
+                        Map<?, ?> end = (Map<?, ?>) range.get("end");
+                        d.edit(number(start.get("line")), number(start.get("character")),
+                                number(end.get("line")), number(end.get("character")), text);
+                    }
+                }
+                publish(uri, d);
+                return;
+            }
+            case "textDocument/didClose": {
+                String uri = uri(params);
+                if (documents.remove(uri) != null)
+                    send(Json.object("jsonrpc", "2.0", "method", "textDocument/publishDiagnostics",
+                            "params", Json.object("uri", uri, "diagnostics", new ArrayList<>())));
+                return;
+            }
+            default:
+                // notifications we do not know of are ignored, as the protocol asks
+                if (id != null)
+                    error(id, METHOD_NOT_FOUND, "unknown method " + method);
+        }
+    }
+
+    private void publish(String uri, Document d) throws IOException {
+        List<Object> diagnostics = new ArrayList<>();
+        for (Document.Diagnostic diagnostic : d.getDiagnostics()) {
+            diagnostics.add(Json.object(
+                    "range", Json.object(
+                            "start", Json.object("line", diagnostic.line, "character", diagnostic.character),
+                            "end", Json.object("line", diagnostic.endLine, "character", diagnostic.endCharacter)),
+                    "severity", SEVERITY_ERROR,
+                    "source", "minic",
+                    "message", diagnostic.message));
+        }
+        send(Json.object("jsonrpc", "2.0", "method", "textDocument/publishDiagnostics",
+                "params", Json.object("uri", uri, "diagnostics", diagnostics)));
+    }
+
+    private static String uri(Object params) {
+        return (String) ((Map<?, ?>) ((Map<?, ?>) params).get("textDocument")).get("uri");
+    }
+
+    private static int number(Object value) {
+        return ((Number) value).intValue();
+    }
+
+    private void respond(Object id, Object result) throws IOException {
+        Map<String, Object> response = Json.object("jsonrpc", "2.0", "id", id);
+        response.put("result", result);
+        send(response);
+    }
+
+    private void error(Object id, int code, String message) throws IOException {
+        send(Json.object("jsonrpc", "2.0", "id", id, "error", Json.object("code", code, "message", message)));
+    }
+
+    /*
+     * Reads the next message, failing with an EOFException if the input ends first.
+     */
+    private String read() throws IOException {
+        int length = -1;
+        while (true) {
+            String header = line();
+            if (header.isEmpty())
+                break;
+            int colon = header.indexOf(':');
+            if (colon > 0 && header.substring(0, colon).trim().equalsIgnoreCase("Content-Length"))
+                length = Integer.parseInt(header.substring(colon + 1).trim());
+        }
+        if (length < 0)
+            throw new IOException("message without a Content-Length header");
+
+        byte[] content = new byte[length];
+        for (int n = 0; n < length; ) {
+            int r = in.read(content, n, length - n);
+            if (r < 0)
+                throw new EOFException();
+            n += r;
+        }
+        return new String(content, StandardCharsets.UTF_8);
+    }
+
+    private String line() throws IOException {
+        ByteArrayOutputStream line = new ByteArrayOutputStream();
+        while (true) {
+            int b = in.read();
+            if (b < 0)
+                throw new EOFException();
+            if (b == '\n')
+                break;
+            if (b != '\r')
+                line.write(b);
+        }
+        return new String(line.toByteArray(), StandardCharsets.US_ASCII);
+    }
+
+    private void send(Object message) throws IOException {
+        byte[] content = Json.write(message).getBytes(StandardCharsets.UTF_8);
+        out.write(("Content-Length: " + content.length + "\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+        out.write(content);
+        out.flush();
+    }
+}
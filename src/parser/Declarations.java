@@ -0,0 +1,20 @@
+package parser;
+
+import ast.FunDecl;
+import ast.StructTypeDecl;
+import ast.VarDecl;
+
+/**
+ * Takes the top-level declarations of a program one at a time, in source order, as Parser completes
+ * them: the structs, then the global variables, then the functions. A declaration is handed over
+ * even when parsing it reported an error, as it is added to the Program otherwise; the parser keeps
+ * no reference to it once it has been.
+ */
+public interface Declarations {
+
+    void struct(StructTypeDecl std);
+
+    void global(VarDecl vd);
+
+    void function(FunDecl fd);
+}
@@ -0,0 +1,452 @@
+package parser;
+
+import lexer.Token.TokenClass;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Generates the tables of LL1Parser from a grammar written in the notation of grammar/grammar.txt.
+ *
+ * The grammar is left-factored, its FIRST and FOLLOW sets are computed, and the resulting
+ * parse table is written out as Java source together with the productions it refers to.
+ *
+ * Usage: java -cp bin parser.LL1Generator grammar/ll1_grammar.txt src/parser/LL1Tables.java
+ */
+public class LL1Generator {
+
+    // symbols are kept as tagged strings while the grammar is transformed
+    private static final String T = "T:", N = "N:", A = "A:";
+
+    // nonterminal -> alternatives, in the order they were written
+    private final Map<String, List<List<String>>> rules = new LinkedHashMap<>();
+    private final List<String> actions = new ArrayList<>();
+    private final List<String> conflicts = new ArrayList<>();
+
+    private final Map<String, Set<String>> first = new HashMap<>();
+    private final Map<String, Set<String>> follow = new HashMap<>();
+    private final Set<String> nullable = new LinkedHashSet<>();
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.out.println("Usage: java "+LL1Generator.class.getName()+" grammarfile outputfile");
+            System.exit(-1);
+        }
+        String grammar = new String(Files.readAllBytes(Paths.get(args[0])), StandardCharsets.UTF_8);
+        LL1Generator generator = new LL1Generator();
+        try {
+            generator.read(grammar);
+        } catch (IllegalArgumentException e) {
+            System.out.println(args[0] + ": " + e.getMessage());
+            System.exit(-1);
+        }
+        generator.leftFactor();
+        generator.computeSets();
+        try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(Paths.get(args[1]), StandardCharsets.UTF_8))) {
+            generator.emit(out, Paths.get(args[0]).toString().replace('\\', '/'));
+        }
+        for (String c : generator.conflicts)
+            System.out.println("conflict: " + c);
+        System.out.println(generator.rules.size() + " nonterminals, " + generator.productionCount() + " productions, "
+                + generator.conflicts.size() + " conflicts resolved by order");
+    }
+
+    // ---- reading the grammar ----
+
+    private List<String> words;
+    private int pos;
+    private int groups = 0;
+
+    /*
+     * Reads rules of the form  name ::= alternative | alternative ...
+     * where each alternative is a sequence of "spelling", TOKEN, nonterminal, {action},
+     * ( grouped | alternatives ), or epsilon (written e or as the Greek letter) for the empty sequence.
+     */
+    void read(String text) {
+        words = split(text);
+        pos = 0;
+        while (pos < words.size()) {
+            String name = words.get(pos++);
+            if (!isName(name) || pos >= words.size() || !isDefines(words.get(pos)))
+                throw new IllegalArgumentException("expected a rule at '" + name + "'");
+            pos++;
+            if (rules.containsKey(N + name))
+                throw new IllegalArgumentException("rule " + name + " defined twice");
+            rules.put(N + name, new ArrayList<>());
+            rules.get(N + name).addAll(readAlternatives(name));
+        }
+        for (List<List<String>> alts : rules.values())
+            for (List<String> alt : alts)
+                for (String s : alt)
+                    if (s.startsWith(N) && !rules.containsKey(s))
+                        throw new IllegalArgumentException("nonterminal " + s.substring(2) + " is never defined");
+    }
+
+    private List<List<String>> readAlternatives(String owner) {
+        List<List<String>> alts = new ArrayList<>();
+        List<String> alt = new ArrayList<>();
+        while (pos < words.size()) {
+            String w = words.get(pos);
+            // the next rule starts with its name and ::=
+            if (pos + 1 < words.size() && isName(w) && isDefines(words.get(pos + 1)))
+                break;
+            pos++;
+            if (w.equals("|")) {
+                alts.add(alt);
+                alt = new ArrayList<>();
+            } else if (w.equals(")")) {
+                pos--;
+                break;
+            } else if (w.equals("(")) {
+                // a group becomes a nonterminal of its own
+                String group = N + owner + "_group" + (++groups);
+                List<List<String>> groupAlts = readAlternatives(owner);
+                if (pos >= words.size() || !words.get(pos).equals(")"))
+                    throw new IllegalArgumentException("missing ) in rule " + owner);
+                pos++;
+                rules.put(group, groupAlts);
+                alt.add(group);
+            } else if (w.equals("\u03b5") || w.equals("e")) {
+                // nothing to add
+            } else if (w.startsWith("\"")) {
+                alt.add(T + spelt(w.substring(1, w.length() - 1)).name());
+            } else if (w.startsWith("{")) {
+                String action = w.substring(1, w.length() - 1);
+                if (!actions.contains(action))
+                    actions.add(action);
+                alt.add(A + action);
+            } else if (isToken(w)) {
+                alt.add(T + tokenClass(w).name());
+            } else if (isName(w)) {
+                alt.add(N + w);
+            } else {
+                throw new IllegalArgumentException("unexpected '" + w + "' in rule " + owner);
+            }
+        }
+        alts.add(alt);
+        return alts;
+    }
+
+    private static List<String> split(String text) {
+        List<String> words = new ArrayList<>();
+        int i = 0;
+        while (i < text.length()) {
+            char c = text.charAt(i);
+            if (Character.isWhitespace(c)) {
+                i++;
+            } else if (c == '#') {
+                while (i < text.length() && text.charAt(i) != '\n') i++;
+            } else if (c == '"' || c == '{') {
+                int end = text.indexOf(c == '"' ? '"' : '}', i + 1);
+                if (end < 0)
+                    throw new IllegalArgumentException("unterminated " + c);
+                words.add(text.substring(i, end + 1));
+                i = end + 1;
+            } else if (c == '|' || c == '(' || c == ')') {
+                words.add(String.valueOf(c));
+                i++;
+            } else {
+                int start = i;
+                while (i < text.length() && !Character.isWhitespace(text.charAt(i))
+                        && "|()\"{#".indexOf(text.charAt(i)) < 0)
+                    i++;
+                words.add(text.substring(start, i));
+            }
+        }
+        return words;
+    }
+
+    private static boolean isDefines(String w) {
+        // grammar.txt also writes ::
+        return w.equals("::=") || w.equals("::");
+    }
+
+    private static boolean isName(String w) {
+        if (w.isEmpty() || !(Character.isLetter(w.charAt(0)) || w.charAt(0) == '_'))
+            return false;
+        for (char c : w.toCharArray())
+            if (!Character.isLetterOrDigit(c) && c != '_')
+                return false;
+        return true;
+    }
+
+    private static boolean isToken(String w) {
+        return isName(w) && w.equals(w.toUpperCase());
+    }
+
+    private static TokenClass tokenClass(String name) {
+        if (name.equals("IDENT"))
+            return TokenClass.IDENTIFIER;
+        try {
+            return TokenClass.valueOf(name);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("unknown token " + name);
+        }
+    }
+
+    private static TokenClass spelt(String spelling) {
+        for (TokenClass tc : TokenClass.values())
+            if (spelling.equals(tc.spelling))
+                return tc;
+        throw new IllegalArgumentException("no token is spelt \"" + spelling + "\"");
+    }
+
+    // ---- left factoring ----
+
+    /*
+     * Replaces alternatives of a nonterminal that start with the same symbols by a single one,
+     * followed by a new nonterminal for the rest of each, until no two alternatives share a first symbol.
+     */
+    void leftFactor() {
+        List<String> work = new ArrayList<>(rules.keySet());
+        while (!work.isEmpty()) {
+            String nt = work.remove(work.size() - 1);
+            List<List<String>> alts = rules.get(nt);
+            int factored = 0;
+            boolean changed = true;
+            while (changed) {
+                changed = false;
+                for (int i = 0; i < alts.size() && !changed; i++) {
+                    if (alts.get(i).isEmpty())
+                        continue;
+                    List<Integer> same = new ArrayList<>();
+                    same.add(i);
+                    for (int j = i + 1; j < alts.size(); j++)
+                        if (!alts.get(j).isEmpty() && alts.get(j).get(0).equals(alts.get(i).get(0)))
+                            same.add(j);
+                    if (same.size() < 2)
+                        continue;
+
+                    int prefix = commonPrefix(alts, same);
+                    String rest = nt + "_" + (++factored);
+                    while (rules.containsKey(rest))
+                        rest = rest + "_";
+                    List<List<String>> restAlts = new ArrayList<>();
+                    for (int j : same)
+                        restAlts.add(new ArrayList<>(alts.get(j).subList(prefix, alts.get(j).size())));
+                    List<String> merged = new ArrayList<>(alts.get(i).subList(0, prefix));
+                    merged.add(rest);
+
+                    for (int k = same.size() - 1; k > 0; k--)
+                        alts.remove((int) same.get(k));
+                    alts.set(i, merged);
+                    rules.put(rest, restAlts);
+                    work.add(rest);
+                    changed = true;
+                }
+            }
+        }
+    }
+
+    private static int commonPrefix(List<List<String>> alts, List<Integer> which) {
+        int prefix = 0;
+        while (true) {
+            List<String> a = alts.get(which.get(0));
+            if (prefix >= a.size())
+                return prefix;
+            for (int j : which) {
+                List<String> b = alts.get(j);
+                if (prefix >= b.size() || !b.get(prefix).equals(a.get(prefix)))
+                    return prefix;
+            }
+            prefix++;
+        }
+    }
+
+    // ---- FIRST and FOLLOW ----
+
+    void computeSets() {
+        for (String nt : rules.keySet()) {
+            first.put(nt, new LinkedHashSet<>());
+            follow.put(nt, new LinkedHashSet<>());
+        }
+        follow.get(rules.keySet().iterator().next()).add(T + TokenClass.EOF.name());
+
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (Map.Entry<String, List<List<String>>> rule : rules.entrySet()) {
+                String nt = rule.getKey();
+                for (List<String> alt : rule.getValue()) {
+                    Set<String> f = new LinkedHashSet<>();
+                    boolean empty = firstOf(alt, 0, f);
+                    changed |= first.get(nt).addAll(f);
+                    if (empty)
+                        changed |= nullable.add(nt);
+
+                    // whatever can follow the rest of the alternative can follow each nonterminal in it
+                    for (int i = 0; i < alt.size(); i++) {
+                        String s = alt.get(i);
+                        if (!s.startsWith(N))
+                            continue;
+                        Set<String> after = new LinkedHashSet<>();
+                        if (firstOf(alt, i + 1, after))
+                            after.addAll(follow.get(nt));
+                        changed |= follow.get(s).addAll(after);
+                    }
+                }
+            }
+        }
+    }
+
+    // adds the FIRST set of alt[from..] to f, returning whether alt[from..] can be empty
+    private boolean firstOf(List<String> alt, int from, Set<String> f) {
+        for (int i = from; i < alt.size(); i++) {
+            String s = alt.get(i);
+            if (s.startsWith(A))
+                continue;
+            if (s.startsWith(T)) {
+                f.add(s);
+                return false;
+            }
+            f.addAll(first.get(s));
+            if (!nullable.contains(s))
+                return false;
+        }
+        return true;
+    }
+
+    // ---- the table ----
+
+    private int productionCount() {
+        int n = 0;
+        for (List<List<String>> alts : rules.values())
+            n += alts.size();
+        return n;
+    }
+
+    void emit(PrintWriter out, String grammarName) {
+        List<String> nonterminals = new ArrayList<>(rules.keySet());
+
+        // fill the table, the earlier alternative winning any conflict
+        List<String> entries = new ArrayList<>();
+        int production = 0;
+        Map<String, Integer> chosen = new HashMap<>();
+        for (String nt : nonterminals) {
+            for (List<String> alt : rules.get(nt)) {
+                Set<String> lookahead = new LinkedHashSet<>();
+                if (firstOf(alt, 0, lookahead))
+                    lookahead.addAll(follow.get(nt));
+                for (String t : lookahead) {
+                    String key = nt + " " + t;
+                    Integer old = chosen.get(key);
+                    if (old != null) {
+                        conflicts.add(nt.substring(2) + " on " + t.substring(2) + ": production " + old
+                                + " is chosen over " + production);
+                        continue;
+                    }
+                    chosen.put(key, production);
+                    entries.add("        entry(" + nonterminals.indexOf(nt) + ", TokenClass." + t.substring(2) + ", " + production + ");");
+                }
+                production++;
+            }
+        }
+
+        out.println("package parser;");
+        out.println();
+        out.println("import lexer.Token.TokenClass;");
+        out.println();
+        out.println("/**");
+        out.println(" * Generated by parser.LL1Generator from " + grammarName + ", do not edit.");
+        out.println(" *");
+        out.println(" * Symbols are ints: token classes by ordinal, then nonterminals, then actions.");
+        if (!conflicts.isEmpty()) {
+            out.println(" *");
+            out.println(" * Conflicts resolved in favour of the earlier alternative:");
+            for (String c : conflicts)
+                out.println(" *   " + c);
+        }
+        out.println(" */");
+        out.println("final class LL1Tables {");
+        out.println();
+        out.println("    static final int TOKENS = TokenClass.values().length;");
+        out.println();
+        out.println("    static final String[] NONTERMINALS = {");
+        for (String nt : nonterminals)
+            out.println("        \"" + nt.substring(2) + "\",");
+        out.println("    };");
+        out.println();
+        out.println("    static final String[] ACTIONS = {");
+        for (String a : actions)
+            out.println("        \"" + a + "\",");
+        out.println("    };");
+        out.println();
+        out.println("    // the symbol of " + nonterminals.get(0).substring(2));
+        out.println("    static final int START = TOKENS;");
+        out.println();
+        out.println("    // right-hand side of each production");
+        out.println("    static final int[][] PRODUCTIONS = {");
+        production = 0;
+        for (String nt : nonterminals) {
+            for (List<String> alt : rules.get(nt)) {
+                StringBuilder comment = new StringBuilder();
+                StringBuilder code = new StringBuilder();
+                for (String s : alt) {
+                    comment.append(' ').append(show(s));
+                    if (code.length() > 0)
+                        code.append(", ");
+                    if (s.startsWith(T))
+                        code.append("t(TokenClass.").append(s.substring(2)).append(')');
+                    else if (s.startsWith(N))
+                        code.append("n(").append(nonterminals.indexOf(s)).append(')');
+                    else
+                        code.append("a(").append(actions.indexOf(s.substring(2))).append(')');
+                }
+                if (alt.isEmpty())
+                    comment.append(" (empty)");
+                out.println("        // " + production + ": " + nt.substring(2) + " ::=" + comment);
+                out.println(code.length() == 0 ? "        { }," : "        { " + code + " },");
+                production++;
+            }
+        }
+        out.println("    };");
+        out.println();
+        out.println("    // nonterminal * TOKENS + token class ordinal -> production, or -1 when the token cannot come next");
+        out.println("    static final int[] TABLE = new int[NONTERMINALS.length * TOKENS];");
+        out.println("    static {");
+        out.println("        java.util.Arrays.fill(TABLE, -1);");
+        for (String e : entries)
+            out.println(e);
+        out.println("    }");
+        out.println();
+        out.println("    private static int t(TokenClass tc) {");
+        out.println("        return tc.ordinal();");
+        out.println("    }");
+        out.println();
+        out.println("    private static int n(int nonterminal) {");
+        out.println("        return TOKENS + nonterminal;");
+        out.println("    }");
+        out.println();
+        out.println("    private static int a(int action) {");
+        out.println("        return TOKENS + NONTERMINALS.length + action;");
+        out.println("    }");
+        out.println();
+        out.println("    private static void entry(int nonterminal, TokenClass tc, int production) {");
+        out.println("        TABLE[nonterminal * TOKENS + tc.ordinal()] = production;");
+        out.println("    }");
+        out.println();
+        out.println("    private LL1Tables() {");
+        out.println("    }");
+        out.println("}");
+    }
+
+    private static String show(String s) {
+        if (s.startsWith(T)) {
+            TokenClass tc = TokenClass.valueOf(s.substring(2));
+            return tc.spelling != null ? "\"" + tc.spelling + "\"" : tc.name();
+        }
+        if (s.startsWith(A))
+            return "{" + s.substring(2) + "}";
+        return s.substring(2);
+    }
+}
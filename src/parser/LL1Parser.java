@@ -0,0 +1,274 @@
+package parser;
+
+import ast.*;
+
+import lexer.Token;
+import lexer.TokenStream;
+import lexer.Tokeniser;
+import lexer.Token.TokenClass;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static parser.LL1Tables.*;
+
+/**
+ * A table-driven LL(1) parser, running the tables that LL1Generator builds from grammar/ll1_grammar.txt.
+ *
+ * The parse is a single loop over an explicit stack of grammar symbols, so it never recurses.
+ * Actions in the grammar build the same AST as Parser, on a stack of values.
+ * Unlike Parser, it stops at the first syntax error.
+ */
+public class LL1Parser implements ProgramParser {
+
+    // what each action of the grammar does
+    private enum Action {
+        LIST, ADD, ADD2, ADD3, POP, NULL,
+        PROGRAM, STRUCTDECL, FUNDECL, VARDECL, ARRAY,
+        INT, CHAR, VOID, STRUCT, POINTER,
+        BLOCK, WHILE, IF, IFELSE, RETURN, EXPRSTMT, ASSIGN,
+        BINOP, NEG, SIZEOF, VALUEAT, TYPECAST, VAR, FUNCALL, INTLITERAL, CHRLITERAL, STRLITERAL,
+        ARRAYACCESS, FIELDACCESS
+    }
+
+    private static final Action[] ACTION_KINDS = new Action[ACTIONS.length];
+    private static final Op[] ACTION_OPS = new Op[ACTIONS.length];
+    static {
+        for (int i = 0; i < ACTIONS.length; i++) {
+            // binary operators are named after their Op
+            try {
+                ACTION_OPS[i] = Op.valueOf(ACTIONS[i]);
+                ACTION_KINDS[i] = Action.BINOP;
+            } catch (IllegalArgumentException e) {
+                ACTION_KINDS[i] = Action.valueOf(ACTIONS[i].toUpperCase());
+            }
+        }
+    }
+
+    // tokens whose text is pushed onto the value stack
+    private static final boolean[] HAS_DATA = new boolean[TOKENS];
+    static {
+        HAS_DATA[TokenClass.IDENTIFIER.ordinal()] = true;
+        HAS_DATA[TokenClass.INT_LITERAL.ordinal()] = true;
+        HAS_DATA[TokenClass.CHAR_LITERAL.ordinal()] = true;
+        HAS_DATA[TokenClass.STRING_LITERAL.ordinal()] = true;
+    }
+
+    private static final TokenClass[] CLASSES = TokenClass.values();
+
+    private final TokenStream tokens;
+    private int token = 0;
+
+    private int[] stack = new int[256];
+    private final List<Object> values = new ArrayList<>();
+
+    private int error = 0;
+    private PrintStream diagnostics = System.out;
+    private Types types = new Types();
+
+    public LL1Parser(Tokeniser tokeniser) {
+        this(new TokenStream(tokeniser));
+    }
+
+    public LL1Parser(TokenStream tokens) {
+        this.tokens = tokens;
+    }
+
+    public int getErrorCount() {
+        return error;
+    }
+
+    public void setDiagnostics(PrintStream out) {
+        this.diagnostics = out;
+    }
+
+    public void setTypes(Types types) {
+        this.types = types;
+    }
+
+    /*
+     * Returns the program, or null after a syntax error.
+     */
+    public Program parse() {
+        int sp = 0;
+        stack[sp++] = START;
+        int lookahead = tokens.tokenClass(token).ordinal();
+
+        while (sp > 0) {
+            int symbol = stack[--sp];
+            if (symbol < TOKENS) {
+                if (symbol != lookahead) {
+                    error(CLASSES[symbol]);
+                    return null;
+                }
+                if (HAS_DATA[symbol])
+                    values.add(tokens.data(token));
+                token++;
+                tokens.release(token);
+                lookahead = tokens.tokenClass(token).ordinal();
+            } else if (symbol < TOKENS + NONTERMINALS.length) {
+                int nonterminal = symbol - TOKENS;
+                int production = TABLE[nonterminal * TOKENS + lookahead];
+                if (production < 0) {
+                    error(expected(nonterminal));
+                    return null;
+                }
+                int[] rhs = PRODUCTIONS[production];
+                if (sp + rhs.length > stack.length)
+                    stack = Arrays.copyOf(stack, Math.max(stack.length * 2, sp + rhs.length));
+                for (int i = rhs.length - 1; i >= 0; i--)
+                    stack[sp++] = rhs[i];
+            } else {
+                act(symbol - TOKENS - NONTERMINALS.length);
+            }
+        }
+        return (Program) values.get(0);
+    }
+
+    private static TokenClass[] expected(int nonterminal) {
+        List<TokenClass> expected = new ArrayList<>();
+        for (TokenClass tc : CLASSES)
+            if (TABLE[nonterminal * TOKENS + tc.ordinal()] >= 0)
+                expected.add(tc);
+        return expected.toArray(new TokenClass[0]);
+    }
+
+    private void error(TokenClass... expected) {
+        StringBuilder sb = new StringBuilder();
+        String sep = "";
+        for (TokenClass e : expected) {
+            sb.append(sep);
+            sb.append(e);
+            sep = "|";
+        }
+        Token t = tokens.token(token);
+        diagnostics.println("Parsing error: expected ("+sb+") found ("+t+") at "+t.position);
+        error++;
+    }
+
+    private Object pop() {
+        return values.remove(values.size() - 1);
+    }
+
+    private void push(Object value) {
+        values.add(value);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void act(int action) {
+        switch (ACTION_KINDS[action]) {
+            case LIST: push(new ArrayList<>()); break;
+            case ADD:  { Object v = pop(); ((List<Object>) values.get(values.size() - 1)).add(v); break; }
+            case ADD2: { Object v = pop(); ((List<Object>) values.get(values.size() - 2)).add(v); break; }
+            case ADD3: { Object v = pop(); ((List<Object>) values.get(values.size() - 3)).add(v); break; }
+            case POP:  pop(); break;
+            case NULL: push(null); break;
+
+            case PROGRAM: {
+                List<FunDecl> fds = (List<FunDecl>) pop();
+                List<VarDecl> vds = (List<VarDecl>) pop();
+                List<StructTypeDecl> stds = (List<StructTypeDecl>) pop();
+                push(new Program(stds, vds, fds));
+                break;
+            }
+            case STRUCTDECL: {
+                List<VarDecl> vds = (List<VarDecl>) pop();
+                push(new StructTypeDecl((StructType) pop(), vds));
+                break;
+            }
+            case FUNDECL: {
+                Block block = (Block) pop();
+                List<VarDecl> params = (List<VarDecl>) pop();
+                String name = (String) pop();
+                push(new FunDecl((Type) pop(), name, params, block));
+                break;
+            }
+            case VARDECL: {
+                String name = (String) pop();
+                push(new VarDecl((Type) pop(), name));
+                break;
+            }
+            case ARRAY: {
+                int size = Integer.valueOf((String) pop());
+                String name = (String) pop();
+                push(new VarDecl(ArrayType.of((Type) pop(), size), name));
+                break;
+            }
+
+            case INT:     push(BaseType.INT); break;
+            case CHAR:    push(BaseType.CHAR); break;
+            case VOID:    push(BaseType.VOID); break;
+            case STRUCT:  push(types.struct((String) pop())); break;
+            case POINTER: push(PointerType.to((Type) pop())); break;
+
+            case BLOCK: {
+                List<Stmt> stmts = (List<Stmt>) pop();
+                push(new Block((List<VarDecl>) pop(), stmts));
+                break;
+            }
+            case WHILE: {
+                Stmt stmt = (Stmt) pop();
+                push(new While((Expr) pop(), stmt));
+                break;
+            }
+            case IF: {
+                Stmt stmt1 = (Stmt) pop();
+                push(new If((Expr) pop(), stmt1, null));
+                break;
+            }
+            case IFELSE: {
+                Stmt stmt2 = (Stmt) pop();
+                Stmt stmt1 = (Stmt) pop();
+                push(new If((Expr) pop(), stmt1, stmt2));
+                break;
+            }
+            case RETURN:   push(new Return((Expr) pop())); break;
+            case EXPRSTMT: push(new ExprStmt((Expr) pop())); break;
+            case ASSIGN: {
+                Expr rhs = (Expr) pop();
+                push(new Assign((Expr) pop(), rhs));
+                break;
+            }
+
+            case BINOP: {
+                Expr rhs = (Expr) pop();
+                push(new BinOp(ACTION_OPS[action], (Expr) pop(), rhs));
+                break;
+            }
+            case NEG:     push(new BinOp(Op.SUB, new IntLiteral(0), (Expr) pop())); break;
+            case SIZEOF:  push(new SizeOfExpr((Type) pop())); break;
+            case VALUEAT: push(new ValueAtExpr((Expr) pop())); break;
+            case TYPECAST: {
+                Expr exp = (Expr) pop();
+                push(new TypecastExpr((Type) pop(), exp));
+                break;
+            }
+            case VAR: push(new VarExpr((String) pop())); break;
+            case FUNCALL: {
+                List<Expr> args = (List<Expr>) pop();
+                push(new FunCallExpr((String) pop(), args));
+                break;
+            }
+            case INTLITERAL: push(new IntLiteral(Integer.valueOf((String) pop()))); break;
+            case CHRLITERAL: {
+                String c = (String) pop();
+                if (c.charAt(0) == '\\') push(new ChrLiteral(c.charAt(1), true));
+                else push(new ChrLiteral(c.charAt(0)));
+                break;
+            }
+            case STRLITERAL: push(new StrLiteral((String) pop())); break;
+            case ARRAYACCESS: {
+                Expr idx = (Expr) pop();
+                push(new ArrayAccessExpr((Expr) pop(), idx));
+                break;
+            }
+            case FIELDACCESS: {
+                String field = (String) pop();
+                push(new FieldAccessExpr((Expr) pop(), field));
+                break;
+            }
+        }
+    }
+}
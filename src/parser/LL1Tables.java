@@ -0,0 +1,631 @@
+package parser;
+
+import lexer.Token.TokenClass;
+
+/**
+ * Generated by parser.LL1Generator from grammar/ll1_grammar.txt, do not edit.
+ *
+ * Symbols are ints: token classes by ordinal, then nonterminals, then actions.
+ *
+ * Conflicts resolved in favour of the earlier alternative:
+ *   elseopt on ELSE: production 39 is chosen over 40
+ */
+final class LL1Tables {
+
+    static final int TOKENS = TokenClass.values().length;
+
+    static final String[] NONTERMINALS = {
+        "program",
+        "include",
+        "structdecls",
+        "fields",
+        "decl",
+        "vardecls",
+        "vardeclrest",
+        "fundecls",
+        "type",
+        "basetype",
+        "typeopt",
+        "params",
+        "paramsrep",
+        "block",
+        "localvars",
+        "stmtrep",
+        "stmt",
+        "stmtrest",
+        "elseopt",
+        "expopt",
+        "exp",
+        "opsA",
+        "expA",
+        "opsB",
+        "expB",
+        "opsC",
+        "expC",
+        "opsD",
+        "expD",
+        "opsE",
+        "expE",
+        "opsF",
+        "expF",
+        "opsH",
+        "arglist",
+        "argrep",
+        "expF_1",
+        "expF_2",
+        "structdecls_1",
+    };
+
+    static final String[] ACTIONS = {
+        "list",
+        "program",
+        "pop",
+        "struct",
+        "add",
+        "structdecl",
+        "add3",
+        "add2",
+        "fundecl",
+        "vardecl",
+        "array",
+        "int",
+        "char",
+        "void",
+        "pointer",
+        "block",
+        "while",
+        "return",
+        "exprstmt",
+        "assign",
+        "ifelse",
+        "if",
+        "null",
+        "OR",
+        "AND",
+        "EQ",
+        "NE",
+        "LT",
+        "GT",
+        "LE",
+        "GE",
+        "ADD",
+        "SUB",
+        "MUL",
+        "DIV",
+        "MOD",
+        "neg",
+        "sizeof",
+        "valueat",
+        "typecast",
+        "var",
+        "funcall",
+        "intliteral",
+        "chrliteral",
+        "strliteral",
+        "arrayaccess",
+        "fieldaccess",
+    };
+
+    // the symbol of program
+    static final int START = TOKENS;
+
+    // right-hand side of each production
+    static final int[][] PRODUCTIONS = {
+        // 0: program ::= include {list} {list} {list} structdecls EOF {program}
+        { n(1), a(0), a(0), a(0), n(2), t(TokenClass.EOF), a(1) },
+        // 1: include ::= "#include" STRING_LITERAL {pop} include
+        { t(TokenClass.INCLUDE), t(TokenClass.STRING_LITERAL), a(2), n(1) },
+        // 2: include ::= (empty)
+        { },
+        // 3: structdecls ::= "struct" IDENTIFIER {struct} structdecls_1
+        { t(TokenClass.STRUCT), t(TokenClass.IDENTIFIER), a(3), n(38) },
+        // 4: structdecls ::= basetype typeopt IDENTIFIER decl
+        { n(9), n(10), t(TokenClass.IDENTIFIER), n(4) },
+        // 5: structdecls ::= (empty)
+        { },
+        // 6: fields ::= type IDENTIFIER vardeclrest {add} fields
+        { n(8), t(TokenClass.IDENTIFIER), n(6), a(4), n(3) },
+        // 7: fields ::= (empty)
+        { },
+        // 8: decl ::= vardeclrest {add2} vardecls
+        { n(6), a(7), n(5) },
+        // 9: decl ::= "(" {list} params ")" block {fundecl} {add} fundecls
+        { t(TokenClass.LPAR), a(0), n(11), t(TokenClass.RPAR), n(13), a(8), a(4), n(7) },
+        // 10: vardecls ::= type IDENTIFIER decl
+        { n(8), t(TokenClass.IDENTIFIER), n(4) },
+        // 11: vardecls ::= (empty)
+        { },
+        // 12: vardeclrest ::= ";" {vardecl}
+        { t(TokenClass.SC), a(9) },
+        // 13: vardeclrest ::= "[" INT_LITERAL "]" ";" {array}
+        { t(TokenClass.LSBR), t(TokenClass.INT_LITERAL), t(TokenClass.RSBR), t(TokenClass.SC), a(10) },
+        // 14: fundecls ::= type IDENTIFIER "(" {list} params ")" block {fundecl} {add} fundecls
+        { n(8), t(TokenClass.IDENTIFIER), t(TokenClass.LPAR), a(0), n(11), t(TokenClass.RPAR), n(13), a(8), a(4), n(7) },
+        // 15: fundecls ::= (empty)
+        { },
+        // 16: type ::= basetype typeopt
+        { n(9), n(10) },
+        // 17: type ::= "struct" IDENTIFIER {struct} typeopt
+        { t(TokenClass.STRUCT), t(TokenClass.IDENTIFIER), a(3), n(10) },
+        // 18: basetype ::= "int" {int}
+        { t(TokenClass.INT), a(11) },
+        // 19: basetype ::= "char" {char}
+        { t(TokenClass.CHAR), a(12) },
+        // 20: basetype ::= "void" {void}
+        { t(TokenClass.VOID), a(13) },
+        // 21: typeopt ::= "*" {pointer}
+        { t(TokenClass.ASTERIX), a(14) },
+        // 22: typeopt ::= (empty)
+        { },
+        // 23: params ::= type IDENTIFIER {vardecl} {add} paramsrep
+        { n(8), t(TokenClass.IDENTIFIER), a(9), a(4), n(12) },
+        // 24: params ::= (empty)
+        { },
+        // 25: paramsrep ::= "," type IDENTIFIER {vardecl} {add} paramsrep
+        { t(TokenClass.COMMA), n(8), t(TokenClass.IDENTIFIER), a(9), a(4), n(12) },
+        // 26: paramsrep ::= (empty)
+        { },
+        // 27: block ::= "{" {list} {list} localvars stmtrep "}" {block}
+        { t(TokenClass.LBRA), a(0), a(0), n(14), n(15), t(TokenClass.RBRA), a(15) },
+        // 28: localvars ::= type IDENTIFIER vardeclrest {add2} localvars
+        { n(8), t(TokenClass.IDENTIFIER), n(6), a(7), n(14) },
+        // 29: localvars ::= (empty)
+        { },
+        // 30: stmtrep ::= stmt {add} stmtrep
+        { n(16), a(4), n(15) },
+        // 31: stmtrep ::= (empty)
+        { },
+        // 32: stmt ::= block
+        { n(13) },
+        // 33: stmt ::= "while" "(" exp ")" stmt {while}
+        { t(TokenClass.WHILE), t(TokenClass.LPAR), n(20), t(TokenClass.RPAR), n(16), a(16) },
+        // 34: stmt ::= "if" "(" exp ")" stmt elseopt
+        { t(TokenClass.IF), t(TokenClass.LPAR), n(20), t(TokenClass.RPAR), n(16), n(18) },
+        // 35: stmt ::= "return" expopt ";" {return}
+        { t(TokenClass.RETURN), n(19), t(TokenClass.SC), a(17) },
+        // 36: stmt ::= exp stmtrest
+        { n(20), n(17) },
+        // 37: stmtrest ::= ";" {exprstmt}
+        { t(TokenClass.SC), a(18) },
+        // 38: stmtrest ::= "=" exp ";" {assign}
+        { t(TokenClass.ASSIGN), n(20), t(TokenClass.SC), a(19) },
+        // 39: elseopt ::= "else" stmt {ifelse}
+        { t(TokenClass.ELSE), n(16), a(20) },
+        // 40: elseopt ::= {if}
+        { a(21) },
+        // 41: expopt ::= exp
+        { n(20) },
+        // 42: expopt ::= {null}
+        { a(22) },
+        // 43: exp ::= expA opsA
+        { n(22), n(21) },
+        // 44: opsA ::= "||" expA {OR} opsA
+        { t(TokenClass.OR), n(22), a(23), n(21) },
+        // 45: opsA ::= (empty)
+        { },
+        // 46: expA ::= expB opsB
+        { n(24), n(23) },
+        // 47: opsB ::= "&&" expB {AND} opsB
+        { t(TokenClass.AND), n(24), a(24), n(23) },
+        // 48: opsB ::= (empty)
+        { },
+        // 49: expB ::= expC opsC
+        { n(26), n(25) },
+        // 50: opsC ::= "==" expC {EQ} opsC
+        { t(TokenClass.EQ), n(26), a(25), n(25) },
+        // 51: opsC ::= "!=" expC {NE} opsC
+        { t(TokenClass.NE), n(26), a(26), n(25) },
+        // 52: opsC ::= (empty)
+        { },
+        // 53: expC ::= expD opsD
+        { n(28), n(27) },
+        // 54: opsD ::= "<" expD {LT} opsD
+        { t(TokenClass.LT), n(28), a(27), n(27) },
+        // 55: opsD ::= ">" expD {GT} opsD
+        { t(TokenClass.GT), n(28), a(28), n(27) },
+        // 56: opsD ::= "<=" expD {LE} opsD
+        { t(TokenClass.LE), n(28), a(29), n(27) },
+        // 57: opsD ::= ">=" expD {GE} opsD
+        { t(TokenClass.GE), n(28), a(30), n(27) },
+        // 58: opsD ::= (empty)
+        { },
+        // 59: expD ::= expE opsE
+        { n(30), n(29) },
+        // 60: opsE ::= "+" expE {ADD} opsE
+        { t(TokenClass.PLUS), n(30), a(31), n(29) },
+        // 61: opsE ::= "-" expE {SUB} opsE
+        { t(TokenClass.MINUS), n(30), a(32), n(29) },
+        // 62: opsE ::= (empty)
+        { },
+        // 63: expE ::= expF opsF
+        { n(32), n(31) },
+        // 64: opsF ::= "*" expF {MUL} opsF
+        { t(TokenClass.ASTERIX), n(32), a(33), n(31) },
+        // 65: opsF ::= "/" expF {DIV} opsF
+        { t(TokenClass.DIV), n(32), a(34), n(31) },
+        // 66: opsF ::= "%" expF {MOD} opsF
+        { t(TokenClass.REM), n(32), a(35), n(31) },
+        // 67: opsF ::= (empty)
+        { },
+        // 68: expF ::= "-" expF {neg}
+        { t(TokenClass.MINUS), n(32), a(36) },
+        // 69: expF ::= "sizeof" "(" type ")" {sizeof}
+        { t(TokenClass.SIZEOF), t(TokenClass.LPAR), n(8), t(TokenClass.RPAR), a(37) },
+        // 70: expF ::= "*" expF {valueat}
+        { t(TokenClass.ASTERIX), n(32), a(38) },
+        // 71: expF ::= "(" expF_1
+        { t(TokenClass.LPAR), n(36) },
+        // 72: expF ::= IDENTIFIER expF_2
+        { t(TokenClass.IDENTIFIER), n(37) },
+        // 73: expF ::= INT_LITERAL {intliteral} opsH
+        { t(TokenClass.INT_LITERAL), a(42), n(33) },
+        // 74: expF ::= CHAR_LITERAL {chrliteral} opsH
+        { t(TokenClass.CHAR_LITERAL), a(43), n(33) },
+        // 75: expF ::= STRING_LITERAL {strliteral} opsH
+        { t(TokenClass.STRING_LITERAL), a(44), n(33) },
+        // 76: opsH ::= "[" exp "]" {arrayaccess} opsH
+        { t(TokenClass.LSBR), n(20), t(TokenClass.RSBR), a(45), n(33) },
+        // 77: opsH ::= "." IDENTIFIER {fieldaccess} opsH
+        { t(TokenClass.DOT), t(TokenClass.IDENTIFIER), a(46), n(33) },
+        // 78: opsH ::= (empty)
+        { },
+        // 79: arglist ::= exp {add} argrep
+        { n(20), a(4), n(35) },
+        // 80: arglist ::= (empty)
+        { },
+        // 81: argrep ::= "," exp {add} argrep
+        { t(TokenClass.COMMA), n(20), a(4), n(35) },
+        // 82: argrep ::= (empty)
+        { },
+        // 83: expF_1 ::= type ")" expF {typecast}
+        { n(8), t(TokenClass.RPAR), n(32), a(39) },
+        // 84: expF_1 ::= exp ")" opsH
+        { n(20), t(TokenClass.RPAR), n(33) },
+        // 85: expF_2 ::= {var} opsH
+        { a(40), n(33) },
+        // 86: expF_2 ::= "(" {list} arglist ")" {funcall} opsH
+        { t(TokenClass.LPAR), a(0), n(34), t(TokenClass.RPAR), a(41), n(33) },
+        // 87: structdecls_1 ::= "{" {list} type IDENTIFIER vardeclrest {add} fields "}" ";" {structdecl} {add3} structdecls
+        { t(TokenClass.LBRA), a(0), n(8), t(TokenClass.IDENTIFIER), n(6), a(4), n(3), t(TokenClass.RBRA), t(TokenClass.SC), a(5), a(6), n(2) },
+        // 88: structdecls_1 ::= typeopt IDENTIFIER decl
+        { n(10), t(TokenClass.IDENTIFIER), n(4) },
+    };
+
+    // nonterminal * TOKENS + token class ordinal -> production, or -1 when the token cannot come next
+    static final int[] TABLE = new int[NONTERMINALS.length * TOKENS];
+    static {
+        java.util.Arrays.fill(TABLE, -1);
+        entry(0, TokenClass.INCLUDE, 0);
+        entry(0, TokenClass.STRUCT, 0);
+        entry(0, TokenClass.INT, 0);
+        entry(0, TokenClass.CHAR, 0);
+        entry(0, TokenClass.VOID, 0);
+        entry(0, TokenClass.EOF, 0);
+        entry(1, TokenClass.INCLUDE, 1);
+        entry(1, TokenClass.STRUCT, 2);
+        entry(1, TokenClass.EOF, 2);
+        entry(1, TokenClass.INT, 2);
+        entry(1, TokenClass.CHAR, 2);
+        entry(1, TokenClass.VOID, 2);
+        entry(2, TokenClass.STRUCT, 3);
+        entry(2, TokenClass.INT, 4);
+        entry(2, TokenClass.CHAR, 4);
+        entry(2, TokenClass.VOID, 4);
+        entry(2, TokenClass.EOF, 5);
+        entry(3, TokenClass.STRUCT, 6);
+        entry(3, TokenClass.INT, 6);
+        entry(3, TokenClass.CHAR, 6);
+        entry(3, TokenClass.VOID, 6);
+        entry(3, TokenClass.RBRA, 7);
+        entry(4, TokenClass.SC, 8);
+        entry(4, TokenClass.LSBR, 8);
+        entry(4, TokenClass.LPAR, 9);
+        entry(5, TokenClass.STRUCT, 10);
+        entry(5, TokenClass.INT, 10);
+        entry(5, TokenClass.CHAR, 10);
+        entry(5, TokenClass.VOID, 10);
+        entry(5, TokenClass.EOF, 11);
+        entry(6, TokenClass.SC, 12);
+        entry(6, TokenClass.LSBR, 13);
+        entry(7, TokenClass.STRUCT, 14);
+        entry(7, TokenClass.INT, 14);
+        entry(7, TokenClass.CHAR, 14);
+        entry(7, TokenClass.VOID, 14);
+        entry(7, TokenClass.EOF, 15);
+        entry(8, TokenClass.INT, 16);
+        entry(8, TokenClass.CHAR, 16);
+        entry(8, TokenClass.VOID, 16);
+        entry(8, TokenClass.STRUCT, 17);
+        entry(9, TokenClass.INT, 18);
+        entry(9, TokenClass.CHAR, 19);
+        entry(9, TokenClass.VOID, 20);
+        entry(10, TokenClass.ASTERIX, 21);
+        entry(10, TokenClass.IDENTIFIER, 22);
+        entry(10, TokenClass.RPAR, 22);
+        entry(11, TokenClass.STRUCT, 23);
+        entry(11, TokenClass.INT, 23);
+        entry(11, TokenClass.CHAR, 23);
+        entry(11, TokenClass.VOID, 23);
+        entry(11, TokenClass.RPAR, 24);
+        entry(12, TokenClass.COMMA, 25);
+        entry(12, TokenClass.RPAR, 26);
+        entry(13, TokenClass.LBRA, 27);
+        entry(14, TokenClass.STRUCT, 28);
+        entry(14, TokenClass.INT, 28);
+        entry(14, TokenClass.CHAR, 28);
+        entry(14, TokenClass.VOID, 28);
+        entry(14, TokenClass.RBRA, 29);
+        entry(14, TokenClass.LBRA, 29);
+        entry(14, TokenClass.WHILE, 29);
+        entry(14, TokenClass.IF, 29);
+        entry(14, TokenClass.RETURN, 29);
+        entry(14, TokenClass.MINUS, 29);
+        entry(14, TokenClass.SIZEOF, 29);
+        entry(14, TokenClass.ASTERIX, 29);
+        entry(14, TokenClass.LPAR, 29);
+        entry(14, TokenClass.IDENTIFIER, 29);
+        entry(14, TokenClass.INT_LITERAL, 29);
+        entry(14, TokenClass.CHAR_LITERAL, 29);
+        entry(14, TokenClass.STRING_LITERAL, 29);
+        entry(15, TokenClass.LBRA, 30);
+        entry(15, TokenClass.WHILE, 30);
+        entry(15, TokenClass.IF, 30);
+        entry(15, TokenClass.RETURN, 30);
+        entry(15, TokenClass.MINUS, 30);
+        entry(15, TokenClass.SIZEOF, 30);
+        entry(15, TokenClass.ASTERIX, 30);
+        entry(15, TokenClass.LPAR, 30);
+        entry(15, TokenClass.IDENTIFIER, 30);
+        entry(15, TokenClass.INT_LITERAL, 30);
+        entry(15, TokenClass.CHAR_LITERAL, 30);
+        entry(15, TokenClass.STRING_LITERAL, 30);
+        entry(15, TokenClass.RBRA, 31);
+        entry(16, TokenClass.LBRA, 32);
+        entry(16, TokenClass.WHILE, 33);
+        entry(16, TokenClass.IF, 34);
+        entry(16, TokenClass.RETURN, 35);
+        entry(16, TokenClass.MINUS, 36);
+        entry(16, TokenClass.SIZEOF, 36);
+        entry(16, TokenClass.ASTERIX, 36);
+        entry(16, TokenClass.LPAR, 36);
+        entry(16, TokenClass.IDENTIFIER, 36);
+        entry(16, TokenClass.INT_LITERAL, 36);
+        entry(16, TokenClass.CHAR_LITERAL, 36);
+        entry(16, TokenClass.STRING_LITERAL, 36);
+        entry(17, TokenClass.SC, 37);
+        entry(17, TokenClass.ASSIGN, 38);
+        entry(18, TokenClass.ELSE, 39);
+        entry(18, TokenClass.LBRA, 40);
+        entry(18, TokenClass.WHILE, 40);
+        entry(18, TokenClass.IF, 40);
+        entry(18, TokenClass.RETURN, 40);
+        entry(18, TokenClass.RBRA, 40);
+        entry(18, TokenClass.MINUS, 40);
+        entry(18, TokenClass.SIZEOF, 40);
+        entry(18, TokenClass.ASTERIX, 40);
+        entry(18, TokenClass.LPAR, 40);
+        entry(18, TokenClass.IDENTIFIER, 40);
+        entry(18, TokenClass.INT_LITERAL, 40);
+        entry(18, TokenClass.CHAR_LITERAL, 40);
+        entry(18, TokenClass.STRING_LITERAL, 40);
+        entry(19, TokenClass.MINUS, 41);
+        entry(19, TokenClass.SIZEOF, 41);
+        entry(19, TokenClass.ASTERIX, 41);
+        entry(19, TokenClass.LPAR, 41);
+        entry(19, TokenClass.IDENTIFIER, 41);
+        entry(19, TokenClass.INT_LITERAL, 41);
+        entry(19, TokenClass.CHAR_LITERAL, 41);
+        entry(19, TokenClass.STRING_LITERAL, 41);
+        entry(19, TokenClass.SC, 42);
+        entry(20, TokenClass.MINUS, 43);
+        entry(20, TokenClass.SIZEOF, 43);
+        entry(20, TokenClass.ASTERIX, 43);
+        entry(20, TokenClass.LPAR, 43);
+        entry(20, TokenClass.IDENTIFIER, 43);
+        entry(20, TokenClass.INT_LITERAL, 43);
+        entry(20, TokenClass.CHAR_LITERAL, 43);
+        entry(20, TokenClass.STRING_LITERAL, 43);
+        entry(21, TokenClass.OR, 44);
+        entry(21, TokenClass.RPAR, 45);
+        entry(21, TokenClass.SC, 45);
+        entry(21, TokenClass.RSBR, 45);
+        entry(21, TokenClass.COMMA, 45);
+        entry(21, TokenClass.ASSIGN, 45);
+        entry(22, TokenClass.MINUS, 46);
+        entry(22, TokenClass.SIZEOF, 46);
+        entry(22, TokenClass.ASTERIX, 46);
+        entry(22, TokenClass.LPAR, 46);
+        entry(22, TokenClass.IDENTIFIER, 46);
+        entry(22, TokenClass.INT_LITERAL, 46);
+        entry(22, TokenClass.CHAR_LITERAL, 46);
+        entry(22, TokenClass.STRING_LITERAL, 46);
+        entry(23, TokenClass.AND, 47);
+        entry(23, TokenClass.OR, 48);
+        entry(23, TokenClass.RPAR, 48);
+        entry(23, TokenClass.SC, 48);
+        entry(23, TokenClass.RSBR, 48);
+        entry(23, TokenClass.COMMA, 48);
+        entry(23, TokenClass.ASSIGN, 48);
+        entry(24, TokenClass.MINUS, 49);
+        entry(24, TokenClass.SIZEOF, 49);
+        entry(24, TokenClass.ASTERIX, 49);
+        entry(24, TokenClass.LPAR, 49);
+        entry(24, TokenClass.IDENTIFIER, 49);
+        entry(24, TokenClass.INT_LITERAL, 49);
+        entry(24, TokenClass.CHAR_LITERAL, 49);
+        entry(24, TokenClass.STRING_LITERAL, 49);
+        entry(25, TokenClass.EQ, 50);
+        entry(25, TokenClass.NE, 51);
+        entry(25, TokenClass.AND, 52);
+        entry(25, TokenClass.OR, 52);
+        entry(25, TokenClass.RPAR, 52);
+        entry(25, TokenClass.SC, 52);
+        entry(25, TokenClass.RSBR, 52);
+        entry(25, TokenClass.COMMA, 52);
+        entry(25, TokenClass.ASSIGN, 52);
+        entry(26, TokenClass.MINUS, 53);
+        entry(26, TokenClass.SIZEOF, 53);
+        entry(26, TokenClass.ASTERIX, 53);
+        entry(26, TokenClass.LPAR, 53);
+        entry(26, TokenClass.IDENTIFIER, 53);
+        entry(26, TokenClass.INT_LITERAL, 53);
+        entry(26, TokenClass.CHAR_LITERAL, 53);
+        entry(26, TokenClass.STRING_LITERAL, 53);
+        entry(27, TokenClass.LT, 54);
+        entry(27, TokenClass.GT, 55);
+        entry(27, TokenClass.LE, 56);
+        entry(27, TokenClass.GE, 57);
+        entry(27, TokenClass.EQ, 58);
+        entry(27, TokenClass.NE, 58);
+        entry(27, TokenClass.AND, 58);
+        entry(27, TokenClass.OR, 58);
+        entry(27, TokenClass.RPAR, 58);
+        entry(27, TokenClass.SC, 58);
+        entry(27, TokenClass.RSBR, 58);
+        entry(27, TokenClass.COMMA, 58);
+        entry(27, TokenClass.ASSIGN, 58);
+        entry(28, TokenClass.MINUS, 59);
+        entry(28, TokenClass.SIZEOF, 59);
+        entry(28, TokenClass.ASTERIX, 59);
+        entry(28, TokenClass.LPAR, 59);
+        entry(28, TokenClass.IDENTIFIER, 59);
+        entry(28, TokenClass.INT_LITERAL, 59);
+        entry(28, TokenClass.CHAR_LITERAL, 59);
+        entry(28, TokenClass.STRING_LITERAL, 59);
+        entry(29, TokenClass.PLUS, 60);
+        entry(29, TokenClass.MINUS, 61);
+        entry(29, TokenClass.LT, 62);
+        entry(29, TokenClass.GT, 62);
+        entry(29, TokenClass.LE, 62);
+        entry(29, TokenClass.GE, 62);
+        entry(29, TokenClass.EQ, 62);
+        entry(29, TokenClass.NE, 62);
+        entry(29, TokenClass.AND, 62);
+        entry(29, TokenClass.OR, 62);
+        entry(29, TokenClass.RPAR, 62);
+        entry(29, TokenClass.SC, 62);
+        entry(29, TokenClass.RSBR, 62);
+        entry(29, TokenClass.COMMA, 62);
+        entry(29, TokenClass.ASSIGN, 62);
+        entry(30, TokenClass.MINUS, 63);
+        entry(30, TokenClass.SIZEOF, 63);
+        entry(30, TokenClass.ASTERIX, 63);
+        entry(30, TokenClass.LPAR, 63);
+        entry(30, TokenClass.IDENTIFIER, 63);
+        entry(30, TokenClass.INT_LITERAL, 63);
+        entry(30, TokenClass.CHAR_LITERAL, 63);
+        entry(30, TokenClass.STRING_LITERAL, 63);
+        entry(31, TokenClass.ASTERIX, 64);
+        entry(31, TokenClass.DIV, 65);
+        entry(31, TokenClass.REM, 66);
+        entry(31, TokenClass.PLUS, 67);
+        entry(31, TokenClass.MINUS, 67);
+        entry(31, TokenClass.LT, 67);
+        entry(31, TokenClass.GT, 67);
+        entry(31, TokenClass.LE, 67);
+        entry(31, TokenClass.GE, 67);
+        entry(31, TokenClass.EQ, 67);
+        entry(31, TokenClass.NE, 67);
+        entry(31, TokenClass.AND, 67);
+        entry(31, TokenClass.OR, 67);
+        entry(31, TokenClass.RPAR, 67);
+        entry(31, TokenClass.SC, 67);
+        entry(31, TokenClass.RSBR, 67);
+        entry(31, TokenClass.COMMA, 67);
+        entry(31, TokenClass.ASSIGN, 67);
+        entry(32, TokenClass.MINUS, 68);
+        entry(32, TokenClass.SIZEOF, 69);
+        entry(32, TokenClass.ASTERIX, 70);
+        entry(32, TokenClass.LPAR, 71);
+        entry(32, TokenClass.IDENTIFIER, 72);
+        entry(32, TokenClass.INT_LITERAL, 73);
+        entry(32, TokenClass.CHAR_LITERAL, 74);
+        entry(32, TokenClass.STRING_LITERAL, 75);
+        entry(33, TokenClass.LSBR, 76);
+        entry(33, TokenClass.DOT, 77);
+        entry(33, TokenClass.ASTERIX, 78);
+        entry(33, TokenClass.DIV, 78);
+        entry(33, TokenClass.REM, 78);
+        entry(33, TokenClass.PLUS, 78);
+        entry(33, TokenClass.MINUS, 78);
+        entry(33, TokenClass.LT, 78);
+        entry(33, TokenClass.GT, 78);
+        entry(33, TokenClass.LE, 78);
+        entry(33, TokenClass.GE, 78);
+        entry(33, TokenClass.EQ, 78);
+        entry(33, TokenClass.NE, 78);
+        entry(33, TokenClass.AND, 78);
+        entry(33, TokenClass.OR, 78);
+        entry(33, TokenClass.RPAR, 78);
+        entry(33, TokenClass.SC, 78);
+        entry(33, TokenClass.RSBR, 78);
+        entry(33, TokenClass.COMMA, 78);
+        entry(33, TokenClass.ASSIGN, 78);
+        entry(34, TokenClass.MINUS, 79);
+        entry(34, TokenClass.SIZEOF, 79);
+        entry(34, TokenClass.ASTERIX, 79);
+        entry(34, TokenClass.LPAR, 79);
+        entry(34, TokenClass.IDENTIFIER, 79);
+        entry(34, TokenClass.INT_LITERAL, 79);
+        entry(34, TokenClass.CHAR_LITERAL, 79);
+        entry(34, TokenClass.STRING_LITERAL, 79);
+        entry(34, TokenClass.RPAR, 80);
+        entry(35, TokenClass.COMMA, 81);
+        entry(35, TokenClass.RPAR, 82);
+        entry(36, TokenClass.STRUCT, 83);
+        entry(36, TokenClass.INT, 83);
+        entry(36, TokenClass.CHAR, 83);
+        entry(36, TokenClass.VOID, 83);
+        entry(36, TokenClass.MINUS, 84);
+        entry(36, TokenClass.SIZEOF, 84);
+        entry(36, TokenClass.ASTERIX, 84);
+        entry(36, TokenClass.LPAR, 84);
+        entry(36, TokenClass.IDENTIFIER, 84);
+        entry(36, TokenClass.INT_LITERAL, 84);
+        entry(36, TokenClass.CHAR_LITERAL, 84);
+        entry(36, TokenClass.STRING_LITERAL, 84);
+        entry(37, TokenClass.LSBR, 85);
+        entry(37, TokenClass.DOT, 85);
+        entry(37, TokenClass.ASTERIX, 85);
+        entry(37, TokenClass.DIV, 85);
+        entry(37, TokenClass.REM, 85);
+        entry(37, TokenClass.PLUS, 85);
+        entry(37, TokenClass.MINUS, 85);
+        entry(37, TokenClass.LT, 85);
+        entry(37, TokenClass.GT, 85);
+        entry(37, TokenClass.LE, 85);
+        entry(37, TokenClass.GE, 85);
+        entry(37, TokenClass.EQ, 85);
+        entry(37, TokenClass.NE, 85);
+        entry(37, TokenClass.AND, 85);
+        entry(37, TokenClass.OR, 85);
+        entry(37, TokenClass.RPAR, 85);
+        entry(37, TokenClass.SC, 85);
+        entry(37, TokenClass.RSBR, 85);
+        entry(37, TokenClass.COMMA, 85);
+        entry(37, TokenClass.ASSIGN, 85);
+        entry(37, TokenClass.LPAR, 86);
+        entry(38, TokenClass.LBRA, 87);
+        entry(38, TokenClass.ASTERIX, 88);
+        entry(38, TokenClass.IDENTIFIER, 88);
+    }
+
+    private static int t(TokenClass tc) {
+        return tc.ordinal();
+    }
+
+    private static int n(int nonterminal) {
+        return TOKENS + nonterminal;
+    }
+
+    private static int a(int action) {
+        return TOKENS + NONTERMINALS.length + action;
+    }
+
+    private static void entry(int nonterminal, TokenClass tc, int production) {
+        TABLE[nonterminal * TOKENS + tc.ordinal()] = production;
+    }
+
+    private LL1Tables() {
+    }
+}
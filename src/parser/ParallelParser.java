@@ -0,0 +1,118 @@
+package parser;
+
+import ast.Program;
+import ast.Types;
+
+import lexer.BufferedTokeniser;
+import lexer.Token.TokenClass;
+import lexer.TokenStream;
+import lexer.Tokeniser;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Parses the bodies of the functions of a program on a fork-join pool, then the rest of the
+ * program with Parser, which takes each body from the workers when it gets to it.
+ *
+ * Function bodies are found beforehand by matching braces on the whole token stream: a body is a
+ * block that opens at the top level just after a closing parenthesis. Since Parser only ever reaches a
+ * body by its opening brace, and no state carried from before it can change how it parses, this gives
+ * the same program and the same error messages, in the same order, as parsing sequentially. A block
+ * that the scan takes for a body but Parser never gets to is just parsed for nothing.
+ *
+ * When lexing printed errors, their messages must be interleaved with those of parsing; the whole
+ * program is then parsed sequentially from the buffered tokens.
+ */
+public class ParallelParser implements ProgramParser {
+
+    private final Tokeniser tokeniser;
+    private Parser parser;
+    private PrintStream diagnostics = System.out;
+    private Types types = new Types();
+
+    public ParallelParser(Tokeniser tokeniser) {
+        this.tokeniser = tokeniser;
+    }
+
+    public int getErrorCount() {
+        return parser.getErrorCount();
+    }
+
+    public void setDiagnostics(PrintStream out) {
+        this.diagnostics = out;
+    }
+
+    public void setTypes(Types types) {
+        this.types = types;
+    }
+
+    public Program parse() {
+        BufferedTokeniser buffered = tokeniser instanceof BufferedTokeniser
+                ? (BufferedTokeniser) tokeniser : new BufferedTokeniser(tokeniser);
+        if (buffered.hasMessages()) {
+            parser = new Parser(buffered);
+            parser.setDiagnostics(diagnostics);
+            parser.setTypes(types);
+            return parser.parse();
+        }
+
+        TokenStream tokens = buffered.getTokens();
+        List<Integer> opens = findBodies(tokens);
+        Parser.Body[] bodies = new Parser.Body[opens.size()];
+        List<RecursiveAction> tasks = new ArrayList<>();
+        for (int i = 0; i < bodies.length; i++) {
+            int body = i;
+            tasks.add(new RecursiveAction() {
+                @Override
+                protected void compute() {
+                    bodies[body] = Parser.parseBody(tokens, opens.get(body), types);
+                }
+            });
+        }
+        ForkJoinPool.commonPool().invoke(new RecursiveAction() {
+            @Override
+            protected void compute() {
+                invokeAll(tasks);
+            }
+        });
+
+        Map<Integer, Parser.Body> byOpen = new HashMap<>();
+        for (int i = 0; i < bodies.length; i++)
+            byOpen.put(opens.get(i), bodies[i]);
+        parser = new Parser(tokens);
+        parser.setDiagnostics(diagnostics);
+        parser.setTypes(types);
+        parser.useBodies(byOpen);
+        return parser.parse();
+    }
+
+    /*
+     * Returns the index of the opening brace of every block that follows a closing parenthesis at the top level.
+     */
+    static List<Integer> findBodies(TokenStream tokens) {
+        List<Integer> opens = new ArrayList<>();
+        int depth = 0;
+        for (int t = 0; tokens.tokenClass(t) != TokenClass.EOF; t++) {
+            switch (tokens.tokenClass(t)) {
+                case LBRA:
+                    if (depth == 0 && t > 0 && tokens.tokenClass(t - 1) == TokenClass.RPAR)
+                        opens.add(t);
+                    depth++;
+                    break;
+                case RBRA:
+                    if (depth > 0)
+                        depth--;
+                    break;
+                default:
+                    break;
+            }
+        }
+        return opens;
+    }
+}
@@ -3,46 +3,150 @@ package parser;
 import ast.*;
 
 import lexer.Token;
+import lexer.TokenStream;
 import lexer.Tokeniser;
 import lexer.Token.TokenClass;
+import util.StackGuard;
 
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
 import java.util.ArrayList;
-import java.util.LinkedList;
+import java.util.Collections;
 import java.util.List;
-import java.util.Queue;
+import java.util.Map;
 
 
 /**
  * @author cdubach
  */
-public class Parser {
+public class Parser implements ProgramParser {
 
-    private Token token;
+    // index of the current token in the stream
+    private int token = -1;
 
-    // use for backtracking (useful for distinguishing decls from procs when parsing a program for instance)
-    private Queue<Token> buffer = new LinkedList<>();
+    // use for lookahead (useful for distinguishing decls from procs when parsing a program for instance)
+    private final TokenStream tokens;
 
-    private final Tokeniser tokeniser;
+    // binary operators by token class: how tightly each binds, 0 if the token is not one, and its Op
+    private static final int[] BINDING_POWER = new int[TokenClass.values().length];
+    private static final Op[] BINARY_OP = new Op[TokenClass.values().length];
+    static {
+        binary(TokenClass.OR, 1, Op.OR);
+        binary(TokenClass.AND, 2, Op.AND);
+        binary(TokenClass.EQ, 3, Op.EQ);
+        binary(TokenClass.NE, 3, Op.NE);
+        binary(TokenClass.LT, 4, Op.LT);
+        binary(TokenClass.LE, 4, Op.LE);
+        binary(TokenClass.GT, 4, Op.GT);
+        binary(TokenClass.GE, 4, Op.GE);
+        binary(TokenClass.PLUS, 5, Op.ADD);
+        binary(TokenClass.MINUS, 5, Op.SUB);
+        binary(TokenClass.ASTERIX, 6, Op.MUL);
+        binary(TokenClass.DIV, 6, Op.DIV);
+        binary(TokenClass.REM, 6, Op.MOD);
+    }
+
+    private static void binary(TokenClass tc, int power, Op op) {
+        BINDING_POWER[tc.ordinal()] = power;
+        BINARY_OP[tc.ordinal()] = op;
+    }
 
 
 
     public Parser(Tokeniser tokeniser) {
-        this.tokeniser = tokeniser;
+        this(new TokenStream(tokeniser));
+    }
+
+    public Parser(TokenStream tokens) {
+        this.tokens = tokens;
+    }
+
+    /*
+     * A function body parsed on its own, with what parsing it printed and where it left the parser.
+     */
+    static final class Body {
+        final Block block;
+        final int end;
+        final int errors;
+        final int lastErrorToken;
+        final byte[] messages;
+
+        Body(Block block, int end, int errors, int lastErrorToken, byte[] messages) {
+            this.block = block;
+            this.end = end;
+            this.errors = errors;
+            this.lastErrorToken = lastErrorToken;
+            this.messages = messages;
+        }
+    }
+
+    /*
+     * Parses the block whose opening brace is the token at open, as parse() would parse it as the body of
+     * a function. Error messages are kept in the result. Nothing before open can change how the block
+     * parses: the only state it depends on is the last token an error was reported at, which the
+     * opening brace cannot be.
+     */
+    static Body parseBody(TokenStream tokens, int open, Types types) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Parser parser = new Parser(tokens);
+        parser.types = types;
+        parser.diagnostics = new PrintStream(out, true);
+        parser.token = open;
+        Block block = parser.parseBlock();
+        return new Body(block, parser.token, parser.error, parser.lastErrorToken, out.toByteArray());
+    }
+
+    /*
+     * Makes parse() use bodies parsed ahead of time, by the index of their opening brace,
+     * instead of parsing them again.
+     */
+    void useBodies(Map<Integer, Body> bodies) {
+        this.bodies = bodies;
     }
 
     public Program parse() {
+        List<StructTypeDecl> stds = new ArrayList<>();
+        List<VarDecl> vds = new ArrayList<>();
+        List<FunDecl> fds = new ArrayList<>();
+        parse(new Declarations() {
+            public void struct(StructTypeDecl std) { stds.add(std); }
+            public void global(VarDecl vd) { vds.add(vd); }
+            public void function(FunDecl fd) { fds.add(fd); }
+        });
+        return new Program(stds, vds, fds);
+    }
+
+    /*
+     * Parses the program, handing each top-level declaration to sink as soon as it is complete
+     * instead of building a Program, so that only the declaration being parsed need be held.
+     */
+    @Override
+    public void parse(Declarations sink) {
         // get the first token
         nextToken();
 
-        return parseProgram();
+        parseProgram(sink);
     }
 
     public int getErrorCount() {
         return error;
     }
 
+    public void setDiagnostics(PrintStream out) {
+        this.diagnostics = out;
+    }
+
+    public void setTypes(Types types) {
+        this.types = types;
+    }
+
     private int error = 0;
-    private Token lastErrorToken;
+    private int lastErrorToken = -1;
+    private PrintStream diagnostics = System.out;
+    private Types types = new Types();
+    private int nesting = 0;        // statements and expressions the parser is in
+
+    private Map<Integer, Body> bodies = Collections.emptyMap();
 
     private void error(TokenClass... expected) {
 
@@ -58,162 +162,164 @@ public class Parser {
             sb.append(e);
             sep = "|";
         }
-        System.out.println("Parsing error: expected ("+sb+") found ("+token+") at "+token.position);
+        Token t = tokens.token(token);
+        diagnostics.println("Parsing error: expected ("+sb+") found ("+t+") at "+t.position);
 
         error++;
         lastErrorToken = token;
     }
 
     /*
-     * Look ahead the i^th element from the stream of token.
-     * i should be >= 1
+     * Look ahead the class of the i^th element from the stream of token.
+     * i should be >= 0, 0 being the current token
      */
-    private Token lookAhead(int i) {
-        // ensures the buffer has the element we want to look ahead
-        while (buffer.size() < i)
-            buffer.add(tokeniser.nextToken());
-        assert buffer.size() >= i;
-
-        int cnt=1;
-        for (Token t : buffer) {
-            if (cnt == i)
-                return t;
-            cnt++;
-        }
-
-        assert false; // should never reach this
-        return null;
+    private TokenClass lookAhead(int i) {
+        return tokens.tokenClass(token + i);
     }
 
 
     /*
-     * Consumes the next token from the tokeniser or the buffer if not empty.
+     * Consumes the current token, moving on to the next one.
      */
     private void nextToken() {
-        if (!buffer.isEmpty())
-            token = buffer.remove();
-        else
-            token = tokeniser.nextToken();
+        token++;
+        tokens.release(token);
     }
 
     /*
      * If the current token is equals to the expected one, then skip it, otherwise report an error.
-     * Returns the expected token or null if an error occurred.
+     * Returns the data of the expected token (empty if it has none), or null if an error occurred.
      */
-    private Token expect(TokenClass... expected) {
+    private String expect(TokenClass... expected) {
+        TokenClass current = lookAhead(0);
         for (TokenClass e : expected) {
-            if (e == token.tokenClass) {
-                Token cur = token;
+            if (e == current) {
+                String data = tokens.data(token);
                 nextToken();
-                return cur;
+                return data;
             }
         }
 
         error(expected);
-        return new Token(TokenClass.INVALID, 0, 0);
+        return null;
     }
 
     /*
     * Returns true if the current token is equals to any of the expected ones.
     */
     private boolean accept(TokenClass... expected) {
+        TokenClass current = lookAhead(0);
         boolean result = false;
         for (TokenClass e : expected)
-            result |= (e == token.tokenClass);
+            result |= (e == current);
         return result;
     }
 
 
-    private Program parseProgram() {
+    private void parseProgram(Declarations sink) {
         parseIncludes();
-        List<StructTypeDecl> stds = parseStructDecls(new ArrayList<>());
-        List<VarDecl> vds = parseVarDecls(new ArrayList<>());
-        List<FunDecl> fds = parseFunDecls(new ArrayList<>());
+        while (acceptStructDecl()) sink.struct(parseStructDecl());
+        while (acceptVarDecl()) sink.global(parseVarDecl());
+        while (acceptFunDecl()) sink.function(parseFunDecl());
 
         expect(TokenClass.EOF);
-        return new Program(stds, vds, fds);
     }
 
     // includes are ignored, so does not need to return an AST node
     private void parseIncludes() {
-        if (accept(TokenClass.INCLUDE)) {
+        while (accept(TokenClass.INCLUDE)) {
             nextToken();
             expect(TokenClass.STRING_LITERAL);
-            parseIncludes();
         }
     }
 
-    private List<StructTypeDecl> parseStructDecls(List<StructTypeDecl> structTypeDecls) {
-        if (accept(TokenClass.STRUCT) &&
-                lookAhead(2).tokenClass == TokenClass.LBRA) {
-            StructType structType = parseStructType();
-            expect(TokenClass.LBRA);
+    private boolean acceptStructDecl() {
+        return accept(TokenClass.STRUCT) && lookAhead(2) == TokenClass.LBRA;
+    }
 
-            // vardecl positive closure
-            // must have one, then call kleene closure
-            Type baseType = parseType();
-            Token t = expect(TokenClass.IDENTIFIER);
-            Type type = parseVarDeclRest(baseType);
-            List<VarDecl> varDecls = new ArrayList<>();
-            varDecls.add(new VarDecl(type, t.data));
-            parseVarDecls(varDecls);
+    private StructTypeDecl parseStructDecl() {
+        StructType structType = parseStructType();
+        expect(TokenClass.LBRA);
 
-            expect(TokenClass.RBRA);
-            expect(TokenClass.SC);
-            structTypeDecls.add(new StructTypeDecl(structType, varDecls));
-            parseStructDecls(structTypeDecls);
-        }
+        // vardecl positive closure
+        // must have one, then call kleene closure
+        Type baseType = parseType();
+        String name = expect(TokenClass.IDENTIFIER);
+        Type type = parseVarDeclRest(baseType);
+        List<VarDecl> varDecls = new ArrayList<>();
+        varDecls.add(new VarDecl(type, name));
+        parseVarDecls(varDecls);
 
-        return structTypeDecls;
+        expect(TokenClass.RBRA);
+        expect(TokenClass.SC);
+        return new StructTypeDecl(structType, varDecls);
     }
 
     private List<VarDecl> parseVarDecls(List<VarDecl> varDecls) {
-        if (accept(TokenClass.INT, TokenClass.CHAR, TokenClass.VOID, TokenClass.STRUCT)
-                && (lookAhead(2).tokenClass == TokenClass.SC || lookAhead(2).tokenClass == TokenClass.LSBR
-                || lookAhead(3).tokenClass == TokenClass.SC || lookAhead(3).tokenClass == TokenClass.LSBR
-                || lookAhead(4).tokenClass == TokenClass.SC || lookAhead(4).tokenClass == TokenClass.LSBR)) {
-            Type baseType = parseType();
-            Token t = expect(TokenClass.IDENTIFIER);
-            Type type = parseVarDeclRest(baseType);
-            varDecls.add(new VarDecl(type, t.data));
-            parseVarDecls(varDecls);
-        }
+        while (acceptVarDecl())
+            varDecls.add(parseVarDecl());
 
         return varDecls;
     }
 
+    private boolean acceptVarDecl() {
+        return accept(TokenClass.INT, TokenClass.CHAR, TokenClass.VOID, TokenClass.STRUCT)
+                && (lookAhead(2) == TokenClass.SC || lookAhead(2) == TokenClass.LSBR
+                || lookAhead(3) == TokenClass.SC || lookAhead(3) == TokenClass.LSBR
+                || lookAhead(4) == TokenClass.SC || lookAhead(4) == TokenClass.LSBR);
+    }
+
+    private VarDecl parseVarDecl() {
+        Type baseType = parseType();
+        String name = expect(TokenClass.IDENTIFIER);
+        Type type = parseVarDeclRest(baseType);
+        return new VarDecl(type, name);
+    }
+
     private Type parseVarDeclRest(Type baseType) {
         if (accept(TokenClass.SC)) {
             nextToken();
             return baseType;
         } else {
             expect(TokenClass.LSBR);
-            Token t = expect(TokenClass.INT_LITERAL);
+            String t = expect(TokenClass.INT_LITERAL);
             expect(TokenClass.RSBR);
             expect(TokenClass.SC);
 
-            // if expect threw an error, t will be an invalid token with empty data field
-            if (t.tokenClass == TokenClass.INVALID) return new ArrayType(baseType, 0);
-            else return new ArrayType(baseType, Integer.valueOf(t.data));
+            // if expect threw an error, t will be null
+            if (t == null) return ArrayType.of(baseType, 0);
+            else return ArrayType.of(baseType, Integer.valueOf(t));
         }
     }
 
-    private List<FunDecl> parseFunDecls(List<FunDecl> funDecls) {
-        if (accept(TokenClass.INT, TokenClass.CHAR, TokenClass.VOID, TokenClass.STRUCT)
-                && (lookAhead(2).tokenClass == TokenClass.LPAR ||
-                    lookAhead(3).tokenClass == TokenClass.LPAR ||
-                    lookAhead(4).tokenClass == TokenClass.LPAR)) {
-            Type type = parseType();
-            Token t = expect(TokenClass.IDENTIFIER);
-            expect(TokenClass.LPAR);
-            List<VarDecl> params = parseParams();
-            expect(TokenClass.RPAR);
-            Block block = parseBlock();
-            funDecls.add(new FunDecl(type, t.data, params, block));
-            parseFunDecls(funDecls);
-        }
+    private boolean acceptFunDecl() {
+        return accept(TokenClass.INT, TokenClass.CHAR, TokenClass.VOID, TokenClass.STRUCT)
+                && (lookAhead(2) == TokenClass.LPAR ||
+                    lookAhead(3) == TokenClass.LPAR ||
+                    lookAhead(4) == TokenClass.LPAR);
+    }
+
+    private FunDecl parseFunDecl() {
+        Type type = parseType();
+        String name = expect(TokenClass.IDENTIFIER);
+        expect(TokenClass.LPAR);
+        List<VarDecl> params = parseParams();
+        expect(TokenClass.RPAR);
+        Block block = parseFunBody();
+        return new FunDecl(type, name, params, block);
+    }
 
-        return funDecls;
+    private Block parseFunBody() {
+        Body body = bodies.get(token);
+        if (body == null)
+            return parseBlock();
+        diagnostics.write(body.messages, 0, body.messages.length);
+        error += body.errors;
+        if (body.errors > 0)
+            lastErrorToken = body.lastErrorToken;
+        token = body.end;
+        tokens.release(token);
+        return body.block;
     }
 
     private Type parseType() {
@@ -236,7 +342,7 @@ public class Parser {
         // returns a pointer type with the base type
         if (accept(TokenClass.ASTERIX)) {
             nextToken();
-            return new PointerType(type);
+            return PointerType.to(type);
         }
 
         // just returns the base type if no pointer
@@ -245,32 +351,42 @@ public class Parser {
 
     private StructType parseStructType() {
         expect(TokenClass.STRUCT);
-        Token t = expect(TokenClass.IDENTIFIER);
-        return new StructType(t.data);
+        String name = expect(TokenClass.IDENTIFIER);
+        return types.struct(name);
     }
 
     private List<VarDecl> parseParams() {
         List<VarDecl> params = new ArrayList<>();
         if (accept(TokenClass.INT, TokenClass.CHAR, TokenClass.VOID, TokenClass.STRUCT)) {
             Type type = parseType();
-            Token t = expect(TokenClass.IDENTIFIER);
-            params.add(new VarDecl(type, t.data));
+            String name = expect(TokenClass.IDENTIFIER);
+            params.add(new VarDecl(type, name));
             parseParamsRep(params);
         }
         return params;
     }
 
     private void parseParamsRep(List<VarDecl> params) {
-        if (accept(TokenClass.COMMA)) {
+        while (accept(TokenClass.COMMA)) {
             nextToken();
             Type type = parseType();
-            Token t = expect(TokenClass.IDENTIFIER);
-            params.add(new VarDecl(type, t.data));
-            parseParamsRep(params);
+            String name = expect(TokenClass.IDENTIFIER);
+            params.add(new VarDecl(type, name));
         }
     }
 
+    // statements and expressions nest through StackGuard, so deep nesting cannot overflow the stack:
+    // every so many levels of nesting, the parser goes on on a new segment
     private Stmt parseStmt() {
+        try {
+            return StackGuard.startsSegment(++nesting)
+                    ? StackGuard.segment(nesting, this::parseStmtBody) : parseStmtBody();
+        } finally {
+            nesting--;
+        }
+    }
+
+    private Stmt parseStmtBody() {
         if (accept(TokenClass.LBRA)) {
             return parseBlock();
         } else if (accept(TokenClass.WHILE)) {
@@ -338,126 +454,57 @@ public class Parser {
     }
 
     private List<Stmt> parseStmtRep(List<Stmt> stmts) {
-        if (accept(TokenClass.LBRA, TokenClass.WHILE, TokenClass.IF, TokenClass.RETURN,
+        while (accept(TokenClass.LBRA, TokenClass.WHILE, TokenClass.IF, TokenClass.RETURN,
                 TokenClass.MINUS, TokenClass.SIZEOF, TokenClass.ASTERIX, TokenClass.LPAR,
                 TokenClass.IDENTIFIER, TokenClass.INT_LITERAL, TokenClass.CHAR_LITERAL, TokenClass.STRING_LITERAL)) {
             stmts.add(parseStmt());
-            parseStmtRep(stmts);
         }
 
         return stmts;
     }
 
     private Expr parseExp() {
-        Expr lhs = parseExpA();
-        return parseOpsA(lhs);
-    }
-
-    private Expr parseOpsA(Expr lhs) {
-        if (accept(TokenClass.OR)) {
-            nextToken();
-            Expr rhs = parseExpA();
-            lhs = parseOpsA(new BinOp(Op.OR, lhs, rhs));
-        }
-
-        return lhs;
-    }
-
-    private Expr parseExpA() {
-        Expr lhs = parseExpB();
-        return parseOpsB(lhs);
-    }
-
-    private Expr parseOpsB(Expr lhs) {
-        if (accept(TokenClass.AND)) {
-            nextToken();
-            Expr rhs = parseExpB();
-            lhs = parseOpsB(new BinOp(Op.AND, lhs, rhs));
-        }
-
-        return lhs;
-    }
-
-    private Expr parseExpB() {
-        Expr lhs = parseExpC();
-        return parseOpsC(lhs);
-    }
-
-    private Expr parseOpsC(Expr lhs) {
-        if (accept(TokenClass.EQ, TokenClass.NE)) {
-            Op op;
-            if (token.tokenClass == TokenClass.EQ) op = Op.EQ;
-            else op = Op.NE;
-            nextToken();
-
-            Expr rhs = parseExpC();
-            lhs = parseOpsC(new BinOp(op, lhs, rhs));
-        }
-
-        return lhs;
+        return parseExp(1);
     }
 
-    private Expr parseExpC() {
-        Expr lhs = parseExpD();
-        return parseOpsD(lhs);
-    }
-
-    private Expr parseOpsD(Expr lhs) {
-        if (accept(TokenClass.LT, TokenClass.LE, TokenClass.GT, TokenClass.GE)) {
-            Op op;
-            if (token.tokenClass == TokenClass.LT) op = Op.LT;
-            else if (token.tokenClass == TokenClass.LE) op = Op.LE;
-            else if (token.tokenClass == TokenClass.GT) op = Op.GT;
-            else op = Op.GE;
-            nextToken();
-
-            Expr rhs = parseExpD();
-            lhs = parseOpsD(new BinOp(op, lhs, rhs));
+    /*
+     * Precedence climbing: parses an expression made of unary expressions joined by binary
+     * operators that bind at least as tightly as minPower. Operators of equal power associate
+     * to the left, since the right operand may only contain operators binding more tightly.
+     */
+    private Expr parseExp(int minPower) {
+        try {
+            return StackGuard.startsSegment(++nesting)
+                    ? StackGuard.segment(nesting, () -> parseExpBody(minPower)) : parseExpBody(minPower);
+        } finally {
+            nesting--;
         }
-
-        return lhs;
     }
 
-    private Expr parseExpD() {
-        Expr lhs = parseExpE();
-        return parseOpsE(lhs);
-    }
-
-    private Expr parseOpsE(Expr lhs) {
-        if (accept(TokenClass.PLUS, TokenClass.MINUS)) {
-            Op op;
-            if (token.tokenClass == TokenClass.PLUS) op = Op.ADD;
-            else op = Op.SUB;
+    private Expr parseExpBody(int minPower) {
+        Expr lhs = parseExpF();
+        while (true) {
+            TokenClass tc = lookAhead(0);
+            int power = BINDING_POWER[tc.ordinal()];
+            // tokens that are not binary operators have power 0 and stop the loop
+            if (power < minPower)
+                return lhs;
             nextToken();
-
-            Expr rhs = parseExpE();
-            lhs = parseOpsE(new BinOp(op, lhs, rhs));
+            Expr rhs = parseExp(power + 1);
+            lhs = new BinOp(BINARY_OP[tc.ordinal()], lhs, rhs);
         }
-
-        return lhs;
     }
 
-    private Expr parseExpE() {
-        Expr lhs = parseExpF();
-        return parseOpsF(lhs);
-    }
-
-    private Expr parseOpsF(Expr lhs) {
-        if (accept(TokenClass.ASTERIX, TokenClass.DIV, TokenClass.REM)) {
-            Op op;
-            if (token.tokenClass == TokenClass.ASTERIX) op = Op.MUL;
-            else if (token.tokenClass == TokenClass.DIV) op = Op.DIV;
-            else op = Op.MOD;
-            nextToken();
-
-            Expr rhs = parseExpF();
-            lhs = parseOpsF(new BinOp(op, lhs, rhs));
+    private Expr parseExpF() {
+        try {
+            return StackGuard.startsSegment(++nesting)
+                    ? StackGuard.segment(nesting, this::parseExpFBody) : parseExpFBody();
+        } finally {
+            nesting--;
         }
-
-        return lhs;
     }
 
-    private Expr parseExpF() {
+    private Expr parseExpFBody() {
         // unary minus
         if (accept(TokenClass.MINUS)) {
             nextToken();
@@ -468,10 +515,10 @@ public class Parser {
         } else if (accept(TokenClass.ASTERIX)) {
             return parseValueAt();
         // lookahead to see if (type) exp or (exp)
-        } else if (accept(TokenClass.LPAR) && (lookAhead(1).tokenClass == TokenClass.INT
-                                            || lookAhead(1).tokenClass == TokenClass.CHAR
-                                            || lookAhead(1).tokenClass == TokenClass.VOID
-                                            || lookAhead(1).tokenClass == TokenClass.STRUCT)) {
+        } else if (accept(TokenClass.LPAR) && (lookAhead(1) == TokenClass.INT
+                                            || lookAhead(1) == TokenClass.CHAR
+                                            || lookAhead(1) == TokenClass.VOID
+                                            || lookAhead(1) == TokenClass.STRUCT)) {
             return parseTypecast();
         } else {
             return parseExpG();
@@ -480,7 +527,7 @@ public class Parser {
 
     private Expr parseExpG() {
         // funcall
-        if (accept(TokenClass.IDENTIFIER) && lookAhead(1).tokenClass == TokenClass.LPAR) {
+        if (accept(TokenClass.IDENTIFIER) && lookAhead(1) == TokenClass.LPAR) {
             Expr lhs = parseFuncall();
             return parseOpsH(lhs);
         } else {
@@ -490,17 +537,19 @@ public class Parser {
     }
 
     private Expr parseOpsH(Expr lhs) {
-        // array access [exp]
-        if (accept(TokenClass.LSBR)) {
-            nextToken();
-            Expr idx = parseExp();
-            expect(TokenClass.RSBR);
-            lhs = parseOpsH(new ArrayAccessExpr(lhs, idx));
-        // field access . IDENT
-        } else if (accept(TokenClass.DOT)) {
-            nextToken();
-            Token t = expect(TokenClass.IDENTIFIER);
-            lhs = parseOpsH(new FieldAccessExpr(lhs, t.data));
+        while (accept(TokenClass.LSBR, TokenClass.DOT)) {
+            // array access [exp]
+            if (accept(TokenClass.LSBR)) {
+                nextToken();
+                Expr idx = parseExp();
+                expect(TokenClass.RSBR);
+                lhs = new ArrayAccessExpr(lhs, idx);
+            // field access . IDENT
+            } else {
+                nextToken();
+                String name = expect(TokenClass.IDENTIFIER);
+                lhs = new FieldAccessExpr(lhs, name);
+            }
         }
 
         return lhs;
@@ -508,9 +557,9 @@ public class Parser {
 
     private Expr parseExpH() {
         if (accept(TokenClass.IDENTIFIER)) {
-            Token t = expect(TokenClass.IDENTIFIER);
+            String name = expect(TokenClass.IDENTIFIER);
             // identifier
-            return new VarExpr(t.data);
+            return new VarExpr(name);
         } else if (accept(TokenClass.LPAR)) {
             // (exp)
             expect(TokenClass.LPAR);
@@ -518,30 +567,30 @@ public class Parser {
             expect(TokenClass.RPAR);
             return exp;
         } else if (accept(TokenClass.INT_LITERAL)) {
-            Token t = expect(TokenClass.INT_LITERAL);
+            String t = expect(TokenClass.INT_LITERAL);
 
-            // if expect threw an error, t will be an invalid token with empty data field
-            if (t.tokenClass == TokenClass.INVALID) return new IntLiteral(0);
-            else return new IntLiteral((Integer.valueOf(t.data)));
+            // if expect threw an error, t will be null
+            if (t == null) return new IntLiteral(0);
+            else return new IntLiteral((Integer.valueOf(t)));
         } else if (accept(TokenClass.STRING_LITERAL)) {
-            Token t = expect(TokenClass.STRING_LITERAL);
-            return new StrLiteral(t.data);
+            String t = expect(TokenClass.STRING_LITERAL);
+            return new StrLiteral(t);
         } else {
-            Token t = expect(TokenClass.CHAR_LITERAL);
+            String t = expect(TokenClass.CHAR_LITERAL);
 
-            // if expect threw an error, t will be an invalid token with empty data field
-            if (t.tokenClass == TokenClass.INVALID) return new ChrLiteral(' ');
-            else if (t.data.charAt(0) == '\\') return new ChrLiteral(t.data.charAt(1), true);
-            else return new ChrLiteral(t.data.charAt(0));
+            // if expect threw an error, t will be null
+            if (t == null) return new ChrLiteral(' ');
+            else if (t.charAt(0) == '\\') return new ChrLiteral(t.charAt(1), true);
+            else return new ChrLiteral(t.charAt(0));
         }
     }
 
     private FunCallExpr parseFuncall() {
-        Token t = expect(TokenClass.IDENTIFIER);
+        String name = expect(TokenClass.IDENTIFIER);
         expect(TokenClass.LPAR);
         List<Expr> args = parseArgList();
         expect(TokenClass.RPAR);
-        return new FunCallExpr(t.data, args);
+        return new FunCallExpr(name, args);
     }
 
     private List<Expr> parseArgList() {
@@ -557,10 +606,9 @@ public class Parser {
     }
 
     private void parseArgRep(List<Expr> args) {
-        if (accept(TokenClass.COMMA)) {
+        while (accept(TokenClass.COMMA)) {
             nextToken();
             args.add(parseExp());
-            parseArgRep(args);
         }
     }
 
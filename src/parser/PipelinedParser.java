@@ -0,0 +1,199 @@
+package parser;
+
+import ast.ASTNode;
+import ast.FunDecl;
+import ast.Program;
+import ast.StructTypeDecl;
+import ast.Types;
+import ast.VarDecl;
+import lexer.PipelinedTokeniser;
+import lexer.Tokeniser;
+import util.Channel;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Runs the front end of a compile as a pipeline of three stages, each on a thread of its own: the
+ * tokeniser lexes ahead (see PipelinedTokeniser), Parser parses on a second thread, and the
+ * declarations it completes are handed to the sink on the calling thread, which checks them, and
+ * lowers them, while the next ones are being parsed.
+ *
+ * The stages are joined by channels holding a few batches of tokens and a few declarations at most,
+ * so a stage that gets ahead waits for the next one, and memory stays bounded. The messages of the
+ * lexer and the parser are printed as Parser prints them, and getErrorCount tells the sink about
+ * the syntax errors found up to the end of the declaration it is being handed, as Parser would.
+ *
+ * The time each stage spent waiting on the others tells how busy it was, which getUtilisation
+ * reports: the busiest stage is the one that limits the pipeline.
+ */
+public class PipelinedParser implements ProgramParser {
+
+    private static final int DECLARATIONS = 16;     // declarations parsed ahead at most
+
+    /*
+     * A declaration and the syntax errors found up to its end. null at the end of the program.
+     */
+    private static final class Parsed {
+        final ASTNode declaration;
+        final int errors;
+
+        Parsed(ASTNode declaration, int errors) {
+            this.declaration = declaration;
+            this.errors = errors;
+        }
+    }
+
+    private static final Parsed FAILED = new Parsed(null, 0);
+
+    // thrown on the parser thread when the calling thread gave up
+    private static final class Stopped extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        Stopped() {
+            super(null, null, false, false);
+        }
+    }
+
+    private final PipelinedTokeniser tokeniser;
+    private PrintStream diagnostics = System.out;
+    private Types types = new Types();
+    private int errors = 0;
+
+    // nanoseconds each stage ran, and spent waiting on another, once parse has returned
+    private long lexing, lexWaiting, parsing, parseWaiting, checking, checkWaiting;
+
+    public PipelinedParser(Tokeniser tokeniser) {
+        this.tokeniser = new PipelinedTokeniser(tokeniser);
+    }
+
+    public int getErrorCount() {
+        return errors;
+    }
+
+    public void setDiagnostics(PrintStream out) {
+        this.diagnostics = out;
+    }
+
+    public void setTypes(Types types) {
+        this.types = types;
+    }
+
+    public Program parse() {
+        List<StructTypeDecl> stds = new ArrayList<>();
+        List<VarDecl> vds = new ArrayList<>();
+        List<FunDecl> fds = new ArrayList<>();
+        parse(new Declarations() {
+            public void struct(StructTypeDecl std) { stds.add(std); }
+            public void global(VarDecl vd) { vds.add(vd); }
+            public void function(FunDecl fd) { fds.add(fd); }
+        });
+        return new Program(stds, vds, fds);
+    }
+
+    @Override
+    public void parse(Declarations sink) {
+        long start = System.nanoTime();
+        Channel<Parsed> declarations = new Channel<>(DECLARATIONS);
+        Parser parser = new Parser(tokeniser);
+        parser.setDiagnostics(diagnostics);
+        parser.setTypes(types);
+        Throwable[] failure = new Throwable[1];
+        long[] parsed = new long[1];
+
+        Thread thread = new Thread(() -> {
+            long began = System.nanoTime();
+            try {
+                parser.parse(new Declarations() {
+                    public void struct(StructTypeDecl std) { hand(std); }
+                    public void global(VarDecl vd) { hand(vd); }
+                    public void function(FunDecl fd) { hand(fd); }
+
+                    private void hand(ASTNode declaration) {
+                        try {
+                            declarations.put(new Parsed(declaration, parser.getErrorCount()));
+                        } catch (InterruptedException e) {
+                            throw new Stopped();
+                        }
+                    }
+                });
+                declarations.put(new Parsed(null, parser.getErrorCount()));
+            } catch (Stopped | InterruptedException e) {
+                // the calling thread gave up
+            } catch (RuntimeException | Error e) {
+                failure[0] = e;
+                try {
+                    declarations.put(FAILED);
+                } catch (InterruptedException stopped) {
+                    // nobody is left to tell
+                }
+            } finally {
+                parsed[0] = System.nanoTime() - began;
+            }
+        }, "parser");
+        thread.setDaemon(true);
+        tokeniser.start();
+        thread.start();
+
+        try {
+            while (true) {
+                Parsed p = declarations.takeUninterruptibly();
+                if (p == FAILED) {
+                    if (failure[0] instanceof Error)
+                        throw (Error) failure[0];
+                    throw (RuntimeException) failure[0];
+                }
+                errors = p.errors;
+                if (p.declaration == null)
+                    break;
+                if (p.declaration instanceof StructTypeDecl)
+                    sink.struct((StructTypeDecl) p.declaration);
+                else if (p.declaration instanceof VarDecl)
+                    sink.global((VarDecl) p.declaration);
+                else
+                    sink.function((FunDecl) p.declaration);
+            }
+        } finally {
+            checking = System.nanoTime() - start;
+            thread.interrupt();
+            join(thread);
+            tokeniser.stop();
+        }
+
+        lexing = tokeniser.getLexingTime();
+        lexWaiting = tokeniser.getWaitingTime();
+        parsing = parsed[0];
+        parseWaiting = tokeniser.getStarvedTime() + declarations.producerWaiting();
+        checkWaiting = declarations.consumerWaiting();
+    }
+
+    private static void join(Thread thread) {
+        boolean interrupted = false;
+        while (true) {
+            try {
+                thread.join();
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted)
+            Thread.currentThread().interrupt();
+    }
+
+    /*
+     * Describes how busy each stage was over the last parse, as in
+     * "lex 12.0 ms (40% busy), parse 20.5 ms (68% busy), check 29.9 ms (99% busy)".
+     */
+    public String getUtilisation() {
+        return stage("lex", lexing, lexWaiting) + ", " + stage("parse", parsing, parseWaiting) + ", "
+                + stage("check", checking, checkWaiting);
+    }
+
+    // busy for the time it ran but did not wait, out of the time the whole pipeline ran
+    private String stage(String name, long ran, long waiting) {
+        long busy = Math.max(0, ran - waiting);
+        return String.format("%s %.1f ms (%d%% busy)", name, busy / 1e6, checking == 0 ? 0 : busy * 100 / checking);
+    }
+}
@@ -0,0 +1,41 @@
+package parser;
+
+import ast.FunDecl;
+import ast.Program;
+import ast.StructTypeDecl;
+import ast.Types;
+import ast.VarDecl;
+
+import java.io.PrintStream;
+
+/**
+ * A parser for a whole MiniC program, reporting syntax errors on the way.
+ */
+public interface ProgramParser {
+
+    Program parse();
+
+    /*
+     * Hands each top-level declaration to sink instead of returning a Program. A parser that cannot
+     * do better parses the whole program first.
+     */
+    default void parse(Declarations sink) {
+        Program program = parse();
+        for (StructTypeDecl std : program.structTypeDecls) sink.struct(std);
+        for (VarDecl vd : program.varDecls) sink.global(vd);
+        for (FunDecl fd : program.funDecls) sink.function(fd);
+    }
+
+    int getErrorCount();
+
+    /*
+     * Sends error messages to out instead of System.out.
+     */
+    void setDiagnostics(PrintStream out);
+
+    /*
+     * Makes the struct types from those of types, shared with the other parsers of the compile,
+     * instead of from a Types of the parser's own.
+     */
+    void setTypes(Types types);
+}
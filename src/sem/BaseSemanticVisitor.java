@@ -1,5 +1,6 @@
 package sem;
 
+import java.io.PrintStream;
 
 /**
  * 
@@ -8,6 +9,7 @@ package sem;
  */
 public abstract class BaseSemanticVisitor<T> implements SemanticVisitor<T> {
 	private int errors;
+	private PrintStream diagnostics = System.err;
 	
 	
 	public BaseSemanticVisitor() {
@@ -18,8 +20,15 @@ public abstract class BaseSemanticVisitor<T> implements SemanticVisitor<T> {
 		return errors;
 	}
 	
+	/*
+	 * Sends error messages to out instead of System.err.
+	 */
+	public void setDiagnostics(PrintStream out) {
+		this.diagnostics = out;
+	}
+
 	protected void error(String format, Object... args) {
-		System.err.printf("semantic error: " + format, args);
+		diagnostics.printf("semantic error: " + format, args);
 		errors++;
 	}
 }
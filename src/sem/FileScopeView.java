@@ -0,0 +1,38 @@
+package sem;
+
+import ast.FunDecl;
+
+import java.util.Map;
+
+/*
+ * The file scope as seen from the body of the function at position:
+ * the functions declared after it are not visible yet.
+ */
+final class FileScopeView extends Scope {
+	private final Scope file;
+	private final Map<FunDecl, Integer> positions;
+	private final int position;
+
+	FileScopeView(Scope file, Map<FunDecl, Integer> positions, int position) {
+		this.file = file;
+		this.positions = positions;
+		this.position = position;
+	}
+
+	@Override
+	public Symbol lookupCurrent(String name) {
+		Symbol s = file.lookupCurrent(name);
+		if (s instanceof FuncSymbol) {
+			// library functions have no position, and are always visible
+			Integer declared = positions.get(((FuncSymbol) s).fd);
+			if (declared != null && declared > position)
+				return null;
+		}
+		return s;
+	}
+
+	@Override
+	public void put(Symbol sym) {
+		throw new UnsupportedOperationException("the file scope is read-only while bodies are analysed");
+	}
+}
@@ -0,0 +1,107 @@
+package sem;
+
+import ast.*;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * Runs the same passes as SemanticAnalyzer, one declaration at a time, for callers that hold a
+ * program as separate declarations and want to analyse again only the functions that changed.
+ *
+ * The declarations are declared in the order the passes visit them: the structs, the global
+ * variables, then the function headers. After that the body of any function can be analysed, as
+ * often as it is edited, as long as its header stays the same: as in ParallelSemanticAnalyzer, it
+ * sees the functions declared up to its own. Every call prints to the stream it is given and returns
+ * the errors it found, so that the caller can tell which declaration they belong to.
+ */
+public class FunctionAnalyzer {
+
+	private static final PrintStream NOWHERE = new PrintStream(new OutputStream() {
+		@Override
+		public void write(int b) {
+		}
+	});
+
+	private final NameAnalysisVisitor names = new NameAnalysisVisitor();
+	private final TypeCheckVisitor types = new TypeCheckVisitor();
+	private final Map<FunDecl, Integer> positions = new IdentityHashMap<>();
+	private boolean library = false;
+
+	public int declare(StructTypeDecl std, PrintStream diagnostics) {
+		int errors = errors();
+		names.setDiagnostics(diagnostics);
+		types.setDiagnostics(diagnostics);
+		std.accept(names);
+		std.accept(types);
+		return errors() - errors;
+	}
+
+	public int declare(VarDecl vd, PrintStream diagnostics) {
+		int errors = errors();
+		names.setDiagnostics(diagnostics);
+		types.setDiagnostics(diagnostics);
+		vd.accept(names);
+		vd.accept(types);
+		return errors() - errors;
+	}
+
+	/*
+	 * Declares the header of the next function. Once one is, no more structs or globals can be.
+	 */
+	public int declare(FunDecl fd, PrintStream diagnostics) {
+		declareLibrary();
+		int errors = errors();
+		names.setDiagnostics(diagnostics);
+		positions.put(fd, positions.size());
+		names.visitFunDeclHeader(fd);
+		return errors() - errors;
+	}
+
+	/*
+	 * Declares the header of the next function, whose body is never to be analysed, as it was before,
+	 * such as that of a function of an included header. The types of its parameters are resolved
+	 * all the same, as IncrementalSemanticAnalyzer does, for the calls to it to be checked.
+	 */
+	public int declareUnchanged(FunDecl fd, PrintStream diagnostics) {
+		int errors = declare(fd, diagnostics);
+		int resolving = names.getErrorCount();
+		for (VarDecl vd : fd.params) vd.type.accept(names);
+		return errors + names.getErrorCount() - resolving;
+	}
+
+	/*
+	 * Analyses the body of fd, whose header is the one declared at position, counting from 0.
+	 * fd may be another parse of the declared function, as long as its header is spelt the same.
+	 * Bodies only read the declarations, so several can be analysed at once, on different threads.
+	 */
+	public int analyze(FunDecl fd, int position, PrintStream diagnostics) {
+		NameAnalysisVisitor v = new NameAnalysisVisitor(
+				new FileScopeView(names.scope, positions, position), names.structScope);
+
+		// the header was analysed when it was declared, its types only need resolving again
+		v.setDiagnostics(NOWHERE);
+		fd.type.accept(v);
+		int resolving = v.getErrorCount();
+
+		v.setDiagnostics(diagnostics);
+		v.visitFunDeclBody(fd);
+		TypeCheckVisitor t = new TypeCheckVisitor();
+		t.setDiagnostics(diagnostics);
+		fd.accept(t);
+		return v.getErrorCount() - resolving + t.getErrorCount();
+	}
+
+	private void declareLibrary() {
+		if (!library) {
+			names.addLibraryFunctions();
+			library = true;
+		}
+	}
+
+	private int errors() {
+		return names.getErrorCount() + types.getErrorCount();
+	}
+}
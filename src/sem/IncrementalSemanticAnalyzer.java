@@ -0,0 +1,53 @@
+package sem;
+
+import ast.*;
+
+import java.util.Set;
+
+/**
+ * Runs the same passes as SemanticAnalyzer, but leaves out the bodies of the functions known not to
+ * have changed since an earlier compile in which they passed.
+ *
+ * A body's analysis only depends on the body itself and on the declarations it can see: the structs,
+ * the global variables and the headers of the functions up to its own. When none of these changed,
+ * analysing the body again would find no errors, so it is only checked that the declarations still
+ * hold together: the headers of the unchanged functions are declared as usual.
+ *
+ * The bodies that are left out are not annotated, so they cannot be lowered by CodeGenerator.
+ */
+public class IncrementalSemanticAnalyzer extends SemanticAnalyzer {
+
+	private final Set<FunDecl> unchanged;
+
+	public IncrementalSemanticAnalyzer(Set<FunDecl> unchanged) {
+		this.unchanged = unchanged;
+	}
+
+	@Override
+	public int analyze(Program prog) {
+		// name analysis: the globals, then each header followed by its body, as in visitProgram
+		NameAnalysisVisitor names = new NameAnalysisVisitor();
+		names.setDiagnostics(diagnostics);
+		names.visitGlobals(prog);
+		for (FunDecl fd : prog.funDecls) {
+			names.visitFunDeclHeader(fd);
+			if (!unchanged.contains(fd))
+				names.visitFunDeclBody(fd);
+			else
+				for (VarDecl vd : fd.params) vd.type.accept(names);
+		}
+		int errors = names.getErrorCount();
+
+		// type checking: the globals, then the functions that changed
+		TypeCheckVisitor types = new TypeCheckVisitor();
+		types.setDiagnostics(diagnostics);
+		for (StructTypeDecl std : prog.structTypeDecls) std.accept(types);
+		for (VarDecl vd : prog.varDecls) vd.accept(types);
+		for (FunDecl fd : prog.funDecls)
+			if (!unchanged.contains(fd))
+				fd.accept(types);
+		errors += types.getErrorCount();
+
+		return errors;
+	}
+}
@@ -15,14 +15,25 @@ public class NameAnalysisVisitor extends BaseSemanticVisitor<Void> {
 		this.structScope = new Scope();
 	}
 
+	// analyses function bodies against global scopes filled by another visitor
+	NameAnalysisVisitor(Scope scope, Scope structScope) {
+		this.scope = scope;
+		this.structScope = structScope;
+	}
+
 	@Override
 	// Program ::= StructTypeDecl* VarDecl* FunDecl*
 	public Void visitProgram(Program p) {
+        visitGlobals(p);
+        for (FunDecl fd : p.funDecls) fd.accept(this);
+		return null;
+	}
+
+	// declares the structs, the global variables and the library functions
+	void visitGlobals(Program p) {
         for (StructTypeDecl std : p.structTypeDecls) std.accept(this);
         for (VarDecl vd : p.varDecls) vd.accept(this);
         addLibraryFunctions();
-        for (FunDecl fd : p.funDecls) fd.accept(this);
-		return null;
 	}
 
 	@Override
@@ -69,6 +80,15 @@ public class NameAnalysisVisitor extends BaseSemanticVisitor<Void> {
 	@Override
 	// FunDecl ::= Type String VarDecl* Block
 	public Void visitFunDecl(FunDecl fd) {
+		visitFunDeclHeader(fd);
+
+		// visit the children
+		visitFunDeclBody(fd);
+		return null;
+	}
+
+	// declares the function in the current scope
+	void visitFunDeclHeader(FunDecl fd) {
 		// fd could be of type int, char, void, pointertype, arraytype or structtype
 		// in the last case. we need to check if the structtype exists
 		fd.type.accept(this);
@@ -76,13 +96,9 @@ public class NameAnalysisVisitor extends BaseSemanticVisitor<Void> {
 		Symbol s = scope.lookupCurrent(fd.name);
 		if (s != null)  error("Variable or function with name %s has already been declared in this scope\n", fd.name);
 		else scope.put(new FuncSymbol(fd));
-
-		// visit the children
-		visitFunDeclBody(fd);
-		return null;
 	}
 
-	private void visitFunDeclBody(FunDecl fd) {
+	void visitFunDeclBody(FunDecl fd) {
 		Scope oldScope = scope;
 		scope = new Scope(oldScope);
 
@@ -114,10 +130,12 @@ public class NameAnalysisVisitor extends BaseSemanticVisitor<Void> {
 	// StructType ::= String
 	public Void visitStructType(StructType st) {
 		// check the struct has been declared
+		// (a tree may be analysed again after an edit, so a link left by an earlier analysis is replaced;
+		// the type is shared by every use of the struct, which may be analysed at once, so it is set in one go)
 		Symbol s = structScope.lookup(st.name);
 
 		if (s == null) error("Struct with name %s has not been declared in this scope\n", st.name);
-		else st.std = ((StructSymbol) s).std;
+		st.std = s == null ? null : ((StructSymbol) s).std;
 
 		return null;
 	}
@@ -151,6 +169,7 @@ public class NameAnalysisVisitor extends BaseSemanticVisitor<Void> {
 	// VarExpr ::= String
 	public Void visitVarExpr(VarExpr ve) {
 		// check the variable has been declared
+		ve.vd = null;
 		Symbol vs = scope.lookup(ve.name);
 
 		if (vs == null) error("Variable %s has not been declared in this scope\n", ve.name);
@@ -166,6 +185,7 @@ public class NameAnalysisVisitor extends BaseSemanticVisitor<Void> {
 	// FunCallExpr ::= String Expr*
 	public Void visitFunCallExpr(FunCallExpr fce) {
 		// check the function has been declared
+		fce.fd = null;
 		Symbol fs = scope.lookup(fce.name);
 
 		if (fs == null) error("Function %s has not been declared in this scope\n", fce.name);
@@ -285,13 +305,13 @@ public class NameAnalysisVisitor extends BaseSemanticVisitor<Void> {
     }
 
 	// HELPER FUNCTIONS
-	private void addLibraryFunctions() {
+	void addLibraryFunctions() {
 		// void print_s(char* s);
 		scope.put(new FuncSymbol(
 				new FunDecl(
 						BaseType.VOID,
 						"print_s",
-						Arrays.asList(new VarDecl(new PointerType(BaseType.CHAR), "s")),
+						Arrays.asList(new VarDecl(PointerType.to(BaseType.CHAR), "s")),
 						new Block(new ArrayList<>(), new ArrayList<>()))));
 
 		// void print_i(int i);
@@ -329,7 +349,7 @@ public class NameAnalysisVisitor extends BaseSemanticVisitor<Void> {
 		// void* mcmalloc(int size);
 		scope.put(new FuncSymbol(
 				new FunDecl(
-						new PointerType(BaseType.VOID),
+						PointerType.to(BaseType.VOID),
 						"mcmalloc",
 						Arrays.asList(new VarDecl(BaseType.INT, "size")),
 						new Block(new ArrayList<>(), new ArrayList<>()))));
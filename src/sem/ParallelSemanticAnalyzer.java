@@ -0,0 +1,113 @@
+package sem;
+
+import ast.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.IntConsumer;
+
+/**
+ * Runs the same passes as SemanticAnalyzer, but analyses the bodies of the functions in parallel.
+ *
+ * Each pass first visits the global declarations on the calling thread: the structs, the global
+ * variables, the library functions and, for name analysis, the function headers. The function
+ * bodies are then visited on the common fork-join pool, each with a visitor of its own, so with its
+ * own scope chain and error count. A body only sees the functions declared up to its own, as when
+ * the program is analysed sequentially.
+ *
+ * The messages of each function are buffered and printed in source order once the pass is over,
+ * so the output and the error count are the same as those of SemanticAnalyzer.
+ */
+public class ParallelSemanticAnalyzer extends SemanticAnalyzer {
+
+	@Override
+	public int analyze(Program prog) {
+		List<FunDecl> funDecls = prog.funDecls;
+		Output[] outputs = new Output[funDecls.size()];
+		for (int i = 0; i < outputs.length; i++)
+			outputs[i] = new Output();
+
+		// name analysis: the globals and the headers in order, then the bodies
+		NameAnalysisVisitor globals = new NameAnalysisVisitor();
+		globals.setDiagnostics(diagnostics);
+		globals.visitGlobals(prog);
+		Map<FunDecl, Integer> positions = new IdentityHashMap<>();
+		for (int i = 0; i < outputs.length; i++) {
+			FunDecl fd = funDecls.get(i);
+			positions.put(fd, i);
+			globals.setDiagnostics(outputs[i].stream);
+			globals.visitFunDeclHeader(fd);
+		}
+		int errors = globals.getErrorCount();
+		errors += forEachBody(outputs, i -> {
+			NameAnalysisVisitor v = new NameAnalysisVisitor(
+					new FileScopeView(globals.scope, positions, i), globals.structScope);
+			v.setDiagnostics(outputs[i].stream);
+			v.visitFunDeclBody(funDecls.get(i));
+			outputs[i].errors = v.getErrorCount();
+		});
+
+		// type checking: the globals, then the functions
+		TypeCheckVisitor types = new TypeCheckVisitor();
+		types.setDiagnostics(diagnostics);
+		for (StructTypeDecl std : prog.structTypeDecls) std.accept(types);
+		for (VarDecl vd : prog.varDecls) vd.accept(types);
+		errors += types.getErrorCount();
+		errors += forEachBody(outputs, i -> {
+			TypeCheckVisitor v = new TypeCheckVisitor();
+			v.setDiagnostics(outputs[i].stream);
+			funDecls.get(i).accept(v);
+			outputs[i].errors = v.getErrorCount();
+		});
+
+		return errors;
+	}
+
+	/*
+	 * What the visitors of one function printed in the current pass, and the errors they counted.
+	 */
+	private static final class Output {
+		final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+		final PrintStream stream = new PrintStream(buffer, true);
+		int errors = 0;
+	}
+
+	/*
+	 * Runs body for the index of every function in parallel, then prints their messages in order.
+	 * Returns the errors they counted.
+	 */
+	private int forEachBody(Output[] outputs, IntConsumer body) {
+		List<RecursiveAction> tasks = new ArrayList<>();
+		for (int i = 0; i < outputs.length; i++) {
+			int function = i;
+			tasks.add(new RecursiveAction() {
+				@Override
+				protected void compute() {
+					body.accept(function);
+				}
+			});
+		}
+		ForkJoinPool.commonPool().invoke(new RecursiveAction() {
+			@Override
+			protected void compute() {
+				invokeAll(tasks);
+			}
+		});
+
+		int errors = 0;
+		for (Output output : outputs) {
+			byte[] messages = output.buffer.toByteArray();
+			diagnostics.write(messages, 0, messages.length);
+			output.buffer.reset();
+			errors += output.errors;
+		}
+		diagnostics.flush();
+		return errors;
+	}
+}
@@ -1,8 +1,12 @@
 package sem;
 
-import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.Map;
 
+/*
+ * Names are compared by identity: the lexer's NameTable hands out a single
+ * String instance per distinct name, so no hashing of the text is needed.
+ */
 public class Scope {
 	private Scope outer;
 	// map identifier x to a symbol which
@@ -11,23 +15,25 @@ public class Scope {
 	
 	public Scope(Scope outer) {
 		this.outer = outer;
-		symbolTable = new HashMap<>();
+		symbolTable = new IdentityHashMap<>();
 	}
 	
 	public Scope() {
 		this(null);
-		symbolTable = new HashMap<>();
+		symbolTable = new IdentityHashMap<>();
 	}
 
 	// given a name, lookup the symbol corresponding to this name
 	public Symbol lookup(String name) {
-		Symbol s = symbolTable.get(name);
+		// walk out through the enclosing scopes in a loop, as blocks may be nested very deeply
+		for (Scope scope = this; scope != null; scope = scope.outer) {
+			Symbol s = scope.lookupCurrent(name);
 
-		// symbol exists
-		if (s != null) return s;
+			// symbol exists
+			if (s != null) return s;
 
-		// symbol does not exist, so check outer scope
-		if (outer != null) return outer.lookup(name);
+			// symbol does not exist, so check outer scope
+		}
 
 		// identifier is unknown
 		return null;
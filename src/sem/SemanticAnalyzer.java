@@ -2,10 +2,20 @@ package sem;
 
 import ast.*;
 
+import java.io.PrintStream;
 import java.util.ArrayList;
 import java.util.Arrays;
 
 public class SemanticAnalyzer {
+
+	PrintStream diagnostics = System.err;
+
+	/*
+	 * Sends error messages to out instead of System.err.
+	 */
+	public void setDiagnostics(PrintStream out) {
+		this.diagnostics = out;
+	}
 	
 	public int analyze(ast.Program prog) {
 		// List of visitors
@@ -18,6 +28,7 @@ public class SemanticAnalyzer {
 		
 		// Apply each visitor to the AST
 		for (SemanticVisitor v : visitors) {
+			v.setDiagnostics(diagnostics);
 			prog.accept(v);
 			errors += v.getErrorCount();
 		}
@@ -1,5 +1,7 @@
 package sem;
 
+import java.io.PrintStream;
+
 /**
  * @author dhil
  * An interface for semantic visitors.
@@ -11,4 +13,10 @@ public interface SemanticVisitor<T> extends ast.ASTVisitor<T> {
 	 * @return number of errors
 	 */
 	public int getErrorCount();
+
+	/**
+	 * Sends the error messages of the visitor to out instead of System.err.
+	 * @param out where to print them
+	 */
+	public void setDiagnostics(PrintStream out);
 }
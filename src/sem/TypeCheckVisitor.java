@@ -9,27 +9,10 @@ public class TypeCheckVisitor extends BaseSemanticVisitor<Type> {
     Type currFuncReturnType = BaseType.VOID;
 
     // what does it mean for two types to be equal?
+    // types are canonical (see ast.Types): arraytypes of the same length and basetype, pointertypes
+    // of the same basetype and structtypes of the same name are the same object, as two structs
+    // cannot be defined with the same name, which is enforced in name checking
     public boolean eq(Type a, Type b) {
-        // arraytypes are equal if they have the
-        // same length and the same basetype
-        if (a instanceof ArrayType && b instanceof ArrayType) {
-            return ((ArrayType) a).size == ((ArrayType) b).size
-                    && eq(((ArrayType) a).baseType, ((ArrayType) b).baseType);
-        }
-
-        // pointertypes are equal if they have the same basetype
-        if (a instanceof PointerType && b instanceof PointerType) {
-            return eq(((PointerType) a).baseType, ((PointerType) b).baseType);
-        }
-
-        // structtypes are equal if they have the name
-        // as two structs cannot be defined with the same name
-        // this is enforced in name checking
-        if (a instanceof StructType && b instanceof StructType) {
-            return ((StructType) a).name.equals(((StructType) b).name);
-        }
-
-        // basetype
         return a == b;
     }
 
@@ -106,7 +89,7 @@ public class TypeCheckVisitor extends BaseSemanticVisitor<Type> {
     @Override
     // StrLiteral ::= String
     public Type visitStrLiteral(StrLiteral sl) {
-        return new ArrayType(BaseType.CHAR, sl.s.length() + 1);
+        return ArrayType.of(BaseType.CHAR, sl.s.length() + 1);
     }
 
     @Override
@@ -267,14 +250,14 @@ public class TypeCheckVisitor extends BaseSemanticVisitor<Type> {
         // array to pointer
         if (exprType instanceof ArrayType && castType instanceof PointerType
                 && eq(((ArrayType) exprType).baseType, ((PointerType) castType).baseType)) {
-            tce.expr.type = new PointerType(((ArrayType) exprType).baseType);
+            tce.expr.type = PointerType.to(((ArrayType) exprType).baseType);
             tce.type = tce.expr.type;
             return tce.type;
         }
 
         // pointer to pointer
         if (exprType instanceof PointerType && castType instanceof PointerType) {
-            tce.expr.type = new PointerType(((PointerType) castType).baseType);
+            tce.expr.type = PointerType.to(((PointerType) castType).baseType);
             tce.type = tce.expr.type;
             return tce.type;
         }
@@ -0,0 +1,75 @@
+package util;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Hands items from one stage of a pipeline, on a thread of its own, to the next, on another.
+ *
+ * The channel holds a bounded number of items: a producer that gets that far ahead waits for the
+ * consumer, so that what is in flight never grows with the input. Items should be batches of work,
+ * so that the cost of a hand-off is spread over many tokens or declarations.
+ *
+ * Each side counts the time it spent waiting on the other, which tells how busy each stage was:
+ * the stage that hardly ever waits is the one holding the others back.
+ */
+public final class Channel<T> {
+
+    private final BlockingQueue<T> queue;
+
+    // each written by one side only
+    private volatile long producerWaiting = 0;
+    private volatile long consumerWaiting = 0;
+
+    public Channel(int capacity) {
+        queue = new ArrayBlockingQueue<>(capacity);
+    }
+
+    public void put(T item) throws InterruptedException {
+        if (queue.offer(item))
+            return;
+        long start = System.nanoTime();
+        queue.put(item);
+        producerWaiting += System.nanoTime() - start;
+    }
+
+    public T take() throws InterruptedException {
+        T item = queue.poll();
+        if (item != null)
+            return item;
+        long start = System.nanoTime();
+        item = queue.take();
+        consumerWaiting += System.nanoTime() - start;
+        return item;
+    }
+
+    /*
+     * Takes the next item, waiting for it however often the calling thread is interrupted, which is
+     * then left interrupted. For a consumer that cannot give up, as its producer would be stuck.
+     */
+    public T takeUninterruptibly() {
+        boolean interrupted = false;
+        try {
+            while (true) {
+                try {
+                    return take();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        } finally {
+            if (interrupted)
+                Thread.currentThread().interrupt();
+        }
+    }
+
+    // nanoseconds the producer spent waiting for room
+    public long producerWaiting() {
+        return producerWaiting;
+    }
+
+    // nanoseconds the consumer spent waiting for items
+    public long consumerWaiting() {
+        return consumerWaiting;
+    }
+}
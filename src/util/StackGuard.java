@@ -0,0 +1,82 @@
+package util;
+
+import java.util.function.Supplier;
+
+/**
+ * Lets the recursive parser and AST visitors handle arbitrarily deep nesting without depending on
+ * the size of the thread stack they were started on.
+ *
+ * A recursion runs on the stack it was started on for at most SEGMENT nested levels: the level
+ * that would go deeper continues on a fresh thread, with a stack of known size, while the calling
+ * thread waits for its result, and so on every LEVELS_PER_SEGMENT levels after that. The stack thus
+ * grows in segments as deep as the input needs. Inputs that do not nest that deep never leave the
+ * calling thread, and pay nothing for it: the parser counts its own nesting, and each statement and
+ * expression knows its height in the tree, so that only the nodes at a multiple of SEGMENT levels
+ * from the bottom go through segment().
+ */
+public final class StackGuard {
+
+    // nested levels, of a few frames each, run on a stack we did not start, whose size we do not know
+    public static final int SEGMENT = 256;
+    // nested levels run on one of our own segments, and the stack size that makes them safe
+    private static final int LEVELS_PER_SEGMENT = 8192;
+    private static final long SEGMENT_STACK_SIZE = 64L << 20;
+
+    private static final class Segment extends Thread {
+        Segment(Runnable body) {
+            super(null, body, "stack segment", SEGMENT_STACK_SIZE);
+        }
+    }
+
+    private StackGuard() {
+    }
+
+    /*
+     * Whether the recursion into a level this deep, or this high, must continue on a new segment.
+     */
+    public static boolean startsSegment(int level) {
+        return level % SEGMENT == 0;
+    }
+
+    /*
+     * Runs body, the level at which startsSegment said yes, on a new stack segment, unless this is
+     * one of ours and it has room for the next SEGMENT levels.
+     */
+    public static <T> T segment(int level, Supplier<T> body) {
+        if (Thread.currentThread() instanceof Segment && level % LEVELS_PER_SEGMENT != 0)
+            return body.get();
+
+        Object[] result = new Object[1];
+        Throwable[] failure = new Throwable[1];
+        Thread segment = new Segment(() -> {
+            try {
+                result[0] = body.get();
+            } catch (Throwable t) {
+                failure[0] = t;
+            }
+        });
+        segment.start();
+
+        boolean interrupted = false;
+        while (true) {
+            try {
+                segment.join();
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted)
+            Thread.currentThread().interrupt();
+
+        if (failure[0] instanceof RuntimeException)
+            throw (RuntimeException) failure[0];
+        if (failure[0] instanceof Error)
+            throw (Error) failure[0];
+        if (failure[0] != null)
+            throw new RuntimeException(failure[0]);
+        @SuppressWarnings("unchecked")
+        T t = (T) result[0];
+        return t;
+    }
+}
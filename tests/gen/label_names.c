@@ -0,0 +1,22 @@
+// the labels of the && and || in f must not be those of the functions named after them
+
+int f(int a) {
+    return a && 1 || a;
+}
+
+void f_and_0() {
+    // print 1
+    print_i(1);
+}
+
+void f_or_0() {
+    // print 2
+    print_i(2);
+}
+
+void main() {
+    // print 1
+    print_i(f(3));
+    f_and_0();
+    f_or_0();
+}